@@ -34,7 +34,6 @@ public class HiveConstants
     static final int MAX_SPLITS_PER_REQUEST = 1000_000;
     static final String COLUMN_NAME = "COLUMN_NAME";
     static final String HIVE_QUOTE_CHARACTER = "";
-    static final int FETCH_SIZE = 1000;
     static final String ALL_PARTITIONS = "*";
     public static final String HIVE_NAME = "hive";
     public static final String HIVE_DRIVER_CLASS = "com.cloudera.hive.jdbc.HS2Driver";
@@ -42,7 +42,6 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
-import static com.amazonaws.athena.connectors.cloudera.HiveConstants.FETCH_SIZE;
 import static com.amazonaws.athena.connectors.cloudera.HiveConstants.HIVE_DEFAULT_PORT;
 import static com.amazonaws.athena.connectors.cloudera.HiveConstants.HIVE_DRIVER_CLASS;
 import static com.amazonaws.athena.connectors.cloudera.HiveConstants.HIVE_NAME;
@@ -74,8 +73,6 @@ public class HiveRecordHandler extends JdbcRecordHandler
     @Override
     public PreparedStatement buildSplitSql(Connection jdbcConnection, String catalogName, TableName tableName, Schema schema, Constraints constraints, Split split) throws SQLException
     {
-        PreparedStatement preparedStatement = jdbcSplitQueryBuilder.buildSql(jdbcConnection, null, tableName.getSchemaName(), tableName.getTableName(), schema, constraints, split);
-        preparedStatement.setFetchSize(FETCH_SIZE);
-        return preparedStatement;
+        return jdbcSplitQueryBuilder.buildSql(jdbcConnection, null, tableName.getSchemaName(), tableName.getTableName(), schema, constraints, split);
     }
 }
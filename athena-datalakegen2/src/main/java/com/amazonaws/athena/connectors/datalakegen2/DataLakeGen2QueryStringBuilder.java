@@ -61,4 +61,13 @@ public class DataLakeGen2QueryStringBuilder extends JdbcSplitQueryBuilder
         LOGGER.debug("Fetching data ");
         return Collections.emptyList();
     }
+
+    /**
+     * Gen2 only limits rows using TOP, which can't be appended to the query, so limits are not pushed down.
+     */
+    @Override
+    protected String toLimitClause(long limit, boolean ordered)
+    {
+        return null;
+    }
 }
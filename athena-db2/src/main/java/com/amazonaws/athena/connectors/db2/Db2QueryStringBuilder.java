@@ -80,4 +80,10 @@ public class Db2QueryStringBuilder extends JdbcSplitQueryBuilder
         }
         return Collections.emptyList();
     }
+
+    @Override
+    protected String toLimitClause(long limit, boolean ordered)
+    {
+        return " FETCH FIRST " + limit + " ROWS ONLY";
+    }
 }
@@ -0,0 +1,123 @@
+package com.amazonaws.athena.connector.benchmarks;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK Benchmarks
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Diffs two JSON result files written by BenchmarkRunner (or by JMH with -rf json), printing the change in score of
+ * every benchmark/parameter combination present in both. Exits with a non-zero status if any throughput benchmark
+ * regressed by more than the threshold so that it can be used to gate a release.
+ * <p>
+ * Usage: java -cp athena-federation-sdk-benchmarks-{version}-benchmarks.jar
+ * com.amazonaws.athena.connector.benchmarks.BaselineComparator baseline.json candidate.json [threshold percent]
+ */
+public class BaselineComparator
+{
+    private static final double DEFAULT_THRESHOLD_PERCENT = 10.0D;
+
+    private BaselineComparator() {}
+
+    public static void main(String[] args)
+            throws IOException
+    {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineComparator <baseline.json> <candidate.json> [threshold percent]");
+            System.exit(2);
+        }
+
+        double threshold = (args.length > 2) ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+        Map<String, JsonNode> baseline = load(new File(args[0]));
+        Map<String, JsonNode> candidate = load(new File(args[1]));
+
+        int regressions = 0;
+        System.out.println(String.format("%-80s %16s %16s %9s", "Benchmark", "Baseline", "Candidate", "Change"));
+        for (Map.Entry<String, JsonNode> next : candidate.entrySet()) {
+            JsonNode old = baseline.get(next.getKey());
+            if (old == null) {
+                System.out.println(String.format("%-80s %16s %16.3f %9s", next.getKey(), "-", score(next.getValue()), "new"));
+                continue;
+            }
+
+            double oldScore = score(old);
+            double newScore = score(next.getValue());
+            double change = (oldScore == 0) ? 0 : (newScore - oldScore) * 100 / oldScore;
+            //For throughput higher is better, for the time based modes lower is better.
+            boolean higherIsBetter = "thrpt".equals(next.getValue().path("mode").asText());
+            boolean regressed = (higherIsBetter ? -change : change) > threshold;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.println(String.format("%-80s %16.3f %16.3f %8.2f%% %s",
+                    next.getKey(), oldScore, newScore, change, regressed ? "REGRESSION" : ""));
+        }
+
+        for (String next : baseline.keySet()) {
+            if (!candidate.containsKey(next)) {
+                System.out.println(String.format("%-80s %16.3f %16s %9s", next, score(baseline.get(next)), "-", "removed"));
+            }
+        }
+
+        System.out.println(regressions + " regression(s) exceeding " + threshold + "%");
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Loads a JMH JSON result file, keyed by benchmark name and parameters so that results from different runs can
+     * be matched up regardless of the order they ran in.
+     */
+    private static Map<String, JsonNode> load(File file)
+            throws IOException
+    {
+        Map<String, JsonNode> results = new TreeMap<>();
+        for (JsonNode next : new ObjectMapper().readTree(file)) {
+            //Drop the package name, it is the same for every benchmark and only makes the output harder to read.
+            String benchmark = next.path("benchmark").asText();
+            StringBuilder key = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1));
+            JsonNode params = next.path("params");
+            if (params.size() > 0) {
+                Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+                Map<String, String> sortedParams = new TreeMap<>();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> param = fields.next();
+                    sortedParams.put(param.getKey(), param.getValue().asText());
+                }
+                key.append(sortedParams.toString().replace('{', '[').replace('}', ']'));
+            }
+            results.put(key.toString(), next);
+        }
+        return results;
+    }
+
+    private static double score(JsonNode result)
+    {
+        return result.path("primaryMetric").path("score").asDouble();
+    }
+}
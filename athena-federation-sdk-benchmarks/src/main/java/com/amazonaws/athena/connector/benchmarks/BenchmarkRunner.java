@@ -0,0 +1,66 @@
+package com.amazonaws.athena.connector.benchmarks;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK Benchmarks
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the runnable benchmarks jar. Accepts the same arguments as JMH's own Main but, unless told
+ * otherwise, writes its results as JSON to jmh-baseline-{version}.json so that each release leaves behind a baseline
+ * which BaselineComparator can diff against the next one.
+ * <p>
+ * Usage: java -jar athena-federation-sdk-benchmarks-{version}-benchmarks.jar [JMH options] [benchmark regex]
+ */
+public class BenchmarkRunner
+{
+    private BenchmarkRunner() {}
+
+    public static void main(String[] args)
+            throws Exception
+    {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        if (cmdOptions.shouldHelp() || cmdOptions.shouldList() || cmdOptions.shouldListWithParams()
+                || cmdOptions.shouldListProfilers() || cmdOptions.shouldListResultFormats()) {
+            //Let JMH handle the informational commands.
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmdOptions);
+        if (!cmdOptions.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cmdOptions.getResult().hasValue()) {
+            options.result(defaultResultFile());
+        }
+        new Runner(options.build()).run();
+    }
+
+    private static String defaultResultFile()
+    {
+        String version = BenchmarkRunner.class.getPackage().getImplementationVersion();
+        return "jmh-baseline-" + (version != null ? version : "SNAPSHOT") + ".json";
+    }
+}
@@ -0,0 +1,119 @@
+package com.amazonaws.athena.connector.benchmarks;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK Benchmarks
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.amazonaws.athena.connector.lambda.data.Block;
+import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
+import com.amazonaws.athena.connector.lambda.data.SpillCompression;
+import com.amazonaws.athena.connector.lambda.security.AesGcmBlockCrypto;
+import com.amazonaws.athena.connector.lambda.security.EncryptionKey;
+import com.amazonaws.athena.connector.lambda.security.LocalKeyFactory;
+import com.google.common.io.ByteStreams;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rows/sec that AesGcmBlockCrypto can encrypt and decrypt, this is the cost paid for every spilled
+ * Block when spill encryption is enabled (the default).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlockCryptoBenchmark
+{
+    private static final int ROWS = 1_000;
+
+    @Param
+    public SchemaGenerator.Shape shape;
+
+    @Param({"NONE", "LZ4_FRAME"})
+    public SpillCompression compression;
+
+    private BlockAllocatorImpl allocator;
+    private AesGcmBlockCrypto crypto;
+    private EncryptionKey key;
+    private Schema schema;
+    private Block block;
+    private byte[] encrypted;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        allocator = new BlockAllocatorImpl();
+        crypto = new AesGcmBlockCrypto(allocator, compression);
+        key = new LocalKeyFactory().create();
+        schema = SchemaGenerator.newSchema(shape);
+        block = SchemaGenerator.newBlock(allocator, schema, ROWS);
+        encrypted = crypto.encrypt(key, block);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+            throws Exception
+    {
+        block.close();
+        allocator.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public byte[] encrypt()
+    {
+        return crypto.encrypt(key, block);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void encryptStreaming()
+            throws IOException
+    {
+        crypto.encrypt(key, block, ByteStreams.nullOutputStream());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int decrypt()
+            throws Exception
+    {
+        try (Block result = crypto.decrypt(key, encrypted, schema)) {
+            return result.getRowCount();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.amazonaws.athena.connector.benchmarks;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK Benchmarks
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.amazonaws.athena.connector.lambda.data.Block;
+import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
+import com.amazonaws.athena.connector.lambda.data.BlockFilter;
+import com.amazonaws.athena.connector.lambda.domain.predicate.ConstraintEvaluator;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Range;
+import com.amazonaws.athena.connector.lambda.domain.predicate.SortedRangeSet;
+import com.amazonaws.athena.connector.lambda.domain.predicate.ValueSet;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.types.Types;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the rows/sec of evaluating constraints on a populated Block column at a time with BlockFilter against
+ * evaluating them row by row with ConstraintEvaluator, as a connector post-filtering its rows would.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlockFilterBenchmark
+{
+    private static final int ROWS = 10_000;
+
+    private BlockAllocatorImpl allocator;
+    private Block block;
+    private Constraints constraints;
+    private ConstraintEvaluator evaluator;
+    private BlockFilter filter;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        allocator = new BlockAllocatorImpl();
+        //col0 is an INT, col1 a BIGINT and col2 a FLOAT8 in the NARROW_PRIMITIVES shape.
+        Schema schema = SchemaGenerator.newSchema(SchemaGenerator.Shape.NARROW_PRIMITIVES);
+        block = SchemaGenerator.newBlock(allocator, schema, ROWS);
+
+        Map<String, ValueSet> summary = new HashMap<>();
+        summary.put("col0", SortedRangeSet.of(false, Range.greaterThan(allocator, Types.MinorType.INT.getType(), ROWS / 4)));
+        summary.put("col1", SortedRangeSet.of(false, Range.lessThan(allocator, Types.MinorType.BIGINT.getType(), ROWS * 31L * 3 / 4)));
+        summary.put("col2", SortedRangeSet.of(false, Range.greaterThanOrEqual(allocator, Types.MinorType.FLOAT8.getType(), 10.0D)));
+        constraints = new Constraints(summary);
+        evaluator = new ConstraintEvaluator(allocator, schema, constraints);
+        filter = new BlockFilter(constraints);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+            throws Exception
+    {
+        evaluator.close();
+        block.close();
+        allocator.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long[] columnAtATime()
+    {
+        return filter.select(block);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void rowByRow(Blackhole blackhole)
+    {
+        for (int row = 0; row < ROWS; row++) {
+            boolean matched = true;
+            for (String field : constraints.getSummary().keySet()) {
+                FieldVector vector = block.getFieldVector(field);
+                matched &= evaluator.apply(field, vector.getObject(row));
+            }
+            blackhole.consume(matched);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.amazonaws.athena.connector.benchmarks;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK Benchmarks
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.amazonaws.athena.connector.lambda.data.Block;
+import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
+import com.amazonaws.athena.connector.lambda.data.S3BlockSpiller;
+import com.amazonaws.athena.connector.lambda.data.SchemaBuilder;
+import com.amazonaws.athena.connector.lambda.data.SpillConfig;
+import com.amazonaws.athena.connector.lambda.domain.predicate.ConstraintEvaluator;
+import com.amazonaws.athena.connector.lambda.domain.spill.S3SpillLocation;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rows/sec that can be written through S3BlockSpiller for schemas of increasing width. This is dominated
+ * by the per-row overhead of the spiller (Block size accounting in particular) rather than by the values being
+ * written, which are simple BIGINTs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlockSpillerWriteBenchmark
+{
+    private static final int ROWS_PER_INVOCATION = 1_000;
+    private static final long MAX_BLOCK_BYTES = 4 * 1024 * 1024;
+
+    @Param({"10", "100", "500"})
+    public int columns;
+
+    private BlockAllocatorImpl allocator;
+    private S3BlockSpiller spiller;
+
+    @Setup(Level.Iteration)
+    public void setup()
+    {
+        allocator = new BlockAllocatorImpl();
+        SchemaBuilder schemaBuilder = SchemaBuilder.newBuilder();
+        for (int i = 0; i < columns; i++) {
+            schemaBuilder.addBigIntField("col" + i);
+        }
+        Schema schema = schemaBuilder.build();
+
+        SpillConfig spillConfig = SpillConfig.newBuilder()
+                .withRequestId("benchmark")
+                .withSpillLocation(S3SpillLocation.newBuilder()
+                        .withBucket("bucket")
+                        .withPrefix("prefix")
+                        .withQueryId("benchmark")
+                        .withSplitId("split")
+                        .withIsDirectory(true)
+                        .build())
+                .withMaxBlockBytes(MAX_BLOCK_BYTES)
+                .withMaxInlineBlockBytes(0)
+                .withNumSpillThreads(0)
+                .build();
+
+        spiller = new S3BlockSpiller(new DiscardingAmazonS3(), spillConfig, allocator, schema, ConstraintEvaluator.emptyEvaluator());
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown()
+    {
+        spiller.close();
+        allocator.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_INVOCATION)
+    public void writeRows()
+    {
+        for (int i = 0; i < ROWS_PER_INVOCATION; i++) {
+            final long value = i;
+            spiller.writeRows((Block block, int rowNum) -> {
+                List<FieldVector> vectors = block.getFieldVectors();
+                for (int j = 0; j < vectors.size(); j++) {
+                    ((BigIntVector) vectors.get(j)).setSafe(rowNum, value);
+                }
+                return 1;
+            });
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.amazonaws.athena.connector.benchmarks;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK Benchmarks
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.amazonaws.athena.connector.lambda.data.Block;
+import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rows/sec that can be written to a Block using BlockUtils.setValue (and setComplexValue for structs
+ * and lists), which is how most connectors that don't use GeneratedRowWriter populate their Blocks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlockUtilsBenchmark
+{
+    private static final int ROWS = 1_000;
+
+    @Param
+    public SchemaGenerator.Shape shape;
+
+    private BlockAllocatorImpl allocator;
+    private Schema schema;
+    private Object[][] rows;
+    private Block block;
+
+    @Setup(Level.Trial)
+    public void setupTrial()
+    {
+        allocator = new BlockAllocatorImpl();
+        schema = SchemaGenerator.newSchema(shape);
+        rows = SchemaGenerator.newRows(schema, ROWS);
+    }
+
+    //Complex writers append rather than overwrite so each invocation needs an empty Block, an invocation writes
+    //enough rows that the cost of the setup does not skew the results.
+    @Setup(Level.Invocation)
+    public void setupInvocation()
+    {
+        block = allocator.createBlock(schema);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation()
+            throws Exception
+    {
+        block.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial()
+    {
+        allocator.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public Block setValue()
+    {
+        for (int row = 0; row < ROWS; row++) {
+            SchemaGenerator.writeRow(block, row, rows[row]);
+        }
+        block.setRowCount(ROWS);
+        return block;
+    }
+}
@@ -0,0 +1,117 @@
+package com.amazonaws.athena.connector.benchmarks;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK Benchmarks
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
+import com.amazonaws.athena.connector.lambda.data.SchemaBuilder;
+import com.amazonaws.athena.connector.lambda.domain.predicate.ConstraintEvaluator;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
+import com.amazonaws.athena.connector.lambda.domain.predicate.ValueSet;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures ConstraintEvaluator.apply(...) against a SortedRangeSet constraint and an EquatableValueSet constraint,
+ * this is the path used by connectors which filter values themselves before writing them to a Block.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConstraintEvaluatorBenchmark
+{
+    private static final int PROBES = 1_000;
+    private static final String RANGE_FIELD = "range_col";
+    private static final String EQUATABLE_FIELD = "equatable_col";
+
+    @Param
+    public ValueSetGenerator.ValueType type;
+
+    //The number of ranges in the SortedRangeSet and values in the EquatableValueSet.
+    @Param({"1", "10", "1000"})
+    public int size;
+
+    private BlockAllocatorImpl allocator;
+    private ConstraintEvaluator evaluator;
+    private Object[] probes;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        allocator = new BlockAllocatorImpl();
+        Schema schema = SchemaBuilder.newBuilder()
+                .addField(RANGE_FIELD, type.getArrowType())
+                .addField(EQUATABLE_FIELD, type.getArrowType())
+                .build();
+
+        Map<String, ValueSet> summary = new HashMap<>();
+        summary.put(RANGE_FIELD, ValueSetGenerator.newSortedRangeSet(allocator, type, size));
+        summary.put(EQUATABLE_FIELD, ValueSetGenerator.newEquatableValueSet(allocator, type, size));
+        evaluator = new ConstraintEvaluator(allocator, schema, new Constraints(summary));
+        probes = ValueSetGenerator.newProbes(type, size, PROBES);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+            throws Exception
+    {
+        evaluator.close();
+        allocator.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public void applySortedRangeSet(Blackhole blackhole)
+    {
+        for (Object next : probes) {
+            blackhole.consume(evaluator.apply(RANGE_FIELD, next));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public void applyEquatableValueSet(Blackhole blackhole)
+    {
+        for (Object next : probes) {
+            blackhole.consume(evaluator.apply(EQUATABLE_FIELD, next));
+        }
+    }
+}
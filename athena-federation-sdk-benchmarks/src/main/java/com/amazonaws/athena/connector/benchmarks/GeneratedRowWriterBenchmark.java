@@ -0,0 +1,215 @@
+package com.amazonaws.athena.connector.benchmarks;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK Benchmarks
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.amazonaws.athena.connector.lambda.data.Block;
+import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
+import com.amazonaws.athena.connector.lambda.data.writers.GeneratedRowWriter;
+import com.amazonaws.athena.connector.lambda.data.writers.extractors.BigIntExtractor;
+import com.amazonaws.athena.connector.lambda.data.writers.extractors.BitExtractor;
+import com.amazonaws.athena.connector.lambda.data.writers.extractors.DateDayExtractor;
+import com.amazonaws.athena.connector.lambda.data.writers.extractors.DecimalExtractor;
+import com.amazonaws.athena.connector.lambda.data.writers.extractors.Extractor;
+import com.amazonaws.athena.connector.lambda.data.writers.extractors.Float4Extractor;
+import com.amazonaws.athena.connector.lambda.data.writers.extractors.Float8Extractor;
+import com.amazonaws.athena.connector.lambda.data.writers.extractors.IntExtractor;
+import com.amazonaws.athena.connector.lambda.data.writers.extractors.SmallIntExtractor;
+import com.amazonaws.athena.connector.lambda.data.writers.extractors.TinyIntExtractor;
+import com.amazonaws.athena.connector.lambda.data.writers.extractors.VarCharExtractor;
+import com.amazonaws.athena.connector.lambda.data.writers.holders.NullableDecimalHolder;
+import com.amazonaws.athena.connector.lambda.data.writers.holders.NullableVarCharHolder;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Range;
+import com.amazonaws.athena.connector.lambda.domain.predicate.SortedRangeSet;
+import com.amazonaws.athena.connector.lambda.domain.predicate.ValueSet;
+import org.apache.arrow.vector.holders.NullableBigIntHolder;
+import org.apache.arrow.vector.holders.NullableBitHolder;
+import org.apache.arrow.vector.holders.NullableDateDayHolder;
+import org.apache.arrow.vector.holders.NullableFloat4Holder;
+import org.apache.arrow.vector.holders.NullableFloat8Holder;
+import org.apache.arrow.vector.holders.NullableIntHolder;
+import org.apache.arrow.vector.holders.NullableSmallIntHolder;
+import org.apache.arrow.vector.holders.NullableTinyIntHolder;
+import org.apache.arrow.vector.types.Types;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rows/sec that can be written to a Block using GeneratedRowWriter, optionally with a constraint on
+ * every column so that the cost of constraint projection is included. Each row is an Object[] and the extractors
+ * simply unbox the value for their column, mimicking a connector reading from a JDBC ResultSet.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneratedRowWriterBenchmark
+{
+    private static final int ROWS = 1_000;
+
+    //GeneratedRowWriter only supports flat schemas.
+    @Param({"NARROW_PRIMITIVES", "WIDE_PRIMITIVES", "NARROW_STRINGS", "WIDE_STRINGS"})
+    public SchemaGenerator.Shape shape;
+
+    @Param({"false", "true"})
+    public boolean constrained;
+
+    private BlockAllocatorImpl allocator;
+    private Schema schema;
+    private Object[][] rows;
+    private GeneratedRowWriter rowWriter;
+    private Block block;
+
+    @Setup(Level.Trial)
+    public void setupTrial()
+    {
+        allocator = new BlockAllocatorImpl();
+        schema = SchemaGenerator.newSchema(shape);
+        rows = SchemaGenerator.newRows(schema, ROWS);
+
+        Map<String, ValueSet> summary = new HashMap<>();
+        List<Field> fields = schema.getFields();
+        if (constrained) {
+            //Constraints which every generated value satisfies, so that the full row is always written.
+            for (Field next : fields) {
+                summary.put(next.getName(), SortedRangeSet.of(true, Range.all(allocator, next.getType())));
+            }
+        }
+        GeneratedRowWriter.RowWriterBuilder builder = GeneratedRowWriter.newBuilder(new Constraints(summary));
+        for (int i = 0; i < fields.size(); i++) {
+            builder.withExtractor(fields.get(i).getName(), makeExtractor(fields.get(i), i));
+        }
+        rowWriter = builder.build();
+    }
+
+    //The row writer recompiles its field writers for each new Block, like it would for each new Block in a spiller.
+    @Setup(Level.Invocation)
+    public void setupInvocation()
+    {
+        block = allocator.createBlock(schema);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation()
+            throws Exception
+    {
+        block.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial()
+    {
+        allocator.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public Block writeRow()
+            throws Exception
+    {
+        for (int row = 0; row < ROWS; row++) {
+            rowWriter.writeRow(block, row, rows[row]);
+        }
+        block.setRowCount(ROWS);
+        return block;
+    }
+
+    private static Extractor makeExtractor(Field field, int col)
+    {
+        Types.MinorType minorType = Types.getMinorTypeForArrowType(field.getType());
+        switch (minorType) {
+            case INT:
+                return (IntExtractor) (Object context, NullableIntHolder dst) -> {
+                    dst.isSet = 1;
+                    dst.value = (int) ((Object[]) context)[col];
+                };
+            case BIGINT:
+                return (BigIntExtractor) (Object context, NullableBigIntHolder dst) -> {
+                    dst.isSet = 1;
+                    dst.value = (long) ((Object[]) context)[col];
+                };
+            case FLOAT8:
+                return (Float8Extractor) (Object context, NullableFloat8Holder dst) -> {
+                    dst.isSet = 1;
+                    dst.value = (double) ((Object[]) context)[col];
+                };
+            case FLOAT4:
+                return (Float4Extractor) (Object context, NullableFloat4Holder dst) -> {
+                    dst.isSet = 1;
+                    dst.value = (float) ((Object[]) context)[col];
+                };
+            case SMALLINT:
+                return (SmallIntExtractor) (Object context, NullableSmallIntHolder dst) -> {
+                    dst.isSet = 1;
+                    dst.value = (short) ((Object[]) context)[col];
+                };
+            case TINYINT:
+                return (TinyIntExtractor) (Object context, NullableTinyIntHolder dst) -> {
+                    dst.isSet = 1;
+                    dst.value = (byte) ((Object[]) context)[col];
+                };
+            case BIT:
+                return (BitExtractor) (Object context, NullableBitHolder dst) -> {
+                    dst.isSet = 1;
+                    dst.value = (boolean) ((Object[]) context)[col] ? 1 : 0;
+                };
+            case DATEDAY:
+                return (DateDayExtractor) (Object context, NullableDateDayHolder dst) -> {
+                    dst.isSet = 1;
+                    dst.value = (int) ((Object[]) context)[col];
+                };
+            case DECIMAL:
+                return (DecimalExtractor) (Object context, NullableDecimalHolder dst) -> {
+                    dst.isSet = 1;
+                    dst.value = (BigDecimal) ((Object[]) context)[col];
+                };
+            case VARCHAR:
+                return (VarCharExtractor) (Object context, NullableVarCharHolder dst) -> {
+                    dst.isSet = 1;
+                    dst.value = (String) ((Object[]) context)[col];
+                };
+            default:
+                throw new IllegalArgumentException("Unsupported type " + minorType + " for field " + field.getName());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.amazonaws.athena.connector.benchmarks;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK Benchmarks
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.amazonaws.athena.connector.lambda.data.Block;
+import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
+import com.amazonaws.athena.connector.lambda.records.ReadRecordsResponse;
+import com.amazonaws.athena.connector.lambda.serde.VersionedObjectMapperFactory;
+import com.amazonaws.athena.connector.lambda.serde.v4.FramedResponseSerDeV4;
+import com.amazonaws.athena.connector.lambda.serde.v4.ObjectMapperFactoryV4;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rows/sec at which an inline ReadRecordsResponse can be written to the Lambda response stream, comparing
+ * the default JSON response (record batch embedded as base64) with the binary framing of SerDe version 4.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadRecordsResponseSerDeBenchmark
+{
+    private static final int ROWS = 1_000;
+
+    @Param({"NARROW_PRIMITIVES", "WIDE_STRINGS"})
+    public SchemaGenerator.Shape shape;
+
+    private BlockAllocatorImpl allocator;
+    private ObjectMapper jsonMapper;
+    private ObjectMapper framedMapper;
+    private ReadRecordsResponse response;
+    private ByteArrayOutputStream out;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        allocator = new BlockAllocatorImpl();
+        jsonMapper = VersionedObjectMapperFactory.create(allocator);
+        framedMapper = ObjectMapperFactoryV4.create(allocator);
+        Block block = SchemaGenerator.newBlock(allocator, SchemaGenerator.newSchema(shape), ROWS);
+        response = new ReadRecordsResponse("catalog", block);
+        out = new ByteArrayOutputStream();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+            throws Exception
+    {
+        response.close();
+        allocator.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int json()
+            throws IOException
+    {
+        out.reset();
+        jsonMapper.writeValue(out, response);
+        return out.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int framed()
+            throws IOException
+    {
+        out.reset();
+        FramedResponseSerDeV4.serialize(framedMapper, response, out);
+        return out.size();
+    }
+}
@@ -0,0 +1,108 @@
+package com.amazonaws.athena.connector.benchmarks;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK Benchmarks
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.amazonaws.athena.connector.lambda.data.Block;
+import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
+import com.amazonaws.athena.connector.lambda.data.RecordBatchSerDe;
+import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rows/sec that RecordBatchSerDe can serialize and deserialize, this is the Arrow IPC framing used for
+ * both spilled Blocks and Blocks returned inline in responses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecordBatchSerDeBenchmark
+{
+    private static final int ROWS = 1_000;
+
+    @Param
+    public SchemaGenerator.Shape shape;
+
+    private BlockAllocatorImpl allocator;
+    private RecordBatchSerDe serDe;
+    private Block block;
+    private byte[] serialized;
+    private ByteArrayOutputStream out;
+
+    @Setup(Level.Trial)
+    public void setup()
+            throws IOException
+    {
+        allocator = new BlockAllocatorImpl();
+        serDe = new RecordBatchSerDe(allocator);
+        block = SchemaGenerator.newBlock(allocator, SchemaGenerator.newSchema(shape), ROWS);
+        out = new ByteArrayOutputStream();
+        serDe.serialize(block.getRecordBatch(), out);
+        serialized = out.toByteArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+            throws Exception
+    {
+        block.close();
+        allocator.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int serialize()
+            throws IOException
+    {
+        out.reset();
+        serDe.serialize(block.getRecordBatch(), out);
+        return out.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int deserialize()
+            throws IOException
+    {
+        try (ArrowRecordBatch batch = serDe.deserialize(serialized)) {
+            return batch.getLength();
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.amazonaws.athena.connector.benchmarks;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK Benchmarks
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.amazonaws.athena.connector.lambda.data.Block;
+import com.amazonaws.athena.connector.lambda.data.BlockAllocator;
+import com.amazonaws.athena.connector.lambda.data.BlockUtils;
+import com.amazonaws.athena.connector.lambda.data.FieldResolver;
+import com.amazonaws.athena.connector.lambda.data.SchemaBuilder;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.types.Types;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates deterministic schemas and row values which resemble the tables connectors typically read. Benchmarks
+ * are parameterized by Shape so that regressions which only affect wide tables, or only affect complex types, are
+ * visible on their own rather than being averaged away.
+ */
+public class SchemaGenerator
+{
+    public static final ArrowType DECIMAL_TYPE = new ArrowType.Decimal(18, 2, 128);
+
+    //The primitive types we cycle through when generating primitive columns, all are supported by GeneratedRowWriter.
+    private static final ArrowType[] PRIMITIVE_TYPES = {
+            Types.MinorType.INT.getType(),
+            Types.MinorType.BIGINT.getType(),
+            Types.MinorType.FLOAT8.getType(),
+            Types.MinorType.FLOAT4.getType(),
+            Types.MinorType.SMALLINT.getType(),
+            Types.MinorType.TINYINT.getType(),
+            Types.MinorType.BIT.getType(),
+            Types.MinorType.DATEDAY.getType(),
+            DECIMAL_TYPE
+    };
+
+    //The lengths of generated strings cycle through these values to mimic a mix of codes, names and descriptions.
+    private static final int[] STRING_LENGTHS = {4, 16, 32, 128};
+
+    public enum Shape
+    {
+        NARROW_PRIMITIVES(8, ColumnKind.PRIMITIVE),
+        WIDE_PRIMITIVES(200, ColumnKind.PRIMITIVE),
+        NARROW_STRINGS(8, ColumnKind.STRING),
+        WIDE_STRINGS(200, ColumnKind.STRING),
+        STRUCTS(8, ColumnKind.STRUCT),
+        LISTS(8, ColumnKind.LIST);
+
+        private final int columns;
+        private final ColumnKind kind;
+
+        Shape(int columns, ColumnKind kind)
+        {
+            this.columns = columns;
+            this.kind = kind;
+        }
+
+        public int getColumns()
+        {
+            return columns;
+        }
+
+        /**
+         * @return True if this shape only contains types which GeneratedRowWriter supports.
+         */
+        public boolean isFlat()
+        {
+            return kind == ColumnKind.PRIMITIVE || kind == ColumnKind.STRING;
+        }
+    }
+
+    private enum ColumnKind
+    {
+        PRIMITIVE,
+        STRING,
+        STRUCT,
+        LIST
+    }
+
+    private SchemaGenerator() {}
+
+    /**
+     * Generates a Schema of the requested Shape. Column names are of the form col{N}.
+     *
+     * @param shape The Shape of the Schema to generate.
+     * @return The generated Schema.
+     */
+    public static Schema newSchema(Shape shape)
+    {
+        SchemaBuilder builder = SchemaBuilder.newBuilder();
+        for (int i = 0; i < shape.columns; i++) {
+            String name = "col" + i;
+            switch (shape.kind) {
+                case PRIMITIVE:
+                    builder.addField(name, PRIMITIVE_TYPES[i % PRIMITIVE_TYPES.length]);
+                    break;
+                case STRING:
+                    builder.addStringField(name);
+                    break;
+                case STRUCT:
+                    builder.addStructField(name);
+                    builder.addChildField(name, "id", Types.MinorType.BIGINT.getType());
+                    builder.addChildField(name, "name", Types.MinorType.VARCHAR.getType());
+                    builder.addChildField(name, "price", Types.MinorType.FLOAT8.getType());
+                    break;
+                case LIST:
+                    builder.addListField(name, (i % 2 == 0) ? Types.MinorType.BIGINT.getType() : Types.MinorType.VARCHAR.getType());
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported column kind " + shape.kind);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Generates the values for the requested number of rows. Each row is an Object[] with one value per field in
+     * the Schema, in Schema order, using the java types BlockUtils expects (e.g. Map for structs, List for lists).
+     *
+     * @param schema The Schema to generate values for.
+     * @param numRows The number of rows to generate.
+     * @return The generated rows.
+     */
+    public static Object[][] newRows(Schema schema, int numRows)
+    {
+        List<Field> fields = schema.getFields();
+        Object[][] rows = new Object[numRows][];
+        for (int row = 0; row < numRows; row++) {
+            Object[] values = new Object[fields.size()];
+            for (int col = 0; col < fields.size(); col++) {
+                values[col] = newValue(fields.get(col), row + col);
+            }
+            rows[row] = values;
+        }
+        return rows;
+    }
+
+    /**
+     * Generates a Block containing the requested number of rows.
+     *
+     * @param allocator The BlockAllocator to use when creating the Block.
+     * @param schema The Schema of the Block.
+     * @param numRows The number of rows to write to the Block.
+     * @return The populated Block, the caller is responsible for closing it.
+     */
+    public static Block newBlock(BlockAllocator allocator, Schema schema, int numRows)
+    {
+        Block block = allocator.createBlock(schema);
+        Object[][] rows = newRows(schema, numRows);
+        for (int row = 0; row < numRows; row++) {
+            writeRow(block, row, rows[row]);
+        }
+        block.setRowCount(numRows);
+        return block;
+    }
+
+    /**
+     * Writes a single row of values to the Block using BlockUtils.
+     *
+     * @param block The Block to write to.
+     * @param rowNum The row number to write.
+     * @param values The values, in Schema order, to write.
+     */
+    public static void writeRow(Block block, int rowNum, Object[] values)
+    {
+        List<FieldVector> vectors = block.getFieldVectors();
+        for (int col = 0; col < values.length; col++) {
+            FieldVector vector = vectors.get(col);
+            Types.MinorType minorType = vector.getMinorType();
+            if (minorType == Types.MinorType.STRUCT || minorType == Types.MinorType.LIST) {
+                BlockUtils.setComplexValue(vector, rowNum, FieldResolver.DEFAULT, values[col]);
+            }
+            else {
+                BlockUtils.setValue(vector, rowNum, values[col]);
+            }
+        }
+    }
+
+    /**
+     * Generates a deterministic value for the given field.
+     *
+     * @param field The field to generate a value for.
+     * @param seed Determines the value which is generated, the same seed always produces the same value.
+     * @return The generated value.
+     */
+    public static Object newValue(Field field, int seed)
+    {
+        Types.MinorType minorType = Types.getMinorTypeForArrowType(field.getType());
+        switch (minorType) {
+            case INT:
+                return seed;
+            case BIGINT:
+                return seed * 31L;
+            case FLOAT8:
+                return seed * 1.5D;
+            case FLOAT4:
+                return seed * 0.5F;
+            case SMALLINT:
+                return (short) seed;
+            case TINYINT:
+                return (byte) seed;
+            case BIT:
+                return seed % 2 == 0;
+            case DATEDAY:
+                return seed % 20_000;
+            case DECIMAL:
+                return BigDecimal.valueOf(seed * 100L + 99, 2);
+            case VARCHAR:
+                return newString(seed);
+            case STRUCT:
+                Map<String, Object> struct = new HashMap<>();
+                for (Field child : field.getChildren()) {
+                    struct.put(child.getName(), newValue(child, seed));
+                }
+                return struct;
+            case LIST:
+                Field child = field.getChildren().get(0);
+                List<Object> list = new ArrayList<>();
+                for (int i = 0; i < 1 + seed % 8; i++) {
+                    list.add(newValue(child, seed + i));
+                }
+                return list;
+            default:
+                throw new IllegalArgumentException("Unsupported type " + minorType + " for field " + field.getName());
+        }
+    }
+
+    private static String newString(int seed)
+    {
+        int length = STRING_LENGTHS[Math.abs(seed) % STRING_LENGTHS.length];
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + (seed + i) % 26));
+        }
+        return sb.toString();
+    }
+}
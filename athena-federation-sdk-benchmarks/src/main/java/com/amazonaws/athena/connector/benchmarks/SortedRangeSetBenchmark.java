@@ -0,0 +1,102 @@
+package com.amazonaws.athena.connector.benchmarks;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK Benchmarks
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
+import com.amazonaws.athena.connector.lambda.domain.predicate.ConstraintProjector;
+import com.amazonaws.athena.connector.lambda.domain.predicate.ConstraintProjectors;
+import com.amazonaws.athena.connector.lambda.domain.predicate.SortedRangeSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures SortedRangeSet.containsValue(Object) and the ConstraintProjector compiled from the same SortedRangeSet,
+ * which is what GeneratedRowWriter's constraint projection calls for every value it writes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SortedRangeSetBenchmark
+{
+    private static final int PROBES = 1_000;
+
+    @Param
+    public ValueSetGenerator.ValueType type;
+
+    @Param({"1", "10", "1000"})
+    public int ranges;
+
+    private BlockAllocatorImpl allocator;
+    private SortedRangeSet valueSet;
+    private ConstraintProjector projector;
+    private Object[] probes;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        allocator = new BlockAllocatorImpl();
+        valueSet = ValueSetGenerator.newSortedRangeSet(allocator, type, ranges);
+        projector = ConstraintProjectors.compile(valueSet);
+        probes = ValueSetGenerator.newProbes(type, ranges, PROBES);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        allocator.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public void containsValue(Blackhole blackhole)
+    {
+        for (Object next : probes) {
+            blackhole.consume(valueSet.containsValue(next));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public void compiledContainsValue(Blackhole blackhole)
+    {
+        for (Object next : probes) {
+            blackhole.consume(projector.apply(next));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.amazonaws.athena.connector.benchmarks;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK Benchmarks
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.amazonaws.athena.connector.lambda.data.BlockAllocator;
+import com.amazonaws.athena.connector.lambda.domain.predicate.EquatableValueSet;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Range;
+import com.amazonaws.athena.connector.lambda.domain.predicate.SortedRangeSet;
+import org.apache.arrow.vector.types.Types;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates ValueSets, and values to probe them with, for BIGINT and VARCHAR columns. Ranges are disjoint and evenly
+ * spaced over the probe domain so that roughly half of the probes fall inside a range, which keeps branch prediction
+ * from flattering the results.
+ */
+public class ValueSetGenerator
+{
+    //Each range covers the first half of a window of this many values.
+    private static final int RANGE_WINDOW = 100;
+
+    public enum ValueType
+    {
+        BIGINT(Types.MinorType.BIGINT.getType()),
+        VARCHAR(Types.MinorType.VARCHAR.getType());
+
+        private final ArrowType arrowType;
+
+        ValueType(ArrowType arrowType)
+        {
+            this.arrowType = arrowType;
+        }
+
+        public ArrowType getArrowType()
+        {
+            return arrowType;
+        }
+
+        Object valueOf(long value)
+        {
+            //Zero padded so that lexicographic and numeric ordering agree.
+            return (this == BIGINT) ? (Object) value : String.format("%010d", value);
+        }
+    }
+
+    private ValueSetGenerator() {}
+
+    /**
+     * @param allocator The BlockAllocator to use for the Markers of each Range.
+     * @param type The type of the values in the ValueSet.
+     * @param numRanges The number of disjoint ranges to include.
+     * @return A SortedRangeSet containing numRanges ranges of the form [N * 100, N * 100 + 50).
+     */
+    public static SortedRangeSet newSortedRangeSet(BlockAllocator allocator, ValueType type, int numRanges)
+    {
+        List<Range> ranges = new ArrayList<>();
+        for (long i = 0; i < numRanges; i++) {
+            ranges.add(Range.range(allocator,
+                    type.getArrowType(),
+                    type.valueOf(i * RANGE_WINDOW),
+                    true,
+                    type.valueOf(i * RANGE_WINDOW + RANGE_WINDOW / 2),
+                    false));
+        }
+        return SortedRangeSet.of(false, ranges.get(0), ranges.subList(1, ranges.size()));
+    }
+
+    /**
+     * @param allocator The BlockAllocator to use for the EquatableValueSet.
+     * @param type The type of the values in the ValueSet.
+     * @param numValues The number of values to include.
+     * @return An allow-list EquatableValueSet containing the values N * 100 to N * 100 + 49 until numValues values
+     * have been added.
+     */
+    public static EquatableValueSet newEquatableValueSet(BlockAllocator allocator, ValueType type, int numValues)
+    {
+        EquatableValueSet.Builder builder = EquatableValueSet.newBuilder(allocator, type.getArrowType(), true, false);
+        for (long i = 0; i < numValues; i++) {
+            builder.add(type.valueOf((i / (RANGE_WINDOW / 2)) * RANGE_WINDOW + i % (RANGE_WINDOW / 2)));
+        }
+        return builder.build();
+    }
+
+    /**
+     * @param type The type of the values to generate.
+     * @param numRanges The number of ranges in the ValueSet being probed, used to size the probe domain.
+     * @param numProbes The number of values to generate.
+     * @return Values spread uniformly over the domain covered by a ValueSet of numRanges ranges.
+     */
+    public static Object[] newProbes(ValueType type, int numRanges, int numProbes)
+    {
+        Random random = new Random(numRanges);
+        Object[] probes = new Object[numProbes];
+        for (int i = 0; i < numProbes; i++) {
+            probes[i] = type.valueOf(random.nextInt(numRanges * RANGE_WINDOW));
+        }
+        return probes;
+    }
+}
@@ -19,8 +19,11 @@
  */
 package com.amazonaws.athena.connector.validation;
 
+import com.amazonaws.athena.connector.lambda.data.Block;
 import com.amazonaws.athena.connector.lambda.data.BlockAllocator;
 import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
+import com.amazonaws.athena.connector.lambda.data.S3BlockSpillPrefetcher;
+import com.amazonaws.athena.connector.lambda.data.S3BlockSpillReader;
 import com.amazonaws.athena.connector.lambda.domain.Split;
 import com.amazonaws.athena.connector.lambda.domain.TableName;
 import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
@@ -30,7 +33,11 @@ import com.amazonaws.athena.connector.lambda.metadata.GetTableResponse;
 import com.amazonaws.athena.connector.lambda.metadata.ListSchemasResponse;
 import com.amazonaws.athena.connector.lambda.metadata.ListTablesResponse;
 import com.amazonaws.athena.connector.lambda.records.ReadRecordsResponse;
+import com.amazonaws.athena.connector.lambda.records.RecordResponse;
+import com.amazonaws.athena.connector.lambda.records.RemoteReadRecordsResponse;
 import com.amazonaws.athena.connector.lambda.security.FederatedIdentity;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.google.common.collect.Sets;
 import org.apache.arrow.vector.types.pojo.Field;
 import org.apache.arrow.vector.types.pojo.Schema;
@@ -77,6 +84,12 @@ public class ConnectorValidator
 
   static final BlockAllocator BLOCK_ALLOCATOR = new BlockAllocatorImpl();
 
+  //The number of spilled blocks to fetch and decrypt ahead of the one being validated.
+  private static final int SPILL_PREFETCH_DEPTH = 4;
+
+  //Only created if a split's records were spilled.
+  private static AmazonS3 amazonS3;
+
   private ConnectorValidator()
   {
     // Intentionally left blank.
@@ -297,40 +310,74 @@ public class ConnectorValidator
     return splitsResponse;
   }
 
-  private static ReadRecordsResponse readRecords(TestConfig testConfig,
-                                                 TableName table,
-                                                 Schema schema,
-                                                 Collection<Split> splits)
+  private static void readRecords(TestConfig testConfig,
+                                  TableName table,
+                                  Schema schema,
+                                  Collection<Split> splits)
+          throws Exception
   {
     Constraints constraints = parseConstraints(schema, testConfig.getConstraints());
     Split split = getRandomElement(splits);
     log.info("Executing randomly selected split with properties: {}", split.getProperties());
-    ReadRecordsResponse records = LambdaRecordProvider.readRecords(testConfig.getCatalogId(),
-                                                                   table,
-                                                                   constraints,
-                                                                   schema,
-                                                                   split,
-                                                                   testConfig.getRecordFunction(),
-                                                                   testConfig.getIdentity());
-    log.info("Received " + records.getRecordCount() + " records.");
-    checkState(records.getRecordCount() > 0,
+    RecordResponse response = LambdaRecordProvider.readRecordResponse(testConfig.getCatalogId(),
+                                                                      table,
+                                                                      constraints,
+                                                                      schema,
+                                                                      split,
+                                                                      testConfig.getRecordFunction(),
+                                                                      testConfig.getIdentity());
+    long recordCount = 0;
+    String firstRow = null;
+    Schema responseSchema;
+    if (response instanceof RemoteReadRecordsResponse) {
+      RemoteReadRecordsResponse remoteRecords = (RemoteReadRecordsResponse) response;
+      responseSchema = remoteRecords.getSchema();
+      log.info("Reading " + remoteRecords.getNumberBlocks() + " spilled blocks.");
+      try (S3BlockSpillPrefetcher blocks = new S3BlockSpillPrefetcher(new S3BlockSpillReader(getAmazonS3(), BLOCK_ALLOCATOR),
+                                                                      remoteRecords.getRemoteBlocks(),
+                                                                      remoteRecords.getEncryptionKey(),
+                                                                      responseSchema,
+                                                                      SPILL_PREFETCH_DEPTH)) {
+        while (blocks.hasNext()) {
+          try (Block block = blocks.next()) {
+            if (firstRow == null && block.getRowCount() > 0) {
+              firstRow = rowToString(block, 0);
+            }
+            recordCount += block.getRowCount();
+          }
+        }
+      }
+    }
+    else {
+      ReadRecordsResponse records = (ReadRecordsResponse) response;
+      responseSchema = records.getSchema();
+      recordCount = records.getRecordCount();
+      if (recordCount > 0) {
+        firstRow = rowToString(records.getRecords(), 0);
+      }
+    }
+
+    log.info("Received " + recordCount + " records.");
+    checkState(recordCount > 0,
                              "Table " + toQualifiedTableName(table)
                        + " did not return any rows in the tested split, even though an empty constraint was used."
                        + " This can happen if the table is empty but could also indicate an issue."
                        + " Please populate the table or specify a different table.");
     log.info("Discovered columns: "
-                     + records.getSchema().getFields()
+                     + responseSchema.getFields()
                                .stream()
                                .map(f -> f.getName() + ":" + f.getType().getTypeID())
                                .collect(Collectors.toList()));
 
-    if (records.getRecordCount() == 0) {
-      return records;
-    }
-
-    log.info("First row of split: " + rowToString(records.getRecords(), 0));
+    log.info("First row of split: " + firstRow);
+  }
 
-    return records;
+  private static synchronized AmazonS3 getAmazonS3()
+  {
+    if (amazonS3 == null) {
+      amazonS3 = AmazonS3ClientBuilder.defaultClient();
+    }
+    return amazonS3;
   }
 
   private static <T> T getRandomElement(Collection<T> elements)
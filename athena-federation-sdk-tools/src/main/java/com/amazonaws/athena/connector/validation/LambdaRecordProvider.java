@@ -24,6 +24,7 @@ import com.amazonaws.athena.connector.lambda.domain.TableName;
 import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
 import com.amazonaws.athena.connector.lambda.records.ReadRecordsRequest;
 import com.amazonaws.athena.connector.lambda.records.ReadRecordsResponse;
+import com.amazonaws.athena.connector.lambda.records.RecordResponse;
 import com.amazonaws.athena.connector.lambda.security.FederatedIdentity;
 import org.apache.arrow.vector.types.pojo.Schema;
 import org.slf4j.Logger;
@@ -58,6 +59,7 @@ public class LambdaRecordProvider
    * @param recordFunction the name of the Lambda function to call
    * @param identity the identity of the caller
    * @return the response
+   * @throws RuntimeException if the split's rows were spilled, use readRecordResponse(...) to read those
    */
   public static ReadRecordsResponse readRecords(String catalog,
                                                 TableName tableName,
@@ -66,6 +68,34 @@ public class LambdaRecordProvider
                                                 Split split,
                                                 String recordFunction,
                                                 FederatedIdentity identity)
+  {
+    RecordResponse response = readRecordResponse(catalog, tableName, constraints, schema, split, recordFunction, identity);
+    if (!(response instanceof ReadRecordsResponse)) {
+      throw new RuntimeException("Expected a ReadRecordsResponse but received " + response.getClass().getSimpleName());
+    }
+    return (ReadRecordsResponse) response;
+  }
+
+  /**
+   * This method builds and executes a ReadRecordsRequest against the specified Lambda function, the same as
+   * readRecords(...) except that responses whose rows were spilled are returned too.
+   *
+   * @param catalog the catalog name to be passed to Lambda
+   * @param tableName the schema-qualified table name indicating the table for which splits should be retrieved
+   * @param constraints the constraints to be applied to the request
+   * @param schema the schema of the table in question
+   * @param split the split to be read in this request
+   * @param recordFunction the name of the Lambda function to call
+   * @param identity the identity of the caller
+   * @return the response, either a ReadRecordsResponse or, if the split's rows were spilled, a RemoteReadRecordsResponse
+   */
+  public static RecordResponse readRecordResponse(String catalog,
+                                                  TableName tableName,
+                                                  Constraints constraints,
+                                                  Schema schema,
+                                                  Split split,
+                                                  String recordFunction,
+                                                  FederatedIdentity identity)
   {
     String queryId = generateQueryId();
     log.info("Submitting ReadRecordsRequest with ID " + queryId);
@@ -81,7 +111,7 @@ public class LambdaRecordProvider
                                         MAX_BLOCK_SIZE,
                                         MAX_INLINE_BLOCK_SIZE)) {
       log.info("Submitting request: {}", request);
-      ReadRecordsResponse response = (ReadRecordsResponse) getService(recordFunction, identity, catalog).call(request);
+      RecordResponse response = (RecordResponse) getService(recordFunction, identity, catalog).call(request);
       log.info("Received response: {}", response);
       return response;
     }
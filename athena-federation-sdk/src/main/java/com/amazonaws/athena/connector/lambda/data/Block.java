@@ -22,11 +22,16 @@ package com.amazonaws.athena.connector.lambda.data;
 
 import com.amazonaws.athena.connector.lambda.domain.predicate.ConstraintEvaluator;
 import com.google.common.base.MoreObjects;
+import org.apache.arrow.compression.CommonsCompressionFactory;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
 import org.apache.arrow.vector.FieldVector;
 import org.apache.arrow.vector.VectorLoader;
 import org.apache.arrow.vector.VectorSchemaRoot;
 import org.apache.arrow.vector.VectorUnloader;
 import org.apache.arrow.vector.complex.reader.FieldReader;
+import org.apache.arrow.vector.compression.CompressionCodec;
+import org.apache.arrow.vector.compression.CompressionUtil;
 import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
 import org.apache.arrow.vector.types.Types;
 import org.apache.arrow.vector.types.pojo.Field;
@@ -66,6 +71,9 @@ public class Block
         implements AutoCloseable
 {
     private static final Logger logger = LoggerFactory.getLogger(Block.class);
+    //The fraction of rows (relative to the last measurement) that may be written before exceedsSize(...) re-measures
+    //the Block even if the estimated size is below the threshold.
+    private static final int ROWS_BETWEEN_MEASUREMENTS_DIVISOR = 8;
 
     //Used to identify which BlockAllocator owns the underlying memory resources used in this Block for debugging purposes.
     //Not included in equality or hashcode.
@@ -79,6 +87,11 @@ public class Block
     //Note that we will _NOT_ close this ConstraintEvaluator because we may not own it and the emptyEvaluator
     //has no resources that could leak.
     private ConstraintEvaluator constraintEvaluator = ConstraintEvaluator.emptyEvaluator();
+    //The size, in bytes, of the Block the last time getSize() was called. Used to estimate the size of the Block
+    //without walking all of its vectors. Not included in equality or hashcode.
+    private long measuredSize = 0;
+    //The row count of the Block the last time getSize() was called, -1 if the Block has not been measured.
+    private int measuredRowCount = -1;
 
     /**
      * Used by a BlockAllocator to construct a block by setting the key values that a Block 'holds'. Most of the meaningful
@@ -312,9 +325,58 @@ public class Block
         for (FieldVector next : vectorSchema.getFieldVectors()) {
             size += next.getBufferSize();
         }
+        measuredSize = size;
+        measuredRowCount = getRowCount();
         return size;
     }
 
+    /**
+     * Estimates the current used size in 'bytes' of this Block by extrapolating from the average row size observed
+     * the last time the Block was measured using getSize(). Unlike getSize() this does not need to visit every
+     * FieldVector in the Block, making it cheap enough to call after every write even for very wide schemas.
+     *
+     * @return The estimated used bytes of row data in this Block.
+     * @note The estimate is only as good as the last measurement, if the size of rows varies widely use exceedsSize(...)
+     * which re-measures the Block periodically and before reporting that a threshold has been crossed.
+     */
+    @Transient
+    public long getEstimatedSize()
+    {
+        int rowCount = getRowCount();
+        if (rowCount == measuredRowCount) {
+            return measuredSize;
+        }
+        if (measuredRowCount <= 0 || rowCount < measuredRowCount) {
+            return getSize();
+        }
+        return measuredSize + (rowCount - measuredRowCount) * (measuredSize / measuredRowCount);
+    }
+
+    /**
+     * Tests if the used size of this Block exceeds the provided number of bytes. The Block's size is estimated from the
+     * average size of its rows and is only measured exactly (see getSize()) when the estimate crosses the provided
+     * threshold or the number of rows written since the last measurement grows beyond a fraction of the Block's rows.
+     * This avoids walking every FieldVector on each write while ensuring we never report a threshold as crossed based
+     * on an estimate alone.
+     *
+     * @param maxBytes The threshold to compare against.
+     * @return True if the exact size of the Block is larger than maxBytes, False otherwise.
+     */
+    public boolean exceedsSize(long maxBytes)
+    {
+        int rowCount = getRowCount();
+        if (rowCount == measuredRowCount) {
+            return measuredSize > maxBytes;
+        }
+        int rowsSinceMeasurement = rowCount - measuredRowCount;
+        if (measuredRowCount > 0 && rowsSinceMeasurement > 0 &&
+                rowsSinceMeasurement < Math.max(1, measuredRowCount / ROWS_BETWEEN_MEASUREMENTS_DIVISOR) &&
+                getEstimatedSize() <= maxBytes) {
+            return false;
+        }
+        return getSize() > maxBytes;
+    }
+
     /**
      * Provides access to the list of all top-level FieldVectors in this Block.
      *
@@ -336,19 +398,60 @@ public class Block
         return vectorUnloader.getRecordBatch();
     }
 
+    /**
+     * Used to unload the Apache Arrow data in this Block in preparation for Serialization, compressing the body
+     * buffers with the provided codec.
+     *
+     * @param codec The CompressionCodec to apply to each buffer in the batch.
+     * @return An ArrowRecordBatch containing all (compressed) row data in this Block for use in serializing the Block.
+     */
+    public ArrowRecordBatch getRecordBatch(CompressionCodec codec)
+    {
+        if (codec.getCodecType() == CompressionUtil.CodecType.NO_COMPRESSION) {
+            return getRecordBatch();
+        }
+
+        //Compression codecs close the buffer they compress, so we retain each vector buffer before it is
+        //compressed to avoid freeing this Block's buffers out from under it.
+        VectorUnloader vectorUnloader = new VectorUnloader(vectorSchema, true, new RetainingCompressionCodec(codec), true);
+        ArrowRecordBatch batch = vectorUnloader.getRecordBatch();
+        //The batch takes its own reference to the newly allocated compressed buffers, release ours so that
+        //closing the batch frees them.
+        for (ArrowBuf next : batch.getBuffers()) {
+            next.getReferenceManager().release();
+        }
+        return batch;
+    }
+
     /**
      * Used to load Apache Arrow data into this Block after it has been deserialized.
      *
      * @param batch An ArrowRecordBatch containing all row data you'd like to load into this Block.
      * @note The batch is closed after being loaded to avoid memory leaks or data corruption since the buffers
      * associated with the batch are now owned by this Block. Closing the batch essentially decrements the referrence
-     * count in the Arrow Allocator.
+     * count in the Arrow Allocator. Compressed batches are decompressed using the codec recorded in the batch.
      */
     public void loadRecordBatch(ArrowRecordBatch batch)
     {
-        VectorLoader vectorLoader = new VectorLoader(vectorSchema);
+        VectorLoader vectorLoader = new VectorLoader(vectorSchema, CommonsCompressionFactory.INSTANCE);
         vectorLoader.load(batch);
         batch.close();
+        measuredRowCount = -1;
+    }
+
+    /**
+     * Clears all row data, row count, and constraints from this Block while keeping its Apache Arrow buffers, and their
+     * capacity, so that the Block can be reused.
+     */
+    void reset()
+    {
+        for (FieldVector next : vectorSchema.getFieldVectors()) {
+            next.reset();
+        }
+        vectorSchema.setRowCount(0);
+        constraintEvaluator = ConstraintEvaluator.emptyEvaluator();
+        measuredSize = 0;
+        measuredRowCount = -1;
     }
 
     /**
@@ -518,4 +621,38 @@ public class Block
 
         return helper.toString();
     }
+
+    /**
+     * CompressionCodec which retains the buffers it is asked to compress before delegating to the underlying codec,
+     * which closes them once they have been compressed.
+     */
+    private static class RetainingCompressionCodec
+            implements CompressionCodec
+    {
+        private final CompressionCodec codec;
+
+        RetainingCompressionCodec(CompressionCodec codec)
+        {
+            this.codec = codec;
+        }
+
+        @Override
+        public ArrowBuf compress(BufferAllocator allocator, ArrowBuf uncompressedBuffer)
+        {
+            uncompressedBuffer.getReferenceManager().retain();
+            return codec.compress(allocator, uncompressedBuffer);
+        }
+
+        @Override
+        public ArrowBuf decompress(BufferAllocator allocator, ArrowBuf compressedBuffer)
+        {
+            return codec.decompress(allocator, compressedBuffer);
+        }
+
+        @Override
+        public CompressionUtil.CodecType getCodecType()
+        {
+            return codec.getCodecType();
+        }
+    }
 }
@@ -46,6 +46,39 @@ public interface BlockAllocator
      */
     Block createBlock(Schema schema);
 
+    /**
+     * Creates an empty Apache Arrow Block with the provided Schema, sized to hold the provided number of rows without
+     * reallocating its buffers. Blocks previously handed back via recycle(...) are reused when available.
+     *
+     * @param schema The schema of the Apache Arrow Block.
+     * @param rowCapacity The number of rows the Block is expected to hold, 0 if unknown.
+     * @return The resulting Block.
+     * @note Once created the Block is also registered with this BlockAllocator such that closing this BlockAllocator
+     * also closes this Block, freeing its Apache Arrow resources. The default implementation ignores rowCapacity and
+     * calls createBlock(schema).
+     */
+    default Block createBlock(Schema schema, int rowCapacity)
+    {
+        return createBlock(schema);
+    }
+
+    /**
+     * Hands a Block that is no longer needed back to this BlockAllocator so that its Apache Arrow buffers, and their
+     * capacity, can be reused by a later call to createBlock(...). Blocks which can not be reused are closed.
+     *
+     * @param block The Block to recycle, the caller must not use the Block after calling this method.
+     * @note The default implementation closes the Block.
+     */
+    default void recycle(Block block)
+    {
+        try {
+            block.close();
+        }
+        catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
     /**
      * Creates an empty Apache Arrow Buffer of the requested size. This is useful when working with certain Apache Arrow
      * types directly.
@@ -78,6 +111,17 @@ public interface BlockAllocator
      */
     long getUsage();
 
+    /**
+     * Provides access to the memory limit of the underlying Apache Arrow BufferAllocator.
+     *
+     * @return The max number of bytes that can be used.
+     * @note The default implementation returns Long.MAX_VALUE, meaning the limit is unknown.
+     */
+    default long getLimit()
+    {
+        return Long.MAX_VALUE;
+    }
+
     /**
      * Closes all Apache Arrow resources tracked by this BlockAllocator, freeing their memory.
      */
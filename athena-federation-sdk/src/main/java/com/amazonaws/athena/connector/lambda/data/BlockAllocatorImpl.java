@@ -32,8 +32,12 @@ import org.apache.arrow.vector.types.pojo.Schema;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -46,6 +50,8 @@ public class BlockAllocatorImpl
         implements BlockAllocator
 {
     private static final Logger logger = LoggerFactory.getLogger(BlockAllocatorImpl.class);
+    //The max number of recycled Blocks kept per Schema, bounds the memory held by Blocks that are not in use.
+    private static final int MAX_POOLED_BLOCKS_PER_SCHEMA = 2;
 
     //Identifier for this block allocator, mostly used by BlockAllocatorRegistry.
     private final String id;
@@ -53,6 +59,8 @@ public class BlockAllocatorImpl
     private final BufferAllocator rootAllocator;
     //The Blocks that have been allocated via this BlockAllocator
     private final List<Block> blocks = new ArrayList<>();
+    //Recycled Blocks, keyed by Schema, that are ready to be handed out again by createBlock(...)
+    private final Map<Schema, Deque<Block>> blockPool = new HashMap<>();
     //The record batches that have been allocated via this BlockAllocator
     private final List<ArrowRecordBatch> recordBatches = new ArrayList<>();
     //The arrow buffers that have been allocated via this BlockAllocator
@@ -97,12 +105,34 @@ public class BlockAllocatorImpl
      */
     public synchronized Block createBlock(Schema schema)
     {
+        return createBlock(schema, 0);
+    }
+
+    /**
+     * Creates a block sized for the given number of rows, reusing a recycled block with the same schema if one is
+     * available, and registers it for later clean up if the block isn't explicitly closed by the caller.
+     *
+     * @see com.amazonaws.athena.connector.lambda.data.BlockAllocator
+     */
+    public synchronized Block createBlock(Schema schema, int rowCapacity)
+    {
+        Deque<Block> pooled = blockPool.get(schema);
+        if (pooled != null && !pooled.isEmpty()) {
+            return pooled.pop();
+        }
+
         Block block = null;
         VectorSchemaRoot vectorSchemaRoot = null;
         List<FieldVector> vectors = new ArrayList();
         try {
             for (Field next : schema.getFields()) {
-                vectors.add(next.createVector(rootAllocator));
+                FieldVector vector = next.createVector(rootAllocator);
+                vectors.add(vector);
+                if (rowCapacity > 0) {
+                    //Allocating up front avoids repeatedly doubling (and copying) the buffers as the block fills.
+                    vector.setInitialCapacity(rowCapacity);
+                    vector.allocateNew();
+                }
             }
             vectorSchemaRoot = new VectorSchemaRoot(schema, vectors, 0);
             block = new Block(id, schema, vectorSchemaRoot);
@@ -131,6 +161,34 @@ public class BlockAllocatorImpl
         return block;
     }
 
+    /**
+     * Resets the block and keeps it for reuse by createBlock(...), if the pool for its schema is full or the block was
+     * not created by this BlockAllocator the block is closed instead.
+     *
+     * @see com.amazonaws.athena.connector.lambda.data.BlockAllocator
+     */
+    public synchronized void recycle(Block block)
+    {
+        Deque<Block> pooled = blockPool.computeIfAbsent(block.getSchema(), key -> new ArrayDeque<>());
+        if (!isClosed.get() && id.equals(block.getAllocatorId()) && pooled.size() < MAX_POOLED_BLOCKS_PER_SCHEMA) {
+            try {
+                block.reset();
+                pooled.push(block);
+                return;
+            }
+            catch (RuntimeException ex) {
+                logger.warn("recycle: Error resetting block, closing it instead.", ex);
+            }
+        }
+
+        try {
+            block.close();
+        }
+        catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
     /**
      * Creates an ArrowBuf and registers it for later clean up if the ArrowBuff isn't explicitly closed by the caller.
      *
@@ -254,6 +312,16 @@ public class BlockAllocatorImpl
         return rootAllocator.getAllocatedMemory();
     }
 
+    /**
+     * Returns the max number of bytes that can be allocated from the Apache Arrow Pool.
+     *
+     * @see com.amazonaws.athena.connector.lambda.data.BlockAllocator
+     */
+    public long getLimit()
+    {
+        return rootAllocator.getLimit();
+    }
+
     /**
      * Closes all Apache Arrow Resources allocated via this BlockAllocator and then attempts to
      * close the underlying Apache Arrow Allocator which would actually free memory. This operation may
@@ -268,6 +336,7 @@ public class BlockAllocatorImpl
         if (!isClosed.get()) {
             isClosed.set(true);
             closeBatches();
+            blockPool.clear();
             closeBlocks();
             closeBuffers();
             rootAllocator.close();
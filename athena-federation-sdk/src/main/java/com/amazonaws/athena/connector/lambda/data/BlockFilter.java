@@ -0,0 +1,378 @@
+package com.amazonaws.athena.connector.lambda.data;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.amazonaws.athena.connector.lambda.domain.predicate.ConstraintProjector;
+import com.amazonaws.athena.connector.lambda.domain.predicate.ConstraintProjectors;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
+import com.amazonaws.athena.connector.lambda.domain.predicate.ValueSet;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.vector.BaseFixedWidthVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.BitVectorHelper;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.types.Types;
+import org.apache.arrow.vector.util.TransferPair;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Applies Constraints to a fully populated Block, one column at a time, and then compacts the rows which satisfied
+ * every constraint to the front of the Block. This is an alternative to constraining the Block (see
+ * Block.constrain(...)) for connectors whose source can't filter for them and which would otherwise test every value
+ * as it is written.
+ * <p>
+ * Each constrained column is tested in a tight loop directly over its Apache Arrow validity and data buffers using
+ * the projector compiled by ConstraintProjectors, this avoids boxing for integral, date and floating point columns.
+ * The result of each column is AND'd into a selection bitmap and columns after the first only test rows which are
+ * still selected. Surviving rows are then copied in runs, rather than value by value, for fixed width vectors.
+ * <p>
+ * Fields which are constrained but not present in the Block are ignored, matching ConstraintEvaluator.
+ */
+public class BlockFilter
+{
+    private final List<ColumnFilter> filters = new ArrayList<>();
+
+    /**
+     * @param constraints The Constraints to apply, each ValueSet is compiled once and can be reused for any number
+     * of Blocks.
+     */
+    public BlockFilter(Constraints constraints)
+    {
+        requireNonNull(constraints, "constraints is null");
+        if (constraints.getSummary() != null) {
+            for (Map.Entry<String, ValueSet> next : constraints.getSummary().entrySet()) {
+                if (next.getValue() != null) {
+                    filters.add(new ColumnFilter(next.getKey(), next.getValue()));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return True if this filter has no constraints to apply and so would never remove any rows.
+     */
+    public boolean isEmpty()
+    {
+        return filters.isEmpty();
+    }
+
+    /**
+     * Computes which rows of the Block satisfy all constraints without modifying the Block.
+     *
+     * @param block The Block to test.
+     * @return A bitmap, in the same layout as java.util.BitSet.toLongArray(), with a bit set for each row that
+     * satisfies all constraints.
+     */
+    public long[] select(Block block)
+    {
+        int rowCount = block.getRowCount();
+        long[] selection = new long[(rowCount + 63) >>> 6];
+        Arrays.fill(selection, -1L);
+        if (rowCount % 64 != 0) {
+            selection[selection.length - 1] = (1L << (rowCount % 64)) - 1;
+        }
+
+        for (ColumnFilter next : filters) {
+            FieldVector vector = block.getFieldVector(next.fieldName);
+            if (vector != null) {
+                next.apply(vector, selection);
+            }
+        }
+        return selection;
+    }
+
+    /**
+     * Removes all rows of the Block which don't satisfy the constraints, the order of the surviving rows is
+     * preserved.
+     *
+     * @param block The Block to filter.
+     * @return The number of rows remaining in the Block.
+     */
+    public int filter(Block block)
+    {
+        int rowCount = block.getRowCount();
+        if (filters.isEmpty() || rowCount == 0) {
+            return rowCount;
+        }
+
+        long[] selection = select(block);
+        int selected = 0;
+        for (long next : selection) {
+            selected += Long.bitCount(next);
+        }
+
+        if (selected != rowCount) {
+            for (FieldVector next : block.getFieldVectors()) {
+                compact(next, selection, selected);
+            }
+            block.setRowCount(selected);
+        }
+        return selected;
+    }
+
+    /**
+     * Copies the selected rows of the vector into a new vector and then transfers the new vector's buffers back to
+     * the original, so the Block continues to reference the same FieldVector instances.
+     */
+    private static void compact(FieldVector vector, long[] selection, int selected)
+    {
+        try (FieldVector target = (FieldVector) vector.getField().createVector(vector.getAllocator())) {
+            target.setInitialCapacity(selected);
+            target.allocateNew();
+            if (vector instanceof BaseFixedWidthVector && !(vector instanceof BitVector)) {
+                compactFixedWidth((BaseFixedWidthVector) vector, (BaseFixedWidthVector) target, selection);
+            }
+            else {
+                TransferPair transferPair = vector.makeTransferPair(target);
+                int dst = 0;
+                for (int word = 0; word < selection.length; word++) {
+                    long bits = selection[word];
+                    while (bits != 0) {
+                        int row = (word << 6) + Long.numberOfTrailingZeros(bits);
+                        transferPair.copyValueSafe(row, dst++);
+                        bits &= bits - 1;
+                    }
+                }
+            }
+            target.setValueCount(selected);
+            target.makeTransferPair(vector).transfer();
+        }
+    }
+
+    private static void compactFixedWidth(BaseFixedWidthVector vector, BaseFixedWidthVector target, long[] selection)
+    {
+        int typeWidth = vector.getTypeWidth();
+        ArrowBuf srcData = vector.getDataBuffer();
+        ArrowBuf srcValidity = vector.getValidityBuffer();
+        ArrowBuf dstData = target.getDataBuffer();
+        ArrowBuf dstValidity = target.getValidityBuffer();
+        int rowCount = vector.getValueCount();
+
+        int dst = 0;
+        int row = nextSetBit(selection, 0, rowCount);
+        while (row >= 0) {
+            //Find the end of this run of selected rows so we can copy it in one go.
+            int runEnd = nextClearBit(selection, row, rowCount);
+            int runLength = runEnd - row;
+            dstData.setBytes((long) dst * typeWidth, srcData, (long) row * typeWidth, (long) runLength * typeWidth);
+            for (int i = 0; i < runLength; i++) {
+                BitVectorHelper.setValidityBit(dstValidity, dst + i, BitVectorHelper.get(srcValidity, row + i));
+            }
+            dst += runLength;
+            row = nextSetBit(selection, runEnd, rowCount);
+        }
+    }
+
+    private static int nextSetBit(long[] selection, int from, int limit)
+    {
+        for (int row = from; row < limit; ) {
+            long bits = selection[row >>> 6] & (-1L << row);
+            if (bits != 0) {
+                int next = ((row >>> 6) << 6) + Long.numberOfTrailingZeros(bits);
+                return next < limit ? next : -1;
+            }
+            row = ((row >>> 6) + 1) << 6;
+        }
+        return -1;
+    }
+
+    private static int nextClearBit(long[] selection, int from, int limit)
+    {
+        for (int row = from; row < limit; ) {
+            long bits = ~selection[row >>> 6] & (-1L << row);
+            if (bits != 0) {
+                int next = ((row >>> 6) << 6) + Long.numberOfTrailingZeros(bits);
+                return Math.min(next, limit);
+            }
+            row = ((row >>> 6) + 1) << 6;
+        }
+        return limit;
+    }
+
+    /**
+     * Tests a single column, clearing the selection bit of any row whose value does not satisfy the constraint.
+     */
+    private static class ColumnFilter
+    {
+        private final String fieldName;
+        private final Types.MinorType constraintType;
+        private final ConstraintProjector projector;
+        private final boolean nullResult;
+
+        ColumnFilter(String fieldName, ValueSet valueSet)
+        {
+            this.fieldName = fieldName;
+            this.constraintType = Types.getMinorTypeForArrowType(valueSet.getType());
+            this.projector = ConstraintProjectors.compile(valueSet);
+            this.nullResult = projector.apply(null);
+        }
+
+        void apply(FieldVector vector, long[] selection)
+        {
+            //The primitive loops are only valid if the constraint was built for the vector's type.
+            Types.MinorType vectorType = vector.getMinorType();
+            if (vectorType == constraintType && projector instanceof ConstraintProjector.LongProjector) {
+                switch (vectorType) {
+                    case BIGINT:
+                    case DATEMILLI:
+                        applyLongs(vector, selection, 8);
+                        return;
+                    case INT:
+                    case DATEDAY:
+                        applyLongs(vector, selection, 4);
+                        return;
+                    case SMALLINT:
+                        applyLongs(vector, selection, 2);
+                        return;
+                    case TINYINT:
+                        applyLongs(vector, selection, 1);
+                        return;
+                    default:
+                        break;
+                }
+            }
+            else if (vectorType == constraintType && projector instanceof ConstraintProjector.DoubleProjector) {
+                switch (vectorType) {
+                    case FLOAT8:
+                        applyDoubles(vector, selection, 8);
+                        return;
+                    case FLOAT4:
+                        applyDoubles(vector, selection, 4);
+                        return;
+                    default:
+                        break;
+                }
+            }
+            applyObjects(vector, selection);
+        }
+
+        private void applyLongs(FieldVector vector, long[] selection, int typeWidth)
+        {
+            ConstraintProjector.LongProjector longProjector = (ConstraintProjector.LongProjector) projector;
+            ArrowBuf validity = vector.getValidityBuffer();
+            ArrowBuf data = vector.getDataBuffer();
+            for (int word = 0; word < selection.length; word++) {
+                long bits = selection[word];
+                long remaining = bits;
+                while (remaining != 0) {
+                    int bit = Long.numberOfTrailingZeros(remaining);
+                    remaining &= remaining - 1;
+                    int row = (word << 6) + bit;
+                    boolean matched;
+                    if (BitVectorHelper.get(validity, row) == 0) {
+                        matched = nullResult;
+                    }
+                    else {
+                        long index = (long) row * typeWidth;
+                        long value;
+                        switch (typeWidth) {
+                            case 8:
+                                value = data.getLong(index);
+                                break;
+                            case 4:
+                                value = data.getInt(index);
+                                break;
+                            case 2:
+                                value = data.getShort(index);
+                                break;
+                            default:
+                                value = data.getByte(index);
+                                break;
+                        }
+                        matched = longProjector.applyLong(value);
+                    }
+                    if (!matched) {
+                        bits &= ~(1L << bit);
+                    }
+                }
+                selection[word] = bits;
+            }
+        }
+
+        private void applyDoubles(FieldVector vector, long[] selection, int typeWidth)
+        {
+            ConstraintProjector.DoubleProjector doubleProjector = (ConstraintProjector.DoubleProjector) projector;
+            ArrowBuf validity = vector.getValidityBuffer();
+            ArrowBuf data = vector.getDataBuffer();
+            for (int word = 0; word < selection.length; word++) {
+                long bits = selection[word];
+                long remaining = bits;
+                while (remaining != 0) {
+                    int bit = Long.numberOfTrailingZeros(remaining);
+                    remaining &= remaining - 1;
+                    int row = (word << 6) + bit;
+                    boolean matched;
+                    if (BitVectorHelper.get(validity, row) == 0) {
+                        matched = nullResult;
+                    }
+                    else {
+                        long index = (long) row * typeWidth;
+                        double value = (typeWidth == 8) ? data.getDouble(index) : data.getFloat(index);
+                        matched = doubleProjector.applyDouble(value);
+                    }
+                    if (!matched) {
+                        bits &= ~(1L << bit);
+                    }
+                }
+                selection[word] = bits;
+            }
+        }
+
+        /**
+         * Handles all other types by reading each value as an Object, VARCHAR values are read as Strings so that they
+         * can use the compiled projector's fast path.
+         */
+        private void applyObjects(FieldVector vector, long[] selection)
+        {
+            for (int word = 0; word < selection.length; word++) {
+                long bits = selection[word];
+                long remaining = bits;
+                while (remaining != 0) {
+                    int bit = Long.numberOfTrailingZeros(remaining);
+                    remaining &= remaining - 1;
+                    int row = (word << 6) + bit;
+                    boolean matched;
+                    if (vector.isNull(row)) {
+                        matched = nullResult;
+                    }
+                    else if (vector instanceof VarCharVector) {
+                        matched = projector.apply(new String(((VarCharVector) vector).get(row), StandardCharsets.UTF_8));
+                    }
+                    else {
+                        matched = projector.apply(vector.getObject(row));
+                    }
+                    if (!matched) {
+                        bits &= ~(1L << bit);
+                    }
+                }
+                selection[word] = bits;
+            }
+        }
+    }
+}
@@ -61,4 +61,58 @@ public interface BlockSpiller
      * Provides access to the ConstraintEvaluator that will be applied to the generated Blocks.
      */
     ConstraintEvaluator getConstraintEvaluator();
+
+    /**
+     * Creates a ProducerBlockWriter which allows one of several threads to write to this BlockSpiller concurrently.
+     *
+     * @return A new ProducerBlockWriter, which must be closed once the producer has finished writing.
+     * @note The default implementation serializes all writes on this BlockSpiller, implementations which can give each
+     * producer its own in progress Block should override it.
+     */
+    default ProducerBlockWriter newProducerWriter()
+    {
+        BlockSpiller spiller = this;
+        return new ProducerBlockWriter()
+        {
+            @Override
+            public void writeRows(RowWriter rowWriter)
+            {
+                synchronized (spiller) {
+                    spiller.writeRows(rowWriter);
+                }
+            }
+
+            @Override
+            public void writeBatch(BatchRowWriter rowWriter)
+            {
+                synchronized (spiller) {
+                    spiller.writeBatch(rowWriter);
+                }
+            }
+
+            @Override
+            public void recordFilteredRows(int rows)
+            {
+                spiller.recordFilteredRows(rows);
+            }
+
+            @Override
+            public boolean isLimitReached()
+            {
+                return spiller.isLimitReached();
+            }
+
+            @Override
+            public ConstraintEvaluator getConstraintEvaluator()
+            {
+                return spiller.getConstraintEvaluator();
+            }
+
+            @Override
+            public void close()
+            {
+                //NoOp, every write went straight to the BlockSpiller.
+            }
+        };
+    }
 }
@@ -38,7 +38,8 @@ public interface BlockWriter
          *
          * @param block The block you can add your row to.
          * @param rowNum The row number in that block that the next row represents.
-         * @return The number of rows that were added
+         * @return The number of rows that were added, 0 if the row offered by this call was filtered out (e.g. by
+         * constraints). BlockWriters count a call which adds no rows as one filtered row in their metrics.
          * @note We do not recommend writing more than 1 row per call. There are some use-cases which
          * are made much simpler by being able to write a small number (<100) rows per call. These often
          * relate to batched operators, scan side joins, or field expansions. Writing too many rows
@@ -48,6 +49,29 @@ public interface BlockWriter
         int writeRows(Block block, int rowNum) throws Exception;
     }
 
+    /**
+     * The interface you should implement for writing many rows to a Block per call via the inverted ownership
+     * model offered by BlockWriter. This amortizes the per-call overhead of the BlockWriter (e.g. Block size checks)
+     * across a batch of rows, which matters for sources that stream large numbers of narrow rows.
+     */
+    interface BatchRowWriter
+    {
+        /**
+         * Used to accumulate a batch of rows as part of a block.
+         *
+         * @param block The block you can add your rows to.
+         * @param rowNum The row number in that block that the first row of the batch represents.
+         * @param maxRows The max number of rows that may be added to the block in this call.
+         * @return The number of rows that were added, must not exceed maxRows.
+         * @note The BlockWriter sizes maxRows so that the batch is unlikely to overflow the Block. Implementations
+         * should stop once maxRows rows have been added or the source is exhausted, rows which are read from the
+         * source but filtered out (e.g. by constraints) do not count towards maxRows and should be reported through
+         * {@link BlockWriter#recordFilteredRows(int)}.
+         * @throws Exception internal exception.
+         */
+        int writeRows(Block block, int rowNum, int maxRows) throws Exception;
+    }
+
     /**
      * Used to write rows via the BlockWriter.
      *
@@ -55,6 +79,42 @@ public interface BlockWriter
      */
     void writeRows(RowWriter rowWriter);
 
+    /**
+     * Used to write a batch of rows via the BlockWriter.
+     *
+     * @param rowWriter The BatchRowWriter that the BlockWriter should use to write rows into the Block(s) it is managing.
+     * @note The default implementation writes a single row per call, implementations which can size batches
+     * should override it.
+     */
+    default void writeBatch(BatchRowWriter rowWriter)
+    {
+        writeRows((Block block, int rowNum) -> rowWriter.writeRows(block, rowNum, 1));
+    }
+
+    /**
+     * Used by BatchRowWriters to report rows which were read from the source but filtered out (e.g. by constraints),
+     * since the number of rows a batch adds doesn't tell how many it read.
+     *
+     * @param rows The number of rows that were filtered out.
+     * @note The default implementation ignores the rows, they are only used for metrics.
+     */
+    default void recordFilteredRows(int rows)
+    {
+    }
+
+    /**
+     * Used to tell if the BlockWriter has already accepted as many rows as the query needs (e.g. because the query
+     * has a LIMIT which was pushed down), in which case readers can stop reading from their source early. Rows
+     * written after the limit is reached are discarded.
+     *
+     * @return True if no more rows are needed, false otherwise.
+     * @note The default implementation never reaches a limit.
+     */
+    default boolean isLimitReached()
+    {
+        return false;
+    }
+
     /**
      * Provides access to the ConstraintEvaluator that will be applied to the generated Blocks.
      */
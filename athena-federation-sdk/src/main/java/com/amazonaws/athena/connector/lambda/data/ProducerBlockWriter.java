@@ -0,0 +1,38 @@
+package com.amazonaws.athena.connector.lambda.data;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * A BlockWriter used by one of several producers (threads) that write to the same BlockSpiller concurrently. Each
+ * ProducerBlockWriter must only be used by a single thread, but any number of them can be used in parallel.
+ *
+ * @note Rows written via a ProducerBlockWriter are only guaranteed to be part of the BlockSpiller's response once the
+ * ProducerBlockWriter has been closed.
+ */
+public interface ProducerBlockWriter
+        extends BlockWriter, AutoCloseable
+{
+    /**
+     * Hands any rows buffered by this ProducerBlockWriter to its BlockSpiller, after which it can no longer be used.
+     */
+    @Override
+    void close();
+}
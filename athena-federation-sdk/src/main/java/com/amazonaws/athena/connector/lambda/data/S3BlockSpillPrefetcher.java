@@ -0,0 +1,189 @@
+package com.amazonaws.athena.connector.lambda.data;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.amazonaws.athena.connector.lambda.domain.spill.S3SpillLocation;
+import com.amazonaws.athena.connector.lambda.domain.spill.SpillLocation;
+import com.amazonaws.athena.connector.lambda.security.EncryptionKey;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads the Blocks spilled to a list of SpillLocations in order, fetching and decrypting up to prefetchDepth of the
+ * following locations in the background while the caller processes the current Block. This overlaps the S3 round trip
+ * and decryption of each spilled Block with the processing of the previous one(s), while bounding memory use to at
+ * most prefetchDepth Blocks plus the Block the caller holds.
+ *
+ * @note Blocks returned by next() are owned by the caller, Blocks which were prefetched but never returned are closed
+ * when this reader is closed.
+ */
+public class S3BlockSpillPrefetcher
+        implements Iterator<Block>, AutoCloseable
+{
+    private static final Logger logger = LoggerFactory.getLogger(S3BlockSpillPrefetcher.class);
+    //Used to control how long close() waits for reads which were in progress to exit.
+    private static final long SHUTDOWN_MILLIS = 10_000;
+
+    private final S3BlockSpillReader reader;
+    private final List<SpillLocation> spillLocations;
+    private final EncryptionKey key;
+    private final Schema schema;
+    //Reads and decrypts spilled Blocks, one thread per Block we may be prefetching.
+    private final ExecutorService executor;
+    //Blocks being prefetched, in the order of their SpillLocations.
+    private final Deque<Future<Block>> prefetched = new ArrayDeque<>();
+    //The index of the next SpillLocation to start prefetching.
+    private int nextLocation = 0;
+    private boolean closed = false;
+
+    /**
+     * @param reader The S3BlockSpillReader used to read each spilled Block.
+     * @param spillLocations The SpillLocations to read, in the order their Blocks should be returned.
+     * @param key The encryption key to use when reading the spilled Blocks, null if they are not encrypted.
+     * @param schema The Schema to use when deserializing the spilled Blocks.
+     * @param prefetchDepth The max number of Blocks to fetch ahead of the caller, must be > 0.
+     */
+    public S3BlockSpillPrefetcher(S3BlockSpillReader reader,
+            List<SpillLocation> spillLocations,
+            EncryptionKey key,
+            Schema schema,
+            int prefetchDepth)
+    {
+        if (prefetchDepth <= 0) {
+            throw new IllegalArgumentException("prefetchDepth must be > 0 but was " + prefetchDepth);
+        }
+        this.reader = requireNonNull(reader, "reader was null");
+        this.spillLocations = new ArrayList<>(requireNonNull(spillLocations, "spillLocations was null"));
+        this.key = key;
+        this.schema = requireNonNull(schema, "schema was null");
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, Math.min(prefetchDepth, this.spillLocations.size())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "spill-prefetch-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        while (prefetched.size() < prefetchDepth && nextLocation < this.spillLocations.size()) {
+            prefetchNext();
+        }
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        return !closed && !prefetched.isEmpty();
+    }
+
+    /**
+     * Returns the next spilled Block, waiting for it to be fetched if needed, and starts prefetching another.
+     *
+     * @return The next Block, in the order of the SpillLocations.
+     */
+    @Override
+    public Block next()
+    {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        Future<Block> next = prefetched.removeFirst();
+        if (nextLocation < spillLocations.size()) {
+            prefetchNext();
+        }
+
+        try {
+            return next.get();
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for spilled block.", ex);
+        }
+        catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            throw (cause instanceof RuntimeException) ? (RuntimeException) cause : new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * Stops any prefetching still in progress and closes any Blocks which were prefetched but not returned.
+     */
+    @Override
+    public void close()
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        //Reads which are in progress may still complete after being interrupted, so rather than cancelling their
+        //Futures (which would discard the Block) we wait for them to exit and close whatever they produced.
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_MILLIS, TimeUnit.MILLISECONDS)) {
+                logger.warn("close: Timed out waiting for prefetches to exit, their Blocks will not be closed.");
+            }
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        for (Future<Block> next : prefetched) {
+            if (next.isDone()) {
+                closeQuietly(next);
+            }
+        }
+        prefetched.clear();
+    }
+
+    private void prefetchNext()
+    {
+        SpillLocation location = spillLocations.get(nextLocation++);
+        if (!(location instanceof S3SpillLocation)) {
+            throw new IllegalArgumentException("Unsupported SpillLocation " + location.getClass());
+        }
+        prefetched.addLast(executor.submit(() -> reader.read((S3SpillLocation) location, key, schema)));
+    }
+
+    private void closeQuietly(Future<Block> future)
+    {
+        try {
+            future.get().close();
+        }
+        catch (Exception ex) {
+            logger.debug("closeQuietly: Ignoring exception from prefetched block.", ex);
+        }
+    }
+}
@@ -26,6 +26,7 @@ import com.amazonaws.athena.connector.lambda.security.BlockCrypto;
 import com.amazonaws.athena.connector.lambda.security.EncryptionKey;
 import com.amazonaws.athena.connector.lambda.security.NoOpBlockCrypto;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.S3Object;
 import com.google.common.io.ByteStreams;
 import org.apache.arrow.vector.types.pojo.Schema;
@@ -33,6 +34,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 import static java.util.Objects.requireNonNull;
 
@@ -65,7 +67,7 @@ public class S3BlockSpillReader
             fullObject = amazonS3.getObject(spillLocation.getBucket(), spillLocation.getKey());
             logger.debug("read: Completed reading block from S3");
             BlockCrypto blockCrypto = (key != null) ? new AesGcmBlockCrypto(allocator) : new NoOpBlockCrypto(allocator);
-            Block block = blockCrypto.decrypt(key, ByteStreams.toByteArray(fullObject.getObjectContent()), schema);
+            Block block = blockCrypto.decrypt(key, readFully(fullObject), schema);
             logger.debug("read: Completed decrypting block of size.");
             return block;
         }
@@ -99,7 +101,7 @@ public class S3BlockSpillReader
             fullObject = amazonS3.getObject(spillLocation.getBucket(), spillLocation.getKey());
             logger.debug("read: Completed reading block from S3");
             BlockCrypto blockCrypto = (key != null) ? new AesGcmBlockCrypto(allocator) : new NoOpBlockCrypto(allocator);
-            return blockCrypto.decrypt(key, ByteStreams.toByteArray(fullObject.getObjectContent()));
+            return blockCrypto.decrypt(key, readFully(fullObject));
         }
         catch (IOException ex) {
             throw new RuntimeException(ex);
@@ -115,4 +117,26 @@ public class S3BlockSpillReader
             }
         }
     }
+
+    /**
+     * Reads the content of an S3Object. When S3 tells us the size of the object the content is streamed directly into
+     * a byte[] of exactly that size, avoiding the growing buffers and final copy of reading into a ByteArrayOutputStream.
+     *
+     * @param object The S3Object to read, the caller is responsible for closing it.
+     * @return The content of the object.
+     */
+    static byte[] readFully(S3Object object)
+            throws IOException
+    {
+        ObjectMetadata metadata = object.getObjectMetadata();
+        long contentLength = (metadata != null) ? metadata.getContentLength() : 0;
+        try (InputStream in = object.getObjectContent()) {
+            if (contentLength <= 0 || contentLength > Integer.MAX_VALUE) {
+                return ByteStreams.toByteArray(in);
+            }
+            byte[] bytes = new byte[(int) contentLength];
+            ByteStreams.readFully(in, bytes);
+            return bytes;
+        }
+    }
 }
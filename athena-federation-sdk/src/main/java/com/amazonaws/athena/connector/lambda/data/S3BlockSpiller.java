@@ -20,6 +20,7 @@ package com.amazonaws.athena.connector.lambda.data;
  * #L%
  */
 
+import com.amazonaws.AmazonWebServiceRequest;
 import com.amazonaws.athena.connector.lambda.domain.predicate.ConstraintEvaluator;
 import com.amazonaws.athena.connector.lambda.domain.spill.S3SpillLocation;
 import com.amazonaws.athena.connector.lambda.domain.spill.SpillLocation;
@@ -28,27 +29,19 @@ import com.amazonaws.athena.connector.lambda.security.BlockCrypto;
 import com.amazonaws.athena.connector.lambda.security.EncryptionKey;
 import com.amazonaws.athena.connector.lambda.security.NoOpBlockCrypto;
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.model.ObjectMetadata;
-import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.S3Object;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.common.io.ByteStreams;
+import org.apache.arrow.vector.FieldVector;
 import org.apache.arrow.vector.types.pojo.Schema;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.RejectedExecutionHandler;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
@@ -70,8 +63,12 @@ public class S3BlockSpiller
     private static final long ASYNC_SHUTDOWN_MILLIS = 10_000;
     //The default max number of rows that are allowed to be written per call to writeRows(...)
     private static final int MAX_ROWS_PER_CALL = 100;
-    //Config to set spill queue capacity
+    //The max number of rows that are allowed to be written per call to writeBatch(...)
+    private static final int MAX_ROWS_PER_BATCH = 1_000;
+    //Config to set spill queue capacity, the number of Blocks beyond those being spilled allowed in the memory budget.
     private static final String SPILL_QUEUE_CAPACITY = "SPILL_QUEUE_CAPACITY";
+    //The max fraction of the BlockAllocator's free memory that Blocks waiting to be spilled may use.
+    private static final double MAX_SPILL_MEMORY_FRACTION = 0.5;
 
     private static final String SPILL_PUT_REQUEST_HEADERS_ENV = "spill_put_request_headers";
     //Used to write to S3
@@ -86,13 +83,14 @@ public class S3BlockSpiller
     private final Schema schema;
     //The max number of rows that are allowed to be written per call to writeRows(...)
     private final long maxRowsPerCall;
-    //If we spilled, the spill locations are kept here.
-    private final List<SpillLocation> spillLocations = new ArrayList<>();
+    //If we spilled, the spill locations are kept here. Spills complete on background threads and, when there are
+    //several producers, may be started by any of them.
+    private final List<SpillLocation> spillLocations = Collections.synchronizedList(new ArrayList<>());
     //Reference to the in progress Block.
     private final AtomicReference<Block> inProgressBlock = new AtomicReference<>();
     //Allows a degree of pipelining to take place so we don't block reading from the source
     //while we are spilling.
-    private final ExecutorService asyncSpillPool;
+    private final SpillScheduler spillScheduler;
     //Allows us to provide thread safety between async spill completion and calls to getSpill status
     private final ReadWriteLock spillLock = new StampedLock().asReadWriteLock();
     //Used to create monotonically increasing spill locations, if the locations are not
@@ -106,6 +104,12 @@ public class S3BlockSpiller
     private final ConstraintEvaluator constraintEvaluator;
     //Used to track total bytes written
     private final AtomicLong totalBytesSpilled = new AtomicLong();
+    //Used to track the total size of spilled Blocks before compression and encryption
+    private final AtomicLong totalBlockBytesSpilled = new AtomicLong();
+    //Per request metrics about the write/spill pipeline.
+    private final SpillMetrics metrics = new SpillMetrics();
+    //The number of rows accepted thus far, only tracked when SpillConfig has a row limit.
+    private final AtomicLong acceptedRows = new AtomicLong();
     //Time this BlockSpiller wss created.
     private final long startTime = System.currentTimeMillis();
 
@@ -148,8 +152,9 @@ public class S3BlockSpiller
         this.spillConfig = requireNonNull(spillConfig, "spillConfig was null");
         this.allocator = requireNonNull(allocator, "allocator was null");
         this.schema = requireNonNull(schema, "schema was null");
-        this.blockCrypto = (spillConfig.getEncryptionKey() != null) ? new AesGcmBlockCrypto(allocator) : new NoOpBlockCrypto(allocator);
-        asyncSpillPool = (spillConfig.getNumSpillThreads() <= 0) ? null : makeAsyncSpillPool(spillConfig);
+        this.blockCrypto = (spillConfig.getEncryptionKey() != null) ? new AesGcmBlockCrypto(allocator, spillConfig.getCompression())
+                : new NoOpBlockCrypto(allocator, spillConfig.getCompression());
+        spillScheduler = (spillConfig.getNumSpillThreads() <= 0) ? null : makeSpillScheduler(spillConfig, allocator);
         this.maxRowsPerCall = maxRowsPerCall;
         this.constraintEvaluator = constraintEvaluator;
     }
@@ -176,31 +181,65 @@ public class S3BlockSpiller
         ensureInit();
 
         Block block = inProgressBlock.get();
-        int rowCount = block.getRowCount();
+        writeRows(block, rowWriter);
+        spillIfFull(block);
+    }
 
-        int rows;
-        try {
-            rows = rowWriter.writeRows(block, rowCount);
-        }
-        catch (Exception ex) {
-            throw (ex instanceof RuntimeException) ? (RuntimeException) ex : new RuntimeException(ex);
-        }
+    /**
+     * Used to write a batch of rows via the BlockWriter. The Block size is only checked once per batch, the size of
+     * each batch is derived from the average row size of the in progress Block so that a batch is unlikely to push the
+     * Block much beyond SpillConfig.getMaxBlockBytes().
+     *
+     * @param rowWriter The BatchRowWriter that the BlockWriter should use to write rows into the Block(s) it is managing.
+     * @see BlockSpiller
+     */
+    @Override
+    public void writeBatch(BatchRowWriter rowWriter)
+    {
+        ensureInit();
 
-        if (rows > maxRowsPerCall) {
-            throw new RuntimeException("Call generated more than " + maxRowsPerCall + "rows. Generating " +
-                    "too many rows per call to writeRows(...) can result in blocks that exceed the max size.");
-        }
-        if (rows > 0) {
-            block.setRowCount(rowCount + rows);
-        }
+        Block block = inProgressBlock.get();
+        writeBatch(block, rowWriter);
+        spillIfFull(block);
+    }
 
-        if (block.getSize() > spillConfig.getMaxBlockBytes()) {
-            logger.info("writeRow: Spilling block with {} rows and {} bytes and config {} bytes",
-                    new Object[] {block.getRowCount(), block.getSize(), spillConfig.getMaxBlockBytes()});
-            spillBlock(block);
-            inProgressBlock.set(this.allocator.createBlock(this.schema));
-            inProgressBlock.get().constrain(constraintEvaluator);
-        }
+    /**
+     * Creates a ProducerBlockWriter with its own in progress Block, this allows several threads to write to this
+     * BlockSpiller without contending on a shared Block. Full Blocks are spilled exactly as they would be by
+     * writeRows(...) and, when the ProducerBlockWriter is closed, its partial Block is merged into this BlockSpiller's
+     * in progress Block.
+     *
+     * @return A new ProducerBlockWriter, which must be closed before calling spilled(), getBlock(), or getSpillLocations().
+     * @see BlockSpiller
+     */
+    @Override
+    public ProducerBlockWriter newProducerWriter()
+    {
+        return new S3ProducerBlockWriter();
+    }
+
+    /**
+     * Used to tell if the row limit from SpillConfig.getRowLimit() has been reached, after which any rows written to
+     * this BlockSpiller, or its ProducerBlockWriters, are discarded.
+     *
+     * @return True if the row limit has been reached, false otherwise or if there is no row limit.
+     * @see BlockWriter
+     */
+    @Override
+    public boolean isLimitReached()
+    {
+        return spillConfig.hasRowLimit() && acceptedRows.get() >= spillConfig.getRowLimit();
+    }
+
+    /**
+     * Records rows a BatchRowWriter filtered out in our metrics.
+     *
+     * @see BlockWriter
+     */
+    @Override
+    public void recordFilteredRows(int rows)
+    {
+        metrics.recordWrite(0, rows);
     }
 
     /**
@@ -217,7 +256,7 @@ public class S3BlockSpiller
         //We use the write lock because we want this to have exclusive access to the state
         Lock lock = spillLock.writeLock();
         try {
-            lock.lock();
+            lock(lock);
             ensureInit();
             Block block = inProgressBlock.get();
             return !spillLocations.isEmpty() || block.getSize() >= spillConfig.getMaxInlineBlockSize();
@@ -267,11 +306,10 @@ public class S3BlockSpiller
 
                 spillBlock(block);
 
-                inProgressBlock.set(this.allocator.createBlock(this.schema));
-                inProgressBlock.get().constrain(constraintEvaluator);
+                inProgressBlock.set(newBlock(0));
             }
 
-            lock.lock();
+            lock(lock);
             return spillLocations;
         }
         finally {
@@ -286,28 +324,46 @@ public class S3BlockSpiller
      */
     public void close()
     {
-        logger.info("close: Spilled a total of {} bytes in {} ms", totalBytesSpilled.get(), System.currentTimeMillis() - startTime);
-
-        if (asyncSpillPool == null) {
-            return;
+        logger.info("close: Spilled a total of {} bytes ({} bytes before {} compression, ratio {}) in {} ms, {}",
+                totalBytesSpilled.get(),
+                totalBlockBytesSpilled.get(),
+                spillConfig.getCompression(),
+                String.format("%.2f", getCompressionRatio()),
+                System.currentTimeMillis() - startTime,
+                metrics);
+
+        if (spillScheduler != null) {
+            spillScheduler.shutdown(ASYNC_SHUTDOWN_MILLIS);
         }
+    }
 
-        asyncSpillPool.shutdown();
-        try {
-            if (!asyncSpillPool.awaitTermination(ASYNC_SHUTDOWN_MILLIS, TimeUnit.MILLISECONDS)) {
-                asyncSpillPool.shutdownNow();
-            }
-        }
-        catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            asyncSpillPool.shutdownNow();
-        }
+    /**
+     * Gets the ratio of the size of the Blocks spilled thus far to the number of bytes written to S3 for them. Values
+     * greater than 1 indicate that compression reduced the spilled bytes.
+     *
+     * @return The compression ratio, or 1 if nothing has been spilled.
+     */
+    public double getCompressionRatio()
+    {
+        long spilled = totalBytesSpilled.get();
+        return (spilled == 0) ? 1 : (double) totalBlockBytesSpilled.get() / spilled;
+    }
+
+    /**
+     * Provides access to the metrics collected about the write/spill pipeline of this BlockSpiller. Metrics for
+     * asynchronous spills are only complete once getSpillLocations() or close() has been called.
+     *
+     * @return The SpillMetrics for this BlockSpiller.
+     */
+    public SpillMetrics getMetrics()
+    {
+        return metrics;
     }
 
     /**
      * Grabs the request headers from env and sets them on the request
      */
-    private void setRequestHeadersFromEnv(PutObjectRequest request)
+    private void setRequestHeadersFromEnv(AmazonWebServiceRequest request)
     {
         String headersFromEnvStr = System.getenv(SPILL_PUT_REQUEST_HEADERS_ENV);
         if (headersFromEnvStr == null || headersFromEnvStr.isEmpty()) {
@@ -333,7 +389,8 @@ public class S3BlockSpiller
     }
 
     /**
-     * Writes (aka spills) a Block.
+     * Writes (aka spills) a Block. The Block is serialized and encrypted directly into the S3 upload so that at most
+     * one part (see SpillConfig.getSpillPartSizeBytes()) of the encrypted Block is held on the heap at a time.
      */
     protected SpillLocation write(Block block)
     {
@@ -341,28 +398,33 @@ public class S3BlockSpiller
             S3SpillLocation spillLocation = makeSpillLocation();
             EncryptionKey encryptionKey = spillConfig.getEncryptionKey();
 
-            logger.info("write: Started encrypting block for write to {}", spillLocation);
-            byte[] bytes = blockCrypto.encrypt(encryptionKey, block);
-
-            totalBytesSpilled.addAndGet(bytes.length);
-
-            logger.info("write: Started spilling block of size {} bytes", bytes.length);
-
-            // Set the contentLength otherwise the s3 client will buffer again since it
-            // only sees the InputStream wrapper.
-            ObjectMetadata objMeta = new ObjectMetadata();
-            objMeta.setContentLength(bytes.length);
-            PutObjectRequest request = new PutObjectRequest(
+            long blockBytes = block.getSize();
+            long start = System.nanoTime();
+            logger.info("write: Started encrypting and spilling block of {} bytes to {}", blockBytes, spillLocation);
+            try (S3SpillOutputStream out = new S3SpillOutputStream(amazonS3,
                     spillLocation.getBucket(),
                     spillLocation.getKey(),
-                    new ByteArrayInputStream(bytes),
-                    objMeta);
-            setRequestHeadersFromEnv(request);
-            amazonS3.putObject(request);
-            logger.info("write: Completed spilling block of size {} bytes", bytes.length);
+                    spillConfig.getSpillPartSizeBytes(),
+                    this::setRequestHeadersFromEnv)) {
+                blockCrypto.encrypt(encryptionKey, block, out);
+                out.complete();
+                totalBytesSpilled.addAndGet(out.getTotalBytes());
+                totalBlockBytesSpilled.addAndGet(blockBytes);
+                //The Block is encrypted directly into the upload so anything not spent in S3 calls was spent in BlockCrypto.
+                long uploadNanos = out.getUploadNanos();
+                metrics.recordSpill(blockBytes, out.getTotalBytes(), System.nanoTime() - start - uploadNanos, uploadNanos);
+                logger.info("write: Completed spilling block of size {} bytes using {} compression",
+                        out.getTotalBytes(), spillConfig.getCompression());
+            }
 
             return spillLocation;
         }
+        catch (IOException ex) {
+            RuntimeException rex = new RuntimeException(ex);
+            asyncException.compareAndSet(null, rex);
+            logger.warn("write: Encountered error while writing block.", ex);
+            throw rex;
+        }
         catch (RuntimeException ex) {
             asyncException.compareAndSet(null, ex);
             logger.warn("write: Encountered error while writing block.", ex);
@@ -384,7 +446,7 @@ public class S3BlockSpiller
             logger.debug("write: Started reading block from S3");
             S3Object fullObject = amazonS3.getObject(spillLocation.getBucket(), spillLocation.getKey());
             logger.debug("write: Completed reading block from S3");
-            Block block = blockCrypto.decrypt(key, ByteStreams.toByteArray(fullObject.getObjectContent()), schema);
+            Block block = blockCrypto.decrypt(key, S3BlockSpillReader.readFully(fullObject), schema);
             logger.debug("write: Completed decrypting block of size.");
             return block;
         }
@@ -400,26 +462,35 @@ public class S3BlockSpiller
      */
     private void spillBlock(Block block)
     {
-        if (asyncSpillPool != null) {
+        if (spillScheduler != null) {
             //We use the read lock here because we want to allow these in parallel, its a bit counter intuitive
             Lock lock = spillLock.readLock();
             try {
                 //We lock before going async but unlock after spilling in the async thread, this makes it easy to use
                 //the ReadWrite lock to tell if all spills are completed without killing the thread pool.
-                lock.lock();
-                asyncSpillPool.submit(() -> {
+                lock(lock);
+                metrics.recordSpillQueueDepth(spillScheduler.getQueueDepth());
+                long start = System.nanoTime();
+                //Blocks only while the Blocks already waiting to be spilled leave no room in the memory budget.
+                spillScheduler.submit(block.getSize(), () -> {
                     try {
                         SpillLocation spillLocation = write(block);
                         spillLocations.add(spillLocation);
-                        //Free the memory from the previous block since it has been spilled
-                        safeClose(block);
+                        //Hand the block back to the allocator so its buffers can be reused by a later block
+                        allocator.recycle(block);
                     }
                     finally {
                         lock.unlock();
                     }
                 });
+                metrics.recordSpillWait(System.nanoTime() - start);
+            }
+            catch (InterruptedException ex) {
+                lock.unlock();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting to spill block.", ex);
             }
-            catch (Exception ex) {
+            catch (RuntimeException ex) {
                 //If we hit an exception, make sure we unlock to avoid a deadlock before throwing.
                 lock.unlock();
                 throw ex;
@@ -428,8 +499,185 @@ public class S3BlockSpiller
         else {
             SpillLocation spillLocation = write(block);
             spillLocations.add(spillLocation);
-            safeClose(block);
+            allocator.recycle(block);
+        }
+    }
+
+    /**
+     * Writes rows to the provided Block using the RowWriter and records them in our metrics.
+     *
+     * @param block The in progress Block to write to.
+     * @param rowWriter The RowWriter to write rows with.
+     */
+    private void writeRows(Block block, RowWriter rowWriter)
+    {
+        int rowCount = block.getRowCount();
+
+        int rows;
+        try {
+            rows = rowWriter.writeRows(block, rowCount);
+        }
+        catch (Exception ex) {
+            throw (ex instanceof RuntimeException) ? (RuntimeException) ex : new RuntimeException(ex);
+        }
+
+        if (rows > maxRowsPerCall) {
+            throw new RuntimeException("Call generated more than " + maxRowsPerCall + "rows. Generating " +
+                    "too many rows per call to writeRows(...) can result in blocks that exceed the max size.");
+        }
+        //A call which wrote nothing had its row filtered out, see RowWriter.writeRows(...)
+        metrics.recordWrite(rows, (rows == 0) ? 1 : 0);
+        rows = acceptRows(rows);
+        if (rows > 0) {
+            block.setRowCount(rowCount + rows);
+        }
+    }
+
+    /**
+     * Writes a batch of rows, sized using nextBatchSize(...), to the provided Block and records them in our metrics.
+     *
+     * @param block The in progress Block to write to.
+     * @param rowWriter The BatchRowWriter to write rows with.
+     */
+    private void writeBatch(Block block, BatchRowWriter rowWriter)
+    {
+        int rowCount = block.getRowCount();
+        int maxRows = nextBatchSize(block);
+        if (spillConfig.hasRowLimit()) {
+            //Don't ask the source for more rows than we have left, other producers may still claim some of them.
+            maxRows = (int) Math.max(1, Math.min(maxRows, spillConfig.getRowLimit() - acceptedRows.get()));
+        }
+
+        int rows;
+        try {
+            rows = rowWriter.writeRows(block, rowCount, maxRows);
+        }
+        catch (Exception ex) {
+            throw (ex instanceof RuntimeException) ? (RuntimeException) ex : new RuntimeException(ex);
+        }
+
+        if (rows > maxRows) {
+            throw new RuntimeException("Call generated more than " + maxRows + " rows. Generating " +
+                    "too many rows per call to writeBatch(...) can result in blocks that exceed the max size.");
+        }
+        metrics.recordWrite(rows, 0);
+        rows = acceptRows(rows);
+        if (rows > 0) {
+            block.setRowCount(rowCount + rows);
+        }
+    }
+
+    /**
+     * Claims up to the provided number of rows against the row limit, if any. Rows beyond the limit are left in the
+     * Block's vectors but are discarded because they are not included in its row count. RowWriters are still called
+     * once the limit is reached since many advance their source from within the RowWriter.
+     *
+     * @param rows The number of rows that were written.
+     * @return The number of those rows which should be kept.
+     */
+    private int acceptRows(int rows)
+    {
+        if (!spillConfig.hasRowLimit() || rows <= 0) {
+            return rows;
+        }
+        long before = acceptedRows.getAndAdd(rows);
+        return (int) Math.max(0, Math.min(rows, spillConfig.getRowLimit() - before));
+    }
+
+    /**
+     * Spills the provided (in progress) Block and replaces it with a new Block if it has reached the max Block size.
+     *
+     * @param block The in progress Block.
+     */
+    private void spillIfFull(Block block)
+    {
+        if (block.exceedsSize(spillConfig.getMaxBlockBytes())) {
+            logger.info("writeRow: Spilling block with {} rows and {} bytes and config {} bytes",
+                    new Object[] {block.getRowCount(), block.getSize(), spillConfig.getMaxBlockBytes()});
+            //The next block is likely to hold as many rows, size it up front to avoid growing its buffers row by row.
+            int rowCount = block.getRowCount();
+            spillBlock(block);
+            inProgressBlock.set(newBlock(rowCount));
+        }
+    }
+
+    /**
+     * Hands the partial Block of a ProducerBlockWriter to this BlockSpiller. The Block becomes our in progress Block if
+     * we have none, is copied into our in progress Block if both fit in a single Block, and is otherwise spilled as is.
+     *
+     * @param block The partial Block, ownership of which passes to this BlockSpiller.
+     */
+    private void mergeProducerBlock(Block block)
+    {
+        synchronized (inProgressBlock) {
+            Block current = inProgressBlock.get();
+            if (current == null || current.getRowCount() == 0) {
+                inProgressBlock.set(block);
+                if (current != null) {
+                    allocator.recycle(current);
+                }
+            }
+            else if (current.getSize() + block.getSize() <= spillConfig.getMaxBlockBytes()) {
+                appendRows(block, current);
+                allocator.recycle(block);
+            }
+            else {
+                spillBlock(block);
+            }
+        }
+    }
+
+    /**
+     * Appends all rows of the source Block to the destination Block. The rows are copied vector by vector so that
+     * complex types (e.g. LIST, STRUCT, MAP) are supported, unlike BlockUtils.copyRows which goes through setValue.
+     *
+     * @param src The Block to copy rows from, must have the same Schema as dst.
+     * @param dst The Block to append rows to.
+     */
+    private static void appendRows(Block src, Block dst)
+    {
+        int srcRows = src.getRowCount();
+        int dstRows = dst.getRowCount();
+        for (FieldVector srcVector : src.getFieldVectors()) {
+            FieldVector dstVector = dst.getFieldVector(srcVector.getField().getName());
+            for (int i = 0; i < srcRows; i++) {
+                dstVector.copyFromSafe(i, dstRows + i, srcVector);
+            }
+        }
+        dst.setRowCount(dstRows + srcRows);
+    }
+
+    /**
+     * Acquires the provided lock, recording how long we were blocked waiting for it.
+     *
+     * @param lock The lock to acquire.
+     */
+    private void lock(Lock lock)
+    {
+        long start = System.nanoTime();
+        lock.lock();
+        metrics.recordSpillWait(System.nanoTime() - start);
+    }
+
+    /**
+     * Estimates how many more rows can be written to the provided Block before it reaches the max Block size, using
+     * the average size of the rows already in the Block. Empty Blocks get a batch of maxRowsPerCall rows so that we
+     * can learn the row size before committing to a larger batch.
+     *
+     * @param block The in progress Block.
+     * @return The max number of rows to allow in the next batch, always at least 1.
+     */
+    private int nextBatchSize(Block block)
+    {
+        int rowCount = block.getRowCount();
+        if (rowCount == 0) {
+            return (int) Math.min(maxRowsPerCall, MAX_ROWS_PER_BATCH);
         }
+
+        long blockSize = block.getEstimatedSize();
+        long bytesPerRow = Math.max(1, blockSize / rowCount);
+        long remainingRows = (spillConfig.getMaxBlockBytes() - blockSize) / bytesPerRow;
+        return (int) Math.max(1, Math.min(remainingRows, MAX_ROWS_PER_BATCH));
     }
 
     /**
@@ -439,11 +687,23 @@ public class S3BlockSpiller
     {
         if (inProgressBlock.get() == null) {
             //Create the initial block
-            inProgressBlock.set(this.allocator.createBlock(this.schema));
-            inProgressBlock.get().constrain(constraintEvaluator);
+            inProgressBlock.set(newBlock(0));
         }
     }
 
+    /**
+     * Creates a new, constrained, Block for our schema.
+     *
+     * @param rowCapacity The number of rows to size the Block's buffers for up front, 0 for the allocator's default.
+     * @return The new Block.
+     */
+    private Block newBlock(int rowCapacity)
+    {
+        Block block = (rowCapacity > 0) ? allocator.createBlock(schema, rowCapacity) : allocator.createBlock(schema);
+        block.constrain(constraintEvaluator);
+        return block;
+    }
+
     /**
      * This needs to be thread safe and generate locations in a format of:
      * location.0
@@ -465,52 +725,114 @@ public class S3BlockSpiller
     }
 
     /**
-     * Closes the supplied AutoCloseable and remaps any actions to Runtime.
+     * Used to create the scheduler that will be used to service writes to S3 associated with spilling blocks. The
+     * scheduler starts with SpillConfig.getNumSpillThreads() threads and adapts up to SpillConfig.getMaxSpillThreads()
+     * based on the observed spill latency. To avoid a fast producer overwhelming the Apache Arrow Allocator's memory
+     * pool the Blocks queued or being spilled are bounded by a memory budget of enough Blocks to keep every thread busy
+     * plus SPILL_QUEUE_CAPACITY queued Blocks, but never more than half of the allocator's free memory.
      *
-     * @param block The Block to close.
+     * @return The SpillScheduler to use for async spills.
      */
-    private void safeClose(AutoCloseable block)
+    private SpillScheduler makeSpillScheduler(SpillConfig config, BlockAllocator allocator)
     {
-        try {
-            block.close();
-        }
-        catch (Exception ex) {
-            throw new RuntimeException(ex);
+        int spillQueueCapacity = config.getNumSpillThreads();
+        if (System.getenv(SPILL_QUEUE_CAPACITY) != null) {
+            spillQueueCapacity = Integer.parseInt(System.getenv(SPILL_QUEUE_CAPACITY));
+            logger.debug("Setting Spill Queue Capacity to {}", spillQueueCapacity);
         }
+
+        long maxBlockBytes = Math.max(1, config.getMaxBlockBytes());
+        long freeBytes = Math.max(0, allocator.getLimit() - allocator.getUsage());
+        long memoryBudget = Math.min(maxBlockBytes * (config.getMaxSpillThreads() + spillQueueCapacity),
+                (long) (freeBytes * MAX_SPILL_MEMORY_FRACTION));
+        memoryBudget = Math.max(maxBlockBytes, memoryBudget);
+        logger.debug("makeSpillScheduler: Using {} to {} spill threads with a budget of {} bytes",
+                config.getNumSpillThreads(), config.getMaxSpillThreads(), memoryBudget);
+
+        return new SpillScheduler(config.getNumSpillThreads(), config.getMaxSpillThreads(), memoryBudget);
     }
 
     /**
-     * Used to create a thread pool that will be used to service writes to S3 associated with spilling blocks.
-     * This pool should use a blocking, fixed size, pool for work in order to avoid a fast producer from overhwelming
-     * the Apache Arrow Allocator's memory pool.
-     *
-     * @return A fixed size thread pool with fixed size and blocking runnable queue.
+     * ProducerBlockWriter which fills its own in progress Block, only touching state shared with other producers when
+     * spilling a full Block or merging its partial Block on close.
      */
-    private ThreadPoolExecutor makeAsyncSpillPool(SpillConfig config)
+    private class S3ProducerBlockWriter
+            implements ProducerBlockWriter
     {
-        int spillQueueCapacity = config.getNumSpillThreads();
-        if (System.getenv(SPILL_QUEUE_CAPACITY) != null) {
-            spillQueueCapacity = Integer.parseInt(System.getenv(SPILL_QUEUE_CAPACITY));
-            logger.debug("Setting Spill Queue Capacity to {}", spillQueueCapacity);
+        private Block block;
+        private boolean closed = false;
+
+        @Override
+        public void writeRows(RowWriter rowWriter)
+        {
+            S3BlockSpiller.this.writeRows(getBlock(), rowWriter);
+            spillIfFull();
         }
 
-        RejectedExecutionHandler rejectedExecutionHandler = (r, executor) -> {
-            if (!executor.isShutdown()) {
-                try {
-                    executor.getQueue().put(r);
-                }
-                catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    throw new RejectedExecutionException("Received an exception while submitting spillBlock task: ", e);
-                }
+        @Override
+        public void writeBatch(BatchRowWriter rowWriter)
+        {
+            S3BlockSpiller.this.writeBatch(getBlock(), rowWriter);
+            spillIfFull();
+        }
+
+        @Override
+        public void recordFilteredRows(int rows)
+        {
+            S3BlockSpiller.this.recordFilteredRows(rows);
+        }
+
+        @Override
+        public boolean isLimitReached()
+        {
+            return S3BlockSpiller.this.isLimitReached();
+        }
+
+        @Override
+        public ConstraintEvaluator getConstraintEvaluator()
+        {
+            return constraintEvaluator;
+        }
+
+        @Override
+        public void close()
+        {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (block == null) {
+                return;
             }
-        };
-
-        return new ThreadPoolExecutor(config.getNumSpillThreads(),
-                config.getNumSpillThreads(),
-                0L,
-                TimeUnit.MILLISECONDS,
-                new LinkedBlockingQueue<>(spillQueueCapacity),
-                rejectedExecutionHandler);
+            if (block.getRowCount() > 0) {
+                mergeProducerBlock(block);
+            }
+            else {
+                allocator.recycle(block);
+            }
+            block = null;
+        }
+
+        private Block getBlock()
+        {
+            if (closed) {
+                throw new IllegalStateException("ProducerBlockWriter has been closed.");
+            }
+            if (block == null) {
+                block = newBlock(0);
+            }
+            return block;
+        }
+
+        private void spillIfFull()
+        {
+            if (block.exceedsSize(spillConfig.getMaxBlockBytes())) {
+                logger.info("writeRow: Producer spilling block with {} rows and {} bytes and config {} bytes",
+                        new Object[] {block.getRowCount(), block.getSize(), spillConfig.getMaxBlockBytes()});
+                int rowCount = block.getRowCount();
+                spillBlock(block);
+                block = newBlock(rowCount);
+            }
+        }
     }
 }
@@ -0,0 +1,245 @@
+package com.amazonaws.athena.connector.lambda.data;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * OutputStream which uploads everything written to it to a single S3 object. Data is buffered until a full part has
+ * been written, at which point the part is uploaded as part of an S3 multipart upload and the buffer is reused. This
+ * bounds the heap used while spilling to a single part regardless of the size of the object being written.
+ * <p>
+ * Objects which fit in a single part are written using a plain PutObject to avoid the extra round trips of a
+ * multipart upload. The upload is only made visible when complete() is called, closing the stream without first
+ * calling complete() aborts any in-progress multipart upload.
+ *
+ * @note S3 requires that all but the last part of a multipart upload be at least 5MB.
+ */
+class S3SpillOutputStream
+        extends OutputStream
+{
+    private static final Logger logger = LoggerFactory.getLogger(S3SpillOutputStream.class);
+    //The initial size of the part buffer, the buffer grows (up to the part size) as needed.
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+
+    private final AmazonS3 amazonS3;
+    private final String bucket;
+    private final String key;
+    private final int partSize;
+    //Used to decorate each request we send to S3 (e.g. with custom headers).
+    private final Consumer<AmazonWebServiceRequest> requestDecorator;
+    private final List<PartETag> partETags = new ArrayList<>();
+    private byte[] buffer;
+    private int bufferedBytes = 0;
+    private long totalBytes = 0;
+    //Time spent waiting on S3 calls.
+    private long uploadNanos = 0;
+    //Null until we have more than one part worth of data.
+    private String uploadId;
+    private boolean completed = false;
+    private boolean closed = false;
+
+    /**
+     * @param amazonS3 The AmazonS3 client to use for uploading.
+     * @param bucket The bucket to write the object to.
+     * @param key The key to write the object to.
+     * @param partSize The number of bytes to buffer before uploading a part.
+     * @param requestDecorator Applied to every request sent to S3.
+     */
+    S3SpillOutputStream(AmazonS3 amazonS3,
+            String bucket,
+            String key,
+            int partSize,
+            Consumer<AmazonWebServiceRequest> requestDecorator)
+    {
+        if (partSize <= 0) {
+            throw new IllegalArgumentException("partSize must be > 0 but was " + partSize);
+        }
+        this.amazonS3 = requireNonNull(amazonS3, "amazonS3 was null");
+        this.bucket = requireNonNull(bucket, "bucket was null");
+        this.key = requireNonNull(key, "key was null");
+        this.partSize = partSize;
+        this.requestDecorator = requireNonNull(requestDecorator, "requestDecorator was null");
+        this.buffer = new byte[Math.min(partSize, INITIAL_BUFFER_BYTES)];
+    }
+
+    @Override
+    public void write(int b)
+            throws IOException
+    {
+        assertWritable();
+        if (bufferedBytes == partSize) {
+            uploadPart();
+        }
+        ensureCapacity(bufferedBytes + 1);
+        buffer[bufferedBytes++] = (byte) b;
+        totalBytes++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len)
+            throws IOException
+    {
+        assertWritable();
+        while (len > 0) {
+            if (bufferedBytes == partSize) {
+                uploadPart();
+            }
+            int toCopy = Math.min(len, partSize - bufferedBytes);
+            ensureCapacity(bufferedBytes + toCopy);
+            System.arraycopy(b, off, buffer, bufferedBytes, toCopy);
+            bufferedBytes += toCopy;
+            totalBytes += toCopy;
+            off += toCopy;
+            len -= toCopy;
+        }
+    }
+
+    /**
+     * Uploads any remaining buffered data and completes the upload, making the object visible in S3.
+     */
+    public void complete()
+    {
+        assertWritable();
+        if (uploadId == null) {
+            ObjectMetadata objMeta = new ObjectMetadata();
+            // Set the contentLength otherwise the s3 client will buffer again since it
+            // only sees the InputStream wrapper.
+            objMeta.setContentLength(bufferedBytes);
+            PutObjectRequest request = new PutObjectRequest(bucket,
+                    key,
+                    new ByteArrayInputStream(buffer, 0, bufferedBytes),
+                    objMeta);
+            requestDecorator.accept(request);
+            long start = System.nanoTime();
+            amazonS3.putObject(request);
+            uploadNanos += System.nanoTime() - start;
+        }
+        else {
+            if (bufferedBytes > 0) {
+                uploadPart();
+            }
+            CompleteMultipartUploadRequest request = new CompleteMultipartUploadRequest(bucket, key, uploadId, partETags);
+            requestDecorator.accept(request);
+            long start = System.nanoTime();
+            amazonS3.completeMultipartUpload(request);
+            uploadNanos += System.nanoTime() - start;
+            logger.debug("complete: Completed multipart upload of {} parts to {}/{}", partETags.size(), bucket, key);
+        }
+        completed = true;
+    }
+
+    /**
+     * @return The total number of bytes written to this stream.
+     */
+    public long getTotalBytes()
+    {
+        return totalBytes;
+    }
+
+    /**
+     * @return The total time, in nanoseconds, spent waiting on S3 calls made by this stream.
+     */
+    public long getUploadNanos()
+    {
+        return uploadNanos;
+    }
+
+    /**
+     * Releases the part buffer and, if the upload was not completed, aborts any in-progress multipart upload.
+     */
+    @Override
+    public void close()
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        buffer = null;
+        if (!completed && uploadId != null) {
+            try {
+                AbortMultipartUploadRequest request = new AbortMultipartUploadRequest(bucket, key, uploadId);
+                requestDecorator.accept(request);
+                amazonS3.abortMultipartUpload(request);
+            }
+            catch (RuntimeException ex) {
+                logger.warn("close: Failed to abort multipart upload {} for {}/{}", uploadId, bucket, key, ex);
+            }
+        }
+    }
+
+    private void uploadPart()
+    {
+        long start = System.nanoTime();
+        if (uploadId == null) {
+            InitiateMultipartUploadRequest request = new InitiateMultipartUploadRequest(bucket, key);
+            requestDecorator.accept(request);
+            uploadId = amazonS3.initiateMultipartUpload(request).getUploadId();
+            logger.debug("uploadPart: Started multipart upload {} for {}/{}", uploadId, bucket, key);
+        }
+
+        UploadPartRequest request = new UploadPartRequest()
+                .withBucketName(bucket)
+                .withKey(key)
+                .withUploadId(uploadId)
+                .withPartNumber(partETags.size() + 1)
+                .withInputStream(new ByteArrayInputStream(buffer, 0, bufferedBytes))
+                .withPartSize(bufferedBytes);
+        requestDecorator.accept(request);
+        partETags.add(amazonS3.uploadPart(request).getPartETag());
+        bufferedBytes = 0;
+        uploadNanos += System.nanoTime() - start;
+    }
+
+    private void ensureCapacity(int size)
+    {
+        if (buffer.length < size) {
+            buffer = Arrays.copyOf(buffer, Math.min(partSize, Math.max(size, buffer.length * 2)));
+        }
+    }
+
+    private void assertWritable()
+    {
+        if (closed || completed) {
+            throw new IllegalStateException("Stream for " + bucket + "/" + key + " is no longer writable.");
+        }
+    }
+}
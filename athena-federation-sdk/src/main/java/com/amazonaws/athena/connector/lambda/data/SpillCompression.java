@@ -0,0 +1,72 @@
+package com.amazonaws.athena.connector.lambda.data;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.arrow.compression.CommonsCompressionFactory;
+import org.apache.arrow.vector.compression.CompressionCodec;
+import org.apache.arrow.vector.compression.CompressionUtil;
+import org.apache.arrow.vector.compression.NoCompressionCodec;
+
+/**
+ * The compression codecs that can be applied to the body of spilled Arrow record batches. Compression is recorded in
+ * the record batch metadata (as defined by the Arrow IPC format) so readers do not need to be told which codec was
+ * used in order to read a spilled Block.
+ */
+public enum SpillCompression
+{
+    NONE(CompressionUtil.CodecType.NO_COMPRESSION),
+    LZ4_FRAME(CompressionUtil.CodecType.LZ4_FRAME),
+    ZSTD(CompressionUtil.CodecType.ZSTD);
+
+    private final CompressionUtil.CodecType codecType;
+
+    SpillCompression(CompressionUtil.CodecType codecType)
+    {
+        this.codecType = codecType;
+    }
+
+    /**
+     * Creates a CompressionCodec that can be used to compress Arrow buffers using this compression.
+     *
+     * @return The CompressionCodec.
+     */
+    public CompressionCodec createCodec()
+    {
+        if (codecType == CompressionUtil.CodecType.NO_COMPRESSION) {
+            return NoCompressionCodec.INSTANCE;
+        }
+        return CommonsCompressionFactory.INSTANCE.createCodec(codecType);
+    }
+
+    /**
+     * Parses the name of a SpillCompression, ignoring case.
+     *
+     * @param name The name of the compression (e.g. lz4_frame), if null or empty NONE is returned.
+     * @return The matching SpillCompression.
+     */
+    public static SpillCompression fromString(String name)
+    {
+        if (name == null || name.trim().isEmpty()) {
+            return NONE;
+        }
+        return SpillCompression.valueOf(name.trim().toUpperCase());
+    }
+}
@@ -20,6 +20,7 @@ package com.amazonaws.athena.connector.lambda.data;
  * #L%
  */
 
+import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
 import com.amazonaws.athena.connector.lambda.domain.spill.SpillLocation;
 import com.amazonaws.athena.connector.lambda.security.EncryptionKey;
 
@@ -32,6 +33,12 @@ public class SpillConfig
 {
     //The default number of threads to use for async spill operations. 0 indicates that the calling thread should be used.
     private static final int DEFAULT_SPILL_THREADS = 1;
+    //The default max number of threads that async spill operations can scale up to when S3 is slow.
+    private static final int DEFAULT_MAX_SPILL_THREADS = 4;
+    //The smallest part S3 accepts for all but the last part of a multipart upload.
+    public static final int MIN_SPILL_PART_SIZE_BYTES = 5 * 1024 * 1024;
+    //The default number of bytes to buffer before uploading a part of a spilled Block.
+    private static final int DEFAULT_SPILL_PART_SIZE_BYTES = 8 * 1024 * 1024;
     //The encryption key that should be used to read/write spilled data. If null, encryption is disabled.
     private final EncryptionKey encryptionKey;
     //The location where the data is spilled.
@@ -44,6 +51,14 @@ public class SpillConfig
     private final long maxInlineBlockSize;
     //The default number of threads to use for async spill operations. 0 indicates that the calling thread should be used.
     private final int numSpillThreads;
+    //The max number of threads that async spill operations can scale up to.
+    private final int maxSpillThreads;
+    //The number of bytes to buffer before uploading a part of a spilled Block.
+    private final int spillPartSizeBytes;
+    //The compression to apply to spilled Blocks.
+    private final SpillCompression compression;
+    //The max number of rows the BlockSpiller should accept, Constraints.DEFAULT_NO_LIMIT if there is no limit.
+    private final long rowLimit;
 
     private SpillConfig(Builder builder)
     {
@@ -53,6 +68,10 @@ public class SpillConfig
         maxBlockBytes = builder.maxBlockBytes;
         maxInlineBlockSize = builder.maxInlineBlockSize;
         numSpillThreads = builder.numSpillThreads;
+        maxSpillThreads = builder.maxSpillThreads;
+        spillPartSizeBytes = builder.spillPartSizeBytes;
+        compression = requireNonNull(builder.compression, "compression was null");
+        rowLimit = builder.rowLimit;
     }
 
     /**
@@ -112,6 +131,52 @@ public class SpillConfig
         return numSpillThreads;
     }
 
+    /**
+     * Gets the max number of threads the BlockSpiller can scale up to when spills are slow. This is never less than
+     * getNumSpillThreads().
+     * @return The number of threads.
+     */
+    public int getMaxSpillThreads()
+    {
+        return Math.max(numSpillThreads, maxSpillThreads);
+    }
+
+    /**
+     * Gets the number of bytes the BlockSpiller buffers before uploading a part of a spilled Block. Blocks larger
+     * than this are spilled using a multipart upload.
+     * @return The number of bytes.
+     */
+    public int getSpillPartSizeBytes()
+    {
+        return spillPartSizeBytes;
+    }
+
+    /**
+     * Gets the compression the BlockSpiller applies to the Arrow buffers of spilled Blocks.
+     * @return The SpillCompression, NONE if spilled Blocks are not compressed.
+     */
+    public SpillCompression getCompression()
+    {
+        return compression;
+    }
+
+    /**
+     * Gets the max number of rows the BlockSpiller should accept, typically the pushed down LIMIT of the query.
+     * @return The number of rows, Constraints.DEFAULT_NO_LIMIT if there is no limit.
+     */
+    public long getRowLimit()
+    {
+        return rowLimit;
+    }
+
+    /**
+     * @return True if the BlockSpiller should stop accepting rows once getRowLimit() rows have been written.
+     */
+    public boolean hasRowLimit()
+    {
+        return rowLimit != Constraints.DEFAULT_NO_LIMIT;
+    }
+
     public static Builder newBuilder()
     {
         return new Builder();
@@ -122,6 +187,10 @@ public class SpillConfig
         Builder builder = new Builder();
         builder.encryptionKey = copy.getEncryptionKey();
         builder.maxBlockBytes = copy.getMaxBlockBytes();
+        builder.maxSpillThreads = copy.maxSpillThreads;
+        builder.spillPartSizeBytes = copy.getSpillPartSizeBytes();
+        builder.compression = copy.getCompression();
+        builder.rowLimit = copy.getRowLimit();
         return builder;
     }
 
@@ -133,6 +202,10 @@ public class SpillConfig
         private long maxBlockBytes;
         private long maxInlineBlockSize;
         private int numSpillThreads = DEFAULT_SPILL_THREADS;
+        private int maxSpillThreads = DEFAULT_MAX_SPILL_THREADS;
+        private int spillPartSizeBytes = DEFAULT_SPILL_PART_SIZE_BYTES;
+        private SpillCompression compression = SpillCompression.NONE;
+        private long rowLimit = Constraints.DEFAULT_NO_LIMIT;
 
         private Builder() {}
 
@@ -160,6 +233,12 @@ public class SpillConfig
             return this;
         }
 
+        public Builder withMaxSpillThreads(int val)
+        {
+            maxSpillThreads = val;
+            return this;
+        }
+
         public Builder withMaxBlockBytes(long val)
         {
             maxBlockBytes = val;
@@ -172,6 +251,27 @@ public class SpillConfig
             return this;
         }
 
+        public Builder withSpillPartSizeBytes(int val)
+        {
+            if (val < MIN_SPILL_PART_SIZE_BYTES) {
+                throw new IllegalArgumentException("spillPartSizeBytes must be at least " + MIN_SPILL_PART_SIZE_BYTES + " but was " + val);
+            }
+            spillPartSizeBytes = val;
+            return this;
+        }
+
+        public Builder withCompression(SpillCompression val)
+        {
+            compression = val;
+            return this;
+        }
+
+        public Builder withRowLimit(long val)
+        {
+            rowLimit = (val < 0) ? Constraints.DEFAULT_NO_LIMIT : val;
+            return this;
+        }
+
         public SpillConfig build()
         {
             return new SpillConfig(this);
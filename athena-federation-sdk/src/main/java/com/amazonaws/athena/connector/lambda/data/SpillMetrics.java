@@ -0,0 +1,225 @@
+package com.amazonaws.athena.connector.lambda.data;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Collects metrics about the write/spill pipeline of a single BlockSpiller (e.g. for a single ReadRecordsRequest) so
+ * that it is possible to tell if a slow split is bound by the source, by serialization/encryption, or by S3. All
+ * methods are thread safe since spilling may happen on background threads.
+ * <p>
+ * The metrics can be rendered as a single CloudWatch Embedded Metric Format (EMF) log line using toEmf(...), when
+ * written to stdout from Lambda CloudWatch will extract the metrics from the log line automatically.
+ */
+public class SpillMetrics
+{
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String COUNT = "Count";
+    private static final String BYTES = "Bytes";
+    private static final String MILLISECONDS = "Milliseconds";
+
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong rowsFiltered = new AtomicLong();
+    private final AtomicLong blocksSpilled = new AtomicLong();
+    private final AtomicLong blockBytesSpilled = new AtomicLong();
+    private final AtomicLong bytesSpilled = new AtomicLong();
+    private final AtomicLong blockCryptoNanos = new AtomicLong();
+    private final AtomicLong s3UploadNanos = new AtomicLong();
+    private final AtomicLong spillWaitNanos = new AtomicLong();
+    private final AtomicLong maxSpillQueueDepth = new AtomicLong();
+
+    /**
+     * Records the outcome of a call to one of the BlockWriter write methods.
+     *
+     * @param rows The number of rows the call wrote to the Block.
+     * @param filtered The number of rows the call rejected because they did not satisfy the constraints.
+     */
+    void recordWrite(int rows, int filtered)
+    {
+        rowsWritten.addAndGet(rows);
+        rowsFiltered.addAndGet(filtered);
+    }
+
+    /**
+     * Records a completed spill of a single Block.
+     *
+     * @param blockBytes The size of the Block before compression and encryption.
+     * @param spilledBytes The number of bytes written to S3 for the Block.
+     * @param cryptoNanos The time spent serializing, compressing and encrypting the Block.
+     * @param uploadNanos The time spent in S3 calls while uploading the Block.
+     */
+    void recordSpill(long blockBytes, long spilledBytes, long cryptoNanos, long uploadNanos)
+    {
+        blocksSpilled.incrementAndGet();
+        blockBytesSpilled.addAndGet(blockBytes);
+        bytesSpilled.addAndGet(spilledBytes);
+        blockCryptoNanos.addAndGet(cryptoNanos);
+        s3UploadNanos.addAndGet(uploadNanos);
+    }
+
+    /**
+     * Records time the writing thread spent blocked on the spill pipeline, either waiting for the spill lock or for
+     * room in the async spill queue.
+     *
+     * @param nanos The time spent blocked.
+     */
+    void recordSpillWait(long nanos)
+    {
+        spillWaitNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Records the number of spills queued behind the async spill threads when a new spill was submitted.
+     *
+     * @param depth The number of queued spills.
+     */
+    void recordSpillQueueDepth(long depth)
+    {
+        maxSpillQueueDepth.accumulateAndGet(depth, Math::max);
+    }
+
+    public long getRowsWritten()
+    {
+        return rowsWritten.get();
+    }
+
+    public long getRowsFiltered()
+    {
+        return rowsFiltered.get();
+    }
+
+    public long getBlocksSpilled()
+    {
+        return blocksSpilled.get();
+    }
+
+    /**
+     * @return The total size of the spilled Blocks before compression and encryption.
+     */
+    public long getBlockBytesSpilled()
+    {
+        return blockBytesSpilled.get();
+    }
+
+    /**
+     * @return The total number of bytes written to S3, after compression and encryption.
+     */
+    public long getBytesSpilled()
+    {
+        return bytesSpilled.get();
+    }
+
+    public long getBlockCryptoMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(blockCryptoNanos.get());
+    }
+
+    public long getS3UploadMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(s3UploadNanos.get());
+    }
+
+    public long getSpillWaitMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(spillWaitNanos.get());
+    }
+
+    public long getMaxSpillQueueDepth()
+    {
+        return maxSpillQueueDepth.get();
+    }
+
+    /**
+     * Renders these metrics as a single line in CloudWatch Embedded Metric Format.
+     *
+     * @param namespace The CloudWatch namespace to publish the metrics to.
+     * @param sourceType The source type of the connector, used as the only metric dimension to keep cardinality low.
+     * @param queryId The id of the query the metrics relate to, included as a (non-dimension) property.
+     * @param timestamp The timestamp, in epoch millis, of the metrics.
+     * @return The EMF JSON document, without any line breaks.
+     */
+    public String toEmf(String namespace, String sourceType, String queryId, long timestamp)
+    {
+        requireNonNull(namespace, "namespace was null");
+        requireNonNull(sourceType, "sourceType was null");
+
+        ObjectNode root = objectMapper.createObjectNode();
+        ObjectNode aws = root.putObject("_aws");
+        aws.put("Timestamp", timestamp);
+        ObjectNode directive = aws.putArray("CloudWatchMetrics").addObject();
+        directive.put("Namespace", namespace);
+        directive.putArray("Dimensions").addArray().add("SourceType");
+        ArrayNode metrics = directive.putArray("Metrics");
+
+        root.put("SourceType", sourceType);
+        if (queryId != null) {
+            root.put("QueryId", queryId);
+        }
+
+        addMetric(root, metrics, "RowsWritten", getRowsWritten(), COUNT);
+        addMetric(root, metrics, "RowsFiltered", getRowsFiltered(), COUNT);
+        addMetric(root, metrics, "BlocksSpilled", getBlocksSpilled(), COUNT);
+        addMetric(root, metrics, "BlockBytesSpilled", getBlockBytesSpilled(), BYTES);
+        addMetric(root, metrics, "BytesSpilled", getBytesSpilled(), BYTES);
+        addMetric(root, metrics, "BlockCryptoTime", getBlockCryptoMillis(), MILLISECONDS);
+        addMetric(root, metrics, "S3UploadTime", getS3UploadMillis(), MILLISECONDS);
+        addMetric(root, metrics, "SpillWaitTime", getSpillWaitMillis(), MILLISECONDS);
+        addMetric(root, metrics, "MaxSpillQueueDepth", getMaxSpillQueueDepth(), COUNT);
+
+        try {
+            return objectMapper.writeValueAsString(root);
+        }
+        catch (JsonProcessingException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SpillMetrics{" +
+                "rowsWritten=" + rowsWritten +
+                ", rowsFiltered=" + rowsFiltered +
+                ", blocksSpilled=" + blocksSpilled +
+                ", blockBytesSpilled=" + blockBytesSpilled +
+                ", bytesSpilled=" + bytesSpilled +
+                ", blockCryptoMillis=" + getBlockCryptoMillis() +
+                ", s3UploadMillis=" + getS3UploadMillis() +
+                ", spillWaitMillis=" + getSpillWaitMillis() +
+                ", maxSpillQueueDepth=" + maxSpillQueueDepth +
+                '}';
+    }
+
+    private static void addMetric(ObjectNode root, ArrayNode metrics, String name, long value, String unit)
+    {
+        metrics.addObject().put("Name", name).put("Unit", unit);
+        root.put(name, value);
+    }
+}
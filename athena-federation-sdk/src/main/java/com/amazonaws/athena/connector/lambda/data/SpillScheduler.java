@@ -0,0 +1,218 @@
+package com.amazonaws.athena.connector.lambda.data;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs asynchronous spills for a BlockSpiller. Rather than using a fixed number of threads and a fixed number of queued
+ * spills, this scheduler:
+ * <p>
+ * 1. Bounds the Blocks that are queued or being spilled by their size in bytes (the memory budget) so that a fast
+ * producer can not exhaust the BlockAllocator's memory pool. Callers of submit(...) only block when the memory budget
+ * is exhausted and only until enough bytes have been spilled to make room for their Block.
+ * 2. Sizes the number of concurrent spills using the observed spill latency and the rate at which Blocks are being
+ * produced (Little's Law) so that producing Blocks and uploading them to S3 stay overlapped. Slow S3 calls lead to more
+ * concurrent uploads (up to maxThreads) instead of stalling the producer while fast S3 calls let idle threads exit.
+ */
+class SpillScheduler
+{
+    private static final Logger logger = LoggerFactory.getLogger(SpillScheduler.class);
+    //How long extra spill threads are kept around when they are idle.
+    private static final long KEEP_ALIVE_MILLIS = 1_000;
+    //Weight given to the newest sample when updating the moving averages.
+    private static final double EWMA_ALPHA = 0.3;
+
+    private final int minThreads;
+    private final int maxThreads;
+    private final long memoryBudgetBytes;
+    private final ThreadPoolExecutor executor;
+    //Guards the fields below, also used to signal producers waiting for the memory budget.
+    private final Object lock = new Object();
+    private long inFlightBytes = 0;
+    private long lastSubmitNanos = 0;
+    //Moving averages of the time between spills being submitted and of the time it takes to spill a Block.
+    private double submitIntervalNanos = 0;
+    private double spillNanos = 0;
+    private double blockBytes = 0;
+
+    /**
+     * @param minThreads The number of concurrent spills to start with, concurrency never adapts below this.
+     * @param maxThreads The max number of concurrent spills.
+     * @param memoryBudgetBytes The max bytes of Blocks which can be queued or being spilled at any one time. A Block
+     * larger than the budget is still accepted once nothing else is in flight.
+     */
+    SpillScheduler(int minThreads, int maxThreads, long memoryBudgetBytes)
+    {
+        if (minThreads <= 0 || maxThreads < minThreads) {
+            throw new IllegalArgumentException("Invalid spill threads, min " + minThreads + " max " + maxThreads);
+        }
+        if (memoryBudgetBytes <= 0) {
+            throw new IllegalArgumentException("memoryBudgetBytes must be > 0 but was " + memoryBudgetBytes);
+        }
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        //The queue is unbounded because the memory budget bounds it, this also means the executor only ever runs
+        //corePoolSize threads which is what we adjust to control concurrency.
+        this.executor = new ThreadPoolExecutor(minThreads,
+                maxThreads,
+                KEEP_ALIVE_MILLIS,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Submits a spill, blocking until the memory budget has room for the Block being spilled.
+     *
+     * @param bytes The size of the Block being spilled.
+     * @param spill The spill to run asynchronously.
+     * @throws InterruptedException If interrupted while waiting for room in the memory budget.
+     */
+    void submit(long bytes, Runnable spill)
+            throws InterruptedException
+    {
+        synchronized (lock) {
+            while (inFlightBytes > 0 && inFlightBytes + bytes > memoryBudgetBytes) {
+                lock.wait();
+            }
+            inFlightBytes += bytes;
+
+            long now = System.nanoTime();
+            if (lastSubmitNanos > 0) {
+                submitIntervalNanos = ewma(submitIntervalNanos, now - lastSubmitNanos);
+            }
+            lastSubmitNanos = now;
+            blockBytes = ewma(blockBytes, bytes);
+        }
+
+        try {
+            executor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    spill.run();
+                }
+                finally {
+                    onSpillComplete(bytes, System.nanoTime() - start);
+                }
+            });
+        }
+        catch (RuntimeException ex) {
+            release(bytes);
+            throw ex;
+        }
+    }
+
+    /**
+     * @return The number of spills waiting for a thread.
+     */
+    int getQueueDepth()
+    {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return The number of spills currently allowed to run concurrently.
+     */
+    int getConcurrency()
+    {
+        return executor.getCorePoolSize();
+    }
+
+    /**
+     * @return The bytes of Blocks currently queued or being spilled.
+     */
+    long getInFlightBytes()
+    {
+        synchronized (lock) {
+            return inFlightBytes;
+        }
+    }
+
+    /**
+     * Stops accepting spills and waits for in progress spills to complete.
+     *
+     * @param timeoutMillis How long to wait for in progress spills before interrupting them.
+     */
+    void shutdown(long timeoutMillis)
+    {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    private void onSpillComplete(long bytes, long nanos)
+    {
+        int target;
+        synchronized (lock) {
+            spillNanos = ewma(spillNanos, nanos);
+            target = targetConcurrency();
+        }
+        release(bytes);
+
+        if (target != executor.getCorePoolSize()) {
+            logger.debug("onSpillComplete: Adjusting spill concurrency from {} to {}", executor.getCorePoolSize(), target);
+            executor.setCorePoolSize(target);
+        }
+    }
+
+    /**
+     * Uses Little's Law to find how many spills must be in progress at once to keep up with the rate Blocks are being
+     * produced at, bounded by the max threads and the number of Blocks that fit in the memory budget but never fewer
+     * than the min threads.
+     */
+    private int targetConcurrency()
+    {
+        if (submitIntervalNanos <= 0) {
+            //We have not seen enough spills to know how fast Blocks are produced, so keep up as best we can.
+            return maxThreads;
+        }
+        int target = (int) Math.ceil(spillNanos / submitIntervalNanos);
+        int maxBlocksInBudget = (int) Math.max(1, memoryBudgetBytes / Math.max(1, (long) blockBytes));
+        return Math.max(minThreads, Math.min(target, Math.min(maxThreads, maxBlocksInBudget)));
+    }
+
+    private void release(long bytes)
+    {
+        synchronized (lock) {
+            inFlightBytes -= bytes;
+            lock.notifyAll();
+        }
+    }
+
+    private static double ewma(double current, double sample)
+    {
+        return (current == 0) ? sample : current + EWMA_ALPHA * (sample - current);
+    }
+}
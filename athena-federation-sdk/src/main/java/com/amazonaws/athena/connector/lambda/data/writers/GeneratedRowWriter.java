@@ -48,6 +48,7 @@ import com.amazonaws.athena.connector.lambda.data.writers.fieldwriters.TinyIntFi
 import com.amazonaws.athena.connector.lambda.data.writers.fieldwriters.VarBinaryFieldWriter;
 import com.amazonaws.athena.connector.lambda.data.writers.fieldwriters.VarCharFieldWriter;
 import com.amazonaws.athena.connector.lambda.domain.predicate.ConstraintProjector;
+import com.amazonaws.athena.connector.lambda.domain.predicate.ConstraintProjectors;
 import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
 import com.amazonaws.athena.connector.lambda.domain.predicate.ValueSet;
 import com.google.common.collect.ImmutableMap;
@@ -120,7 +121,7 @@ public class GeneratedRowWriter
 
     private ConstraintProjector makeConstraintProjector(ValueSet constraint)
     {
-        return (Object value) -> constraint.containsValue(value);
+        return ConstraintProjectors.compile(constraint);
     }
 
     private void checkAndRecompile(Block block)
@@ -53,7 +53,12 @@ public class BigIntFieldWriter
     {
         this.extractor = extractor;
         this.vector = vector;
-        if (rawConstraint != null) {
+        if (rawConstraint instanceof ConstraintProjector.LongProjector) {
+            //Compiled projectors can test the primitive value directly, avoiding boxing it for every row.
+            ConstraintProjector.LongProjector longConstraint = (ConstraintProjector.LongProjector) rawConstraint;
+            constraint = (NullableBigIntHolder value) -> value.isSet == 0 ? longConstraint.apply(null) : longConstraint.applyLong(value.value);
+        }
+        else if (rawConstraint != null) {
             constraint = (NullableBigIntHolder value) -> rawConstraint.apply(value.isSet == 0 ? null : value.value);
         }
         else {
@@ -57,7 +57,12 @@ public class DateMilliFieldWriter
     {
         this.extractor = extractor;
         this.vector = vector;
-        if (rawConstraint != null) {
+        if (rawConstraint instanceof ConstraintProjector.LongProjector) {
+            //Compiled projectors can test the primitive value directly, avoiding boxing it for every row.
+            ConstraintProjector.LongProjector longConstraint = (ConstraintProjector.LongProjector) rawConstraint;
+            constraint = (NullableDateMilliHolder value) -> value.isSet == 0 ? longConstraint.apply(null) : longConstraint.applyLong(value.value);
+        }
+        else if (rawConstraint != null) {
             constraint = (NullableDateMilliHolder value) -> rawConstraint.apply(value.isSet == 0 ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(value.value), ZoneOffset.UTC));
         }
         else {
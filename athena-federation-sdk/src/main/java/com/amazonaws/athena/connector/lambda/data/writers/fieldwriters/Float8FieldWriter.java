@@ -53,7 +53,12 @@
      {
          this.extractor = extractor;
          this.vector = vector;
-         if (rawConstraint != null) {
+         if (rawConstraint instanceof ConstraintProjector.DoubleProjector) {
+             //Compiled projectors can test the primitive value directly, avoiding boxing it for every row.
+             ConstraintProjector.DoubleProjector doubleConstraint = (ConstraintProjector.DoubleProjector) rawConstraint;
+             constraint = (NullableFloat8Holder value) -> value.isSet == 0 ? doubleConstraint.apply(null) : doubleConstraint.applyDouble(value.value);
+         }
+         else if (rawConstraint != null) {
              constraint = (NullableFloat8Holder value) -> rawConstraint.apply(value.isSet == 0 ? null : value.value);
          }
          else {
@@ -53,7 +53,12 @@
      {
          this.extractor = extractor;
          this.vector = vector;
-         if (rawConstraint != null) {
+         if (rawConstraint instanceof ConstraintProjector.LongProjector) {
+             //Compiled projectors can test the primitive value directly, avoiding boxing it for every row.
+             ConstraintProjector.LongProjector longConstraint = (ConstraintProjector.LongProjector) rawConstraint;
+             constraint = (NullableSmallIntHolder value) -> value.isSet == 0 ? longConstraint.apply(null) : longConstraint.applyLong(value.value);
+         }
+         else if (rawConstraint != null) {
              constraint = (NullableSmallIntHolder value) -> rawConstraint.apply(value.isSet == 0 ? null : value.value);
          }
          else {
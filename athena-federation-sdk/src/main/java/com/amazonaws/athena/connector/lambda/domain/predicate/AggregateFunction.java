@@ -0,0 +1,117 @@
+package com.amazonaws.athena.connector.lambda.domain.predicate;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A single aggregate in an Aggregation, for example SUM(col1) or COUNT(*), along with the name of the column in the
+ * request's schema that should hold its value.
+ *
+ * @note Only functions whose partial results can be combined by Athena are supported, each split returns partial
+ * aggregates which Athena then combines (e.g. the SUM of the COUNTs of every split).
+ */
+public class AggregateFunction
+{
+    /**
+     * The supported aggregate functions.
+     */
+    public enum Function
+    {
+        COUNT,
+        SUM,
+        MIN,
+        MAX
+    }
+
+    private final Function function;
+    private final String columnName;
+    private final String outputColumnName;
+
+    /**
+     * @param function The aggregate function to apply.
+     * @param columnName The column to aggregate, null for COUNT(*).
+     * @param outputColumnName The name of the column, in the request's schema, that holds the aggregate's value.
+     */
+    public AggregateFunction(Function function, String columnName, String outputColumnName)
+    {
+        this.function = requireNonNull(function, "function is null");
+        this.columnName = columnName;
+        this.outputColumnName = requireNonNull(outputColumnName, "outputColumnName is null");
+        if (columnName == null && function != Function.COUNT) {
+            throw new IllegalArgumentException(function + " requires a column.");
+        }
+    }
+
+    public Function getFunction()
+    {
+        return function;
+    }
+
+    /**
+     * @return The column to aggregate, null for COUNT(*).
+     */
+    public String getColumnName()
+    {
+        return columnName;
+    }
+
+    public String getOutputColumnName()
+    {
+        return outputColumnName;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        AggregateFunction that = (AggregateFunction) o;
+
+        return Objects.equal(this.function, that.function) &&
+                Objects.equal(this.columnName, that.columnName) &&
+                Objects.equal(this.outputColumnName, that.outputColumnName);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hashCode(function, columnName, outputColumnName);
+    }
+
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper(this)
+                .add("function", function)
+                .add("columnName", columnName)
+                .add("outputColumnName", outputColumnName)
+                .toString();
+    }
+}
@@ -0,0 +1,95 @@
+package com.amazonaws.athena.connector.lambda.domain.predicate;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An aggregation (e.g. SELECT col1, COUNT(*), SUM(col2) ... GROUP BY col1) which Athena asks the connector to apply
+ * to the rows of each split. When present, the request's schema holds the grouping columns and the output column of
+ * each AggregateFunction rather than the table's columns, and the connector must return one row per group of the
+ * split's rows that pass the Constraints' summary. Athena combines the partial aggregates of every split.
+ *
+ * @note Unlike a LIMIT, an Aggregation is not a hint. Athena only sends one to connectors which advertise support for
+ * it, see MetadataHandler.supportsAggregatePushdown().
+ */
+public class Aggregation
+{
+    private final List<String> groupingColumns;
+    private final List<AggregateFunction> aggregates;
+
+    /**
+     * @param groupingColumns The columns to GROUP BY, empty to aggregate all the rows of the split into one row.
+     * @param aggregates The aggregates to compute for each group.
+     */
+    public Aggregation(List<String> groupingColumns, List<AggregateFunction> aggregates)
+    {
+        this.groupingColumns = ImmutableList.copyOf(requireNonNull(groupingColumns, "groupingColumns is null"));
+        this.aggregates = ImmutableList.copyOf(requireNonNull(aggregates, "aggregates is null"));
+    }
+
+    public List<String> getGroupingColumns()
+    {
+        return groupingColumns;
+    }
+
+    public List<AggregateFunction> getAggregates()
+    {
+        return aggregates;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        Aggregation that = (Aggregation) o;
+
+        return Objects.equal(this.groupingColumns, that.groupingColumns) &&
+                Objects.equal(this.aggregates, that.aggregates);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hashCode(groupingColumns, aggregates);
+    }
+
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper(this)
+                .add("groupingColumns", groupingColumns)
+                .add("aggregates", aggregates)
+                .toString();
+    }
+}
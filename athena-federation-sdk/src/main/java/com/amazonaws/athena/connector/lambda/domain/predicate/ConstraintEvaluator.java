@@ -64,6 +64,8 @@ public class ConstraintEvaluator
     private final MarkerFactory markerFactory;
     //Holds the type for each field.
     private final Map<String, ArrowType> typeMap = new HashMap<>();
+    //Holds the compiled projector for each constrained field, see ConstraintProjectors.
+    private final Map<String, ConstraintProjector> projectors = new HashMap<>();
 
     public ConstraintEvaluator(BlockAllocator allocator, Schema schema, Constraints constraints)
     {
@@ -72,6 +74,17 @@ public class ConstraintEvaluator
             typeMap.put(next.getName(), next.getType());
         }
         markerFactory = new MarkerFactory(allocator);
+
+        if (constraints.getSummary() != null) {
+            for (Map.Entry<String, ValueSet> next : constraints.getSummary().entrySet()) {
+                ArrowType type = typeMap.get(next.getKey());
+                if (next.getValue() != null && type != null) {
+                    ValueSet constraint = next.getValue();
+                    projectors.put(next.getKey(),
+                            ConstraintProjectors.compile(constraint, (Object value) -> applyMarker(type, constraint, value)));
+                }
+            }
+        }
     }
 
     /**
@@ -94,32 +107,36 @@ public class ConstraintEvaluator
      */
     public boolean apply(String fieldName, Object value)
     {
-        try {
-            ValueSet constraint = constraints.getSummary().get(fieldName);
-            if (constraint != null && typeMap.get(fieldName) != null) {
-                try (Marker marker = markerFactory.createNullable(typeMap.get(fieldName),
-                        value,
-                        Marker.Bound.EXACTLY)) {
-                    return constraint.containsValue(marker);
-                }
-            }
-
-            return true;
-        }
-        catch (Exception ex) {
-            throw (ex instanceof RuntimeException) ? (RuntimeException) ex : new RuntimeException(ex);
-        }
+        ConstraintProjector projector = projectors.get(fieldName);
+        return projector == null || projector.apply(value);
     }
 
     public Optional<ConstraintProjector> makeConstraintProjector(String fieldName)
     {
         ValueSet constraint = constraints.getSummary().get(fieldName);
         if (constraint != null && typeMap.get(fieldName) != null) {
-            return Optional.of((Object value) -> constraint.containsValue(value));
+            return Optional.of(ConstraintProjectors.compile(constraint));
         }
         return Optional.empty();
     }
 
+    /**
+     * Tests the value by converting it to a Marker of the field's type, this handles any java type that can be
+     * written to the field's Apache Arrow vector and so is used for values the compiled projectors don't handle.
+     * Markers share Apache Arrow vectors, so this is serialized to allow several producers to apply constraints at once.
+     */
+    private boolean applyMarker(ArrowType type, ValueSet constraint, Object value)
+    {
+        synchronized (markerFactory) {
+            try (Marker marker = markerFactory.createNullable(type, value, Marker.Bound.EXACTLY)) {
+                return constraint.containsValue(marker);
+            }
+            catch (Exception ex) {
+                throw (ex instanceof RuntimeException) ? (RuntimeException) ex : new RuntimeException(ex);
+            }
+        }
+    }
+
     /**
      * Frees any Apache Arrow resources held by this Constraint Evaluator.
      *
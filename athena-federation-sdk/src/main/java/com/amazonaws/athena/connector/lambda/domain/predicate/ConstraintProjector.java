@@ -22,4 +22,23 @@ package com.amazonaws.athena.connector.lambda.domain.predicate;
 public interface ConstraintProjector
 {
     boolean apply(Object value);
+
+    /**
+     * Implemented by projectors (see ConstraintProjectors) which can test integral and date values without boxing
+     * them. The value is in the units of the column's Apache Arrow vector (e.g. days for DATEDAY, millis for DATEMILLI).
+     */
+    interface LongProjector
+            extends ConstraintProjector
+    {
+        boolean applyLong(long value);
+    }
+
+    /**
+     * Implemented by projectors (see ConstraintProjectors) which can test floating point values without boxing them.
+     */
+    interface DoubleProjector
+            extends ConstraintProjector
+    {
+        boolean applyDouble(double value);
+    }
 }
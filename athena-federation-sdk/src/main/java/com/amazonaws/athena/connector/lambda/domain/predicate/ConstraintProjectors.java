@@ -0,0 +1,607 @@
+package com.amazonaws.athena.connector.lambda.domain.predicate;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.arrow.vector.types.Types;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Compiles ValueSets into ConstraintProjectors which are specialized for the type of the column being tested.
+ * <p>
+ * Testing a value against a ValueSet directly boxes the value, wraps it in a ValueMarker and walks the ranges (or
+ * values) comparing them via ArrowTypeComparator. For the common column types (integral, date, floating point and
+ * VARCHAR) the projectors built here instead copy the range bounds (or values) into primitive arrays (or a HashSet)
+ * once, and then test each value with a binary search (or hash lookup) that does not allocate. Integral and date
+ * projectors also implement ConstraintProjector.LongProjector and floating point projectors implement
+ * ConstraintProjector.DoubleProjector so that FieldWriters can avoid boxing altogether.
+ * <p>
+ * Values of a java type the compiled projector does not expect (e.g. a LocalDate for a DATEDAY column) and any
+ * ValueSet that can't be compiled are handled by the fallback projector, so results are always identical to the
+ * fallback's.
+ */
+public class ConstraintProjectors
+{
+    private ConstraintProjectors() {}
+
+    /**
+     * Compiles the ValueSet into a type specialized ConstraintProjector, using ValueSet.containsValue(Object) for
+     * anything that can't be specialized.
+     *
+     * @param valueSet The ValueSet to compile.
+     * @return A ConstraintProjector equivalent to valueSet.containsValue(Object).
+     */
+    public static ConstraintProjector compile(ValueSet valueSet)
+    {
+        return compile(valueSet, valueSet::containsValue);
+    }
+
+    /**
+     * Compiles the ValueSet into a type specialized ConstraintProjector.
+     *
+     * @param valueSet The ValueSet to compile.
+     * @param fallback The projector to use for values (and ValueSets) which can't be handled by a specialized
+     * projector, this must be equivalent to testing the value against the ValueSet.
+     * @return A ConstraintProjector equivalent to the fallback, or the fallback itself if the ValueSet can't be compiled.
+     */
+    public static ConstraintProjector compile(ValueSet valueSet, ConstraintProjector fallback)
+    {
+        requireNonNull(valueSet, "valueSet is null");
+        requireNonNull(fallback, "fallback is null");
+
+        ValueKind kind = ValueKind.of(valueSet.getType());
+        if (kind == null || !(valueSet instanceof SortedRangeSet || valueSet instanceof EquatableValueSet)) {
+            return fallback;
+        }
+
+        //The result for null only depends on the ValueSet so we can evaluate it once up front.
+        boolean nullResult = fallback.apply(null);
+        if (valueSet instanceof SortedRangeSet) {
+            return compileRanges(kind, ((SortedRangeSet) valueSet).getOrderedRanges(), nullResult, fallback);
+        }
+        return compileValues(kind, (EquatableValueSet) valueSet, nullResult, fallback);
+    }
+
+    private static ConstraintProjector compileRanges(ValueKind kind, List<Range> ranges, boolean nullResult, ConstraintProjector fallback)
+    {
+        int numRanges = ranges.size();
+        boolean[] lowInclusive = new boolean[numRanges];
+        boolean[] highInclusive = new boolean[numRanges];
+        boolean lowerUnbounded = numRanges > 0 && ranges.get(0).getLow().isLowerUnbounded();
+        boolean upperUnbounded = numRanges > 0 && ranges.get(numRanges - 1).getHigh().isUpperUnbounded();
+
+        for (int i = 0; i < numRanges; i++) {
+            Range range = ranges.get(i);
+            //Only the first range can be unbounded below and only the last can be unbounded above since ranges are disjoint.
+            if ((range.getLow().isLowerUnbounded() && i != 0) || (range.getHigh().isUpperUnbounded() && i != numRanges - 1)) {
+                return fallback;
+            }
+            lowInclusive[i] = range.getLow().getBound() == Marker.Bound.EXACTLY;
+            highInclusive[i] = range.getHigh().getBound() == Marker.Bound.EXACTLY;
+        }
+
+        switch (kind) {
+            case TINYINT:
+            case SMALLINT:
+            case INT:
+            case BIGINT:
+            case DATE_MILLI:
+                long[] longLows = new long[numRanges];
+                long[] longHighs = new long[numRanges];
+                for (int i = 0; i < numRanges; i++) {
+                    Range range = ranges.get(i);
+                    longLows[i] = range.getLow().isLowerUnbounded() ? Long.MIN_VALUE : kind.toLong(range.getLow().getValue());
+                    longHighs[i] = range.getHigh().isUpperUnbounded() ? Long.MAX_VALUE : kind.toLong(range.getHigh().getValue());
+                }
+                return new LongRangeProjector(kind, longLows, lowInclusive, lowerUnbounded, longHighs, highInclusive, upperUnbounded, nullResult, fallback);
+            case FLOAT4:
+            case FLOAT8:
+                double[] doubleLows = new double[numRanges];
+                double[] doubleHighs = new double[numRanges];
+                for (int i = 0; i < numRanges; i++) {
+                    Range range = ranges.get(i);
+                    doubleLows[i] = range.getLow().isLowerUnbounded() ? Double.NEGATIVE_INFINITY : ((Number) range.getLow().getValue()).doubleValue();
+                    doubleHighs[i] = range.getHigh().isUpperUnbounded() ? Double.POSITIVE_INFINITY : ((Number) range.getHigh().getValue()).doubleValue();
+                }
+                return new DoubleRangeProjector(kind, doubleLows, lowInclusive, lowerUnbounded, doubleHighs, highInclusive, upperUnbounded, nullResult, fallback);
+            case STRING:
+                String[] stringLows = new String[numRanges];
+                String[] stringHighs = new String[numRanges];
+                for (int i = 0; i < numRanges; i++) {
+                    Range range = ranges.get(i);
+                    stringLows[i] = range.getLow().isLowerUnbounded() ? null : range.getLow().getValue().toString();
+                    stringHighs[i] = range.getHigh().isUpperUnbounded() ? null : range.getHigh().getValue().toString();
+                }
+                return new StringRangeProjector(stringLows, lowInclusive, lowerUnbounded, stringHighs, highInclusive, upperUnbounded, nullResult, fallback);
+            default:
+                return fallback;
+        }
+    }
+
+    private static ConstraintProjector compileValues(ValueKind kind, EquatableValueSet valueSet, boolean nullResult, ConstraintProjector fallback)
+    {
+        int numValues = valueSet.getValueBlock().getRowCount();
+        Object[] values = new Object[numValues];
+        for (int i = 0; i < numValues; i++) {
+            values[i] = valueSet.getValue(i);
+            if (values[i] == null) {
+                //A null entry would need to match null values, leave that to the fallback.
+                return fallback;
+            }
+        }
+
+        boolean whiteList = valueSet.isWhiteList();
+        switch (kind) {
+            case TINYINT:
+            case SMALLINT:
+            case INT:
+            case BIGINT:
+            case DATE_MILLI:
+                long[] longValues = new long[numValues];
+                for (int i = 0; i < numValues; i++) {
+                    longValues[i] = kind.toLong(values[i]);
+                }
+                Arrays.sort(longValues);
+                return new LongSetProjector(kind, longValues, whiteList, nullResult, fallback);
+            case FLOAT4:
+            case FLOAT8:
+                double[] doubleValues = new double[numValues];
+                for (int i = 0; i < numValues; i++) {
+                    doubleValues[i] = ((Number) values[i]).doubleValue();
+                }
+                Arrays.sort(doubleValues);
+                return new DoubleSetProjector(kind, doubleValues, whiteList, nullResult, fallback);
+            case STRING:
+                Set<String> stringValues = new HashSet<>();
+                for (Object next : values) {
+                    stringValues.add(next.toString());
+                }
+                return new StringSetProjector(stringValues, whiteList, nullResult, fallback);
+            default:
+                return fallback;
+        }
+    }
+
+    /**
+     * The families of column types we can specialize for, along with how to convert values of that type.
+     */
+    private enum ValueKind
+    {
+        TINYINT(Byte.MIN_VALUE, Byte.MAX_VALUE),
+        SMALLINT(Short.MIN_VALUE, Short.MAX_VALUE),
+        INT(Integer.MIN_VALUE, Integer.MAX_VALUE),
+        BIGINT(Long.MIN_VALUE, Long.MAX_VALUE),
+        DATE_MILLI(Long.MIN_VALUE, Long.MAX_VALUE),
+        FLOAT4(0, 0),
+        FLOAT8(0, 0),
+        STRING(0, 0);
+
+        //The range of values an integral column can hold, anything outside of it would be truncated when converted
+        //to the column's type, so we leave those values to the fallback.
+        private final long minValue;
+        private final long maxValue;
+
+        ValueKind(long minValue, long maxValue)
+        {
+            this.minValue = minValue;
+            this.maxValue = maxValue;
+        }
+
+        static ValueKind of(ArrowType type)
+        {
+            if (type == null) {
+                return null;
+            }
+            switch (Types.getMinorTypeForArrowType(type)) {
+                case TINYINT:
+                    return TINYINT;
+                case SMALLINT:
+                    return SMALLINT;
+                case INT:
+                case DATEDAY:
+                    return INT;
+                case BIGINT:
+                    return BIGINT;
+                case DATEMILLI:
+                    return DATE_MILLI;
+                case FLOAT4:
+                    return FLOAT4;
+                case FLOAT8:
+                    return FLOAT8;
+                case VARCHAR:
+                    return STRING;
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * @return True if the value is of a java type that this kind can convert without changing its meaning.
+         */
+        boolean accepts(Object value)
+        {
+            switch (this) {
+                case TINYINT:
+                case SMALLINT:
+                case INT:
+                case BIGINT:
+                    if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                        long longValue = ((Number) value).longValue();
+                        return longValue >= minValue && longValue <= maxValue;
+                    }
+                    return false;
+                case DATE_MILLI:
+                    //Sub-millisecond precision would be lost converting to epoch millis.
+                    return value instanceof LocalDateTime && ((LocalDateTime) value).getNano() % 1_000_000 == 0;
+                case FLOAT4:
+                    return value instanceof Float;
+                case FLOAT8:
+                    return value instanceof Double;
+                case STRING:
+                    return value instanceof String;
+                default:
+                    return false;
+            }
+        }
+
+        long toLong(Object value)
+        {
+            if (this == DATE_MILLI) {
+                return ((LocalDateTime) value).toInstant(ZoneOffset.UTC).toEpochMilli();
+            }
+            return ((Number) value).longValue();
+        }
+    }
+
+    /**
+     * Tests values against a sorted list of disjoint long ranges. The ranges are also sorted by their low bound, so a
+     * binary search finds the only range which could contain a value.
+     */
+    private static class LongRangeProjector
+            implements ConstraintProjector.LongProjector
+    {
+        private final ValueKind kind;
+        private final long[] lows;
+        private final boolean[] lowInclusive;
+        private final boolean lowerUnbounded;
+        private final long[] highs;
+        private final boolean[] highInclusive;
+        private final boolean upperUnbounded;
+        private final boolean nullResult;
+        private final ConstraintProjector fallback;
+
+        private LongRangeProjector(ValueKind kind,
+                long[] lows,
+                boolean[] lowInclusive,
+                boolean lowerUnbounded,
+                long[] highs,
+                boolean[] highInclusive,
+                boolean upperUnbounded,
+                boolean nullResult,
+                ConstraintProjector fallback)
+        {
+            this.kind = kind;
+            this.lows = lows;
+            this.lowInclusive = lowInclusive;
+            this.lowerUnbounded = lowerUnbounded;
+            this.highs = highs;
+            this.highInclusive = highInclusive;
+            this.upperUnbounded = upperUnbounded;
+            this.nullResult = nullResult;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public boolean apply(Object value)
+        {
+            if (value == null) {
+                return nullResult;
+            }
+            return kind.accepts(value) ? applyLong(kind.toLong(value)) : fallback.apply(value);
+        }
+
+        @Override
+        public boolean applyLong(long value)
+        {
+            //Find the last range whose low bound admits the value.
+            int low = 0;
+            int high = lows.length - 1;
+            int candidate = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if ((mid == 0 && lowerUnbounded) || value > lows[mid] || (value == lows[mid] && lowInclusive[mid])) {
+                    candidate = mid;
+                    low = mid + 1;
+                }
+                else {
+                    high = mid - 1;
+                }
+            }
+
+            if (candidate < 0) {
+                return false;
+            }
+            return (candidate == highs.length - 1 && upperUnbounded) || value < highs[candidate]
+                    || (value == highs[candidate] && highInclusive[candidate]);
+        }
+    }
+
+    /**
+     * Tests values against a sorted list of disjoint double ranges, comparisons use Double.compare(...) to match the
+     * ordering ArrowTypeComparator uses (e.g. for NaN and -0.0).
+     */
+    private static class DoubleRangeProjector
+            implements ConstraintProjector.DoubleProjector
+    {
+        private final ValueKind kind;
+        private final double[] lows;
+        private final boolean[] lowInclusive;
+        private final boolean lowerUnbounded;
+        private final double[] highs;
+        private final boolean[] highInclusive;
+        private final boolean upperUnbounded;
+        private final boolean nullResult;
+        private final ConstraintProjector fallback;
+
+        private DoubleRangeProjector(ValueKind kind,
+                double[] lows,
+                boolean[] lowInclusive,
+                boolean lowerUnbounded,
+                double[] highs,
+                boolean[] highInclusive,
+                boolean upperUnbounded,
+                boolean nullResult,
+                ConstraintProjector fallback)
+        {
+            this.kind = kind;
+            this.lows = lows;
+            this.lowInclusive = lowInclusive;
+            this.lowerUnbounded = lowerUnbounded;
+            this.highs = highs;
+            this.highInclusive = highInclusive;
+            this.upperUnbounded = upperUnbounded;
+            this.nullResult = nullResult;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public boolean apply(Object value)
+        {
+            if (value == null) {
+                return nullResult;
+            }
+            return kind.accepts(value) ? applyDouble(((Number) value).doubleValue()) : fallback.apply(value);
+        }
+
+        @Override
+        public boolean applyDouble(double value)
+        {
+            int low = 0;
+            int high = lows.length - 1;
+            int candidate = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = Double.compare(value, lows[mid]);
+                if ((mid == 0 && lowerUnbounded) || cmp > 0 || (cmp == 0 && lowInclusive[mid])) {
+                    candidate = mid;
+                    low = mid + 1;
+                }
+                else {
+                    high = mid - 1;
+                }
+            }
+
+            if (candidate < 0) {
+                return false;
+            }
+            int cmp = Double.compare(value, highs[candidate]);
+            return (candidate == highs.length - 1 && upperUnbounded) || cmp < 0 || (cmp == 0 && highInclusive[candidate]);
+        }
+    }
+
+    /**
+     * Tests values against a sorted list of disjoint VARCHAR ranges, comparisons use String.compareTo(...) to match
+     * ArrowTypeComparator.
+     */
+    private static class StringRangeProjector
+            implements ConstraintProjector
+    {
+        private final String[] lows;
+        private final boolean[] lowInclusive;
+        private final boolean lowerUnbounded;
+        private final String[] highs;
+        private final boolean[] highInclusive;
+        private final boolean upperUnbounded;
+        private final boolean nullResult;
+        private final ConstraintProjector fallback;
+
+        private StringRangeProjector(String[] lows,
+                boolean[] lowInclusive,
+                boolean lowerUnbounded,
+                String[] highs,
+                boolean[] highInclusive,
+                boolean upperUnbounded,
+                boolean nullResult,
+                ConstraintProjector fallback)
+        {
+            this.lows = lows;
+            this.lowInclusive = lowInclusive;
+            this.lowerUnbounded = lowerUnbounded;
+            this.highs = highs;
+            this.highInclusive = highInclusive;
+            this.upperUnbounded = upperUnbounded;
+            this.nullResult = nullResult;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public boolean apply(Object rawValue)
+        {
+            if (rawValue == null) {
+                return nullResult;
+            }
+            if (!(rawValue instanceof String)) {
+                return fallback.apply(rawValue);
+            }
+
+            String value = (String) rawValue;
+            int low = 0;
+            int high = lows.length - 1;
+            int candidate = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                boolean admits = mid == 0 && lowerUnbounded;
+                if (!admits) {
+                    int cmp = value.compareTo(lows[mid]);
+                    admits = cmp > 0 || (cmp == 0 && lowInclusive[mid]);
+                }
+                if (admits) {
+                    candidate = mid;
+                    low = mid + 1;
+                }
+                else {
+                    high = mid - 1;
+                }
+            }
+
+            if (candidate < 0) {
+                return false;
+            }
+            if (candidate == highs.length - 1 && upperUnbounded) {
+                return true;
+            }
+            int cmp = value.compareTo(highs[candidate]);
+            return cmp < 0 || (cmp == 0 && highInclusive[candidate]);
+        }
+    }
+
+    /**
+     * Tests values for membership in a sorted array of longs.
+     */
+    private static class LongSetProjector
+            implements ConstraintProjector.LongProjector
+    {
+        private final ValueKind kind;
+        private final long[] values;
+        private final boolean whiteList;
+        private final boolean nullResult;
+        private final ConstraintProjector fallback;
+
+        private LongSetProjector(ValueKind kind, long[] values, boolean whiteList, boolean nullResult, ConstraintProjector fallback)
+        {
+            this.kind = kind;
+            this.values = values;
+            this.whiteList = whiteList;
+            this.nullResult = nullResult;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public boolean apply(Object value)
+        {
+            if (value == null) {
+                return nullResult;
+            }
+            return kind.accepts(value) ? applyLong(kind.toLong(value)) : fallback.apply(value);
+        }
+
+        @Override
+        public boolean applyLong(long value)
+        {
+            return whiteList == (Arrays.binarySearch(values, value) >= 0);
+        }
+    }
+
+    /**
+     * Tests values for membership in a sorted array of doubles, Arrays.binarySearch(...) treats values as equal with
+     * the same semantics as Double.compare(...).
+     */
+    private static class DoubleSetProjector
+            implements ConstraintProjector.DoubleProjector
+    {
+        private final ValueKind kind;
+        private final double[] values;
+        private final boolean whiteList;
+        private final boolean nullResult;
+        private final ConstraintProjector fallback;
+
+        private DoubleSetProjector(ValueKind kind, double[] values, boolean whiteList, boolean nullResult, ConstraintProjector fallback)
+        {
+            this.kind = kind;
+            this.values = values;
+            this.whiteList = whiteList;
+            this.nullResult = nullResult;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public boolean apply(Object value)
+        {
+            if (value == null) {
+                return nullResult;
+            }
+            return kind.accepts(value) ? applyDouble(((Number) value).doubleValue()) : fallback.apply(value);
+        }
+
+        @Override
+        public boolean applyDouble(double value)
+        {
+            return whiteList == (Arrays.binarySearch(values, value) >= 0);
+        }
+    }
+
+    /**
+     * Tests VARCHAR values for membership in a HashSet.
+     */
+    private static class StringSetProjector
+            implements ConstraintProjector
+    {
+        private final Set<String> values;
+        private final boolean whiteList;
+        private final boolean nullResult;
+        private final ConstraintProjector fallback;
+
+        private StringSetProjector(Set<String> values, boolean whiteList, boolean nullResult, ConstraintProjector fallback)
+        {
+            this.values = values;
+            this.whiteList = whiteList;
+            this.nullResult = nullResult;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public boolean apply(Object value)
+        {
+            if (value == null) {
+                return nullResult;
+            }
+            return (value instanceof String) ? whiteList == values.contains(value) : fallback.apply(value);
+        }
+    }
+}
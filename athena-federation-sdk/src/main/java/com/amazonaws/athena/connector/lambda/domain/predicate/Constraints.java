@@ -21,9 +21,12 @@ package com.amazonaws.athena.connector.lambda.domain.predicate;
  */
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -36,16 +39,51 @@ import java.util.Map;
  * only the "col0 < 1 or col1 < 10" will be supplied to you at this time. We are still considering the best form for
  * supplying connectors with a more complete view of the query and its predicate. We expect a future release to  provide
  * full predicates to connectors and lets the connector decide which parts of the predicate it is capable of applying
+ *
+ * Constraints may also carry the query's LIMIT and, when the LIMIT is part of a TopN, the ORDER BY clause it applies
+ * to. Both are hints, Athena still applies the LIMIT and ORDER BY to whatever the connector returns, so a connector
+ * is free to ignore them or to return more rows than the limit. They are only sent using SerDe version 2 or later.
+ * Constraints may likewise carry an Aggregation, which, unlike the LIMIT, the connector must apply (see Aggregation).
  */
 public class Constraints
         implements AutoCloseable
 {
+    //Indicates that the query has no LIMIT that can be pushed down.
+    public static final long DEFAULT_NO_LIMIT = -1;
+
     private Map<String, ValueSet> summary;
+    private List<OrderByField> orderByClause;
+    private long limit;
+    private Aggregation aggregation;
 
     @JsonCreator
     public Constraints(@JsonProperty("summary") Map<String, ValueSet> summary)
+    {
+        this(summary, ImmutableList.of(), DEFAULT_NO_LIMIT);
+    }
+
+    /**
+     * @param summary The associative predicates, mapped by column name.
+     * @param orderByClause The ORDER BY clause the limit applies to, empty if the limit does not depend on ordering.
+     * @param limit The max number of rows the query needs, DEFAULT_NO_LIMIT if there is no limit.
+     */
+    public Constraints(Map<String, ValueSet> summary, List<OrderByField> orderByClause, long limit)
+    {
+        this(summary, orderByClause, limit, null);
+    }
+
+    /**
+     * @param summary The associative predicates, mapped by column name.
+     * @param orderByClause The ORDER BY clause the limit applies to, empty if the limit does not depend on ordering.
+     * @param limit The max number of rows the query needs, DEFAULT_NO_LIMIT if there is no limit.
+     * @param aggregation The aggregation to apply to the rows which pass the summary, null if there is none.
+     */
+    public Constraints(Map<String, ValueSet> summary, List<OrderByField> orderByClause, long limit, Aggregation aggregation)
     {
         this.summary = summary;
+        this.orderByClause = (orderByClause == null) ? ImmutableList.of() : ImmutableList.copyOf(orderByClause);
+        this.limit = (limit < 0) ? DEFAULT_NO_LIMIT : limit;
+        this.aggregation = aggregation;
     }
 
     /**
@@ -58,6 +96,67 @@ public class Constraints
         return summary;
     }
 
+    /**
+     * Provides access to the ORDER BY clause that the limit applies to, if any.
+     *
+     * @return The columns to order by, in order of precedence. Empty if the query has no TopN.
+     */
+    @JsonIgnore
+    public List<OrderByField> getOrderByClause()
+    {
+        return orderByClause;
+    }
+
+    /**
+     * Provides access to the max number of rows the query needs from this table.
+     *
+     * @return The limit, DEFAULT_NO_LIMIT if the query has no limit.
+     */
+    @JsonIgnore
+    public long getLimit()
+    {
+        return limit;
+    }
+
+    /**
+     * @return True if the query has a limit that can be pushed down.
+     */
+    @JsonIgnore
+    public boolean hasLimit()
+    {
+        return limit != DEFAULT_NO_LIMIT;
+    }
+
+    /**
+     * @return True if the limit applies to an ordering of the rows (aka a TopN), in which case the limit can only be
+     * applied by a source which also applies the ordering.
+     */
+    @JsonIgnore
+    public boolean hasNonEmptyOrderByClause()
+    {
+        return !orderByClause.isEmpty();
+    }
+
+    /**
+     * Provides access to the aggregation the connector must apply to the rows which pass the summary, if any.
+     *
+     * @return The Aggregation, null if the query's aggregation was not pushed down.
+     */
+    @JsonIgnore
+    public Aggregation getAggregation()
+    {
+        return aggregation;
+    }
+
+    /**
+     * @return True if the connector must return aggregated rows, see getAggregation().
+     */
+    @JsonIgnore
+    public boolean hasAggregation()
+    {
+        return aggregation != null;
+    }
+
     @Override
     public boolean equals(Object o)
     {
@@ -70,7 +169,10 @@ public class Constraints
 
         Constraints that = (Constraints) o;
 
-        return Objects.equal(this.summary, that.summary);
+        return Objects.equal(this.summary, that.summary) &&
+                Objects.equal(this.orderByClause, that.orderByClause) &&
+                this.limit == that.limit &&
+                Objects.equal(this.aggregation, that.aggregation);
     }
 
     @Override
@@ -78,13 +180,16 @@ public class Constraints
     {
         return "Constraints{" +
                 "summary=" + summary +
+                ", orderByClause=" + orderByClause +
+                ", limit=" + limit +
+                ", aggregation=" + aggregation +
                 '}';
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hashCode(summary);
+        return Objects.hashCode(summary, orderByClause, limit, aggregation);
     }
 
     @Override
@@ -0,0 +1,116 @@
+package com.amazonaws.athena.connector.lambda.domain.predicate;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A single column of an ORDER BY clause, including the direction of the sort and where nulls should be placed.
+ */
+public class OrderByField
+{
+    /**
+     * The direction of the sort for a column, including the placement of nulls.
+     */
+    public enum Direction
+    {
+        ASC_NULLS_FIRST(true, true),
+        ASC_NULLS_LAST(true, false),
+        DESC_NULLS_FIRST(false, true),
+        DESC_NULLS_LAST(false, false);
+
+        private final boolean ascending;
+        private final boolean nullsFirst;
+
+        Direction(boolean ascending, boolean nullsFirst)
+        {
+            this.ascending = ascending;
+            this.nullsFirst = nullsFirst;
+        }
+
+        public boolean isAscending()
+        {
+            return ascending;
+        }
+
+        public boolean isNullsFirst()
+        {
+            return nullsFirst;
+        }
+    }
+
+    private final String columnName;
+    private final Direction direction;
+
+    /**
+     * @param columnName The name of the column to sort by.
+     * @param direction The direction of the sort, including the placement of nulls.
+     */
+    public OrderByField(String columnName, Direction direction)
+    {
+        this.columnName = requireNonNull(columnName, "columnName is null");
+        this.direction = requireNonNull(direction, "direction is null");
+    }
+
+    public String getColumnName()
+    {
+        return columnName;
+    }
+
+    public Direction getDirection()
+    {
+        return direction;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        OrderByField that = (OrderByField) o;
+
+        return Objects.equal(this.columnName, that.columnName) &&
+                Objects.equal(this.direction, that.direction);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hashCode(columnName, direction);
+    }
+
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper(this)
+                .add("columnName", columnName)
+                .add("direction", direction)
+                .toString();
+    }
+}
@@ -95,8 +95,10 @@ public class CompositeHandler
             throws IOException
     {
         try (BlockAllocatorImpl allocator = new BlockAllocatorImpl()) {
-            ObjectMapper objectMapper = VersionedObjectMapperFactory.create(allocator);
-            try (FederationRequest rawReq = objectMapper.readValue(inputStream, FederationRequest.class)) {
+            ObjectMapper objectMapper = VersionedObjectMapperFactory.getShared(SerDeVersion.SERDE_VERSION);
+            try (FederationRequest rawReq = objectMapper.readerFor(FederationRequest.class)
+                    .withAttribute(VersionedObjectMapperFactory.ALLOCATOR_ATTRIBUTE, allocator)
+                    .readValue(inputStream)) {
                 if (rawReq instanceof MetadataRequest) {
                     ((MetadataRequest) rawReq).setContext(context);
                 }
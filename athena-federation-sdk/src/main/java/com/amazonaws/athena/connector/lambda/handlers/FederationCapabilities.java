@@ -30,10 +30,36 @@ package com.amazonaws.athena.connector.lambda.handlers;
  * 23 - initial preview release
  * 24 - explicit, versioned serialization introduced
  * 25 - upgraded Arrow to 3.0.0, addressed backwards incompatible changes
+ * 26 - binary framed ReadRecordsResponse (SerDe version 4), only advertised when enabled
+ * 27 - Constraints may carry a LIMIT and the ORDER BY clause of a TopN, advertised by MetadataHandler
+ * 28 - Constraints may carry an Aggregation, only advertised by MetadataHandlers which support aggregate pushdown
+ *
+ * Capabilities are ordinal, advertising one implies all of those before it. Since 27 and 28 imply 26 they are only
+ * advertised when framed responses are enabled.
  */
 public class FederationCapabilities
 {
+    //Env variable used to enable the binary framing of ReadRecordsResponses (capability 26).
+    private static final String FRAMED_RESPONSES = "FRAMED_RESPONSES";
+
     private FederationCapabilities() {}
 
     protected static final int CAPABILITIES = 24;
+
+    protected static final int FRAMED_RESPONSE_CAPABILITIES = 26;
+
+    protected static final int PUSHDOWN_CAPABILITIES = 27;
+
+    protected static final int AGGREGATE_PUSHDOWN_CAPABILITIES = 28;
+
+    /**
+     * Indicates if capability 26 (and so anything after it) may be advertised. This is advertised to the engine via
+     * the PingResponse, so it must only be enabled for engines that support SerDe version 4.
+     *
+     * @return True if the FRAMED_RESPONSES env var is set to true, False otherwise.
+     */
+    protected static boolean isFramedResponseEnabled()
+    {
+        return Boolean.parseBoolean(System.getenv(FRAMED_RESPONSES));
+    }
 }
@@ -32,6 +32,7 @@ import com.amazonaws.athena.connector.lambda.metadata.ListTablesRequest;
 import com.amazonaws.athena.connector.lambda.metadata.ListTablesResponse;
 import com.amazonaws.athena.connector.lambda.metadata.MetadataRequest;
 import com.amazonaws.athena.connector.lambda.metadata.glue.GlueFieldLexer;
+import com.amazonaws.athena.connector.lambda.metadata.glue.GlueTableCache;
 import com.amazonaws.athena.connector.lambda.security.EncryptionKeyFactory;
 import com.amazonaws.services.athena.AmazonAthena;
 import com.amazonaws.services.glue.AWSGlue;
@@ -62,6 +63,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -133,7 +135,15 @@ public abstract class GlueMetadataHandler
     // emulate behavior from prior versions.
     public static final String GLUE_TABLE_CONTAINS_PREVIOUSLY_UNSUPPORTED_TYPE = "glueTableContainsPreviouslyUnsupportedType";
 
+    //When set, tables fetched from Glue are cached for up to this many seconds, see GlueTableCache.
+    private static final String TABLE_CACHE_SECONDS_ENV = "glue_table_cache_seconds";
+    //The max number of tables to cache when glue_table_cache_seconds is set.
+    private static final String TABLE_CACHE_MAX_TABLES_ENV = "glue_table_cache_max_tables";
+    private static final int DEFAULT_TABLE_CACHE_MAX_TABLES = 1_000;
+
     private final AWSGlue awsGlue;
+    //Null unless table caching has been enabled.
+    private GlueTableCache tableCache = makeTableCache();
 
     /**
      * Basic constructor which is recommended when extending this class.
@@ -201,6 +211,33 @@ public abstract class GlueMetadataHandler
         return awsGlue;
     }
 
+    /**
+     * Provides access to the cache of Glue tables, if enabled, so that extenders can inspect its hit rate.
+     *
+     * @return The GlueTableCache being used by this class, or null if table caching is disabled.
+     */
+    protected GlueTableCache getTableCache()
+    {
+        return tableCache;
+    }
+
+    @VisibleForTesting
+    void setTableCache(GlueTableCache tableCache)
+    {
+        this.tableCache = tableCache;
+    }
+
+    private static GlueTableCache makeTableCache()
+    {
+        String cacheSeconds = System.getenv(TABLE_CACHE_SECONDS_ENV);
+        if (cacheSeconds == null || Long.parseLong(cacheSeconds) <= 0) {
+            return null;
+        }
+        String maxTables = System.getenv(TABLE_CACHE_MAX_TABLES_ENV);
+        return new GlueTableCache(TimeUnit.SECONDS.toMillis(Long.parseLong(cacheSeconds)),
+                (maxTables != null) ? Integer.parseInt(maxTables) : DEFAULT_TABLE_CACHE_MAX_TABLES);
+    }
+
     /**
      * Provides access to the current AWS Glue DataCatalog being used by this class.
      *
@@ -299,8 +336,9 @@ public abstract class GlueMetadataHandler
     protected ListTablesResponse doListTables(BlockAllocator blockAllocator, ListTablesRequest request, TableFilter filter)
             throws Exception
     {
+        String catalog = getCatalog(request);
         GetTablesRequest getTablesRequest = new GetTablesRequest();
-        getTablesRequest.setCatalogId(getCatalog(request));
+        getTablesRequest.setCatalogId(catalog);
         getTablesRequest.setDatabaseName(request.getSchemaName());
 
         Set<TableName> tables = new HashSet<>();
@@ -318,6 +356,10 @@ public abstract class GlueMetadataHandler
             GetTablesResult result = awsGlue.getTables(getTablesRequest);
 
             for (Table next : result.getTableList()) {
+                if (tableCache != null) {
+                    //The listing includes each table's UpdateTime so we get to evict stale cache entries for free.
+                    tableCache.invalidateIfChanged(GlueTableCache.makeKey(catalog, request.getSchemaName(), next.getName()), next);
+                }
                 if (filter == null || filter.filter(next)) {
                     tables.add(new TableName(request.getSchemaName(), next.getName()));
                 }
@@ -377,18 +419,41 @@ public abstract class GlueMetadataHandler
             throws Exception
     {
         TableName tableName = request.getTableName();
-        com.amazonaws.services.glue.model.GetTableRequest getTableRequest = new com.amazonaws.services.glue.model.GetTableRequest();
-        getTableRequest.setCatalogId(getCatalog(request));
-        getTableRequest.setDatabaseName(tableName.getSchemaName());
-        getTableRequest.setName(tableName.getTableName());
+        String catalog = getCatalog(request);
+        String cacheKey = GlueTableCache.makeKey(catalog, tableName.getSchemaName(), tableName.getTableName());
+        GlueTableCache.Entry cached = (tableCache != null) ? tableCache.get(cacheKey) : null;
 
-        GetTableResult result = awsGlue.getTable(getTableRequest);
-        Table table = result.getTable();
+        Table table;
+        if (cached != null) {
+            table = cached.getTable();
+        }
+        else {
+            com.amazonaws.services.glue.model.GetTableRequest getTableRequest = new com.amazonaws.services.glue.model.GetTableRequest();
+            getTableRequest.setCatalogId(catalog);
+            getTableRequest.setDatabaseName(tableName.getSchemaName());
+            getTableRequest.setName(tableName.getTableName());
+
+            GetTableResult result = awsGlue.getTable(getTableRequest);
+            table = result.getTable();
+        }
 
         if (filter != null && !filter.filter(table)) {
             throw new RuntimeException("No matching table found " + request.getTableName());
         }
 
+        if (cached == null && tableCache != null) {
+            //An expired entry can still be used if the table has not changed since it was cached.
+            cached = tableCache.revalidate(cacheKey, table);
+        }
+
+        if (cached != null) {
+            logger.debug("doGetTable: Using cached schema for {}, {}", cacheKey, tableCache);
+            return new GetTableResponse(request.getCatalogName(),
+                    request.getTableName(),
+                    cached.getSchema(),
+                    cached.getPartitionColumns());
+        }
+
         SchemaBuilder schemaBuilder = SchemaBuilder.newBuilder();
         if (table.getParameters() != null) {
             table.getParameters()
@@ -445,9 +510,14 @@ public abstract class GlueMetadataHandler
 
         schemaBuilder.addMetadata(GLUE_TABLE_CONTAINS_PREVIOUSLY_UNSUPPORTED_TYPE, String.valueOf(glueTableContainsPreviouslyUnsupportedType));
 
+        Schema schema = schemaBuilder.build();
+        if (tableCache != null) {
+            tableCache.put(cacheKey, table, schema, partitionCols);
+        }
+
         return new GetTableResponse(request.getCatalogName(),
                 request.getTableName(),
-                schemaBuilder.build(),
+                schema,
                 partitionCols);
     }
 
@@ -51,6 +51,7 @@ import com.amazonaws.athena.connector.lambda.request.FederationResponse;
 import com.amazonaws.athena.connector.lambda.request.PingRequest;
 import com.amazonaws.athena.connector.lambda.request.PingResponse;
 import com.amazonaws.athena.connector.lambda.security.CachableSecretsManager;
+import com.amazonaws.athena.connector.lambda.security.CachingKeyFactory;
 import com.amazonaws.athena.connector.lambda.security.EncryptionKey;
 import com.amazonaws.athena.connector.lambda.security.EncryptionKeyFactory;
 import com.amazonaws.athena.connector.lambda.security.KmsKeyFactory;
@@ -75,9 +76,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import static com.amazonaws.athena.connector.lambda.handlers.AthenaExceptionFilter.ATHENA_EXCEPTION_FILTER;
+import static com.amazonaws.athena.connector.lambda.handlers.FederationCapabilities.AGGREGATE_PUSHDOWN_CAPABILITIES;
 import static com.amazonaws.athena.connector.lambda.handlers.FederationCapabilities.CAPABILITIES;
+import static com.amazonaws.athena.connector.lambda.handlers.FederationCapabilities.PUSHDOWN_CAPABILITIES;
+import static com.amazonaws.athena.connector.lambda.handlers.SerDeVersion.FRAMED_SERDE_VERSION;
 import static com.amazonaws.athena.connector.lambda.handlers.SerDeVersion.SERDE_VERSION;
 
 /**
@@ -109,6 +114,11 @@ public abstract class MetadataHandler
     protected static final String SPILL_PREFIX_ENV = "spill_prefix";
     protected static final String KMS_KEY_ID_ENV = "kms_key_id";
     protected static final String DISABLE_SPILL_ENCRYPTION = "disable_spill_encryption";
+    //When set, KMS data keys are reused for up to this many seconds with a unique nonce per key, see CachingKeyFactory.
+    protected static final String KMS_KEY_CACHE_SECONDS_ENV = "kms_key_cache_seconds";
+    //The max number of keys vended from a single KMS data key when kms_key_cache_seconds is set.
+    protected static final String KMS_KEY_CACHE_MAX_USES_ENV = "kms_key_cache_max_uses";
+    private static final long DEFAULT_KMS_KEY_CACHE_MAX_USES = 10_000;
 
     private final CachableSecretsManager secretsManager;
     private final AmazonAthena athena;
@@ -131,7 +141,7 @@ public abstract class MetadataHandler
         if (System.getenv(DISABLE_SPILL_ENCRYPTION) == null ||
                 !DISABLE_ENCRYPTION.equalsIgnoreCase(System.getenv(DISABLE_SPILL_ENCRYPTION))) {
             encryptionKeyFactory = (System.getenv(KMS_KEY_ID_ENV) != null) ?
-                    new KmsKeyFactory(AWSKMSClientBuilder.standard().build(), System.getenv(KMS_KEY_ID_ENV)) :
+                    makeKmsKeyFactory(new KmsKeyFactory(AWSKMSClientBuilder.standard().build(), System.getenv(KMS_KEY_ID_ENV))) :
                     new LocalKeyFactory();
         }
         else {
@@ -162,6 +172,22 @@ public abstract class MetadataHandler
         this.verifier = new SpillLocationVerifier(AmazonS3ClientBuilder.standard().build());
     }
 
+    /**
+     * Wraps the KmsKeyFactory in a CachingKeyFactory when KMS data key caching has been enabled.
+     */
+    private static EncryptionKeyFactory makeKmsKeyFactory(KmsKeyFactory kmsKeyFactory)
+    {
+        String cacheSeconds = System.getenv(KMS_KEY_CACHE_SECONDS_ENV);
+        if (cacheSeconds == null || Long.parseLong(cacheSeconds) <= 0) {
+            return kmsKeyFactory;
+        }
+        String maxUses = System.getenv(KMS_KEY_CACHE_MAX_USES_ENV);
+        logger.info("makeKmsKeyFactory: Caching KMS data keys for up to {} seconds", cacheSeconds);
+        return new CachingKeyFactory(kmsKeyFactory,
+                TimeUnit.SECONDS.toMillis(Long.parseLong(cacheSeconds)),
+                (maxUses != null) ? Long.parseLong(maxUses) : DEFAULT_KMS_KEY_CACHE_MAX_USES);
+    }
+
     /**
      * Resolves any secrets found in the supplied string, for example: MyString${WithSecret} would have ${WithSecret}
      * by the corresponding value of the secret in AWS Secrets Manager with that name. If no such secret is found
@@ -207,8 +233,10 @@ public abstract class MetadataHandler
             throws IOException
     {
         try (BlockAllocator allocator = new BlockAllocatorImpl()) {
-            ObjectMapper objectMapper = VersionedObjectMapperFactory.create(allocator);
-            try (FederationRequest rawReq = objectMapper.readValue(inputStream, FederationRequest.class)) {
+            ObjectMapper objectMapper = VersionedObjectMapperFactory.getShared(SERDE_VERSION);
+            try (FederationRequest rawReq = objectMapper.readerFor(FederationRequest.class)
+                    .withAttribute(VersionedObjectMapperFactory.ALLOCATOR_ATTRIBUTE, allocator)
+                    .readValue(inputStream)) {
                 if (rawReq instanceof PingRequest) {
                     try (PingResponse response = doPing((PingRequest) rawReq)) {
                         assertNotNull(response);
@@ -439,7 +467,15 @@ public abstract class MetadataHandler
      */
     public PingResponse doPing(PingRequest request)
     {
-        PingResponse response = new PingResponse(request.getCatalogName(), request.getQueryId(), sourceType, CAPABILITIES, SERDE_VERSION);
+        //Capabilities are ordinal and pushdown comes after framed responses, so it follows the same decision as the
+        //RecordHandler's ping.
+        boolean framed = isFramedResponseEnabled();
+        int capabilities = CAPABILITIES;
+        if (framed) {
+            capabilities = supportsAggregatePushdown() ? AGGREGATE_PUSHDOWN_CAPABILITIES : PUSHDOWN_CAPABILITIES;
+        }
+        PingResponse response = new PingResponse(request.getCatalogName(), request.getQueryId(), sourceType, capabilities,
+                framed ? FRAMED_SERDE_VERSION : SERDE_VERSION);
         try {
             onPing(request);
         }
@@ -449,6 +485,30 @@ public abstract class MetadataHandler
         return response;
     }
 
+    /**
+     * Indicates if the RecordHandler paired with this MetadataHandler writes framed ReadRecordsResponses, which
+     * pushdown capabilities depend on.
+     *
+     * @return True if the FRAMED_RESPONSES env var is set to true, False otherwise.
+     * @see RecordHandler#isFramedResponseEnabled()
+     */
+    protected boolean isFramedResponseEnabled()
+    {
+        return FederationCapabilities.isFramedResponseEnabled();
+    }
+
+    /**
+     * Used to tell Athena whether this connector's RecordHandler applies the Aggregation that may be part of a
+     * ReadRecordsRequest's Constraints (see Aggregation). Athena only pushes aggregations down to connectors which
+     * return true.
+     *
+     * @return True if the connector supports aggregate pushdown, false (the default) otherwise.
+     */
+    protected boolean supportsAggregatePushdown()
+    {
+        return false;
+    }
+
     /**
      * Provides you a signal that can be used to warm up your function.
      *
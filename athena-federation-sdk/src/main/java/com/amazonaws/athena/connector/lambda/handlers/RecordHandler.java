@@ -26,8 +26,11 @@ import com.amazonaws.athena.connector.lambda.data.BlockAllocator;
 import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
 import com.amazonaws.athena.connector.lambda.data.BlockSpiller;
 import com.amazonaws.athena.connector.lambda.data.S3BlockSpiller;
+import com.amazonaws.athena.connector.lambda.data.SpillCompression;
 import com.amazonaws.athena.connector.lambda.data.SpillConfig;
+import com.amazonaws.athena.connector.lambda.data.SpillMetrics;
 import com.amazonaws.athena.connector.lambda.domain.predicate.ConstraintEvaluator;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
 import com.amazonaws.athena.connector.lambda.records.ReadRecordsRequest;
 import com.amazonaws.athena.connector.lambda.records.ReadRecordsResponse;
 import com.amazonaws.athena.connector.lambda.records.RecordRequest;
@@ -40,6 +43,7 @@ import com.amazonaws.athena.connector.lambda.request.PingRequest;
 import com.amazonaws.athena.connector.lambda.request.PingResponse;
 import com.amazonaws.athena.connector.lambda.security.CachableSecretsManager;
 import com.amazonaws.athena.connector.lambda.serde.VersionedObjectMapperFactory;
+import com.amazonaws.athena.connector.lambda.serde.v4.FramedResponseSerDeV4;
 import com.amazonaws.services.athena.AmazonAthena;
 import com.amazonaws.services.athena.AmazonAthenaClientBuilder;
 import com.amazonaws.services.lambda.runtime.Context;
@@ -55,9 +59,13 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
 
 import static com.amazonaws.athena.connector.lambda.handlers.AthenaExceptionFilter.ATHENA_EXCEPTION_FILTER;
 import static com.amazonaws.athena.connector.lambda.handlers.FederationCapabilities.CAPABILITIES;
+import static com.amazonaws.athena.connector.lambda.handlers.FederationCapabilities.FRAMED_RESPONSE_CAPABILITIES;
+import static com.amazonaws.athena.connector.lambda.handlers.SerDeVersion.FRAMED_SERDE_VERSION;
 import static com.amazonaws.athena.connector.lambda.handlers.SerDeVersion.SERDE_VERSION;
 
 /**
@@ -69,7 +77,18 @@ public abstract class RecordHandler
 {
     private static final Logger logger = LoggerFactory.getLogger(RecordHandler.class);
     private static final String MAX_BLOCK_SIZE_BYTES = "MAX_BLOCK_SIZE_BYTES";
+    //Env var used to enable compression (e.g. LZ4_FRAME or ZSTD) of spilled Blocks.
+    private static final String SPILL_COMPRESSION = "SPILL_COMPRESSION";
+    //Env var used to enable the per request spill metrics which are emitted in CloudWatch Embedded Metric Format.
+    private static final String SPILL_METRICS_ENABLED = "SPILL_METRICS_ENABLED";
+    //Env var used to override the CloudWatch namespace that spill metrics are published to.
+    private static final String SPILL_METRICS_NAMESPACE = "SPILL_METRICS_NAMESPACE";
+    private static final String DEFAULT_SPILL_METRICS_NAMESPACE = "AthenaFederation";
     private static final int NUM_SPILL_THREADS = 2;
+    //Env var used to override the max number of threads spilling can scale up to when S3 is slow.
+    private static final String MAX_SPILL_THREADS = "MAX_SPILL_THREADS";
+    //Env var used to override the max number of sub-streams of a split that are read in parallel.
+    private static final String SUB_STREAM_THREADS = "SUB_STREAM_THREADS";
     private final AmazonS3 amazonS3;
     private final String sourceType;
     private final CachableSecretsManager secretsManager;
@@ -122,8 +141,10 @@ public abstract class RecordHandler
             throws IOException
     {
         try (BlockAllocator allocator = new BlockAllocatorImpl()) {
-            ObjectMapper objectMapper = VersionedObjectMapperFactory.create(allocator);
-            try (FederationRequest rawReq = objectMapper.readValue(inputStream, FederationRequest.class)) {
+            ObjectMapper objectMapper = VersionedObjectMapperFactory.getShared(SERDE_VERSION);
+            try (FederationRequest rawReq = objectMapper.readerFor(FederationRequest.class)
+                    .withAttribute(VersionedObjectMapperFactory.ALLOCATOR_ATTRIBUTE, allocator)
+                    .readValue(inputStream)) {
                 if (rawReq instanceof PingRequest) {
                     try (PingResponse response = doPing((PingRequest) rawReq)) {
                         assertNotNull(response);
@@ -158,7 +179,15 @@ public abstract class RecordHandler
                 try (RecordResponse response = doReadRecords(allocator, (ReadRecordsRequest) req)) {
                     logger.info("doHandleRequest: response[{}]", response);
                     assertNotNull(response);
-                    objectMapper.writeValue(outputStream, response);
+                    if (response instanceof ReadRecordsResponse && isFramedResponse((ReadRecordsRequest) req)) {
+                        //Framed responses start with a magic number rather than '{' so readers can tell them apart.
+                        FramedResponseSerDeV4.serialize(VersionedObjectMapperFactory.getShared(FRAMED_SERDE_VERSION),
+                                response,
+                                outputStream);
+                    }
+                    else {
+                        objectMapper.writeValue(outputStream, response);
+                    }
                 }
                 return;
             default:
@@ -183,13 +212,21 @@ public abstract class RecordHandler
     {
         logger.info("doReadRecords: {}:{}", request.getSchema(), request.getSplit().getSpillLocation());
         SpillConfig spillConfig = getSpillConfig(request);
+        SpillMetrics metrics = null;
         try (ConstraintEvaluator evaluator = new ConstraintEvaluator(allocator,
                 request.getSchema(),
                 request.getConstraints());
                 S3BlockSpiller spiller = new S3BlockSpiller(amazonS3, spillConfig, allocator, request.getSchema(), evaluator);
                 QueryStatusChecker queryStatusChecker = new QueryStatusChecker(athena, athenaInvoker, request.getQueryId())
         ) {
-            readWithConstraint(spiller, request, queryStatusChecker);
+            metrics = spiller.getMetrics();
+            List<SubStreamReader> subStreams = getSubStreams(request);
+            if (subStreams.isEmpty()) {
+                readWithConstraint(spiller, request, queryStatusChecker);
+            }
+            else {
+                SubStreamRunner.run(spiller, subStreams, queryStatusChecker, getSubStreamThreads());
+            }
 
             if (!spiller.spilled()) {
                 return new ReadRecordsResponse(request.getCatalogName(), spiller.getBlock());
@@ -201,6 +238,12 @@ public abstract class RecordHandler
                         spillConfig.getEncryptionKey());
             }
         }
+        finally {
+            //The spiller has been closed by this point so any async spills are reflected in the metrics.
+            if (metrics != null) {
+                emitSpillMetrics(request, metrics);
+            }
+        }
     }
 
     /**
@@ -222,6 +265,49 @@ public abstract class RecordHandler
     protected abstract void readWithConstraint(BlockSpiller spiller, ReadRecordsRequest recordsRequest, QueryStatusChecker queryStatusChecker)
             throws Exception;
 
+    /**
+     * Allows sources which can divide a Split into independent streams of rows (e.g. DynamoDB scan sub-segments, HBase
+     * region sub-ranges, or Elasticsearch sliced scrolls) to have those streams read in parallel. When this returns any
+     * SubStreamReaders they are read, instead of calling readWithConstraint(...), on up to getSubStreamThreads() threads
+     * which all write to the same BlockSpiller.
+     *
+     * @param recordsRequest Details of the read request, see readWithConstraint(...).
+     * @return The SubStreamReaders to read for the request's Split, empty (the default) to use readWithConstraint(...).
+     */
+    protected List<SubStreamReader> getSubStreams(ReadRecordsRequest recordsRequest)
+            throws Exception
+    {
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return The max number of SubStreamReaders to read in parallel, defaults to the number of available processors.
+     */
+    protected int getSubStreamThreads()
+    {
+        String threads = System.getenv(SUB_STREAM_THREADS);
+        return (threads != null) ? Integer.parseInt(threads) : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Gets the max number of rows the BlockSpiller should accept for the request, allowing readers to stop early
+     * (see BlockWriter.isLimitReached()) once a pushed down LIMIT has been satisfied. A LIMIT which is part of a TopN
+     * can only be applied by a source which also applies the ORDER BY, so by default those are not enforced here, nor
+     * are limits on an aggregation.
+     *
+     * @param request The read request.
+     * @return The max number of rows, Constraints.DEFAULT_NO_LIMIT if every row should be accepted.
+     */
+    protected long getRowLimit(ReadRecordsRequest request)
+    {
+        Constraints constraints = request.getConstraints();
+        //The limit applies to the aggregated rows, and a split only produces partial aggregates.
+        if (constraints.hasLimit() && !constraints.hasNonEmptyOrderByClause() && !constraints.hasAggregation()) {
+            return constraints.getLimit();
+        }
+        return Constraints.DEFAULT_NO_LIMIT;
+    }
+
     protected SpillConfig getSpillConfig(ReadRecordsRequest request)
     {
         long maxBlockSize = request.getMaxBlockSize();
@@ -229,19 +315,68 @@ public abstract class RecordHandler
             maxBlockSize = Long.parseLong(System.getenv(MAX_BLOCK_SIZE_BYTES));
         }
 
-        return SpillConfig.newBuilder()
+        SpillConfig.Builder builder = SpillConfig.newBuilder();
+        if (System.getenv(MAX_SPILL_THREADS) != null) {
+            builder.withMaxSpillThreads(Integer.parseInt(System.getenv(MAX_SPILL_THREADS)));
+        }
+
+        return builder
                 .withSpillLocation(request.getSplit().getSpillLocation())
                 .withMaxBlockBytes(maxBlockSize)
                 .withMaxInlineBlockBytes(request.getMaxInlineBlockSize())
                 .withRequestId(request.getQueryId())
                 .withEncryptionKey(request.getSplit().getEncryptionKey())
                 .withNumSpillThreads(NUM_SPILL_THREADS)
+                .withCompression(SpillCompression.fromString(System.getenv(SPILL_COMPRESSION)))
+                .withRowLimit(getRowLimit(request))
                 .build();
     }
 
+    /**
+     * Emits the metrics collected while reading a split as a single CloudWatch Embedded Metric Format log line. The
+     * line is written directly to stdout because EMF requires the log event to be the bare JSON document, without the
+     * prefix added by our log layout. Metrics are only emitted when SPILL_METRICS_ENABLED is set to true since
+     * CloudWatch bills EMF metrics as custom metrics.
+     *
+     * @param request The request the metrics were collected for.
+     * @param metrics The metrics to emit.
+     */
+    protected void emitSpillMetrics(ReadRecordsRequest request, SpillMetrics metrics)
+    {
+        if (!Boolean.parseBoolean(System.getenv(SPILL_METRICS_ENABLED))) {
+            return;
+        }
+
+        String namespace = System.getenv(SPILL_METRICS_NAMESPACE);
+        try {
+            writeEmfLine(metrics.toEmf((namespace != null) ? namespace : DEFAULT_SPILL_METRICS_NAMESPACE,
+                    String.valueOf(sourceType),
+                    request.getQueryId(),
+                    System.currentTimeMillis()));
+        }
+        catch (RuntimeException ex) {
+            logger.warn("emitSpillMetrics: Failed to emit spill metrics {}", metrics, ex);
+        }
+    }
+
+    /**
+     * Writes a rendered EMF log line, can be overridden to redirect the metrics.
+     *
+     * @param emfLine The single line EMF JSON document.
+     */
+    protected void writeEmfLine(String emfLine)
+    {
+        System.out.println(emfLine);
+    }
+
     private PingResponse doPing(PingRequest request)
     {
-        PingResponse response = new PingResponse(request.getCatalogName(), request.getQueryId(), sourceType, CAPABILITIES, SERDE_VERSION);
+        boolean framed = isFramedResponseEnabled();
+        PingResponse response = new PingResponse(request.getCatalogName(),
+                request.getQueryId(),
+                sourceType,
+                framed ? FRAMED_RESPONSE_CAPABILITIES : CAPABILITIES,
+                framed ? FRAMED_SERDE_VERSION : SERDE_VERSION);
         try {
             onPing(request);
         }
@@ -251,6 +386,27 @@ public abstract class RecordHandler
         return response;
     }
 
+    /**
+     * Indicates if inline ReadRecordsResponses should be written using the binary framing of SerDe version 4 rather
+     * than as JSON with base64 encoded record batches. This is advertised to the engine via the PingResponse, so it must
+     * only be enabled for engines that support SerDe version 4.
+     *
+     * @return True if the FRAMED_RESPONSES env var is set to true, False otherwise.
+     */
+    protected boolean isFramedResponseEnabled()
+    {
+        return FederationCapabilities.isFramedResponseEnabled();
+    }
+
+    /**
+     * Framing is only used when it is enabled and the caller negotiated a SerDe version which can read it, so callers
+     * which pinged at an older version keep getting JSON responses.
+     */
+    private boolean isFramedResponse(ReadRecordsRequest request)
+    {
+        return isFramedResponseEnabled() && request.getSerDeVersion() >= FRAMED_SERDE_VERSION;
+    }
+
     protected void onPing(PingRequest request)
     {
         //NoOp
@@ -31,4 +31,10 @@ public class SerDeVersion
     private SerDeVersion(){}
 
     public static final int SERDE_VERSION = 2;
+
+    /**
+     * Version which frames inline ReadRecordsResponses as a JSON header followed by raw Arrow IPC record batches (see
+     * FramedResponseSerDeV4), only advertised when framed responses have been enabled.
+     */
+    public static final int FRAMED_SERDE_VERSION = 4;
 }
@@ -0,0 +1,42 @@
+package com.amazonaws.athena.connector.lambda.handlers;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.amazonaws.athena.connector.lambda.QueryStatusChecker;
+import com.amazonaws.athena.connector.lambda.data.BlockWriter;
+
+/**
+ * One of several independent streams of rows which together make up a Split, for example a sub-segment of a DynamoDB
+ * scan, a sub-range of an HBase region, or a slice of an Elasticsearch scroll. RecordHandlers which return
+ * SubStreamReaders from getSubStreams(...) have them read in parallel, each on its own thread, into a single response.
+ */
+public interface SubStreamReader
+{
+    /**
+     * Reads all rows of the sub-stream.
+     *
+     * @param writer The BlockWriter to write this sub-stream's rows to, it must only be used by the calling thread.
+     * @param queryStatusChecker A QueryStatusChecker that you can use to stop doing work for a query that has already terminated
+     * @throws Exception internal exception.
+     */
+    void readSubStream(BlockWriter writer, QueryStatusChecker queryStatusChecker)
+            throws Exception;
+}
@@ -0,0 +1,142 @@
+package com.amazonaws.athena.connector.lambda.handlers;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.amazonaws.athena.connector.lambda.QueryStatusChecker;
+import com.amazonaws.athena.connector.lambda.data.BlockSpiller;
+import com.amazonaws.athena.connector.lambda.data.ProducerBlockWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads the SubStreamReaders of a Split in parallel on a bounded pool of threads. Each sub-stream writes to its own
+ * ProducerBlockWriter, so sub-streams only contend on the BlockSpiller when spilling a full Block or when finishing.
+ */
+final class SubStreamRunner
+{
+    private static final Logger logger = LoggerFactory.getLogger(SubStreamRunner.class);
+    //Used to control how long we will wait for cancelled sub-streams to exit.
+    private static final long SHUTDOWN_MILLIS = 10_000;
+
+    private SubStreamRunner() {}
+
+    /**
+     * Reads all of the provided sub-streams into the BlockSpiller, returning once they have all completed.
+     *
+     * @param spiller The BlockSpiller that all sub-streams should write to.
+     * @param subStreams The sub-streams to read.
+     * @param queryStatusChecker Used to skip sub-streams which have not started once the query has terminated.
+     * @param maxThreads The max number of sub-streams to read at once.
+     * @throws Exception The first exception thrown by any of the sub-streams, the remaining sub-streams are cancelled.
+     */
+    static void run(BlockSpiller spiller, List<SubStreamReader> subStreams, QueryStatusChecker queryStatusChecker, int maxThreads)
+            throws Exception
+    {
+        run(spiller, subStreams, queryStatusChecker, maxThreads, SHUTDOWN_MILLIS);
+    }
+
+    /**
+     * @param shutdownMillis How long to wait for cancelled sub-streams to exit before failing the request.
+     * @see #run(BlockSpiller, List, QueryStatusChecker, int)
+     */
+    static void run(BlockSpiller spiller, List<SubStreamReader> subStreams, QueryStatusChecker queryStatusChecker, int maxThreads,
+            long shutdownMillis)
+            throws Exception
+    {
+        int numThreads = Math.max(1, Math.min(maxThreads, subStreams.size()));
+        logger.info("run: Reading {} sub-streams using {} threads", subStreams.size(), numThreads);
+        if (numThreads == 1) {
+            for (SubStreamReader next : subStreams) {
+                read(spiller, next, queryStatusChecker);
+            }
+            return;
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads, runnable -> {
+            Thread thread = new Thread(runnable, "sub-stream-reader-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<Void>> futures = new ArrayList<>(subStreams.size());
+        Exception failure = null;
+        try {
+            for (SubStreamReader next : subStreams) {
+                futures.add(executor.submit(() -> {
+                    read(spiller, next, queryStatusChecker);
+                    return null;
+                }));
+            }
+
+            for (Future<Void> next : futures) {
+                try {
+                    next.get();
+                }
+                catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    throw (cause instanceof Exception) ? (Exception) cause : new RuntimeException(cause);
+                }
+            }
+        }
+        catch (Exception ex) {
+            failure = ex;
+        }
+
+        //Interrupts any sub-streams still running if we are exiting due to a failure, they must exit before the
+        //caller is allowed to release the BlockSpiller.
+        executor.shutdownNow();
+        for (Future<Void> next : futures) {
+            next.cancel(true);
+        }
+        if (!executor.awaitTermination(shutdownMillis, TimeUnit.MILLISECONDS)) {
+            //Sub-streams which ignore interruption may still be writing, so the request can not be allowed to succeed.
+            RuntimeException timeout = new RuntimeException("Timed out after " + shutdownMillis +
+                    "ms waiting for cancelled sub-streams to exit.");
+            if (failure == null) {
+                throw timeout;
+            }
+            failure.addSuppressed(timeout);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static void read(BlockSpiller spiller, SubStreamReader subStream, QueryStatusChecker queryStatusChecker)
+            throws Exception
+    {
+        if (!queryStatusChecker.isQueryRunning()) {
+            return;
+        }
+        try (ProducerBlockWriter writer = spiller.newProducerWriter()) {
+            subStream.readSubStream(writer, queryStatusChecker);
+        }
+    }
+}
@@ -113,8 +113,10 @@ public abstract class UserDefinedFunctionHandler
     public final void handleRequest(InputStream inputStream, OutputStream outputStream, Context context)
     {
         try (BlockAllocator allocator = new BlockAllocatorImpl()) {
-            ObjectMapper objectMapper = VersionedObjectMapperFactory.create(allocator);
-            try (FederationRequest rawRequest = objectMapper.readValue(inputStream, FederationRequest.class)) {
+            ObjectMapper objectMapper = VersionedObjectMapperFactory.getShared(SERDE_VERSION);
+            try (FederationRequest rawRequest = objectMapper.readerFor(FederationRequest.class)
+                    .withAttribute(VersionedObjectMapperFactory.ALLOCATOR_ATTRIBUTE, allocator)
+                    .readValue(inputStream)) {
                 if (rawRequest instanceof PingRequest) {
                     try (PingResponse response = doPing((PingRequest) rawRequest)) {
                         assertNotNull(response);
@@ -0,0 +1,252 @@
+package com.amazonaws.athena.connector.lambda.metadata.glue;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.amazonaws.services.glue.model.Table;
+import org.apache.arrow.util.VisibleForTesting;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Bounded, least recently used, cache of AWS Glue tables and the Apache Arrow Schema derived from them. The same table
+ * is typically resolved several times per query (GetTable, GetTableLayout, every page of GetSplits) and again by
+ * concurrent queries, this cache lets those calls skip AWS Glue for a configurable period.
+ * <p>
+ * Entries are served without contacting Glue until they are older than the max age. After that callers fetch the table
+ * again and, if its UpdateTime has not changed, the cached Schema is reused instead of being derived again. Entries
+ * are also invalidated as soon as a newer UpdateTime is observed, for example in a GetTables listing.
+ */
+public class GlueTableCache
+{
+    private final long maxAgeMillis;
+    private final int maxEntries;
+    private final LongSupplier currentTimeMillis;
+    private final Map<String, Entry> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * @param maxAgeMillis The max time, in millis, a table is served from the cache without consulting Glue.
+     * @param maxEntries The max number of tables to cache, least recently used tables are evicted first.
+     */
+    public GlueTableCache(long maxAgeMillis, int maxEntries)
+    {
+        this(maxAgeMillis, maxEntries, System::currentTimeMillis);
+    }
+
+    @VisibleForTesting
+    GlueTableCache(long maxAgeMillis, int maxEntries, LongSupplier currentTimeMillis)
+    {
+        if (maxAgeMillis <= 0) {
+            throw new IllegalArgumentException("maxAgeMillis must be > 0 but was " + maxAgeMillis);
+        }
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be > 0 but was " + maxEntries);
+        }
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxEntries = maxEntries;
+        this.currentTimeMillis = requireNonNull(currentTimeMillis, "currentTimeMillis is null");
+        this.cache = new LinkedHashMap<String, Entry>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+            {
+                return size() > GlueTableCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Builds the key used to identify a table in the cache.
+     *
+     * @param catalogId The Glue catalog (aka account) the table belongs to.
+     * @param databaseName The Glue database the table belongs to.
+     * @param tableName The name of the table.
+     * @return The cache key.
+     */
+    public static String makeKey(String catalogId, String databaseName, String tableName)
+    {
+        return catalogId + ":" + databaseName + ":" + tableName;
+    }
+
+    /**
+     * Retrieves the cached entry for the table if it is younger than the max age.
+     *
+     * @param key The key of the table, see makeKey(...).
+     * @return The cached entry or null if the table must be fetched from Glue.
+     */
+    public synchronized Entry get(String key)
+    {
+        Entry entry = cache.get(key);
+        if (entry != null && currentTimeMillis.getAsLong() - entry.loadedMillis < maxAgeMillis) {
+            hits.incrementAndGet();
+            return entry;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Retrieves the cached Schema for the table if the table has not changed since it was cached, in which case the
+     * entry is refreshed so that it is served from the cache for another max age period.
+     *
+     * @param key The key of the table, see makeKey(...).
+     * @param table The table as freshly fetched from Glue.
+     * @return The cached entry or null if the table was not cached or has changed.
+     */
+    public synchronized Entry revalidate(String key, Table table)
+    {
+        Entry entry = cache.get(key);
+        if (entry == null || !isSameVersion(entry.table, table)) {
+            return null;
+        }
+        revalidations.incrementAndGet();
+        Entry refreshed = new Entry(table, entry.schema, entry.partitionColumns, currentTimeMillis.getAsLong());
+        cache.put(key, refreshed);
+        return refreshed;
+    }
+
+    /**
+     * Adds, or replaces, the cached entry for a table.
+     *
+     * @param key The key of the table, see makeKey(...).
+     * @param table The table as fetched from Glue.
+     * @param schema The Schema derived from the table.
+     * @param partitionColumns The partition columns derived from the table.
+     * @return The new entry.
+     */
+    public synchronized Entry put(String key, Table table, Schema schema, Set<String> partitionColumns)
+    {
+        Entry entry = new Entry(table, schema, partitionColumns, currentTimeMillis.getAsLong());
+        cache.put(key, entry);
+        return entry;
+    }
+
+    /**
+     * Evicts the cached entry for the table if the supplied copy of the table shows it has changed.
+     *
+     * @param key The key of the table, see makeKey(...).
+     * @param table A copy of the table recently obtained from Glue (e.g. via GetTables).
+     */
+    public synchronized void invalidateIfChanged(String key, Table table)
+    {
+        Entry entry = cache.get(key);
+        if (entry != null && !isSameVersion(entry.table, table)) {
+            cache.remove(key);
+            invalidations.incrementAndGet();
+        }
+    }
+
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    /**
+     * @return The number of times a table was fetched from Glue after expiring but found to be unchanged.
+     */
+    public long getRevalidations()
+    {
+        return revalidations.get();
+    }
+
+    /**
+     * @return The number of entries evicted because a newer version of the table was observed.
+     */
+    public long getInvalidations()
+    {
+        return invalidations.get();
+    }
+
+    public synchronized int size()
+    {
+        return cache.size();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "GlueTableCache{" +
+                "size=" + size() +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", revalidations=" + revalidations +
+                ", invalidations=" + invalidations +
+                '}';
+    }
+
+    /**
+     * Glue bumps a table's UpdateTime whenever its definition changes. Tables without an UpdateTime are never
+     * considered to be the same version so that they are always re-derived.
+     */
+    private static boolean isSameVersion(Table cached, Table current)
+    {
+        return cached.getUpdateTime() != null && Objects.equals(cached.getUpdateTime(), current.getUpdateTime());
+    }
+
+    public static class Entry
+    {
+        private final Table table;
+        private final Schema schema;
+        private final Set<String> partitionColumns;
+        private final long loadedMillis;
+
+        private Entry(Table table, Schema schema, Set<String> partitionColumns, long loadedMillis)
+        {
+            this.table = requireNonNull(table, "table is null");
+            this.schema = requireNonNull(schema, "schema is null");
+            this.partitionColumns = Collections.unmodifiableSet(requireNonNull(partitionColumns, "partitionColumns is null"));
+            this.loadedMillis = loadedMillis;
+        }
+
+        public Table getTable()
+        {
+            return table;
+        }
+
+        public Schema getSchema()
+        {
+            return schema;
+        }
+
+        public Set<String> getPartitionColumns()
+        {
+            return partitionColumns;
+        }
+    }
+}
@@ -23,7 +23,9 @@ package com.amazonaws.athena.connector.lambda.records;
 import com.amazonaws.athena.connector.lambda.domain.Split;
 import com.amazonaws.athena.connector.lambda.domain.TableName;
 import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
+import com.amazonaws.athena.connector.lambda.handlers.SerDeVersion;
 import com.amazonaws.athena.connector.lambda.security.FederatedIdentity;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
@@ -43,6 +45,7 @@ public class ReadRecordsRequest
     private final Constraints constraints;
     private final long maxBlockSize;
     private final long maxInlineBlockSize;
+    private final int serDeVersion;
 
     /**
      * Constructs a new ReadRecordsRequest object.
@@ -66,6 +69,35 @@ public class ReadRecordsRequest
             @JsonProperty("constraints") Constraints constraints,
             @JsonProperty("maxBlockSize") long maxBlockSize,
             @JsonProperty("maxInlineBlockSize") long maxInlineBlockSize)
+    {
+        this(identity, catalogName, queryId, tableName, schema, split, constraints, maxBlockSize, maxInlineBlockSize,
+                SerDeVersion.SERDE_VERSION);
+    }
+
+    /**
+     * Constructs a new ReadRecordsRequest object.
+     *
+     * @param identity The identity of the caller.
+     * @param catalogName The catalog name that records should be read for.
+     * @param queryId The ID of the query requesting data.
+     * @param tableName The name of the table being read from.
+     * @param schema The schema of the table being read from.
+     * @param split The split being read.
+     * @param constraints The constraints to apply to read records.
+     * @param maxBlockSize The maximum supported block size.
+     * @param maxInlineBlockSize The maximum block size before spilling.
+     * @param serDeVersion The SerDe version the caller negotiated, which limits the encodings of the response.
+     */
+    public ReadRecordsRequest(FederatedIdentity identity,
+            String catalogName,
+            String queryId,
+            TableName tableName,
+            Schema schema,
+            Split split,
+            Constraints constraints,
+            long maxBlockSize,
+            long maxInlineBlockSize,
+            int serDeVersion)
     {
         super(identity, RecordRequestType.READ_RECORDS, catalogName, queryId);
         requireNonNull(schema, "schema is null");
@@ -78,6 +110,7 @@ public class ReadRecordsRequest
         this.maxBlockSize = maxBlockSize;
         this.maxInlineBlockSize = maxInlineBlockSize;
         this.constraints = constraints;
+        this.serDeVersion = serDeVersion;
     }
 
     /**
@@ -146,6 +179,18 @@ public class ReadRecordsRequest
         return constraints;
     }
 
+    /**
+     * Returns the SerDe version the caller negotiated (see PingResponse), the response must not use an encoding
+     * introduced by a later version.
+     *
+     * @return The SerDe version the caller negotiated, SerDeVersion.SERDE_VERSION if the caller didn't say.
+     */
+    @JsonIgnore
+    public int getSerDeVersion()
+    {
+        return serDeVersion;
+    }
+
     /**
      * Frees up resources associated with the <code>constraints</code> Block.
      */
@@ -169,6 +214,7 @@ public class ReadRecordsRequest
                 .add("maxBlockSize", maxBlockSize)
                 .add("maxInlineBlockSize", maxInlineBlockSize)
                 .add("constraints", constraints)
+                .add("serDeVersion", serDeVersion)
                 .toString();
     }
 
@@ -190,6 +236,7 @@ public class ReadRecordsRequest
                 Objects.equal(this.constraints, that.constraints) &&
                 Objects.equal(this.maxBlockSize, that.maxBlockSize) &&
                 Objects.equal(this.maxInlineBlockSize, that.maxInlineBlockSize) &&
+                Objects.equal(this.serDeVersion, that.serDeVersion) &&
                 Objects.equal(this.getRequestType(), that.getRequestType()) &&
                 Objects.equal(this.getCatalogName(), that.getCatalogName()) &&
                 Objects.equal(this.getQueryId(), that.getQueryId());
@@ -198,7 +245,7 @@ public class ReadRecordsRequest
     @Override
     public int hashCode()
     {
-        return Objects.hashCode(tableName, schema, split, constraints, maxBlockSize, maxInlineBlockSize,
+        return Objects.hashCode(tableName, schema, split, constraints, maxBlockSize, maxInlineBlockSize, serDeVersion,
                 getRequestType(), getCatalogName(), getQueryId());
     }
 }
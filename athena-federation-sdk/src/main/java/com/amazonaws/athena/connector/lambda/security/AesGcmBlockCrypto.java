@@ -23,18 +23,24 @@ package com.amazonaws.athena.connector.lambda.security;
 import com.amazonaws.athena.connector.lambda.data.Block;
 import com.amazonaws.athena.connector.lambda.data.BlockAllocator;
 import com.amazonaws.athena.connector.lambda.data.RecordBatchSerDe;
+import com.amazonaws.athena.connector.lambda.data.SpillCompression;
+import org.apache.arrow.vector.compression.CompressionCodec;
 import org.apache.arrow.vector.types.pojo.Schema;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
@@ -43,46 +49,91 @@ import java.security.Security;
 
 /**
  * Implementation of BlockCrypto which uses AES-GCM for encrypting and decrypting blocks.
+ * <p>
+ * The JDK's own AES-GCM implementation is used when available since it makes use of the AES and carry-less multiply
+ * intrinsics of the CPU, BouncyCastle is only used as a fallback. Both produce the same cipher text. Cipher instances
+ * are reused, per thread, across Blocks to avoid repeated provider lookups.
+ * <p>
+ * Blocks are encrypted with the key and nonce of the EncryptionKey as-is, since Athena decrypts spilled Blocks with
+ * the EncryptionKey of the split. Every Block spilled by a split shares that EncryptionKey, and GCM Ciphers refuse to
+ * be re-initialized for encryption with the key and nonce they were last used with, so a fresh Cipher is used then.
  *
  * @see BlockCrypto
  */
 public class AesGcmBlockCrypto
         implements BlockCrypto
 {
+    private static final Logger logger = LoggerFactory.getLogger(AesGcmBlockCrypto.class);
+
     protected static final int GCM_TAG_LENGTH_BITS = 16 * 8;
     protected static final int NONCE_BYTES = 12;
     protected static final int KEY_BYTES = 16;
     protected static final String KEYSPEC = "AES";
     protected static final String ALGO = "AES/GCM/NoPadding";
     protected static final String ALGO_BC = "BC";
+    //The max number of clear text bytes passed to the Cipher per update when streaming.
+    private static final int STREAM_CHUNK_BYTES = 64 * 1024;
+
+    //The provider to request Ciphers from, null selects the highest priority provider (e.g. SunJCE).
+    private static final String CIPHER_PROVIDER;
+    private static final ThreadLocal<Cipher> CIPHERS = ThreadLocal.withInitial(AesGcmBlockCrypto::newCipher);
 
     private final RecordBatchSerDe serDe;
     private final BlockAllocator allocator;
+    //Applied to the Arrow buffers of each Block before it is encrypted.
+    private final CompressionCodec compressionCodec;
 
     static {
         Security.addProvider(new BouncyCastleProvider());
+        CIPHER_PROVIDER = isDefaultProviderAvailable() ? null : ALGO_BC;
+        logger.info("Using {} for {}", (CIPHER_PROVIDER == null) ? "the JDK provider" : CIPHER_PROVIDER, ALGO);
     }
 
     public AesGcmBlockCrypto(BlockAllocator allocator)
+    {
+        this(allocator, SpillCompression.NONE);
+    }
+
+    /**
+     * @param allocator The BlockAllocator to use when creating decrypted Blocks.
+     * @param compression The compression to apply to Blocks before they are encrypted, decryption handles any
+     * compression regardless of this setting.
+     */
+    public AesGcmBlockCrypto(BlockAllocator allocator, SpillCompression compression)
     {
         this.serDe = new RecordBatchSerDe(allocator);
         this.allocator = allocator;
+        this.compressionCodec = compression.createCodec();
     }
 
     public byte[] encrypt(EncryptionKey key, Block block)
     {
         try {
+            //Encrypting as we serialize avoids holding both the clear text and cipher text copies of the Block.
             ByteArrayOutputStream out = new ByteArrayOutputStream();
-            serDe.serialize(block.getRecordBatch(), out);
-
-            Cipher cipher = makeCipher(Cipher.ENCRYPT_MODE, key);
-            return cipher.doFinal(out.toByteArray());
+            encrypt(key, block, out);
+            return out.toByteArray();
         }
-        catch (BadPaddingException | IllegalBlockSizeException | IOException ex) {
+        catch (IOException ex) {
             throw new RuntimeException(ex);
         }
     }
 
+    /**
+     * Serializes and encrypts the Block in chunks, writing cipher text to the OutputStream as it is produced. The
+     * GCM authentication tag is written last, making the output identical to that of encrypt(EncryptionKey, Block).
+     *
+     * @see BlockCrypto
+     */
+    public void encrypt(EncryptionKey key, Block block, OutputStream out)
+            throws IOException
+    {
+        Cipher cipher = makeCipher(Cipher.ENCRYPT_MODE, key);
+        EncryptingOutputStream encryptingOut = new EncryptingOutputStream(cipher, out);
+        serDe.serialize(block.getRecordBatch(compressionCodec), encryptingOut);
+        encryptingOut.finish();
+    }
+
     public Block decrypt(EncryptionKey key, byte[] bytes, Schema schema)
     {
         try {
@@ -112,10 +163,6 @@ public class AesGcmBlockCrypto
 
     private Cipher makeCipher(int mode, EncryptionKey key)
     {
-        if (key.getNonce().length != NONCE_BYTES) {
-            throw new RuntimeException("Expected " + NONCE_BYTES + " nonce bytes but found " + key.getNonce().length);
-        }
-
         if (key.getKey().length != KEY_BYTES) {
             throw new RuntimeException("Expected " + KEY_BYTES + " key bytes but found " + key.getKey().length);
         }
@@ -123,14 +170,117 @@ public class AesGcmBlockCrypto
         GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_LENGTH_BITS, key.getNonce());
         SecretKeySpec secretKeySpec = new SecretKeySpec(key.getKey(), KEYSPEC);
 
+        Cipher cipher = CIPHERS.get();
         try {
-            Cipher cipher = Cipher.getInstance(ALGO, ALGO_BC);
             cipher.init(mode, secretKeySpec, spec);
             return cipher;
         }
-        catch (NoSuchAlgorithmException | InvalidKeyException | InvalidAlgorithmParameterException
-                | NoSuchProviderException | NoSuchPaddingException ex) {
+        catch (InvalidAlgorithmParameterException ex) {
+            if (mode != Cipher.ENCRYPT_MODE) {
+                throw new RuntimeException(ex);
+            }
+            //GCM Ciphers refuse to be re-initialized for encryption with the key and nonce they were last used with,
+            //this happens when several Blocks are spilled with the same EncryptionKey so we use a fresh Cipher.
+            cipher = newCipher();
+            try {
+                cipher.init(mode, secretKeySpec, spec);
+            }
+            catch (InvalidKeyException | InvalidAlgorithmParameterException initEx) {
+                throw new RuntimeException(initEx);
+            }
+            CIPHERS.set(cipher);
+            return cipher;
+        }
+        catch (InvalidKeyException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static Cipher newCipher()
+    {
+        try {
+            return (CIPHER_PROVIDER == null) ? Cipher.getInstance(ALGO) : Cipher.getInstance(ALGO, CIPHER_PROVIDER);
+        }
+        catch (NoSuchAlgorithmException | NoSuchProviderException | NoSuchPaddingException ex) {
             throw new RuntimeException(ex);
         }
     }
+
+    private static boolean isDefaultProviderAvailable()
+    {
+        try {
+            return Cipher.getInstance(ALGO) != null;
+        }
+        catch (NoSuchAlgorithmException | NoSuchPaddingException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * OutputStream which passes everything written to it through the supplied Cipher before writing the result to
+     * the underlying OutputStream. Unlike javax.crypto.CipherOutputStream this does not close the underlying stream
+     * and surfaces errors encountered when finalizing the Cipher.
+     */
+    private static class EncryptingOutputStream
+            extends OutputStream
+    {
+        private final Cipher cipher;
+        private final OutputStream out;
+        private byte[] cipherText = new byte[0];
+
+        EncryptingOutputStream(Cipher cipher, OutputStream out)
+        {
+            this.cipher = cipher;
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b)
+                throws IOException
+        {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len)
+                throws IOException
+        {
+            try {
+                while (len > 0) {
+                    int chunk = Math.min(len, STREAM_CHUNK_BYTES);
+                    ensureCapacity(cipher.getOutputSize(chunk));
+                    int produced = cipher.update(b, off, chunk, cipherText);
+                    out.write(cipherText, 0, produced);
+                    off += chunk;
+                    len -= chunk;
+                }
+            }
+            catch (ShortBufferException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+
+        /**
+         * Finalizes the Cipher, writing any remaining cipher text and the authentication tag.
+         */
+        public void finish()
+                throws IOException
+        {
+            try {
+                ensureCapacity(cipher.getOutputSize(0));
+                int produced = cipher.doFinal(cipherText, 0);
+                out.write(cipherText, 0, produced);
+            }
+            catch (BadPaddingException | IllegalBlockSizeException | ShortBufferException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+
+        private void ensureCapacity(int size)
+        {
+            if (cipherText.length < size) {
+                cipherText = new byte[size];
+            }
+        }
+    }
 }
@@ -27,17 +27,29 @@ import org.apache.arrow.util.VisibleForTesting;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import static java.util.Objects.requireNonNull;
+
 /**
  * Since Athena may call your connector or UDF at a high TPS or concurrency you may want to have a short lived
  * cache in front of SecretsManager to avoid bottlenecking on SecretsManager. This class offers such a cache. This class
  * also has utilities for idetifying and replacing secrets in scripts. For example: MyString${WithSecret} would have
  * ${WithSecret} replaced by the corresponding value of the secret in AWS Secrets Manager with that name.
+ * <p>
+ * The cache is safe for concurrent use. Concurrent misses for the same secret result in a single call to
+ * SecretsManager, and secrets which are used after the refresh-ahead age are reloaded in the background so that
+ * callers rarely wait on SecretsManager once a secret has been cached.
  */
 public class CachableSecretsManager
 {
@@ -45,18 +57,59 @@ public class CachableSecretsManager
 
     private static final long MAX_CACHE_AGE_MS = 60_000;
     protected static final int MAX_CACHE_SIZE = 10;
+    //Overrides the max age of cached secrets, in seconds.
+    private static final String CACHE_TTL_SECONDS_ENV = "secrets_manager_cache_ttl_seconds";
+    //Cached secrets are refreshed in the background once they reach this fraction of the max age.
+    private static final double REFRESH_AHEAD_RATIO = 0.8;
+    //Shared by all instances, background refreshes are rare and short so a single daemon thread suffices.
+    private static final ExecutorService REFRESH_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "secrets-manager-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     private static final String SECRET_PATTERN = "(\\$\\{[a-zA-Z0-9-_\\-]+\\})";
     private static final String SECRET_NAME_PATTERN = "\\$\\{([a-zA-Z0-9-_\\-]+)\\}";
     private static final Pattern PATTERN = Pattern.compile(SECRET_PATTERN);
     private static final Pattern NAME_PATTERN = Pattern.compile(SECRET_NAME_PATTERN);
 
-    private final LinkedHashMap<String, CacheEntry> cache = new LinkedHashMap<>();
+    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
+    //Loads that are currently in progress, used to ensure concurrent misses only result in one call to SecretsManager.
+    private final Map<String, CompletableFuture<CacheEntry>> inFlight = new ConcurrentHashMap<>();
     private final AWSSecretsManager secretsManager;
+    private final long maxCacheAgeMs;
+    private final long refreshAheadAgeMs;
+    private final Executor refreshExecutor;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
 
     public CachableSecretsManager(AWSSecretsManager secretsManager)
     {
+        this(secretsManager, getMaxCacheAgeMs());
+    }
+
+    /**
+     * @param secretsManager The SecretsManager client to load secrets with.
+     * @param maxCacheAgeMs The max age, in millis, of a cached secret before it must be reloaded.
+     */
+    public CachableSecretsManager(AWSSecretsManager secretsManager, long maxCacheAgeMs)
+    {
+        this(secretsManager, maxCacheAgeMs, (long) (maxCacheAgeMs * REFRESH_AHEAD_RATIO), REFRESH_EXECUTOR);
+    }
+
+    @VisibleForTesting
+    CachableSecretsManager(AWSSecretsManager secretsManager, long maxCacheAgeMs, long refreshAheadAgeMs, Executor refreshExecutor)
+    {
+        if (maxCacheAgeMs <= 0) {
+            throw new IllegalArgumentException("maxCacheAgeMs must be > 0 but was " + maxCacheAgeMs);
+        }
         this.secretsManager = secretsManager;
+        this.maxCacheAgeMs = maxCacheAgeMs;
+        this.refreshAheadAgeMs = refreshAheadAgeMs;
+        this.refreshExecutor = requireNonNull(refreshExecutor, "refreshExecutor is null");
     }
 
     /**
@@ -95,48 +148,160 @@ public class CachableSecretsManager
     {
         CacheEntry cacheEntry = cache.get(secretName);
 
-        if (cacheEntry == null || cacheEntry.getAge() > MAX_CACHE_AGE_MS) {
-            logger.info("getSecret: Resolving secret[{}].", secretName);
-            GetSecretValueResult secretValueResult = secretsManager.getSecretValue(new GetSecretValueRequest()
-                    .withSecretId(secretName));
-            cacheEntry = new CacheEntry(secretName, secretValueResult.getSecretString());
-            evictCache(cache.size() >= MAX_CACHE_SIZE);
-            cache.put(secretName, cacheEntry);
+        if (cacheEntry != null && cacheEntry.getAge() <= maxCacheAgeMs) {
+            hits.incrementAndGet();
+            if (cacheEntry.getAge() > refreshAheadAgeMs) {
+                //Serve the current value and reload it before it expires, failures are retried on the next call.
+                load(secretName, refreshExecutor).whenComplete((entry, ex) -> {
+                    if (ex != null) {
+                        logger.warn("getSecret: Failed to refresh secret[{}].", secretName, ex);
+                    }
+                });
+            }
+            return cacheEntry.getValue();
+        }
+
+        misses.incrementAndGet();
+        try {
+            return load(secretName, null).join().getValue();
+        }
+        catch (CompletionException ex) {
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw (ex.getCause() instanceof RuntimeException) ? (RuntimeException) ex.getCause() : new RuntimeException(ex.getCause());
+        }
+    }
+
+    /**
+     * @return The number of calls to getSecret(...) which were served from the cache.
+     */
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    /**
+     * @return The number of calls to getSecret(...) which had to wait for the secret to be loaded.
+     */
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    /**
+     * @return The number of calls made to SecretsManager.
+     */
+    public long getLoads()
+    {
+        return loads.get();
+    }
+
+    /**
+     * @return The number of calls made to SecretsManager in order to refresh a cached secret ahead of its expiry.
+     */
+    public long getRefreshes()
+    {
+        return refreshes.get();
+    }
+
+    /**
+     * Loads the secret, unless a load of the same secret is already in progress in which case that load is joined.
+     *
+     * @param secretName The name of the secret to load.
+     * @param executor The Executor to load the secret on, or null to load it on the calling thread.
+     * @return A future for the loaded secret.
+     */
+    private CompletableFuture<CacheEntry> load(String secretName, Executor executor)
+    {
+        CompletableFuture<CacheEntry> future = new CompletableFuture<>();
+        CompletableFuture<CacheEntry> existing = inFlight.putIfAbsent(secretName, future);
+        if (existing != null) {
+            return existing;
         }
 
-        return cacheEntry.getValue();
+        Runnable loader = () -> {
+            try {
+                logger.info("getSecret: Resolving secret[{}].", secretName);
+                loads.incrementAndGet();
+                if (executor != null) {
+                    refreshes.incrementAndGet();
+                }
+                GetSecretValueResult secretValueResult = secretsManager.getSecretValue(new GetSecretValueRequest()
+                        .withSecretId(secretName));
+                CacheEntry cacheEntry = new CacheEntry(secretName, secretValueResult.getSecretString());
+                if (!cache.containsKey(secretName)) {
+                    evictCache(cache.size() >= MAX_CACHE_SIZE);
+                }
+                cache.put(secretName, cacheEntry);
+                future.complete(cacheEntry);
+            }
+            catch (Throwable t) {
+                //Errors must complete the future too, otherwise callers which joined this load would wait forever.
+                future.completeExceptionally(t);
+                if (t instanceof Error) {
+                    throw (Error) t;
+                }
+            }
+            finally {
+                inFlight.remove(secretName, future);
+            }
+        };
+
+        if (executor == null) {
+            loader.run();
+        }
+        else {
+            try {
+                executor.execute(loader);
+            }
+            catch (RuntimeException ex) {
+                inFlight.remove(secretName, future);
+                future.completeExceptionally(ex);
+            }
+        }
+        return future;
     }
 
     private void evictCache(boolean force)
     {
-        Iterator<Map.Entry<String, CacheEntry>> itr = cache.entrySet().iterator();
         int removed = 0;
-        while (itr.hasNext()) {
-            CacheEntry entry = itr.next().getValue();
-            if (entry.getAge() > MAX_CACHE_AGE_MS) {
-                itr.remove();
+        CacheEntry oldest = null;
+        for (CacheEntry entry : cache.values()) {
+            if (entry.getAge() > maxCacheAgeMs) {
+                cache.remove(entry.name, entry);
                 removed++;
             }
+            else if (oldest == null || entry.createTime < oldest.createTime
+                    || (entry.createTime == oldest.createTime && entry.sequence < oldest.sequence)) {
+                oldest = entry;
+            }
         }
 
-        if (removed == 0 && force) {
+        if (removed == 0 && force && oldest != null) {
             //Remove the oldest since we found no expired entries
-            itr = cache.entrySet().iterator();
-            if (itr.hasNext()) {
-                itr.next();
-                itr.remove();
-            }
+            cache.remove(oldest.name, oldest);
         }
     }
 
+    private static long getMaxCacheAgeMs()
+    {
+        String ttlSeconds = System.getenv(CACHE_TTL_SECONDS_ENV);
+        return (ttlSeconds != null) ? TimeUnit.SECONDS.toMillis(Long.parseLong(ttlSeconds)) : MAX_CACHE_AGE_MS;
+    }
+
     @VisibleForTesting
     protected void addCacheEntry(String name, String value, long createTime)
     {
         cache.put(name, new CacheEntry(name, value, createTime));
     }
 
-    private class CacheEntry
+    private static class CacheEntry
     {
+        //Orders entries created in the same millisecond so that eviction remains first in, first out.
+        private static final AtomicLong SEQUENCE = new AtomicLong();
+
+        private final long sequence = SEQUENCE.incrementAndGet();
         private final String name;
         private final String value;
         private final long createTime;
@@ -0,0 +1,102 @@
+package com.amazonaws.athena.connector.lambda.security;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.function.LongSupplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An EncryptionKeyFactory which reuses the data key of another EncryptionKeyFactory (typically a KmsKeyFactory) for a
+ * bounded amount of time and a bounded number of keys. This turns the two KMS calls made for every key into two KMS
+ * calls per cache period, which matters for connectors that make a key for every page of splits.
+ * <p>
+ * Every key vended from a cached data key gets its own nonce so that each key/nonce pair remains unique. Nonces are
+ * derived from the nonce the delegate generated alongside the data key by XOR'ing a per data key counter into its
+ * trailing 8 bytes. The counter never repeats for a data key since the data key is replaced long before it wraps.
+ */
+public class CachingKeyFactory
+        implements EncryptionKeyFactory
+{
+    //The number of trailing nonce bytes the usage counter is mixed into.
+    private static final int COUNTER_BYTES = Long.BYTES;
+
+    private final EncryptionKeyFactory delegate;
+    private final long maxAgeMillis;
+    private final long maxUses;
+    private final LongSupplier currentTimeMillis;
+
+    private EncryptionKey dataKey;
+    private long dataKeyCreatedMillis;
+    private long dataKeyUses;
+
+    /**
+     * @param delegate The factory used to generate data keys.
+     * @param maxAgeMillis The max time, in millis, a data key is used for before a new one is generated.
+     * @param maxUses The max number of keys vended from a data key before a new one is generated.
+     */
+    public CachingKeyFactory(EncryptionKeyFactory delegate, long maxAgeMillis, long maxUses)
+    {
+        this(delegate, maxAgeMillis, maxUses, System::currentTimeMillis);
+    }
+
+    CachingKeyFactory(EncryptionKeyFactory delegate, long maxAgeMillis, long maxUses, LongSupplier currentTimeMillis)
+    {
+        if (maxAgeMillis <= 0) {
+            throw new IllegalArgumentException("maxAgeMillis must be > 0 but was " + maxAgeMillis);
+        }
+        if (maxUses <= 0) {
+            throw new IllegalArgumentException("maxUses must be > 0 but was " + maxUses);
+        }
+        this.delegate = requireNonNull(delegate, "delegate is null");
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxUses = maxUses;
+        this.currentTimeMillis = requireNonNull(currentTimeMillis, "currentTimeMillis is null");
+    }
+
+    /**
+     * @return A key that satisfies the specification defined in BlockCrypto
+     */
+    @Override
+    public synchronized EncryptionKey create()
+    {
+        long now = currentTimeMillis.getAsLong();
+        if (dataKey == null || dataKeyUses >= maxUses || now - dataKeyCreatedMillis >= maxAgeMillis) {
+            dataKey = delegate.create();
+            dataKeyCreatedMillis = now;
+            dataKeyUses = 0;
+        }
+
+        return new EncryptionKey(dataKey.getKey(), makeNonce(dataKey.getNonce(), dataKeyUses++));
+    }
+
+    private static byte[] makeNonce(byte[] baseNonce, long counter)
+    {
+        if (baseNonce.length < COUNTER_BYTES) {
+            throw new IllegalArgumentException("Nonce must be at least " + COUNTER_BYTES + " bytes but was " + baseNonce.length);
+        }
+        byte[] nonce = baseNonce.clone();
+        for (int i = 0; i < COUNTER_BYTES; i++) {
+            nonce[nonce.length - 1 - i] ^= (byte) (counter >>> (8 * i));
+        }
+        return nonce;
+    }
+}
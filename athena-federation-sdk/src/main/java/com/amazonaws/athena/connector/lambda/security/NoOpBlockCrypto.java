@@ -23,10 +23,13 @@ package com.amazonaws.athena.connector.lambda.security;
 import com.amazonaws.athena.connector.lambda.data.Block;
 import com.amazonaws.athena.connector.lambda.data.BlockAllocator;
 import com.amazonaws.athena.connector.lambda.data.RecordBatchSerDe;
+import com.amazonaws.athena.connector.lambda.data.SpillCompression;
+import org.apache.arrow.vector.compression.CompressionCodec;
 import org.apache.arrow.vector.types.pojo.Schema;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * Implementation of BlockCrypto does a No-OP (nothing) for encrypting and decrypting blocks. This is helpful when you
@@ -39,11 +42,24 @@ public class NoOpBlockCrypto
 {
     private final RecordBatchSerDe serDe;
     private final BlockAllocator allocator;
+    //Applied to the Arrow buffers of each Block before it is encrypted.
+    private final CompressionCodec compressionCodec;
 
     public NoOpBlockCrypto(BlockAllocator allocator)
+    {
+        this(allocator, SpillCompression.NONE);
+    }
+
+    /**
+     * @param allocator The BlockAllocator to use when creating decrypted Blocks.
+     * @param compression The compression to apply to Blocks before they are encrypted, decryption handles any
+     * compression regardless of this setting.
+     */
+    public NoOpBlockCrypto(BlockAllocator allocator, SpillCompression compression)
     {
         this.serDe = new RecordBatchSerDe(allocator);
         this.allocator = allocator;
+        this.compressionCodec = compression.createCodec();
     }
 
     public byte[] encrypt(EncryptionKey key, Block block)
@@ -53,7 +69,7 @@ public class NoOpBlockCrypto
         }
         try {
             ByteArrayOutputStream out = new ByteArrayOutputStream();
-            serDe.serialize(block.getRecordBatch(), out);
+            serDe.serialize(block.getRecordBatch(compressionCodec), out);
             return out.toByteArray();
         }
         catch (IOException ex) {
@@ -61,6 +77,15 @@ public class NoOpBlockCrypto
         }
     }
 
+    public void encrypt(EncryptionKey key, Block block, OutputStream out)
+            throws IOException
+    {
+        if (key != null) {
+            throw new RuntimeException("Real key provided to NoOpBlockCrypto, likely indicates you wanted real crypto.");
+        }
+        serDe.serialize(block.getRecordBatch(compressionCodec), out);
+    }
+
     public Block decrypt(EncryptionKey key, byte[] bytes, Schema schema)
     {
         try {
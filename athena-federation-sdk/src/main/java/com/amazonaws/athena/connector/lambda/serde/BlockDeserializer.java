@@ -86,36 +86,31 @@ public class BlockDeserializer
         byte[] batchBytes = node.get(BlockSerializer.BATCH_FIELD_NAME).binaryValue();
 
         Schema schema = schemaSerDe.deserialize(new ByteArrayInputStream(schemaBytes));
-        Block block = getOrCreateAllocator(allocatorId).createBlock(schema);
+        BlockAllocator blockAllocator = getOrCreateAllocator(deserializationContext, allocatorId);
+        Block block = blockAllocator.createBlock(schema);
 
         if (batchBytes.length > 0) {
-            ArrowRecordBatch batch = deserializeBatch(allocatorId, batchBytes);
+            ArrowRecordBatch batch = getOrCreateBatchSerde(blockAllocator).deserialize(batchBytes);
             block.loadRecordBatch(batch);
         }
         return block;
     }
 
-    private ArrowRecordBatch deserializeBatch(String allocatorId, byte[] batchBytes)
-            throws IOException
-    {
-        return getOrCreateBatchSerde(allocatorId).deserialize(batchBytes);
-    }
-
-    private RecordBatchSerDe getOrCreateBatchSerde(String allocatorId)
+    private RecordBatchSerDe getOrCreateBatchSerde(BlockAllocator blockAllocator)
     {
-        if (recordBatchSerDe != null) {
+        if (recordBatchSerDe != null && blockAllocator == allocator) {
             return recordBatchSerDe;
         }
 
-        return new RecordBatchSerDe(getOrCreateAllocator(allocatorId));
+        return new RecordBatchSerDe(blockAllocator);
     }
 
-    private BlockAllocator getOrCreateAllocator(String allocatorId)
+    private BlockAllocator getOrCreateAllocator(DeserializationContext deserializationContext, String allocatorId)
     {
-        if (allocator != null) {
-            return allocator;
+        if (allocatorRegistry != null) {
+            return allocatorRegistry.getOrCreateAllocator(allocatorId);
         }
 
-        return allocatorRegistry.getOrCreateAllocator(allocatorId);
+        return VersionedObjectMapperFactory.getAllocator(deserializationContext, allocator);
     }
 }
@@ -23,15 +23,69 @@ import com.amazonaws.athena.connector.lambda.data.BlockAllocator;
 import com.amazonaws.athena.connector.lambda.handlers.SerDeVersion;
 import com.amazonaws.athena.connector.lambda.serde.v2.ObjectMapperFactoryV2;
 import com.amazonaws.athena.connector.lambda.serde.v3.ObjectMapperFactoryV3;
+import com.amazonaws.athena.connector.lambda.serde.v4.ObjectMapperFactoryV4;
+import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Vends {@link ObjectMapper} instances that correspond to SerDe versions.
+ * <p>
+ * Building an {@link ObjectMapper} registers every serializer and deserializer for the SerDe version and starts with
+ * empty serializer/deserializer caches, which is a significant part of the latency of small requests. Callers that
+ * handle many requests (e.g. warm Lambda invocations) should use {@link #getShared(int)} and supply the per-request
+ * {@link BlockAllocator} through the {@link #ALLOCATOR_ATTRIBUTE} contextual attribute when reading.
  */
 public class VersionedObjectMapperFactory
 {
+    /**
+     * Contextual attribute used to supply the {@link BlockAllocator} that deserialized Blocks should be allocated from.
+     * When present it takes precedence over any allocator the {@link ObjectMapper} was created with.
+     * <p>
+     * e.g. {@code mapper.readerFor(FederationRequest.class).withAttribute(ALLOCATOR_ATTRIBUTE, allocator).readValue(in)}
+     */
+    public static final String ALLOCATOR_ATTRIBUTE = "blockAllocator";
+
+    private static final Map<Integer, ObjectMapper> SHARED_MAPPERS = new ConcurrentHashMap<>();
+
     private VersionedObjectMapperFactory(){}
 
+    /**
+     * Returns the process wide {@link ObjectMapper} for the provided SerDe version, creating it on first use. The
+     * returned mapper is not bound to a {@link BlockAllocator}, reading a Block requires one to be supplied via
+     * {@link #ALLOCATOR_ATTRIBUTE}. The mapper is shared and so must not be reconfigured by callers.
+     *
+     * @param version The SerDe version of the mapper.
+     * @return The shared ObjectMapper for that version.
+     */
+    public static ObjectMapper getShared(int version)
+    {
+        return SHARED_MAPPERS.computeIfAbsent(version, (Integer next) -> create(null, version));
+    }
+
+    /**
+     * Reads the {@link BlockAllocator} supplied via {@link #ALLOCATOR_ATTRIBUTE}, if any.
+     *
+     * @param ctxt The context of the current deserialization.
+     * @param defaultAllocator The allocator to use if none was supplied, may be null.
+     * @return The allocator to create Blocks with.
+     * @throws IllegalStateException If no allocator was supplied and defaultAllocator is null.
+     */
+    public static BlockAllocator getAllocator(DeserializationContext ctxt, BlockAllocator defaultAllocator)
+    {
+        BlockAllocator allocator = (BlockAllocator) ctxt.getAttribute(ALLOCATOR_ATTRIBUTE);
+        if (allocator != null) {
+            return allocator;
+        }
+        if (defaultAllocator == null) {
+            throw new IllegalStateException("No BlockAllocator available, one must be supplied via the " +
+                    ALLOCATOR_ATTRIBUTE + " attribute when using a shared ObjectMapper.");
+        }
+        return defaultAllocator;
+    }
+
     /**
      * Creates an {@link ObjectMapper} using the current SDK SerDe version.
      *
@@ -59,6 +113,8 @@ public class VersionedObjectMapperFactory
                 return ObjectMapperFactoryV2.create(allocator);
             case 3:
                 return ObjectMapperFactoryV3.create(allocator);
+            case 4:
+                return ObjectMapperFactoryV4.create(allocator);
             default:
                 throw new IllegalArgumentException("No serde version " + version);
         }
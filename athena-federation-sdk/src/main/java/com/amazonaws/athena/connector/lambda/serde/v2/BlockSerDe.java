@@ -24,6 +24,7 @@ import com.amazonaws.athena.connector.lambda.data.BlockAllocator;
 import com.amazonaws.athena.connector.lambda.data.BlockAllocatorRegistry;
 import com.amazonaws.athena.connector.lambda.serde.BaseDeserializer;
 import com.amazonaws.athena.connector.lambda.serde.BaseSerializer;
+import com.amazonaws.athena.connector.lambda.serde.VersionedObjectMapperFactory;
 import com.amazonaws.athena.connector.lambda.serde.VersionedSerDe;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
@@ -133,32 +134,28 @@ public final class BlockSerDe
             Schema schema = schemaDeserializer.deserialize(jparser, ctxt);
 
             byte[] batchBytes = getNextBinaryField(jparser, BATCH_FIELD_NAME);
-            Block block = getOrCreateAllocator(allocatorId).createBlock(schema);
+            BlockAllocator blockAllocator = getOrCreateAllocator(ctxt, allocatorId);
+            Block block = blockAllocator.createBlock(schema);
             if (batchBytes.length > 0) {
-                ArrowRecordBatch batch = deserializeBatch(allocatorId, batchBytes);
+                ArrowRecordBatch batch = deserializeBatch(blockAllocator, batchBytes);
                 block.loadRecordBatch(batch);
             }
 
             return block;
         }
 
-        private BlockAllocator getOrCreateAllocator(String allocatorId)
+        private BlockAllocator getOrCreateAllocator(DeserializationContext ctxt, String allocatorId)
         {
-            if (allocator != null) {
-                return allocator;
-            }
-            else if (allocatorRegistry != null) {
+            if (allocatorRegistry != null) {
                 return allocatorRegistry.getOrCreateAllocator(allocatorId);
             }
-            else {
-                throw new IllegalStateException("allocator and allocatorRegistry are both null");
-            }
+            return VersionedObjectMapperFactory.getAllocator(ctxt, allocator);
         }
 
-        private ArrowRecordBatch deserializeBatch(String allocatorId, byte[] batchBytes)
+        private ArrowRecordBatch deserializeBatch(BlockAllocator allocator, byte[] batchBytes)
                 throws IOException
         {
-            return deserializeRecordBatch(getOrCreateAllocator(allocatorId), batchBytes);
+            return deserializeRecordBatch(allocator, batchBytes);
         }
 
         private ArrowRecordBatch deserializeRecordBatch(BlockAllocator allocator, byte[] in)
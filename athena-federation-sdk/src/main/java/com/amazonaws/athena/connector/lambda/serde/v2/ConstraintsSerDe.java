@@ -19,7 +19,10 @@
  */
 package com.amazonaws.athena.connector.lambda.serde.v2;
 
+import com.amazonaws.athena.connector.lambda.domain.predicate.AggregateFunction;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Aggregation;
 import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
+import com.amazonaws.athena.connector.lambda.domain.predicate.OrderByField;
 import com.amazonaws.athena.connector.lambda.domain.predicate.ValueSet;
 import com.amazonaws.athena.connector.lambda.serde.BaseDeserializer;
 import com.amazonaws.athena.connector.lambda.serde.BaseSerializer;
@@ -28,9 +31,11 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.SerializerProvider;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 import static java.util.Objects.requireNonNull;
@@ -38,6 +43,17 @@ import static java.util.Objects.requireNonNull;
 public final class ConstraintsSerDe
 {
     private static final String SUMMARY_FIELD = "summary";
+    // the fields below are optional, they are only written when set so that older readers can still read Constraints
+    // without a limit. New fields should only be appended to the end for forwards compatibility.
+    private static final String ORDER_BY_CLAUSE_FIELD = "orderByClause";
+    private static final String COLUMN_NAME_FIELD = "columnName";
+    private static final String DIRECTION_FIELD = "direction";
+    private static final String LIMIT_FIELD = "limit";
+    private static final String AGGREGATION_FIELD = "aggregation";
+    private static final String GROUPING_COLUMNS_FIELD = "groupingColumns";
+    private static final String AGGREGATES_FIELD = "aggregates";
+    private static final String FUNCTION_FIELD = "function";
+    private static final String OUTPUT_COLUMN_NAME_FIELD = "outputColumnName";
 
     private ConstraintsSerDe(){}
 
@@ -61,6 +77,37 @@ public final class ConstraintsSerDe
                 valueSetSerializer.serialize(entry.getValue(), jgen, provider);
             }
             jgen.writeEndObject();
+
+            if (constraints.hasNonEmptyOrderByClause()) {
+                jgen.writeArrayFieldStart(ORDER_BY_CLAUSE_FIELD);
+                for (OrderByField field : constraints.getOrderByClause()) {
+                    jgen.writeStartObject();
+                    jgen.writeStringField(COLUMN_NAME_FIELD, field.getColumnName());
+                    jgen.writeStringField(DIRECTION_FIELD, field.getDirection().name());
+                    jgen.writeEndObject();
+                }
+                jgen.writeEndArray();
+            }
+
+            if (constraints.hasLimit()) {
+                jgen.writeNumberField(LIMIT_FIELD, constraints.getLimit());
+            }
+
+            if (constraints.hasAggregation()) {
+                Aggregation aggregation = constraints.getAggregation();
+                jgen.writeObjectFieldStart(AGGREGATION_FIELD);
+                writeStringArray(jgen, GROUPING_COLUMNS_FIELD, aggregation.getGroupingColumns());
+                jgen.writeArrayFieldStart(AGGREGATES_FIELD);
+                for (AggregateFunction aggregate : aggregation.getAggregates()) {
+                    jgen.writeStartObject();
+                    jgen.writeStringField(FUNCTION_FIELD, aggregate.getFunction().name());
+                    jgen.writeStringField(COLUMN_NAME_FIELD, aggregate.getColumnName());
+                    jgen.writeStringField(OUTPUT_COLUMN_NAME_FIELD, aggregate.getOutputColumnName());
+                    jgen.writeEndObject();
+                }
+                jgen.writeEndArray();
+                jgen.writeEndObject();
+            }
         }
     }
 
@@ -74,6 +121,19 @@ public final class ConstraintsSerDe
             this.valueSetDeserializer = requireNonNull(valueSetDeserializer, "valueSetSerDe is null");
         }
 
+        @Override
+        public Constraints deserialize(JsonParser jparser, DeserializationContext ctxt)
+                throws IOException
+        {
+            if (jparser.nextToken() != JsonToken.VALUE_NULL) {
+                validateObjectStart(jparser.getCurrentToken());
+                // doDeserialize consumes the optional fields, and any unknown ones, up to the end of the object
+                return doDeserialize(jparser, ctxt);
+            }
+
+            return null;
+        }
+
         @Override
         public Constraints doDeserialize(JsonParser jparser, DeserializationContext ctxt)
                 throws IOException
@@ -86,7 +146,65 @@ public final class ConstraintsSerDe
                 summaryMap.put(column, valueSetDeserializer.deserialize(jparser, ctxt));
             }
 
-            return new Constraints(summaryMap.build());
+            List<OrderByField> orderByClause = ImmutableList.of();
+            long limit = Constraints.DEFAULT_NO_LIMIT;
+            Aggregation aggregation = null;
+            while (jparser.nextToken() != JsonToken.END_OBJECT) {
+                String fieldName = jparser.getCurrentName();
+                jparser.nextToken();
+                if (ORDER_BY_CLAUSE_FIELD.equals(fieldName)) {
+                    orderByClause = deserializeOrderByClause(jparser);
+                }
+                else if (LIMIT_FIELD.equals(fieldName)) {
+                    limit = jparser.getValueAsLong();
+                }
+                else if (AGGREGATION_FIELD.equals(fieldName)) {
+                    aggregation = deserializeAggregation(jparser);
+                }
+                else {
+                    // unknown field from a newer writer, skip it for forwards compatibility
+                    jparser.skipChildren();
+                }
+            }
+
+            return new Constraints(summaryMap.build(), orderByClause, limit, aggregation);
+        }
+
+        private Aggregation deserializeAggregation(JsonParser jparser)
+                throws IOException
+        {
+            validateObjectStart(jparser.getCurrentToken());
+            List<String> groupingColumns = getNextStringArray(jparser, GROUPING_COLUMNS_FIELD);
+            assertFieldName(jparser, AGGREGATES_FIELD);
+            validateArrayStart(jparser);
+            ImmutableList.Builder<AggregateFunction> aggregates = ImmutableList.builder();
+            while (jparser.nextToken() != JsonToken.END_ARRAY) {
+                validateObjectStart(jparser.getCurrentToken());
+                String function = getNextStringField(jparser, FUNCTION_FIELD);
+                String columnName = getNextStringField(jparser, COLUMN_NAME_FIELD);
+                String outputColumnName = getNextStringField(jparser, OUTPUT_COLUMN_NAME_FIELD);
+                ignoreRestOfObject(jparser);
+                aggregates.add(new AggregateFunction(AggregateFunction.Function.valueOf(function), columnName, outputColumnName));
+            }
+            ignoreRestOfObject(jparser);
+            return new Aggregation(groupingColumns, aggregates.build());
+        }
+
+        private List<OrderByField> deserializeOrderByClause(JsonParser jparser)
+                throws IOException
+        {
+            if (jparser.getCurrentToken() != JsonToken.START_ARRAY) {
+                throw new IllegalStateException("Expected " + JsonToken.START_ARRAY + " found " + jparser.getText());
+            }
+            ImmutableList.Builder<OrderByField> orderByClause = ImmutableList.builder();
+            while (jparser.nextToken() != JsonToken.END_ARRAY) {
+                validateObjectStart(jparser.getCurrentToken());
+                String columnName = getNextStringField(jparser, COLUMN_NAME_FIELD);
+                String direction = getNextStringField(jparser, DIRECTION_FIELD);
+                ignoreRestOfObject(jparser);
+                orderByClause.add(new OrderByField(columnName, OrderByField.Direction.valueOf(direction)));
+            }
+            return orderByClause.build();
         }
     }
 }
@@ -22,6 +22,7 @@ package com.amazonaws.athena.connector.lambda.serde.v2;
 import com.amazonaws.athena.connector.lambda.domain.Split;
 import com.amazonaws.athena.connector.lambda.domain.TableName;
 import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
+import com.amazonaws.athena.connector.lambda.handlers.SerDeVersion;
 import com.amazonaws.athena.connector.lambda.records.ReadRecordsRequest;
 import com.amazonaws.athena.connector.lambda.request.FederationRequest;
 import com.amazonaws.athena.connector.lambda.security.FederatedIdentity;
@@ -31,6 +32,7 @@ import com.amazonaws.athena.connector.lambda.serde.TypedSerializer;
 import com.amazonaws.athena.connector.lambda.serde.VersionedSerDe;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import org.apache.arrow.vector.types.pojo.Schema;
@@ -41,6 +43,8 @@ import static java.util.Objects.requireNonNull;
 
 public final class ReadRecordsRequestSerDe
 {
+    //Optional, only written when the caller negotiated a SerDe version other than SerDeVersion.SERDE_VERSION.
+    private static final String SERDE_VERSION_FIELD = "serDeVersion";
     private static final String IDENTITY_FIELD = "identity";
     private static final String QUERY_ID_FIELD = "queryId";
     private static final String CATALOG_NAME_FIELD = "catalogName";
@@ -82,6 +86,10 @@ public final class ReadRecordsRequestSerDe
         {
             ReadRecordsRequest readRecordsRequest = (ReadRecordsRequest) federationRequest;
 
+            if (readRecordsRequest.getSerDeVersion() != SerDeVersion.SERDE_VERSION) {
+                jgen.writeNumberField(SERDE_VERSION_FIELD, readRecordsRequest.getSerDeVersion());
+            }
+
             jgen.writeFieldName(IDENTITY_FIELD);
             identitySerializer.serialize(readRecordsRequest.getIdentity(), jgen, provider);
 
@@ -132,7 +140,17 @@ public final class ReadRecordsRequestSerDe
         protected FederationRequest doTypedDeserialize(JsonParser jparser, DeserializationContext ctxt)
                 throws IOException
         {
-            assertFieldName(jparser, IDENTITY_FIELD);
+            // the optional version leads the required fields so it can be read without looking ahead
+            int serDeVersion = SerDeVersion.SERDE_VERSION;
+            jparser.nextToken();
+            if (jparser.getCurrentToken() == JsonToken.FIELD_NAME && SERDE_VERSION_FIELD.equals(jparser.getCurrentName())) {
+                jparser.nextToken();
+                serDeVersion = jparser.getValueAsInt();
+                jparser.nextToken();
+            }
+            if (jparser.getCurrentToken() != JsonToken.FIELD_NAME || !IDENTITY_FIELD.equals(jparser.getCurrentName())) {
+                throw new IllegalStateException("Unexpected field[" + jparser.getCurrentName() + "] while expecting[" + IDENTITY_FIELD + "]");
+            }
             FederatedIdentity identity = identityDeserializer.deserialize(jparser, ctxt);
 
             String queryId = getNextStringField(jparser, QUERY_ID_FIELD);
@@ -153,7 +171,8 @@ public final class ReadRecordsRequestSerDe
             long maxBlockSize = Long.parseLong(getNextStringField(jparser, MAX_BLOCK_SIZE_FIELD));
             long maxInlineBlockSize = Long.parseLong(getNextStringField(jparser, MAX_INLINE_BLOCK_SIZE_FIELD));
 
-            return new ReadRecordsRequest(identity, catalogName, queryId, tableName, schema, split, constraints, maxBlockSize, maxInlineBlockSize);
+            return new ReadRecordsRequest(identity, catalogName, queryId, tableName, schema, split, constraints, maxBlockSize, maxInlineBlockSize,
+                    serDeVersion);
         }
     }
 }
@@ -0,0 +1,200 @@
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 - 2020 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.amazonaws.athena.connector.lambda.serde.v4;
+
+import com.amazonaws.athena.connector.lambda.data.Block;
+import com.amazonaws.athena.connector.lambda.data.BlockAllocator;
+import com.amazonaws.athena.connector.lambda.serde.BaseDeserializer;
+import com.amazonaws.athena.connector.lambda.serde.BaseSerializer;
+import com.amazonaws.athena.connector.lambda.serde.VersionedObjectMapperFactory;
+import com.amazonaws.athena.connector.lambda.serde.VersionedSerDe;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.ipc.ReadChannel;
+import org.apache.arrow.vector.ipc.WriteChannel;
+import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
+import org.apache.arrow.vector.ipc.message.MessageSerializer;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Block SerDe which, by default, embeds the Block's record batch in the JSON document as base64 exactly like
+ * BlockSerDeV3. When used by FramedResponseSerDeV4 the record batch is instead replaced by the index of a raw Arrow IPC
+ * message that follows the JSON document, avoiding the base64 encoding and the intermediate copies of the batch.
+ */
+public class BlockSerDeV4
+{
+    /**
+     * Contextual attribute holding the List<Block> that Blocks should be appended to, instead of being embedded in the
+     * JSON document, during serialization.
+     */
+    public static final String FRAMED_BLOCKS_ATTRIBUTE = "framedBlocks";
+    /**
+     * Contextual attribute holding the ReadChannel that framed record batches should be read from during
+     * deserialization.
+     */
+    public static final String FRAMED_BATCH_CHANNEL_ATTRIBUTE = "framedBatchChannel";
+
+    private static final String ALLOCATOR_ID_FIELD_NAME = "aId";
+    private static final String SCHEMA_FIELD_NAME = "schema";
+    private static final String BATCH_FIELD_NAME = "records";
+
+    private BlockSerDeV4() {}
+
+    public static final class Serializer extends BaseSerializer<Block> implements VersionedSerDe.Serializer<Block>
+    {
+        private final VersionedSerDe.Serializer<Schema> schemaSerializer;
+
+        public Serializer(VersionedSerDe.Serializer<Schema> schemaSerializer)
+        {
+            super(Block.class);
+            this.schemaSerializer = requireNonNull(schemaSerializer, "schemaSerializer is null");
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void doSerialize(Block block, JsonGenerator jgen, SerializerProvider provider)
+                throws IOException
+        {
+            jgen.writeStringField(ALLOCATOR_ID_FIELD_NAME, block.getAllocatorId());
+
+            jgen.writeFieldName(SCHEMA_FIELD_NAME);
+            schemaSerializer.serialize(block.getSchema(), jgen, provider);
+
+            List<Block> framedBlocks = (List<Block>) provider.getAttribute(FRAMED_BLOCKS_ATTRIBUTE);
+            if (framedBlocks != null && block.getRowCount() > 0) {
+                //The record batch is written after the JSON document, we only record its position.
+                jgen.writeNumberField(BATCH_FIELD_NAME, framedBlocks.size());
+                framedBlocks.add(block);
+            }
+            else if (block.getRowCount() > 0) {
+                jgen.writeFieldName(BATCH_FIELD_NAME);
+                jgen.writeBinary(serializeRecordBatch(block.getRecordBatch()));
+            }
+            else {
+                jgen.writeStringField(BATCH_FIELD_NAME, "");
+            }
+        }
+
+        private byte[] serializeRecordBatch(ArrowRecordBatch recordBatch)
+                throws IOException
+        {
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                MessageSerializer.serialize(new WriteChannel(Channels.newChannel(out)), recordBatch);
+                return out.toByteArray();
+            }
+            finally {
+                recordBatch.close();
+            }
+        }
+    }
+
+    public static final class Deserializer extends BaseDeserializer<Block> implements VersionedSerDe.Deserializer<Block>
+    {
+        private final BlockAllocator allocator;
+        private final VersionedSerDe.Deserializer<Schema> schemaDeserializer;
+
+        public Deserializer(BlockAllocator allocator, VersionedSerDe.Deserializer<Schema> schemaDeserializer)
+        {
+            super(Block.class);
+            this.schemaDeserializer = requireNonNull(schemaDeserializer, "schemaDeserializer is null");
+            //May be null when the allocator is supplied per request via VersionedObjectMapperFactory.ALLOCATOR_ATTRIBUTE.
+            this.allocator = allocator;
+        }
+
+        @Override
+        public Block doDeserialize(JsonParser jparser, DeserializationContext ctxt)
+                throws IOException
+        {
+            //The allocator id is informational only, Blocks are always created using our allocator.
+            getNextStringField(jparser, ALLOCATOR_ID_FIELD_NAME);
+            BlockAllocator blockAllocator = VersionedObjectMapperFactory.getAllocator(ctxt, allocator);
+
+            assertFieldName(jparser, SCHEMA_FIELD_NAME);
+            Schema schema = schemaDeserializer.deserialize(jparser, ctxt);
+
+            assertFieldName(jparser, BATCH_FIELD_NAME);
+            jparser.nextToken();
+            Block block = blockAllocator.createBlock(schema);
+            try {
+                if (jparser.getCurrentToken() == JsonToken.VALUE_NUMBER_INT) {
+                    ReadChannel channel = (ReadChannel) ctxt.getAttribute(FRAMED_BATCH_CHANNEL_ATTRIBUTE);
+                    if (channel == null) {
+                        throw new IllegalStateException("Block references framed record batch " + jparser.getIntValue() +
+                                " but no framed batches are available.");
+                    }
+                    //Framed batches are written in the order they are referenced so the next message is ours.
+                    block.loadRecordBatch(deserializeRecordBatch(blockAllocator, channel));
+                }
+                else {
+                    byte[] batchBytes = jparser.getBinaryValue();
+                    if (batchBytes.length > 0) {
+                        block.loadRecordBatch(deserializeRecordBatch(blockAllocator, new ReadChannel(Channels.newChannel(new ByteArrayInputStream(batchBytes)))));
+                    }
+                }
+            }
+            catch (IOException | RuntimeException ex) {
+                try {
+                    block.close();
+                }
+                catch (Exception closeEx) {
+                    ex.addSuppressed(closeEx);
+                }
+                throw ex;
+            }
+
+            return block;
+        }
+
+        private ArrowRecordBatch deserializeRecordBatch(BlockAllocator blockAllocator, ReadChannel channel)
+        {
+            AtomicReference<ArrowRecordBatch> batch = new AtomicReference<>();
+            try {
+                return blockAllocator.registerBatch((BufferAllocator root) -> {
+                    ArrowRecordBatch next = (ArrowRecordBatch) MessageSerializer.deserializeMessageBatch(channel, root);
+                    if (next == null) {
+                        throw new IllegalStateException("Expected a framed record batch but reached the end of the stream.");
+                    }
+                    batch.set(next);
+                    return next;
+                });
+            }
+            catch (Exception ex) {
+                if (batch.get() != null) {
+                    batch.get().close();
+                }
+                throw ex;
+            }
+        }
+    }
+}
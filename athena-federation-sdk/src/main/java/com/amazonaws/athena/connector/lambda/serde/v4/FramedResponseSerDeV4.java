@@ -0,0 +1,113 @@
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 - 2020 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.amazonaws.athena.connector.lambda.serde.v4;
+
+import com.amazonaws.athena.connector.lambda.data.Block;
+import com.amazonaws.athena.connector.lambda.request.FederationResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.arrow.vector.ipc.ReadChannel;
+import org.apache.arrow.vector.ipc.WriteChannel;
+import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
+import org.apache.arrow.vector.ipc.message.MessageSerializer;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary framing for FederationResponses (typically ReadRecordsResponse) that avoids embedding Arrow record batches in
+ * the JSON document as base64. The frame is laid out as:
+ * <p>
+ * 1. A 4 byte magic number (MAGIC) identifying the framing.
+ * 2. A 4 byte (big endian) length of the JSON header.
+ * 3. The JSON header, which is the response serialized using ObjectMapperFactoryV4 with each Block's record batch
+ * replaced by a reference to a framed batch.
+ * 4. One Arrow IPC record batch message per referenced Block, in order, written directly from the Block's buffers.
+ * <p>
+ * This is only used once the engine has indicated support for SerDe version 4 (see SerDeVersion).
+ */
+public class FramedResponseSerDeV4
+{
+    //"AFB4" - Athena Federation Binary v4
+    public static final int MAGIC = 0x41464234;
+
+    private FramedResponseSerDeV4() {}
+
+    /**
+     * Writes the framed response to the provided stream.
+     *
+     * @param objectMapper An ObjectMapper created by ObjectMapperFactoryV4.
+     * @param response The response to write.
+     * @param out The stream to write to, this stream is flushed but not closed.
+     * @throws IOException If an error occurs while writing to the stream.
+     */
+    public static void serialize(ObjectMapper objectMapper, FederationResponse response, OutputStream out)
+            throws IOException
+    {
+        List<Block> framedBlocks = new ArrayList<>();
+        byte[] header = objectMapper.writer()
+                .withAttribute(BlockSerDeV4.FRAMED_BLOCKS_ATTRIBUTE, framedBlocks)
+                .writeValueAsBytes(response);
+
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.writeInt(MAGIC);
+        dataOut.writeInt(header.length);
+        dataOut.write(header);
+        dataOut.flush();
+
+        //The batch's buffers are written straight to the stream without first being copied into a byte[].
+        WriteChannel channel = new WriteChannel(Channels.newChannel(out));
+        for (Block next : framedBlocks) {
+            try (ArrowRecordBatch batch = next.getRecordBatch()) {
+                MessageSerializer.serialize(channel, batch);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads a framed response from the provided stream.
+     *
+     * @param objectMapper An ObjectMapper created by ObjectMapperFactoryV4.
+     * @param in The stream to read from.
+     * @return The deserialized response.
+     * @throws IOException If an error occurs while reading from the stream or the stream is not a framed response.
+     */
+    public static FederationResponse deserialize(ObjectMapper objectMapper, InputStream in)
+            throws IOException
+    {
+        DataInputStream dataIn = new DataInputStream(in);
+        int magic = dataIn.readInt();
+        if (magic != MAGIC) {
+            throw new IOException("Not a framed response, unexpected magic number " + Integer.toHexString(magic));
+        }
+        byte[] header = new byte[dataIn.readInt()];
+        dataIn.readFully(header);
+
+        return objectMapper.readerFor(FederationResponse.class)
+                .withAttribute(BlockSerDeV4.FRAMED_BATCH_CHANNEL_ATTRIBUTE, new ReadChannel(Channels.newChannel(in)))
+                .readValue(header);
+    }
+}
@@ -0,0 +1,155 @@
+package com.amazonaws.athena.connector.lambda.data;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.amazonaws.athena.connector.lambda.domain.predicate.ConstraintEvaluator;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
+import com.amazonaws.athena.connector.lambda.domain.predicate.EquatableValueSet;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Range;
+import com.amazonaws.athena.connector.lambda.domain.predicate.SortedRangeSet;
+import com.amazonaws.athena.connector.lambda.domain.predicate.ValueSet;
+import com.google.common.collect.ImmutableList;
+import org.apache.arrow.vector.types.Types;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.apache.arrow.vector.util.Text;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class BlockFilterTest
+{
+    private static final int ROWS = 1_000;
+
+    private BlockAllocatorImpl allocator;
+    private Schema schema;
+
+    @Before
+    public void setup()
+    {
+        allocator = new BlockAllocatorImpl();
+        schema = SchemaBuilder.newBuilder()
+                .addBigIntField("id")
+                .addIntField("qty")
+                .addFloat8Field("price")
+                .addStringField("name")
+                .addDateDayField("day")
+                .addBitField("flag")
+                .addDecimalField("amount", 10, 2)
+                .addListField("tags", Types.MinorType.VARCHAR.getType())
+                .build();
+    }
+
+    @After
+    public void tearDown()
+    {
+        allocator.close();
+    }
+
+    @Test
+    public void filterTest()
+            throws Exception
+    {
+        Map<String, ValueSet> summary = new HashMap<>();
+        summary.put("id", SortedRangeSet.of(false,
+                Range.range(allocator, Types.MinorType.BIGINT.getType(), 100L, true, 400L, false),
+                Range.greaterThan(allocator, Types.MinorType.BIGINT.getType(), 600L)));
+        summary.put("qty", SortedRangeSet.of(true, Range.greaterThanOrEqual(allocator, Types.MinorType.INT.getType(), 10)));
+        summary.put("price", SortedRangeSet.of(false, Range.lessThan(allocator, Types.MinorType.FLOAT8.getType(), 1200.0D)));
+        summary.put("name", EquatableValueSet.newBuilder(allocator, Types.MinorType.VARCHAR.getType(), false, true)
+                .add("name_3").add("name_5").build());
+        summary.put("day", SortedRangeSet.of(false, Range.lessThanOrEqual(allocator, Types.MinorType.DATEDAY.getType(), 18_900)));
+        //Constraints on fields not in the Block are ignored.
+        summary.put("unknown", SortedRangeSet.of(false, Range.equal(allocator, Types.MinorType.BIGINT.getType(), 1L)));
+        Constraints constraints = new Constraints(summary);
+
+        try (Block block = makeBlock();
+                ConstraintEvaluator evaluator = new ConstraintEvaluator(allocator, schema, constraints)) {
+            //Work out the expected rows with the row by row ConstraintEvaluator.
+            List<String> expected = new ArrayList<>();
+            for (int row = 0; row < block.getRowCount(); row++) {
+                boolean matched = true;
+                for (String field : ImmutableList.of("id", "qty", "price", "name", "day")) {
+                    Object value = block.getFieldVector(field).getObject(row);
+                    if (value instanceof Text) {
+                        value = value.toString();
+                    }
+                    matched &= evaluator.apply(field, value);
+                }
+                if (matched) {
+                    expected.add(BlockUtils.rowToString(block, row));
+                }
+            }
+            assertTrue(expected.size() > 0 && expected.size() < ROWS);
+
+            BlockFilter filter = new BlockFilter(constraints);
+            assertEquals(expected.size(), filter.filter(block));
+            assertEquals(expected.size(), block.getRowCount());
+            for (int row = 0; row < block.getRowCount(); row++) {
+                assertEquals(expected.get(row), BlockUtils.rowToString(block, row));
+            }
+        }
+    }
+
+    @Test
+    public void filterAllOrNothingTest()
+            throws Exception
+    {
+        try (Block block = makeBlock()) {
+            Map<String, ValueSet> summary = new HashMap<>();
+            summary.put("id", SortedRangeSet.of(false, Range.greaterThanOrEqual(allocator, Types.MinorType.BIGINT.getType(), 0L)));
+            BlockFilter filter = new BlockFilter(new Constraints(summary));
+            assertEquals(ROWS, filter.filter(block));
+
+            long[] selection = filter.select(block);
+            assertEquals(ROWS, BitSet.valueOf(selection).cardinality());
+
+            summary.put("id", SortedRangeSet.of(false, Range.lessThan(allocator, Types.MinorType.BIGINT.getType(), 0L)));
+            assertEquals(0, new BlockFilter(new Constraints(summary)).filter(block));
+            assertEquals(0, block.getRowCount());
+        }
+    }
+
+    private Block makeBlock()
+    {
+        Block block = allocator.createBlock(schema);
+        for (int row = 0; row < ROWS; row++) {
+            BlockUtils.setValue(block.getFieldVector("id"), row, (long) row);
+            BlockUtils.setValue(block.getFieldVector("qty"), row, row % 7 == 0 ? null : row % 20);
+            BlockUtils.setValue(block.getFieldVector("price"), row, row % 11 == 0 ? null : row * 1.5D);
+            BlockUtils.setValue(block.getFieldVector("name"), row, row % 13 == 0 ? null : "name_" + (row % 10));
+            BlockUtils.setValue(block.getFieldVector("day"), row, 18_000 + row);
+            BlockUtils.setValue(block.getFieldVector("flag"), row, row % 2 == 0);
+            BlockUtils.setValue(block.getFieldVector("amount"), row, new BigDecimal(row).movePointLeft(2));
+            BlockUtils.setComplexValue(block.getFieldVector("tags"), row, FieldResolver.DEFAULT, ImmutableList.of("tag_" + row, "tag_" + (row + 1)));
+        }
+        block.setRowCount(ROWS);
+        return block;
+    }
+}
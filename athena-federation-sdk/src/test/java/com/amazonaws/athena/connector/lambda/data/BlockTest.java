@@ -103,6 +103,80 @@ public class BlockTest
         allocator.close();
     }
 
+    @Test
+    public void sizeEstimateTest()
+            throws Exception
+    {
+        Schema schema = SchemaBuilder.newBuilder()
+                .addIntField("col1")
+                .addStringField("col2")
+                .build();
+
+        try (Block block = allocator.createBlock(schema)) {
+            assertEquals(0, block.getEstimatedSize());
+            assertFalse(block.exceedsSize(0));
+
+            for (int i = 0; i < 1_000; i++) {
+                block.setValue("col1", i, i);
+                block.setValue("col2", i, "value-" + i);
+                block.setRowCount(i + 1);
+                assertEquals(block.exceedsSize(16 * 1024), block.getSize() > 16 * 1024);
+            }
+
+            long exactSize = block.getSize();
+            assertEquals(exactSize, block.getEstimatedSize());
+
+            block.setValue("col1", 1_000, 1_000);
+            block.setValue("col2", 1_000, "value-" + 1_000);
+            block.setRowCount(1_001);
+            long estimate = block.getEstimatedSize();
+            assertTrue(estimate > exactSize);
+            assertTrue(Math.abs(estimate - block.getSize()) < exactSize / 100);
+
+            assertTrue(block.exceedsSize(exactSize));
+            assertFalse(block.exceedsSize(block.getSize()));
+        }
+    }
+
+    @Test
+    public void recycleBlockTest()
+            throws Exception
+    {
+        Schema schema = SchemaBuilder.newBuilder()
+                .addIntField("col1")
+                .addStringField("col2")
+                .build();
+
+        Block block = allocator.createBlock(schema, 1_000);
+        assertTrue(block.getFieldVector("col1").getValueCapacity() >= 1_000);
+        for (int i = 0; i < 1_000; i++) {
+            block.setValue("col1", i, i);
+            block.setValue("col2", i, "value-" + i);
+        }
+        block.setRowCount(1_000);
+        int capacity = block.getFieldVector("col2").getValueCapacity();
+
+        //A recycled block is handed back empty and unconstrained but keeps the capacity of its buffers.
+        allocator.recycle(block);
+        Block reused = allocator.createBlock(schema);
+        assertTrue(reused == block);
+        assertEquals(0, reused.getRowCount());
+        assertEquals(0, reused.getSize());
+        assertEquals(capacity, reused.getFieldVector("col2").getValueCapacity());
+
+        reused.setValue("col1", 0, 5);
+        reused.setValue("col2", 0, "five");
+        reused.setRowCount(1);
+        assertEquals(5, reused.getFieldReader("col1").readInteger().intValue());
+        assertEquals("five", reused.getFieldReader("col2").readText().toString());
+
+        //Blocks of a different schema are not handed out of the pool.
+        Schema otherSchema = SchemaBuilder.newBuilder().addIntField("col1").build();
+        allocator.recycle(reused);
+        assertTrue(allocator.createBlock(otherSchema) != reused);
+        assertTrue(allocator.createBlock(schema) == reused);
+    }
+
     @Test
     public void constrainedBlockTest()
             throws Exception
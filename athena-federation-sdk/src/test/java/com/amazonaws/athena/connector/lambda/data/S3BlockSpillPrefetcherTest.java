@@ -0,0 +1,196 @@
+package com.amazonaws.athena.connector.lambda.data;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.amazonaws.athena.connector.lambda.domain.spill.S3SpillLocation;
+import com.amazonaws.athena.connector.lambda.domain.spill.SpillLocation;
+import com.amazonaws.athena.connector.lambda.security.AesGcmBlockCrypto;
+import com.amazonaws.athena.connector.lambda.security.EncryptionKey;
+import com.amazonaws.athena.connector.lambda.security.LocalKeyFactory;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class S3BlockSpillPrefetcherTest
+{
+    private static final String BUCKET = "bucket";
+
+    @Mock
+    private AmazonS3 mockS3;
+
+    private BlockAllocatorImpl allocator;
+    private Schema schema;
+    private EncryptionKey encryptionKey;
+    private List<SpillLocation> spillLocations;
+
+    @Before
+    public void setup()
+    {
+        allocator = new BlockAllocatorImpl();
+        schema = SchemaBuilder.newBuilder()
+                .addField("col1", new ArrowType.Int(32, true))
+                .build();
+        encryptionKey = new LocalKeyFactory().create();
+
+        //Each spilled Block holds a single row whose value is the Block's position in the spill order.
+        AesGcmBlockCrypto crypto = new AesGcmBlockCrypto(allocator);
+        Map<String, byte[]> objects = new HashMap<>();
+        spillLocations = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            String key = "spill." + i;
+            try (Block block = allocator.createBlock(schema)) {
+                BlockUtils.setValue(block.getFieldVector("col1"), 0, i);
+                block.setRowCount(1);
+                objects.put(key, crypto.encrypt(encryptionKey, block));
+            }
+            catch (Exception ex) {
+                throw new RuntimeException(ex);
+            }
+            spillLocations.add(new S3SpillLocation(BUCKET, key, false));
+        }
+
+        when(mockS3.getObject(eq(BUCKET), anyString())).thenAnswer((InvocationOnMock invocation) -> {
+            byte[] bytes = objects.get((String) invocation.getArguments()[1]);
+            if (bytes == null) {
+                throw new RuntimeException("No such key " + invocation.getArguments()[1]);
+            }
+            S3Object object = new S3Object();
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(bytes.length);
+            object.setObjectMetadata(metadata);
+            object.setObjectContent(new S3ObjectInputStream(new ByteArrayInputStream(bytes), null));
+            return object;
+        });
+    }
+
+    @After
+    public void tearDown()
+    {
+        allocator.close();
+    }
+
+    @Test
+    public void readInOrderTest()
+            throws Exception
+    {
+        S3BlockSpillReader reader = new S3BlockSpillReader(mockS3, allocator);
+        try (S3BlockSpillPrefetcher blocks = new S3BlockSpillPrefetcher(reader, spillLocations, encryptionKey, schema, 3)) {
+            for (int i = 0; i < spillLocations.size(); i++) {
+                assertTrue(blocks.hasNext());
+                try (Block block = blocks.next()) {
+                    assertEquals(1, block.getRowCount());
+                    assertEquals(i, block.getFieldReader("col1").readInteger().intValue());
+                }
+            }
+            assertFalse(blocks.hasNext());
+            try {
+                blocks.next();
+                fail("Expected NoSuchElementException");
+            }
+            catch (NoSuchElementException ex) {
+                //expected
+            }
+        }
+    }
+
+    @Test
+    public void closeEarlyTest()
+            throws Exception
+    {
+        S3BlockSpillReader reader = new S3BlockSpillReader(mockS3, allocator);
+        S3BlockSpillPrefetcher blocks = new S3BlockSpillPrefetcher(reader, spillLocations, encryptionKey, schema, 4);
+        try (Block block = blocks.next()) {
+            assertEquals(0, block.getFieldReader("col1").readInteger().intValue());
+        }
+        blocks.close();
+        assertFalse(blocks.hasNext());
+    }
+
+    @Test
+    public void closeDuringReadTest()
+            throws Exception
+    {
+        //Reads which ignore interruption complete after close() starts, their Blocks must still be closed.
+        AmazonS3 slowS3 = mock(AmazonS3.class);
+        when(slowS3.getObject(eq(BUCKET), anyString())).thenAnswer((InvocationOnMock invocation) -> {
+            long end = System.currentTimeMillis() + 200;
+            while (System.currentTimeMillis() < end) {
+                Thread.yield();
+            }
+            //Swallows the interrupt, as some clients do, so the rest of the read succeeds.
+            Thread.interrupted();
+            return mockS3.getObject(BUCKET, (String) invocation.getArguments()[1]);
+        });
+
+        S3BlockSpillReader reader = new S3BlockSpillReader(slowS3, allocator);
+        S3BlockSpillPrefetcher blocks = new S3BlockSpillPrefetcher(reader, spillLocations, encryptionKey, schema, 4);
+        blocks.close();
+        assertFalse(blocks.hasNext());
+        //Gives any read which outlived close() time to finish before checking nothing leaked.
+        Thread.sleep(500);
+        assertEquals(0, allocator.getUsage());
+    }
+
+    @Test
+    public void readFailureTest()
+    {
+        List<SpillLocation> locations = new ArrayList<>(spillLocations.subList(0, 2));
+        locations.add(new S3SpillLocation(BUCKET, "missing", false));
+
+        S3BlockSpillReader reader = new S3BlockSpillReader(mockS3, allocator);
+        try (S3BlockSpillPrefetcher blocks = new S3BlockSpillPrefetcher(reader, locations, encryptionKey, schema, 2)) {
+            blocks.next();
+            blocks.next();
+            blocks.next();
+            fail("Expected the read of the missing spill to fail.");
+        }
+        catch (RuntimeException ex) {
+            assertTrue(ex.getMessage().contains("missing"));
+        }
+    }
+}
@@ -23,14 +23,25 @@ package com.amazonaws.athena.connector.lambda.data;
 import com.amazonaws.athena.connector.lambda.domain.predicate.ConstraintEvaluator;
 import com.amazonaws.athena.connector.lambda.domain.spill.S3SpillLocation;
 import com.amazonaws.athena.connector.lambda.domain.spill.SpillLocation;
+import com.amazonaws.athena.connector.lambda.security.AesGcmBlockCrypto;
 import com.amazonaws.athena.connector.lambda.security.EncryptionKeyFactory;
 import com.amazonaws.athena.connector.lambda.security.LocalKeyFactory;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.PartETag;
 import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.PutObjectResult;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import com.google.common.base.Strings;
 import com.google.common.io.ByteStreams;
+import org.apache.arrow.vector.complex.reader.FieldReader;
+import org.apache.arrow.vector.types.Types;
 import org.apache.arrow.vector.types.pojo.ArrowType;
 import org.apache.arrow.vector.types.pojo.Schema;
 import org.junit.After;
@@ -46,10 +57,23 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
@@ -196,6 +220,385 @@ public class S3BlockSpillerTest
         logger.info("spillTest: exit");
     }
 
+    @Test
+    public void multipartSpillTest()
+            throws Exception
+    {
+        logger.info("multipartSpillTest: enter");
+
+        SpillConfig multipartConfig = SpillConfig.newBuilder(spillConfig)
+                .withRequestId(requestId)
+                .withSpillLocation(spillConfig.getSpillLocation())
+                .withSpillPartSizeBytes(SpillConfig.MIN_SPILL_PART_SIZE_BYTES)
+                .build();
+        S3BlockSpiller multipartWriter = new S3BlockSpiller(mockS3, multipartConfig, allocator, expected.getSchema(),
+                ConstraintEvaluator.emptyEvaluator());
+
+        //~12MB of values so the Block is uploaded in 3 parts
+        String padding = Strings.repeat("0123456789", 1_200);
+        Block largeBlock = allocator.createBlock(expected.getSchema());
+        for (int i = 0; i < 1_000; i++) {
+            BlockUtils.setValue(largeBlock.getFieldVector("col1"), i, i);
+            BlockUtils.setValue(largeBlock.getFieldVector("col2"), i, "VarChar" + i + padding);
+        }
+        largeBlock.setRowCount(1_000);
+
+        String key = prefix + "/" + requestId + "/" + splitId + ".0";
+        ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
+        InitiateMultipartUploadResult initResult = new InitiateMultipartUploadResult();
+        initResult.setUploadId("uploadId");
+        when(mockS3.initiateMultipartUpload(anyObject())).thenReturn(initResult);
+        when(mockS3.uploadPart(anyObject())).thenAnswer((InvocationOnMock invocation) -> {
+            UploadPartRequest request = (UploadPartRequest) invocation.getArguments()[0];
+            assertEquals("uploadId", request.getUploadId());
+            assertEquals(key, request.getKey());
+            assertTrue(request.getPartSize() <= SpillConfig.MIN_SPILL_PART_SIZE_BYTES);
+            uploaded.write(ByteStreams.toByteArray(request.getInputStream()));
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(request.getPartNumber());
+            result.setETag("etag" + request.getPartNumber());
+            return result;
+        });
+        ArgumentCaptor<CompleteMultipartUploadRequest> completeArgument = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        when(mockS3.completeMultipartUpload(anyObject())).thenReturn(new CompleteMultipartUploadResult());
+
+        SpillLocation blockLocation = multipartWriter.write(largeBlock);
+        assertEquals(key, ((S3SpillLocation) blockLocation).getKey());
+
+        verify(mockS3, times(1)).initiateMultipartUpload(any(InitiateMultipartUploadRequest.class));
+        verify(mockS3, times(1)).completeMultipartUpload(completeArgument.capture());
+        List<PartETag> parts = completeArgument.getValue().getPartETags();
+        assertTrue(parts.size() > 1);
+        verify(mockS3, times(parts.size())).uploadPart(any(UploadPartRequest.class));
+        verify(mockS3, times(0)).putObject(any(PutObjectRequest.class));
+
+        when(mockS3.getObject(eq(bucket), eq(key)))
+                .thenAnswer((InvocationOnMock invocation) -> {
+                    S3Object mockObject = mock(S3Object.class);
+                    when(mockObject.getObjectContent()).thenReturn(new S3ObjectInputStream(new ByteArrayInputStream(uploaded.toByteArray()), null));
+                    return mockObject;
+                });
+
+        Block block = multipartWriter.read((S3SpillLocation) blockLocation, multipartConfig.getEncryptionKey(), largeBlock.getSchema());
+        assertEquals(largeBlock, block);
+
+        block.close();
+        largeBlock.close();
+        multipartWriter.close();
+        logger.info("multipartSpillTest: exit");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void spillPartSizeBelowS3MinimumTest()
+    {
+        SpillConfig.newBuilder(spillConfig).withSpillPartSizeBytes(1024);
+    }
+
+    @Test
+    public void writeBatchTest()
+            throws Exception
+    {
+        logger.info("writeBatchTest: enter");
+
+        SpillConfig batchConfig = SpillConfig.newBuilder(spillConfig)
+                .withRequestId(requestId)
+                .withSpillLocation(spillConfig.getSpillLocation())
+                .withMaxBlockBytes(16 * 1024)
+                .withMaxInlineBlockBytes(1024)
+                .withNumSpillThreads(0)
+                .build();
+        S3BlockSpiller batchWriter = new S3BlockSpiller(mockS3, batchConfig, allocator, expected.getSchema(),
+                ConstraintEvaluator.emptyEvaluator());
+
+        when(mockS3.putObject(anyObject())).thenReturn(mock(PutObjectResult.class));
+
+        int totalRows = 10_000;
+        int[] nextRow = {0};
+        while (nextRow[0] < totalRows) {
+            batchWriter.writeBatch((Block block, int rowNum, int maxRows) -> {
+                assertTrue(maxRows > 0);
+                int rows = 0;
+                while (rows < maxRows && nextRow[0] < totalRows) {
+                    BlockUtils.setValue(block.getFieldVector("col1"), rowNum + rows, nextRow[0]);
+                    BlockUtils.setValue(block.getFieldVector("col2"), rowNum + rows, "VarChar" + nextRow[0]);
+                    nextRow[0]++;
+                    rows++;
+                }
+                return rows;
+            });
+        }
+
+        //A batch whose rows were all filtered out reports them itself
+        batchWriter.writeBatch((Block block, int rowNum, int maxRows) -> {
+            batchWriter.recordFilteredRows(5);
+            return 0;
+        });
+
+        assertTrue(batchWriter.spilled());
+        List<SpillLocation> locations = batchWriter.getSpillLocations();
+        assertTrue(locations.size() > 1);
+        verify(mockS3, times(locations.size())).putObject(any(PutObjectRequest.class));
+
+        SpillMetrics metrics = batchWriter.getMetrics();
+        assertEquals(totalRows, metrics.getRowsWritten());
+        assertEquals(5, metrics.getRowsFiltered());
+        assertEquals(locations.size(), metrics.getBlocksSpilled());
+        assertTrue(metrics.getBlockBytesSpilled() > 0);
+        assertTrue(metrics.getBytesSpilled() > 0);
+
+        batchWriter.close();
+        logger.info("writeBatchTest: exit");
+    }
+
+    @Test
+    public void producerWritersTest()
+            throws Exception
+    {
+        logger.info("producerWritersTest: enter");
+
+        SpillConfig producerConfig = SpillConfig.newBuilder(spillConfig)
+                .withRequestId(requestId)
+                .withSpillLocation(spillConfig.getSpillLocation())
+                .withMaxBlockBytes(16 * 1024)
+                .withMaxInlineBlockBytes(1024)
+                .withNumSpillThreads(2)
+                .build();
+        S3BlockSpiller producerSpiller = new S3BlockSpiller(mockS3, producerConfig, allocator, expected.getSchema(),
+                ConstraintEvaluator.emptyEvaluator());
+
+        List<byte[]> spilledBytes = Collections.synchronizedList(new ArrayList<>());
+        when(mockS3.putObject(anyObject())).thenAnswer((InvocationOnMock invocation) -> {
+            InputStream inputStream = ((PutObjectRequest) invocation.getArguments()[0]).getInputStream();
+            spilledBytes.add(ByteStreams.toByteArray(inputStream));
+            return mock(PutObjectResult.class);
+        });
+
+        int numProducers = 4;
+        int rowsPerProducer = 5_000;
+        ExecutorService executor = Executors.newFixedThreadPool(numProducers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int producer = 0; producer < numProducers; producer++) {
+            int firstValue = producer * rowsPerProducer;
+            futures.add(executor.submit(() -> {
+                try (ProducerBlockWriter writer = producerSpiller.newProducerWriter()) {
+                    for (int i = firstValue; i < firstValue + rowsPerProducer; i++) {
+                        int value = i;
+                        writer.writeRows((Block block, int rowNum) -> {
+                            BlockUtils.setValue(block.getFieldVector("col1"), rowNum, value);
+                            BlockUtils.setValue(block.getFieldVector("col2"), rowNum, "VarChar" + value);
+                            return 1;
+                        });
+                    }
+                }
+            }));
+        }
+        for (Future<?> next : futures) {
+            next.get();
+        }
+        executor.shutdown();
+
+        assertTrue(producerSpiller.spilled());
+        List<SpillLocation> locations = producerSpiller.getSpillLocations();
+        producerSpiller.close();
+        assertEquals(locations.size(), spilledBytes.size());
+        assertEquals(numProducers * rowsPerProducer, producerSpiller.getMetrics().getRowsWritten());
+
+        //Every row written by every producer should have been spilled exactly once.
+        AesGcmBlockCrypto crypto = new AesGcmBlockCrypto(allocator);
+        Set<Integer> values = new HashSet<>();
+        for (byte[] next : spilledBytes) {
+            try (Block block = crypto.decrypt(producerConfig.getEncryptionKey(), next, expected.getSchema())) {
+                FieldReader col1 = block.getFieldReader("col1");
+                FieldReader col2 = block.getFieldReader("col2");
+                for (int i = 0; i < block.getRowCount(); i++) {
+                    col1.setPosition(i);
+                    col2.setPosition(i);
+                    Integer value = col1.readInteger();
+                    assertTrue(values.add(value));
+                    assertEquals("VarChar" + value, col2.readText().toString());
+                }
+            }
+        }
+        assertEquals(numProducers * rowsPerProducer, values.size());
+
+        logger.info("producerWritersTest: exit");
+    }
+
+    @Test
+    public void producerWritersMergeTest()
+            throws Exception
+    {
+        logger.info("producerWritersMergeTest: enter");
+
+        SpillConfig inlineConfig = SpillConfig.newBuilder(spillConfig)
+                .withRequestId(requestId)
+                .withSpillLocation(spillConfig.getSpillLocation())
+                .withMaxBlockBytes(1024 * 1024)
+                .withMaxInlineBlockBytes(1024 * 1024)
+                .build();
+        S3BlockSpiller inlineWriter = new S3BlockSpiller(mockS3, inlineConfig, allocator, expected.getSchema(),
+                ConstraintEvaluator.emptyEvaluator());
+
+        //Each producer's partial Block should be merged into a single inline Block.
+        inlineWriter.writeRows((Block block, int rowNum) -> {
+            BlockUtils.setValue(block.getFieldVector("col1"), rowNum, 0);
+            BlockUtils.setValue(block.getFieldVector("col2"), rowNum, "VarChar0");
+            return 1;
+        });
+        for (int producer = 1; producer <= 3; producer++) {
+            int value = producer;
+            try (ProducerBlockWriter writer = inlineWriter.newProducerWriter()) {
+                writer.writeRows((Block block, int rowNum) -> {
+                    BlockUtils.setValue(block.getFieldVector("col1"), rowNum, value);
+                    BlockUtils.setValue(block.getFieldVector("col2"), rowNum, "VarChar" + value);
+                    return 1;
+                });
+            }
+        }
+        //Producers which never write should not affect the response.
+        inlineWriter.newProducerWriter().close();
+
+        assertFalse(inlineWriter.spilled());
+        Block block = inlineWriter.getBlock();
+        assertEquals(4, block.getRowCount());
+        FieldReader col1 = block.getFieldReader("col1");
+        FieldReader col2 = block.getFieldReader("col2");
+        for (int i = 0; i < 4; i++) {
+            col1.setPosition(i);
+            col2.setPosition(i);
+            assertEquals(i, col1.readInteger().intValue());
+            assertEquals("VarChar" + i, col2.readText().toString());
+        }
+
+        inlineWriter.close();
+        logger.info("producerWritersMergeTest: exit");
+    }
+
+    @Test
+    public void producerWritersMergeComplexTypesTest()
+            throws Exception
+    {
+        logger.info("producerWritersMergeComplexTypesTest: enter");
+
+        Schema schema = SchemaBuilder.newBuilder()
+                .addIntField("col1")
+                .addListField("list", Types.MinorType.VARCHAR.getType())
+                .addStructField("struct")
+                .addChildField("struct", "int", Types.MinorType.INT.getType())
+                .addChildField("struct", "string", Types.MinorType.VARCHAR.getType())
+                .build();
+        SpillConfig inlineConfig = SpillConfig.newBuilder(spillConfig)
+                .withRequestId(requestId)
+                .withSpillLocation(spillConfig.getSpillLocation())
+                .withMaxBlockBytes(1024 * 1024)
+                .withMaxInlineBlockBytes(1024 * 1024)
+                .build();
+        S3BlockSpiller inlineWriter = new S3BlockSpiller(mockS3, inlineConfig, allocator, schema,
+                ConstraintEvaluator.emptyEvaluator());
+
+        //Complex values can't be copied through BlockUtils.setValue, the merge must still keep them in the inline Block.
+        for (int producer = 0; producer < 3; producer++) {
+            int value = producer;
+            try (ProducerBlockWriter writer = inlineWriter.newProducerWriter()) {
+                writer.writeRows((Block block, int rowNum) -> {
+                    BlockUtils.setValue(block.getFieldVector("col1"), rowNum, value);
+                    BlockUtils.setComplexValue(block.getFieldVector("list"), rowNum, FieldResolver.DEFAULT,
+                            Arrays.asList("a" + value, "b" + value));
+                    Map<String, Object> struct = new HashMap<>();
+                    struct.put("int", value);
+                    struct.put("string", "VarChar" + value);
+                    BlockUtils.setComplexValue(block.getFieldVector("struct"), rowNum, FieldResolver.DEFAULT, struct);
+                    return 1;
+                });
+            }
+        }
+
+        assertFalse(inlineWriter.spilled());
+        Block block = inlineWriter.getBlock();
+        assertEquals(3, block.getRowCount());
+        for (int i = 0; i < 3; i++) {
+            FieldReader col1 = block.getFieldReader("col1");
+            col1.setPosition(i);
+            assertEquals(i, col1.readInteger().intValue());
+
+            FieldReader list = block.getFieldReader("list");
+            list.setPosition(i);
+            List<String> listValues = new ArrayList<>();
+            while (list.next()) {
+                listValues.add(list.reader().readText().toString());
+            }
+            assertEquals(Arrays.asList("a" + i, "b" + i), listValues);
+
+            FieldReader struct = block.getFieldReader("struct");
+            struct.setPosition(i);
+            assertEquals(i, struct.reader("int").readInteger().intValue());
+            assertEquals("VarChar" + i, struct.reader("string").readText().toString());
+        }
+
+        inlineWriter.close();
+        logger.info("producerWritersMergeComplexTypesTest: exit");
+    }
+
+    @Test
+    public void rowLimitTest()
+            throws Exception
+    {
+        logger.info("rowLimitTest: enter");
+
+        SpillConfig limitConfig = SpillConfig.newBuilder(spillConfig)
+                .withRequestId(requestId)
+                .withSpillLocation(spillConfig.getSpillLocation())
+                .withMaxBlockBytes(1024 * 1024)
+                .withMaxInlineBlockBytes(1024 * 1024)
+                .withRowLimit(15)
+                .build();
+        S3BlockSpiller limitWriter = new S3BlockSpiller(mockS3, limitConfig, allocator, expected.getSchema(),
+                ConstraintEvaluator.emptyEvaluator());
+
+        //A batch which overshoots the limit is truncated to the remaining rows.
+        limitWriter.writeRows((Block block, int rowNum) -> {
+            for (int i = 0; i < 10; i++) {
+                BlockUtils.setValue(block.getFieldVector("col1"), rowNum + i, rowNum + i);
+                BlockUtils.setValue(block.getFieldVector("col2"), rowNum + i, "VarChar" + (rowNum + i));
+            }
+            return 10;
+        });
+        assertFalse(limitWriter.isLimitReached());
+        limitWriter.writeBatch((Block block, int rowNum, int maxRows) -> {
+            assertEquals(5, maxRows);
+            for (int i = 0; i < maxRows; i++) {
+                BlockUtils.setValue(block.getFieldVector("col1"), rowNum + i, rowNum + i);
+                BlockUtils.setValue(block.getFieldVector("col2"), rowNum + i, "VarChar" + (rowNum + i));
+            }
+            return maxRows;
+        });
+        assertTrue(limitWriter.isLimitReached());
+
+        //Once the limit is reached rows are discarded, for producers too.
+        BlockWriter.RowWriter extraRow = (Block block, int rowNum) -> {
+            BlockUtils.setValue(block.getFieldVector("col1"), rowNum, -1);
+            BlockUtils.setValue(block.getFieldVector("col2"), rowNum, "Discarded");
+            return 1;
+        };
+        limitWriter.writeRows(extraRow);
+        try (ProducerBlockWriter writer = limitWriter.newProducerWriter()) {
+            assertTrue(writer.isLimitReached());
+            writer.writeRows(extraRow);
+        }
+
+        assertFalse(limitWriter.spilled());
+        Block block = limitWriter.getBlock();
+        assertEquals(15, block.getRowCount());
+        FieldReader col1 = block.getFieldReader("col1");
+        for (int i = 0; i < 15; i++) {
+            col1.setPosition(i);
+            assertEquals(i, col1.readInteger().intValue());
+        }
+
+        limitWriter.close();
+        logger.info("rowLimitTest: exit");
+    }
+
     private class ByteHolder
     {
         private byte[] bytes;
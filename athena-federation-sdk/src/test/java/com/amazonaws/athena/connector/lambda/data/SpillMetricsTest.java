@@ -0,0 +1,79 @@
+package com.amazonaws.athena.connector.lambda.data;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SpillMetricsTest
+{
+    @Test
+    public void toEmfTest()
+            throws Exception
+    {
+        SpillMetrics metrics = new SpillMetrics();
+        metrics.recordWrite(10, 0);
+        metrics.recordWrite(0, 1);
+        metrics.recordSpill(1_000, 400, 2_000_000, 3_000_000);
+        metrics.recordSpill(1_000, 600, 2_000_000, 3_000_000);
+        metrics.recordSpillWait(5_000_000);
+        metrics.recordSpillQueueDepth(2);
+        metrics.recordSpillQueueDepth(1);
+
+        String emf = metrics.toEmf("MyNamespace", "mySource", "queryId", 1234L);
+        assertFalse(emf.contains("\n"));
+
+        JsonNode root = new ObjectMapper().readTree(emf);
+        assertEquals(1234L, root.get("_aws").get("Timestamp").asLong());
+        JsonNode directive = root.get("_aws").get("CloudWatchMetrics").get(0);
+        assertEquals("MyNamespace", directive.get("Namespace").asText());
+        assertEquals("SourceType", directive.get("Dimensions").get(0).get(0).asText());
+        assertEquals("mySource", root.get("SourceType").asText());
+        assertEquals("queryId", root.get("QueryId").asText());
+
+        //Every declared metric must have a value on the root of the document.
+        Set<String> names = new HashSet<>();
+        for (JsonNode next : directive.get("Metrics")) {
+            String name = next.get("Name").asText();
+            assertTrue(name, root.has(name));
+            names.add(name);
+        }
+        assertEquals(9, names.size());
+
+        assertEquals(10, root.get("RowsWritten").asLong());
+        assertEquals(1, root.get("RowsFiltered").asLong());
+        assertEquals(2, root.get("BlocksSpilled").asLong());
+        assertEquals(2_000, root.get("BlockBytesSpilled").asLong());
+        assertEquals(1_000, root.get("BytesSpilled").asLong());
+        assertEquals(4, root.get("BlockCryptoTime").asLong());
+        assertEquals(6, root.get("S3UploadTime").asLong());
+        assertEquals(5, root.get("SpillWaitTime").asLong());
+        assertEquals(2, root.get("MaxSpillQueueDepth").asLong());
+    }
+}
@@ -0,0 +1,146 @@
+package com.amazonaws.athena.connector.lambda.data;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SpillSchedulerTest
+{
+    private SpillScheduler scheduler;
+
+    @After
+    public void tearDown()
+    {
+        if (scheduler != null) {
+            scheduler.shutdown(1_000);
+        }
+    }
+
+    @Test
+    public void memoryBudgetTest()
+            throws Exception
+    {
+        scheduler = new SpillScheduler(2, 2, 100);
+        CountDownLatch release = new CountDownLatch(1);
+
+        scheduler.submit(60, () -> await(release));
+        assertEquals(60, scheduler.getInFlightBytes());
+
+        //The second Block does not fit in the budget until the first has been spilled.
+        AtomicBoolean submitted = new AtomicBoolean(false);
+        Thread producer = new Thread(() -> {
+            try {
+                scheduler.submit(60, () -> {});
+                submitted.set(true);
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        producer.join(200);
+        assertFalse(submitted.get());
+
+        release.countDown();
+        producer.join(5_000);
+        assertTrue(submitted.get());
+    }
+
+    @Test
+    public void oversizedBlockTest()
+            throws Exception
+    {
+        scheduler = new SpillScheduler(1, 1, 100);
+        CountDownLatch done = new CountDownLatch(1);
+
+        //A Block larger than the whole budget is still accepted when nothing else is in flight.
+        scheduler.submit(1_000, done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void adaptiveConcurrencyTest()
+            throws Exception
+    {
+        scheduler = new SpillScheduler(1, 4, 1_000);
+        AtomicInteger completed = new AtomicInteger();
+
+        //Spills which are much slower than the rate we produce Blocks at should scale up the spill threads.
+        for (int i = 0; i < 20; i++) {
+            scheduler.submit(10, () -> {
+                sleep(50);
+                completed.incrementAndGet();
+            });
+            sleep(5);
+        }
+        assertEquals(4, scheduler.getConcurrency());
+
+        scheduler.shutdown(10_000);
+        assertEquals(20, completed.get());
+        assertEquals(0, scheduler.getInFlightBytes());
+    }
+
+    @Test
+    public void minConcurrencyTest()
+            throws Exception
+    {
+        scheduler = new SpillScheduler(2, 4, 1_000);
+
+        //Spills which are much faster than the rate we produce Blocks at don't scale below the min spill threads.
+        for (int i = 0; i < 5; i++) {
+            CountDownLatch done = new CountDownLatch(1);
+            scheduler.submit(10, done::countDown);
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            sleep(20);
+        }
+        assertEquals(2, scheduler.getConcurrency());
+    }
+
+    private static void await(CountDownLatch latch)
+    {
+        try {
+            latch.await();
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis)
+    {
+        try {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.amazonaws.athena.connector.lambda.domain.predicate;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
+import com.amazonaws.athena.connector.lambda.data.SchemaBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.arrow.vector.types.Types;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+
+import static org.junit.Assert.*;
+
+public class ConstraintProjectorsTest
+{
+    private BlockAllocatorImpl allocator;
+
+    @Before
+    public void setup()
+    {
+        allocator = new BlockAllocatorImpl();
+    }
+
+    @After
+    public void tearDown()
+    {
+        allocator.close();
+    }
+
+    @Test
+    public void bigIntRangesTest()
+    {
+        assertRangesMatch(Types.MinorType.BIGINT.getType(), (long value) -> value);
+    }
+
+    @Test
+    public void intRangesTest()
+    {
+        assertRangesMatch(Types.MinorType.INT.getType(), (long value) -> (int) value);
+    }
+
+    @Test
+    public void dateDayRangesTest()
+    {
+        assertRangesMatch(Types.MinorType.DATEDAY.getType(), (long value) -> (int) value);
+    }
+
+    @Test
+    public void float8RangesTest()
+    {
+        assertRangesMatch(Types.MinorType.FLOAT8.getType(), (long value) -> value / 2.0D);
+    }
+
+    @Test
+    public void float4RangesTest()
+    {
+        assertRangesMatch(Types.MinorType.FLOAT4.getType(), (long value) -> value / 2.0F);
+    }
+
+    @Test
+    public void varcharRangesTest()
+    {
+        assertRangesMatch(Types.MinorType.VARCHAR.getType(), (long value) -> String.format("%05d", value + 100));
+    }
+
+    @Test
+    public void dateMilliRangesTest()
+    {
+        LocalDateTime epoch = LocalDateTime.of(2020, 1, 1, 0, 0);
+        assertRangesMatch(Types.MinorType.DATEMILLI.getType(), (long value) -> epoch.plusSeconds(value));
+    }
+
+    @Test
+    public void equatableValuesTest()
+    {
+        assertValuesMatch(Types.MinorType.BIGINT.getType(), (long value) -> value);
+        assertValuesMatch(Types.MinorType.INT.getType(), (long value) -> (int) value);
+        assertValuesMatch(Types.MinorType.FLOAT8.getType(), (long value) -> value / 2.0D);
+        assertValuesMatch(Types.MinorType.VARCHAR.getType(), (long value) -> "value_" + value);
+    }
+
+    @Test
+    public void fallbackTest()
+    {
+        //Values of an unexpected java type, or out of range for the column, go to the fallback.
+        SortedRangeSet valueSet = SortedRangeSet.of(false, Range.range(allocator, Types.MinorType.INT.getType(), 0, true, 10, true));
+        ConstraintProjector projector = ConstraintProjectors.compile(valueSet, (Object value) -> value instanceof Long);
+        assertTrue(projector instanceof ConstraintProjector.LongProjector);
+        assertTrue(projector.apply(5));
+        assertTrue(projector.apply(5L));
+        assertTrue(projector.apply(Long.MAX_VALUE));
+        assertFalse(projector.apply(20));
+
+        //Types we don't specialize for return the fallback itself.
+        ConstraintProjector fallback = (Object value) -> true;
+        ValueSet bitSet = SortedRangeSet.of(false, Range.equal(allocator, Types.MinorType.BIT.getType(), true));
+        assertSame(fallback, ConstraintProjectors.compile(bitSet, fallback));
+    }
+
+    @Test
+    public void constraintEvaluatorTest()
+            throws Exception
+    {
+        Schema schema = SchemaBuilder.newBuilder()
+                .addDateDayField("day")
+                .addBigIntField("id")
+                .build();
+        ValueSet days = SortedRangeSet.of(false, Range.range(allocator, Types.MinorType.DATEDAY.getType(), 10, true, 20, false));
+        ValueSet ids = EquatableValueSet.newBuilder(allocator, Types.MinorType.BIGINT.getType(), true, true)
+                .add(1L).add(3L).build();
+
+        try (ConstraintEvaluator evaluator = new ConstraintEvaluator(allocator, schema, new Constraints(ImmutableMap.of("day", days, "id", ids)))) {
+            assertTrue(evaluator.apply("day", 10));
+            assertFalse(evaluator.apply("day", 20));
+            assertFalse(evaluator.apply("day", null));
+            //LocalDate isn't handled by the compiled projector and is converted via a Marker instead.
+            assertTrue(evaluator.apply("day", LocalDate.ofEpochDay(15)));
+            assertFalse(evaluator.apply("day", LocalDate.ofEpochDay(25)));
+
+            assertTrue(evaluator.apply("id", 3L));
+            assertFalse(evaluator.apply("id", 2L));
+            assertTrue(evaluator.apply("id", null));
+            assertTrue(evaluator.apply("unknown", 2L));
+        }
+    }
+
+    /**
+     * Builds a variety of SortedRangeSets over the type and checks the compiled projector agrees with
+     * SortedRangeSet.containsValue(...) for values in and around every range.
+     */
+    private void assertRangesMatch(ArrowType type, LongFunction<Object> valueOf)
+    {
+        List<List<Range>> rangeSets = ImmutableList.of(
+                ImmutableList.of(Range.all(allocator, type)),
+                ImmutableList.of(Range.equal(allocator, type, valueOf.apply(10))),
+                ImmutableList.of(Range.lessThan(allocator, type, valueOf.apply(10)),
+                        Range.range(allocator, type, valueOf.apply(20), false, valueOf.apply(30), true),
+                        Range.greaterThanOrEqual(allocator, type, valueOf.apply(40))),
+                ImmutableList.of(Range.lessThanOrEqual(allocator, type, valueOf.apply(0)),
+                        Range.equal(allocator, type, valueOf.apply(5)),
+                        Range.range(allocator, type, valueOf.apply(10), true, valueOf.apply(20), false),
+                        Range.range(allocator, type, valueOf.apply(20), false, valueOf.apply(25), false),
+                        Range.greaterThan(allocator, type, valueOf.apply(45))));
+
+        for (List<Range> ranges : rangeSets) {
+            for (boolean nullAllowed : new boolean[] {true, false}) {
+                SortedRangeSet valueSet = SortedRangeSet.copyOf(type, ranges, nullAllowed);
+                assertMatches(valueSet, ConstraintProjectors.compile(valueSet), valueOf);
+            }
+        }
+    }
+
+    /**
+     * Builds allow and deny list EquatableValueSets over the type and checks the compiled projector agrees with
+     * EquatableValueSet.containsValue(...).
+     */
+    private void assertValuesMatch(ArrowType type, LongFunction<Object> valueOf)
+    {
+        for (boolean whiteList : new boolean[] {true, false}) {
+            for (boolean nullAllowed : new boolean[] {true, false}) {
+                List<Object> values = new ArrayList<>();
+                for (long i = 0; i < 50; i += 7) {
+                    values.add(valueOf.apply(i));
+                }
+                EquatableValueSet valueSet = EquatableValueSet.newBuilder(allocator, type, whiteList, nullAllowed)
+                        .addAll(values)
+                        .build();
+                assertMatches(valueSet, ConstraintProjectors.compile(valueSet), valueOf);
+            }
+        }
+    }
+
+    private void assertMatches(ValueSet valueSet, ConstraintProjector projector, LongFunction<Object> valueOf)
+    {
+        assertEquals(ConstraintProjectors.class, projector.getClass().getEnclosingClass());
+        assertEquals(valueSet.toString(), valueSet.containsValue((Object) null), projector.apply(null));
+        for (long i = -5; i < 55; i++) {
+            Object value = valueOf.apply(i);
+            boolean expected = valueSet.containsValue(value);
+            assertEquals(valueSet + " " + value, expected, projector.apply(value));
+            if (projector instanceof ConstraintProjector.LongProjector && value instanceof Number) {
+                assertEquals(valueSet + " " + value, expected, ((ConstraintProjector.LongProjector) projector).applyLong(((Number) value).longValue()));
+            }
+            if (projector instanceof ConstraintProjector.DoubleProjector) {
+                assertEquals(valueSet + " " + value, expected, ((ConstraintProjector.DoubleProjector) projector).applyDouble(((Number) value).doubleValue()));
+            }
+        }
+    }
+}
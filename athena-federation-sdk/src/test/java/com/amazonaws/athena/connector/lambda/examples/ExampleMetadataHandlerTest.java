@@ -30,6 +30,7 @@ import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
 import com.amazonaws.athena.connector.lambda.domain.predicate.Range;
 import com.amazonaws.athena.connector.lambda.domain.predicate.SortedRangeSet;
 import com.amazonaws.athena.connector.lambda.domain.predicate.ValueSet;
+import com.amazonaws.athena.connector.lambda.handlers.SerDeVersion;
 import com.amazonaws.athena.connector.lambda.metadata.GetSplitsRequest;
 import com.amazonaws.athena.connector.lambda.metadata.GetSplitsResponse;
 import com.amazonaws.athena.connector.lambda.metadata.GetTableLayoutRequest;
@@ -42,6 +43,8 @@ import com.amazonaws.athena.connector.lambda.metadata.ListTablesRequest;
 import com.amazonaws.athena.connector.lambda.metadata.ListTablesResponse;
 import com.amazonaws.athena.connector.lambda.metadata.MetadataRequestType;
 import com.amazonaws.athena.connector.lambda.metadata.MetadataResponse;
+import com.amazonaws.athena.connector.lambda.request.PingRequest;
+import com.amazonaws.athena.connector.lambda.request.PingResponse;
 import com.amazonaws.athena.connector.lambda.security.IdentityUtil;
 import com.amazonaws.athena.connector.lambda.security.LocalKeyFactory;
 import com.amazonaws.athena.connector.lambda.serde.ObjectMapperUtil;
@@ -361,4 +364,34 @@ public class ExampleMetadataHandlerTest
 
         logger.info("doGetSplits: exit");
     }
+
+    @Test
+    public void doPing()
+    {
+        logger.info("doPing: enter");
+        PingRequest req = new PingRequest(IdentityUtil.fakeIdentity(), "catalog", "queryId");
+
+        //Pushdown capabilities imply framed responses, so they are only advertised alongside them.
+        PingResponse res = metadataHandler.doPing(req);
+        assertEquals(24, res.getCapabilities());
+        assertEquals(SerDeVersion.SERDE_VERSION, res.getSerDeVersion());
+
+        ExampleMetadataHandler framedHandler = new ExampleMetadataHandler(new LocalKeyFactory(),
+                mock(AWSSecretsManager.class),
+                mock(AmazonAthena.class),
+                "spill-bucket",
+                "spill-prefix")
+        {
+            @Override
+            protected boolean isFramedResponseEnabled()
+            {
+                return true;
+            }
+        };
+        res = framedHandler.doPing(req);
+        assertEquals(27, res.getCapabilities());
+        assertEquals(SerDeVersion.FRAMED_SERDE_VERSION, res.getSerDeVersion());
+
+        logger.info("doPing: exit");
+    }
 }
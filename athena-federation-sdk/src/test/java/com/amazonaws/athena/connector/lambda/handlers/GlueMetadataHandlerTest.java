@@ -37,6 +37,7 @@ import com.amazonaws.athena.connector.lambda.metadata.ListSchemasResponse;
 import com.amazonaws.athena.connector.lambda.metadata.ListTablesRequest;
 import com.amazonaws.athena.connector.lambda.metadata.ListTablesResponse;
 import com.amazonaws.athena.connector.lambda.metadata.MetadataRequest;
+import com.amazonaws.athena.connector.lambda.metadata.glue.GlueTableCache;
 import com.amazonaws.athena.connector.lambda.security.IdentityUtil;
 import com.amazonaws.athena.connector.lambda.security.LocalKeyFactory;
 import com.amazonaws.services.athena.AmazonAthena;
@@ -71,6 +72,7 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -386,6 +388,32 @@ public class GlueMetadataHandlerTest
         assertTrue(Types.getMinorTypeForArrowType(res.getSchema().findField("col7").getType()).equals(Types.MinorType.TIMESTAMPMILLITZ));
     }
 
+    @Test
+    public void doGetTableCached()
+            throws Exception
+    {
+        GlueTableCache tableCache = new GlueTableCache(60_000, 10);
+        handler.setTableCache(tableCache);
+
+        Table glueTable = new Table()
+                .withName(table)
+                .withUpdateTime(new Date(1_000))
+                .withParameters(new HashMap<>())
+                .withStorageDescriptor(new StorageDescriptor()
+                        .withColumns(new Column().withName("col1").withType("int")));
+        when(mockGlue.getTable(any(com.amazonaws.services.glue.model.GetTableRequest.class)))
+                .thenReturn(new GetTableResult().withTable(glueTable));
+
+        GetTableRequest req = new GetTableRequest(IdentityUtil.fakeIdentity(), queryId, catalog, new TableName(schema, table));
+        GetTableResponse first = handler.doGetTable(allocator, req);
+        GetTableResponse second = handler.doGetTable(allocator, req);
+
+        assertEquals(first, second);
+        assertEquals(1, tableCache.getHits());
+        assertEquals(1, tableCache.getMisses());
+        verify(mockGlue, times(1)).getTable(any(com.amazonaws.services.glue.model.GetTableRequest.class));
+    }
+
     @Test
     public void populateSourceTableFromLocation() {
         Map<String, String> params = new HashMap<>();
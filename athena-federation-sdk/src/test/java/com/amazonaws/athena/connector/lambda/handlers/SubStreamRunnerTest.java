@@ -0,0 +1,192 @@
+package com.amazonaws.athena.connector.lambda.handlers;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.amazonaws.athena.connector.lambda.QueryStatusChecker;
+import com.amazonaws.athena.connector.lambda.data.Block;
+import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
+import com.amazonaws.athena.connector.lambda.data.BlockUtils;
+import com.amazonaws.athena.connector.lambda.data.S3BlockSpiller;
+import com.amazonaws.athena.connector.lambda.data.SchemaBuilder;
+import com.amazonaws.athena.connector.lambda.data.SpillConfig;
+import com.amazonaws.athena.connector.lambda.domain.predicate.ConstraintEvaluator;
+import com.amazonaws.athena.connector.lambda.domain.spill.S3SpillLocation;
+import com.amazonaws.services.s3.AmazonS3;
+import org.apache.arrow.vector.complex.reader.FieldReader;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SubStreamRunnerTest
+{
+    private BlockAllocatorImpl allocator;
+    private S3BlockSpiller spiller;
+    private QueryStatusChecker queryStatusChecker;
+
+    @Before
+    public void setup()
+    {
+        allocator = new BlockAllocatorImpl();
+        Schema schema = SchemaBuilder.newBuilder()
+                .addField("col1", new ArrowType.Int(32, true))
+                .build();
+        SpillConfig spillConfig = SpillConfig.newBuilder()
+                .withRequestId("requestId")
+                .withSpillLocation(S3SpillLocation.newBuilder()
+                        .withBucket("bucket")
+                        .withPrefix("prefix")
+                        .withQueryId("queryId")
+                        .withSplitId("splitId")
+                        .withIsDirectory(true)
+                        .build())
+                .withMaxBlockBytes(16_000_000)
+                .withMaxInlineBlockBytes(16_000_000)
+                .build();
+        spiller = new S3BlockSpiller(mock(AmazonS3.class), spillConfig, allocator, schema, ConstraintEvaluator.emptyEvaluator());
+        queryStatusChecker = mock(QueryStatusChecker.class);
+        when(queryStatusChecker.isQueryRunning()).thenReturn(true);
+    }
+
+    @After
+    public void tearDown()
+    {
+        spiller.close();
+        allocator.close();
+    }
+
+    @Test
+    public void runTest()
+            throws Exception
+    {
+        int rowsPerSubStream = 1_000;
+        List<SubStreamReader> subStreams = new ArrayList<>();
+        for (int subStream = 0; subStream < 8; subStream++) {
+            int firstValue = subStream * rowsPerSubStream;
+            subStreams.add((writer, checker) -> {
+                for (int i = firstValue; i < firstValue + rowsPerSubStream; i++) {
+                    int value = i;
+                    writer.writeRows((Block block, int rowNum) -> {
+                        BlockUtils.setValue(block.getFieldVector("col1"), rowNum, value);
+                        return 1;
+                    });
+                }
+            });
+        }
+
+        SubStreamRunner.run(spiller, subStreams, queryStatusChecker, 3);
+
+        assertFalse(spiller.spilled());
+        Block block = spiller.getBlock();
+        assertEquals(8 * rowsPerSubStream, block.getRowCount());
+        Set<Integer> values = new HashSet<>();
+        FieldReader col1 = block.getFieldReader("col1");
+        for (int i = 0; i < block.getRowCount(); i++) {
+            col1.setPosition(i);
+            assertTrue(values.add(col1.readInteger()));
+        }
+        assertEquals(8 * rowsPerSubStream, values.size());
+    }
+
+    @Test
+    public void runFailureTest()
+            throws Exception
+    {
+        List<SubStreamReader> subStreams = new ArrayList<>();
+        subStreams.add((writer, checker) -> {
+            throw new IllegalStateException("expected");
+        });
+        subStreams.add((writer, checker) -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                Thread.sleep(10);
+            }
+        });
+
+        try {
+            SubStreamRunner.run(spiller, subStreams, queryStatusChecker, 2);
+            fail("Expected the sub-stream's exception.");
+        }
+        catch (IllegalStateException ex) {
+            assertEquals("expected", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void runShutdownTimeoutTest()
+            throws Exception
+    {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<SubStreamReader> subStreams = new ArrayList<>();
+        subStreams.add((writer, checker) -> {
+            started.await();
+            throw new IllegalStateException("expected");
+        });
+        subStreams.add((writer, checker) -> {
+            started.countDown();
+            //Ignores interruption, so outlives the shutdown timeout.
+            while (release.getCount() > 0) {
+                Thread.yield();
+            }
+        });
+
+        try {
+            SubStreamRunner.run(spiller, subStreams, queryStatusChecker, 2, 100);
+            fail("Expected the sub-stream's exception.");
+        }
+        catch (IllegalStateException ex) {
+            //The request fails with the original cause, the timeout is attached rather than only logged.
+            assertEquals("expected", ex.getMessage());
+            assertEquals(1, ex.getSuppressed().length);
+            assertTrue(ex.getSuppressed()[0].getMessage().startsWith("Timed out"));
+        }
+        finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void runQueryTerminatedTest()
+            throws Exception
+    {
+        when(queryStatusChecker.isQueryRunning()).thenReturn(false);
+        SubStreamRunner.run(spiller, Collections.singletonList((writer, checker) -> fail("Sub-stream should not be read.")),
+                queryStatusChecker,
+                2);
+        assertFalse(spiller.spilled());
+        assertEquals(0, spiller.getBlock().getRowCount());
+    }
+}
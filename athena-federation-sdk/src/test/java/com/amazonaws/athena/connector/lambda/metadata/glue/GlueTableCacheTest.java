@@ -0,0 +1,111 @@
+package com.amazonaws.athena.connector.lambda.metadata.glue;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.amazonaws.athena.connector.lambda.data.SchemaBuilder;
+import com.amazonaws.services.glue.model.Table;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class GlueTableCacheTest
+{
+    private final Schema schema = SchemaBuilder.newBuilder().addIntField("col1").build();
+    private AtomicLong currentTime;
+    private GlueTableCache cache;
+
+    @Before
+    public void setUp()
+    {
+        currentTime = new AtomicLong(1_000);
+        cache = new GlueTableCache(60_000, 2, currentTime::get);
+    }
+
+    @Test
+    public void expiresAndRevalidates()
+    {
+        String key = GlueTableCache.makeKey("catalog", "db", "table1");
+        assertNull(cache.get(key));
+        cache.put(key, makeTable("table1", 100), schema, Collections.emptySet());
+        assertNotNull(cache.get(key));
+
+        currentTime.addAndGet(60_000);
+        assertNull(cache.get(key));
+
+        //Unchanged tables keep their Schema and are served from the cache for another period.
+        GlueTableCache.Entry revalidated = cache.revalidate(key, makeTable("table1", 100));
+        assertSame(schema, revalidated.getSchema());
+        assertNotNull(cache.get(key));
+
+        //Changed tables must be re-derived.
+        assertNull(cache.revalidate(key, makeTable("table1", 200)));
+
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(1, cache.getRevalidations());
+    }
+
+    @Test
+    public void invalidatesChangedTables()
+    {
+        String key = GlueTableCache.makeKey("catalog", "db", "table1");
+        cache.put(key, makeTable("table1", 100), schema, Collections.emptySet());
+
+        cache.invalidateIfChanged(key, makeTable("table1", 100));
+        assertNotNull(cache.get(key));
+
+        cache.invalidateIfChanged(key, makeTable("table1", 200));
+        assertNull(cache.get(key));
+        assertEquals(1, cache.getInvalidations());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed()
+    {
+        for (int i = 1; i <= 3; i++) {
+            String key = GlueTableCache.makeKey("catalog", "db", "table" + i);
+            cache.put(key, makeTable("table" + i, 100), schema, Collections.emptySet());
+            if (i == 2) {
+                //Touch table1 so that table2 becomes the least recently used.
+                cache.get(GlueTableCache.makeKey("catalog", "db", "table1"));
+            }
+        }
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(GlueTableCache.makeKey("catalog", "db", "table1")));
+        assertNull(cache.get(GlueTableCache.makeKey("catalog", "db", "table2")));
+        assertNotNull(cache.get(GlueTableCache.makeKey("catalog", "db", "table3")));
+    }
+
+    private static Table makeTable(String name, long updateTime)
+    {
+        return new Table().withName(name).withUpdateTime(new Date(updateTime));
+    }
+}
@@ -24,12 +24,20 @@ import com.amazonaws.athena.connector.lambda.data.Block;
 import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
 import com.amazonaws.athena.connector.lambda.data.BlockUtils;
 import com.amazonaws.athena.connector.lambda.data.SchemaBuilder;
+import com.amazonaws.athena.connector.lambda.data.SpillCompression;
 import org.apache.arrow.vector.types.pojo.ArrowType;
 import org.apache.arrow.vector.types.pojo.Schema;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
 import static org.junit.Assert.*;
 
 public class BlockCryptoTest
@@ -71,4 +79,112 @@ public class BlockCryptoTest
         Block actual = crypto.decrypt(key, cypher, schema);
         assertEquals(expected, actual);
     }
+
+    @Test
+    public void streamingEncryptTest()
+            throws IOException
+    {
+        Schema schema = SchemaBuilder.newBuilder()
+                .addField("col1", new ArrowType.Int(32, true))
+                .addField("col2", new ArrowType.Utf8())
+                .build();
+
+        Block expected = allocator.createBlock(schema);
+        for (int i = 0; i < 10_000; i++) {
+            BlockUtils.setValue(expected.getFieldVector("col1"), i, i);
+            BlockUtils.setValue(expected.getFieldVector("col2"), i, "VarChar" + i);
+        }
+        expected.setRowCount(10_000);
+
+        AesGcmBlockCrypto crypto = new AesGcmBlockCrypto(new BlockAllocatorImpl());
+        EncryptionKey key = keyFactory.create();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        crypto.encrypt(key, expected, out);
+
+        assertArrayEquals(crypto.encrypt(key, expected), out.toByteArray());
+        Block actual = crypto.decrypt(key, out.toByteArray(), schema);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void compressionTest()
+    {
+        Schema schema = SchemaBuilder.newBuilder()
+                .addField("col1", new ArrowType.Int(32, true))
+                .addField("col2", new ArrowType.Utf8())
+                .build();
+
+        Block expected = allocator.createBlock(schema);
+        for (int i = 0; i < 10_000; i++) {
+            BlockUtils.setValue(expected.getFieldVector("col1"), i, i % 10);
+            BlockUtils.setValue(expected.getFieldVector("col2"), i, "A repetitive VarChar value " + (i % 10));
+        }
+        expected.setRowCount(10_000);
+
+        EncryptionKey key = keyFactory.create();
+        int uncompressedSize = new AesGcmBlockCrypto(allocator).encrypt(key, expected).length;
+
+        for (SpillCompression compression : new SpillCompression[] {SpillCompression.LZ4_FRAME, SpillCompression.ZSTD}) {
+            AesGcmBlockCrypto crypto = new AesGcmBlockCrypto(allocator, compression);
+            byte[] cypher = crypto.encrypt(key, expected);
+            assertTrue(compression + " did not compress", cypher.length < uncompressedSize);
+
+            //Decryption does not need to be told which compression was used.
+            Block actual = new AesGcmBlockCrypto(allocator).decrypt(key, cypher, schema);
+            assertEquals(expected, actual);
+
+            NoOpBlockCrypto noOpCrypto = new NoOpBlockCrypto(allocator, compression);
+            assertEquals(expected, noOpCrypto.decrypt(null, noOpCrypto.encrypt(null, expected), schema));
+        }
+    }
+
+    @Test
+    public void providerCompatibilityTest()
+            throws Exception
+    {
+        Schema schema = SchemaBuilder.newBuilder()
+                .addField("col1", new ArrowType.Int(32, true))
+                .build();
+
+        Block expected = allocator.createBlock(schema);
+        for (int i = 0; i < 1_000; i++) {
+            BlockUtils.setValue(expected.getFieldVector("col1"), i, i);
+        }
+        expected.setRowCount(1_000);
+
+        AesGcmBlockCrypto crypto = new AesGcmBlockCrypto(allocator);
+        //Several keys in a row exercise the reuse of the thread's Cipher.
+        for (int i = 0; i < 3; i++) {
+            EncryptionKey key = keyFactory.create();
+            byte[] cypher = crypto.encrypt(key, expected);
+
+            //Blocks spilled by older versions were encrypted with BouncyCastle, the output must be interchangeable.
+            Cipher bcCipher = Cipher.getInstance(AesGcmBlockCrypto.ALGO, AesGcmBlockCrypto.ALGO_BC);
+            bcCipher.init(Cipher.DECRYPT_MODE,
+                    new SecretKeySpec(key.getKey(), AesGcmBlockCrypto.KEYSPEC),
+                    new GCMParameterSpec(AesGcmBlockCrypto.GCM_TAG_LENGTH_BITS, key.getNonce()));
+            assertArrayEquals(bcCipher.doFinal(cypher), crypto.decrypt(key, cypher));
+
+            assertEquals(expected, crypto.decrypt(key, cypher, schema));
+        }
+    }
+
+    @Test
+    public void sameKeyTest()
+    {
+        Schema schema = SchemaBuilder.newBuilder().addField("col1", new ArrowType.Int(32, true)).build();
+        Block expected = allocator.createBlock(schema);
+        BlockUtils.setValue(expected.getFieldVector("col1"), 0, 1);
+        expected.setRowCount(1);
+
+        AesGcmBlockCrypto crypto = new AesGcmBlockCrypto(allocator);
+        EncryptionKey key = keyFactory.create();
+        //Every Block spilled by a split is encrypted with the split's key and nonce, which Athena decrypts them with.
+        byte[] first = crypto.encrypt(key, expected);
+        byte[] second = crypto.encrypt(key, expected);
+
+        assertArrayEquals(first, second);
+        assertEquals(expected, crypto.decrypt(key, second, schema));
+    }
 }
@@ -28,6 +28,15 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
@@ -131,4 +140,101 @@ public class CacheableSecretsManagerTest
         }
         catch (RuntimeException ex) {}
     }
+
+    @Test
+    public void refreshAheadTest()
+    {
+        //Run background refreshes inline so that their effects are visible once getSecret returns.
+        cachableSecretsManager = new CachableSecretsManager(mockSecretsManager, 60_000, 30_000, Runnable::run);
+        when(mockSecretsManager.getSecretValue(any(GetSecretValueRequest.class)))
+                .thenReturn(new GetSecretValueResult().withSecretString("value2"));
+
+        cachableSecretsManager.addCacheEntry("test", "value", System.currentTimeMillis() - 45_000);
+        //The cached value is still served while it is refreshed.
+        assertEquals("value", cachableSecretsManager.getSecret("test"));
+        assertEquals("value2", cachableSecretsManager.getSecret("test"));
+
+        verify(mockSecretsManager, times(1)).getSecretValue(any(GetSecretValueRequest.class));
+        assertEquals(2, cachableSecretsManager.getHits());
+        assertEquals(0, cachableSecretsManager.getMisses());
+        assertEquals(1, cachableSecretsManager.getRefreshes());
+    }
+
+    @Test
+    public void singleFlightTest()
+            throws Exception
+    {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(mockSecretsManager.getSecretValue(any(GetSecretValueRequest.class)))
+                .thenAnswer((InvocationOnMock invocation) -> {
+                    loading.countDown();
+                    release.await();
+                    return new GetSecretValueResult().withSecretString("value");
+                });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cachableSecretsManager.getSecret("test")));
+            loading.await();
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> cachableSecretsManager.getSecret("test")));
+            }
+            //Give the other callers a chance to join the in-flight load before it completes.
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<String> next : results) {
+                assertEquals("value", next.get(10, TimeUnit.SECONDS));
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        verify(mockSecretsManager, times(1)).getSecretValue(any(GetSecretValueRequest.class));
+        assertEquals(1, cachableSecretsManager.getLoads());
+    }
+
+    @Test
+    public void singleFlightErrorTest()
+            throws Exception
+    {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(mockSecretsManager.getSecretValue(any(GetSecretValueRequest.class)))
+                .thenAnswer((InvocationOnMock invocation) -> {
+                    loading.countDown();
+                    release.await();
+                    throw new LinkageError("expected");
+                });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cachableSecretsManager.getSecret("test")));
+            loading.await();
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> cachableSecretsManager.getSecret("test")));
+            }
+            //Give the other callers a chance to join the in-flight load before it fails.
+            Thread.sleep(100);
+            release.countDown();
+
+            //Callers which joined the load must see the Error rather than wait forever.
+            for (Future<String> next : results) {
+                try {
+                    next.get(10, TimeUnit.SECONDS);
+                    fail("Expected the load to fail.");
+                }
+                catch (ExecutionException ex) {
+                    assertTrue(ex.getCause() instanceof LinkageError);
+                }
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
 }
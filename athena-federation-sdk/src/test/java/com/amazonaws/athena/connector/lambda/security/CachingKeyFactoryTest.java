@@ -0,0 +1,98 @@
+package com.amazonaws.athena.connector.lambda.security;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachingKeyFactoryTest
+{
+    private final LocalKeyFactory localKeyFactory = new LocalKeyFactory();
+    private EncryptionKeyFactory mockKeyFactory;
+    private AtomicLong currentTime;
+
+    @Before
+    public void setup()
+    {
+        mockKeyFactory = mock(EncryptionKeyFactory.class);
+        when(mockKeyFactory.create()).thenAnswer(invocation -> localKeyFactory.create());
+        currentTime = new AtomicLong(1_000);
+    }
+
+    @Test
+    public void reusesDataKeyWithUniqueNonces()
+    {
+        CachingKeyFactory keyFactory = new CachingKeyFactory(mockKeyFactory, 60_000, 100, currentTime::get);
+
+        EncryptionKey first = keyFactory.create();
+        Set<ByteBuffer> nonces = new HashSet<>();
+        nonces.add(ByteBuffer.wrap(first.getNonce()));
+        for (int i = 1; i < 100; i++) {
+            EncryptionKey next = keyFactory.create();
+            assertArrayEquals(first.getKey(), next.getKey());
+            nonces.add(ByteBuffer.wrap(next.getNonce()));
+        }
+
+        assertEquals(100, nonces.size());
+        verify(mockKeyFactory, times(1)).create();
+    }
+
+    @Test
+    public void refreshesAfterMaxUses()
+    {
+        CachingKeyFactory keyFactory = new CachingKeyFactory(mockKeyFactory, 60_000, 2, currentTime::get);
+
+        EncryptionKey first = keyFactory.create();
+        keyFactory.create();
+        EncryptionKey third = keyFactory.create();
+
+        assertFalse(Arrays.equals(first.getKey(), third.getKey()));
+        verify(mockKeyFactory, times(2)).create();
+    }
+
+    @Test
+    public void refreshesAfterMaxAge()
+    {
+        CachingKeyFactory keyFactory = new CachingKeyFactory(mockKeyFactory, 60_000, 100, currentTime::get);
+
+        EncryptionKey first = keyFactory.create();
+        currentTime.addAndGet(59_999);
+        assertArrayEquals(first.getKey(), keyFactory.create().getKey());
+        currentTime.addAndGet(1);
+        assertFalse(Arrays.equals(first.getKey(), keyFactory.create().getKey()));
+
+        verify(mockKeyFactory, times(2)).create();
+    }
+}
@@ -0,0 +1,110 @@
+package com.amazonaws.athena.connector.lambda.serde;
+
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.amazonaws.athena.connector.lambda.data.Block;
+import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
+import com.amazonaws.athena.connector.lambda.data.BlockUtils;
+import com.amazonaws.athena.connector.lambda.data.SchemaBuilder;
+import com.amazonaws.athena.connector.lambda.handlers.SerDeVersion;
+import com.amazonaws.athena.connector.lambda.records.ReadRecordsResponse;
+import com.amazonaws.athena.connector.lambda.request.FederationResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class VersionedObjectMapperFactoryTest
+{
+    private BlockAllocatorImpl allocator;
+    private ReadRecordsResponse expected;
+
+    @Before
+    public void setup()
+    {
+        allocator = new BlockAllocatorImpl();
+
+        Schema schema = SchemaBuilder.newBuilder()
+                .addIntField("id")
+                .addStringField("name")
+                .build();
+
+        Block records = allocator.createBlock(schema);
+        int numRecords = 100;
+        for (int i = 0; i < numRecords; i++) {
+            BlockUtils.setValue(records.getFieldVector("id"), i, i);
+            BlockUtils.setValue(records.getFieldVector("name"), i, "name-" + i);
+        }
+        records.setRowCount(numRecords);
+        expected = new ReadRecordsResponse("test-catalog", records);
+    }
+
+    @After
+    public void tearDown()
+            throws Exception
+    {
+        expected.close();
+        allocator.close();
+    }
+
+    @Test
+    public void getSharedReusesMappers()
+    {
+        for (int version = 1; version <= 4; version++) {
+            assertSame(VersionedObjectMapperFactory.getShared(version), VersionedObjectMapperFactory.getShared(version));
+        }
+        assertNotSame(VersionedObjectMapperFactory.getShared(2), VersionedObjectMapperFactory.getShared(3));
+    }
+
+    @Test
+    public void sharedMapperUsesAllocatorAttribute()
+            throws Exception
+    {
+        for (int version = 2; version <= 4; version++) {
+            ObjectMapper mapper = VersionedObjectMapperFactory.getShared(version);
+            byte[] json = mapper.writeValueAsBytes(expected);
+
+            //Each request supplies its own allocator, the shared mapper never holds on to one.
+            try (BlockAllocatorImpl requestAllocator = new BlockAllocatorImpl("request-" + version);
+                    ReadRecordsResponse actual = mapper.readerFor(FederationResponse.class)
+                            .withAttribute(VersionedObjectMapperFactory.ALLOCATOR_ATTRIBUTE, requestAllocator)
+                            .readValue(json)) {
+                assertEquals(expected, actual);
+                assertEquals("request-" + version, actual.getRecords().getAllocatorId());
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void sharedMapperRequiresAllocator()
+            throws IOException
+    {
+        ObjectMapper mapper = VersionedObjectMapperFactory.getShared(SerDeVersion.SERDE_VERSION);
+        mapper.readValue(mapper.writeValueAsBytes(expected), FederationResponse.class);
+    }
+}
@@ -24,14 +24,18 @@ import com.amazonaws.athena.connector.lambda.data.BlockUtils;
 import com.amazonaws.athena.connector.lambda.data.SchemaBuilder;
 import com.amazonaws.athena.connector.lambda.domain.Split;
 import com.amazonaws.athena.connector.lambda.domain.TableName;
+import com.amazonaws.athena.connector.lambda.domain.predicate.AggregateFunction;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Aggregation;
 import com.amazonaws.athena.connector.lambda.domain.predicate.AllOrNoneValueSet;
 import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
 import com.amazonaws.athena.connector.lambda.domain.predicate.EquatableValueSet;
+import com.amazonaws.athena.connector.lambda.domain.predicate.OrderByField;
 import com.amazonaws.athena.connector.lambda.domain.predicate.Range;
 import com.amazonaws.athena.connector.lambda.domain.predicate.SortedRangeSet;
 import com.amazonaws.athena.connector.lambda.domain.predicate.ValueSet;
 import com.amazonaws.athena.connector.lambda.domain.spill.S3SpillLocation;
 import com.amazonaws.athena.connector.lambda.domain.spill.SpillLocation;
+import com.amazonaws.athena.connector.lambda.handlers.SerDeVersion;
 import com.amazonaws.athena.connector.lambda.records.ReadRecordsRequest;
 import com.amazonaws.athena.connector.lambda.request.FederationRequest;
 import com.amazonaws.athena.connector.lambda.security.EncryptionKey;
@@ -54,6 +58,8 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class ReadRecordsRequestSerDeTest extends TypedSerDeTest<FederationRequest>
 {
@@ -155,4 +161,117 @@ public class ReadRecordsRequestSerDeTest extends TypedSerDeTest<FederationReques
 
         logger.info("deserialize: exit");
     }
+
+    @Test
+    public void limitAndOrderByRoundTrip()
+            throws Exception
+    {
+        logger.info("limitAndOrderByRoundTrip: enter");
+        ReadRecordsRequest request = (ReadRecordsRequest) expected;
+        Constraints constraints = new Constraints(request.getConstraints().getSummary(),
+                ImmutableList.of(new OrderByField("col3", OrderByField.Direction.DESC_NULLS_LAST),
+                        new OrderByField("col2", OrderByField.Direction.ASC_NULLS_FIRST)),
+                10);
+        ReadRecordsRequest withLimit = new ReadRecordsRequest(request.getIdentity(),
+                request.getCatalogName(),
+                request.getQueryId(),
+                request.getTableName(),
+                request.getSchema(),
+                request.getSplit(),
+                constraints,
+                request.getMaxBlockSize(),
+                request.getMaxInlineBlockSize());
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        mapper.writeValue(outputStream, withLimit);
+        String serialized = new String(outputStream.toByteArray(), JsonEncoding.UTF8.getJavaName());
+        logger.info("limitAndOrderByRoundTrip: serialized text[{}]", serialized);
+
+        ReadRecordsRequest actual = (ReadRecordsRequest) mapper.readValue(serialized, FederationRequest.class);
+        assertEquals(withLimit, actual);
+        assertTrue(actual.getConstraints().hasLimit());
+        assertEquals(2, actual.getConstraints().getOrderByClause().size());
+
+        // fields added by a newer writer after the limit must be skipped
+        String withUnknownField = serialized.replace("\"limit\" : 10", "\"limit\" : 10, \"unknown\" : { \"a\" : [ 1, 2 ] }");
+        actual = (ReadRecordsRequest) mapper.readValue(withUnknownField, FederationRequest.class);
+        assertEquals(withLimit, actual);
+
+        // requests without the optional fields have no limit
+        actual = (ReadRecordsRequest) mapper.readValue(expectedSerDeText, FederationRequest.class);
+        assertFalse(actual.getConstraints().hasLimit());
+        assertFalse(actual.getConstraints().hasNonEmptyOrderByClause());
+
+        logger.info("limitAndOrderByRoundTrip: exit");
+    }
+
+    @Test
+    public void aggregationRoundTrip()
+            throws Exception
+    {
+        logger.info("aggregationRoundTrip: enter");
+        ReadRecordsRequest request = (ReadRecordsRequest) expected;
+        Aggregation aggregation = new Aggregation(ImmutableList.of("year", "col2"),
+                ImmutableList.of(new AggregateFunction(AggregateFunction.Function.COUNT, null, "row_count"),
+                        new AggregateFunction(AggregateFunction.Function.SUM, "col3", "sum_col3"),
+                        new AggregateFunction(AggregateFunction.Function.MAX, "col4", "max_col4")));
+        Constraints constraints = new Constraints(request.getConstraints().getSummary(),
+                ImmutableList.of(),
+                Constraints.DEFAULT_NO_LIMIT,
+                aggregation);
+        ReadRecordsRequest withAggregation = new ReadRecordsRequest(request.getIdentity(),
+                request.getCatalogName(),
+                request.getQueryId(),
+                request.getTableName(),
+                request.getSchema(),
+                request.getSplit(),
+                constraints,
+                request.getMaxBlockSize(),
+                request.getMaxInlineBlockSize());
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        mapper.writeValue(outputStream, withAggregation);
+        String serialized = new String(outputStream.toByteArray(), JsonEncoding.UTF8.getJavaName());
+        logger.info("aggregationRoundTrip: serialized text[{}]", serialized);
+
+        ReadRecordsRequest actual = (ReadRecordsRequest) mapper.readValue(serialized, FederationRequest.class);
+        assertEquals(withAggregation, actual);
+        assertTrue(actual.getConstraints().hasAggregation());
+        assertEquals(aggregation, actual.getConstraints().getAggregation());
+
+        logger.info("aggregationRoundTrip: exit");
+    }
+
+    @Test
+    public void serDeVersionRoundTrip()
+            throws Exception
+    {
+        logger.info("serDeVersionRoundTrip: enter");
+        ReadRecordsRequest request = (ReadRecordsRequest) expected;
+        ReadRecordsRequest withVersion = new ReadRecordsRequest(request.getIdentity(),
+                request.getCatalogName(),
+                request.getQueryId(),
+                request.getTableName(),
+                request.getSchema(),
+                request.getSplit(),
+                request.getConstraints(),
+                request.getMaxBlockSize(),
+                request.getMaxInlineBlockSize(),
+                SerDeVersion.FRAMED_SERDE_VERSION);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        mapper.writeValue(outputStream, withVersion);
+        String serialized = new String(outputStream.toByteArray(), JsonEncoding.UTF8.getJavaName());
+        logger.info("serDeVersionRoundTrip: serialized text[{}]", serialized);
+
+        ReadRecordsRequest actual = (ReadRecordsRequest) mapper.readValue(serialized, FederationRequest.class);
+        assertEquals(withVersion, actual);
+        assertEquals(SerDeVersion.FRAMED_SERDE_VERSION, actual.getSerDeVersion());
+
+        // requests without the field were sent by callers which negotiated the default version
+        actual = (ReadRecordsRequest) mapper.readValue(expectedSerDeText, FederationRequest.class);
+        assertEquals(SerDeVersion.SERDE_VERSION, actual.getSerDeVersion());
+
+        logger.info("serDeVersionRoundTrip: exit");
+    }
 }
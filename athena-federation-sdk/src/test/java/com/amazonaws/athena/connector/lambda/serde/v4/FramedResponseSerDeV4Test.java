@@ -0,0 +1,130 @@
+/*-
+ * #%L
+ * Amazon Athena Query Federation SDK
+ * %%
+ * Copyright (C) 2019 - 2020 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.amazonaws.athena.connector.lambda.serde.v4;
+
+import com.amazonaws.athena.connector.lambda.data.Block;
+import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
+import com.amazonaws.athena.connector.lambda.data.BlockUtils;
+import com.amazonaws.athena.connector.lambda.data.SchemaBuilder;
+import com.amazonaws.athena.connector.lambda.records.ReadRecordsResponse;
+import com.amazonaws.athena.connector.lambda.request.FederationResponse;
+import com.amazonaws.athena.connector.lambda.serde.v3.ObjectMapperFactoryV3;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.arrow.vector.types.Types;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FramedResponseSerDeV4Test
+{
+    private BlockAllocatorImpl allocator;
+    private ObjectMapper mapper;
+    private ReadRecordsResponse expected;
+
+    @Before
+    public void setup()
+    {
+        allocator = new BlockAllocatorImpl();
+        mapper = ObjectMapperFactoryV4.create(allocator);
+
+        Schema schema = SchemaBuilder.newBuilder()
+                .addIntField("id")
+                .addStringField("name")
+                .addListField("tags", Types.MinorType.VARCHAR.getType())
+                .build();
+
+        Block records = allocator.createBlock(schema);
+        int numRecords = 1_000;
+        for (int i = 0; i < numRecords; i++) {
+            BlockUtils.setValue(records.getFieldVector("id"), i, i);
+            BlockUtils.setValue(records.getFieldVector("name"), i, "name-" + i);
+            BlockUtils.setComplexValue(records.getFieldVector("tags"), i, null, Arrays.asList("a" + i, "b" + i));
+        }
+        records.setRowCount(numRecords);
+        expected = new ReadRecordsResponse("test-catalog", records);
+    }
+
+    @After
+    public void tearDown()
+            throws Exception
+    {
+        expected.close();
+        allocator.close();
+    }
+
+    @Test
+    public void framedRoundTrip()
+            throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FramedResponseSerDeV4.serialize(mapper, expected, out);
+
+        ReadRecordsResponse actual = (ReadRecordsResponse) FramedResponseSerDeV4.deserialize(mapper,
+                new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(expected, actual);
+
+        //The frame carries the raw batch, so it should be notably smaller than the base64 encoded JSON response.
+        byte[] json = ObjectMapperFactoryV3.create(allocator).writeValueAsBytes(expected);
+        assertTrue(out.size() + " vs " + json.length, out.size() < json.length * 0.8);
+    }
+
+    @Test
+    public void framedEmptyBlock()
+            throws IOException
+    {
+        ReadRecordsResponse empty = new ReadRecordsResponse("test-catalog", allocator.createBlock(expected.getSchema()));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FramedResponseSerDeV4.serialize(mapper, empty, out);
+
+        ReadRecordsResponse actual = (ReadRecordsResponse) FramedResponseSerDeV4.deserialize(mapper,
+                new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(0, actual.getRecordCount());
+        assertEquals(expected.getSchema(), actual.getSchema());
+    }
+
+    @Test
+    public void unframedRoundTrip()
+            throws IOException
+    {
+        //Without the framing the v4 mapper embeds record batches in the JSON like v3 does.
+        byte[] json = mapper.writeValueAsBytes(expected);
+        assertEquals(new String(ObjectMapperFactoryV3.create(allocator).writeValueAsBytes(expected)), new String(json));
+
+        FederationResponse actual = mapper.readValue(json, FederationResponse.class);
+        assertEquals(expected, actual);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsUnframedInput()
+            throws IOException
+    {
+        byte[] json = mapper.writeValueAsBytes(expected);
+        FramedResponseSerDeV4.deserialize(mapper, new ByteArrayInputStream(json));
+    }
+}
@@ -0,0 +1,594 @@
+/*-
+ * #%L
+ * athena-jdbc
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.amazonaws.athena.connectors.jdbc.connection;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+/**
+ * Keeps connections created by another {@link JdbcConnectionFactory} alive so that warm Lambda invocations can skip the
+ * TCP, TLS and authentication handshakes of a new connection.
+ * <p>
+ * Connections are pooled per JDBC connection string and credential. The pools are shared by every factory in the
+ * container, so the metadata and record handlers of a composite handler reuse each other's connections. Closing a
+ * connection handed out by this factory returns it to the pool, where at most maxIdleConnections are kept. Idle
+ * connections are validated before they are reused and are discarded once they have been idle, or open, for too long.
+ * <p>
+ * When a connection string is used with a different credential than its pool (e.g. after the secret was rotated and
+ * {@link RdsSecretsCredentialProvider} picked up the new password) all connections made with the old credential are
+ * closed.
+ */
+public class PooledJdbcConnectionFactory
+        implements JdbcConnectionFactory
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(PooledJdbcConnectionFactory.class);
+
+    //Set to false to disable connection pooling.
+    public static final String POOL_ENABLED_ENV = "jdbc_connection_pool_enabled";
+    //The maximum number of idle connections kept for each connection string and credential.
+    public static final String POOL_MAX_IDLE_ENV = "jdbc_connection_pool_max_idle";
+    //How long, in milliseconds, a connection may sit in the pool before it is closed.
+    public static final String POOL_IDLE_TIMEOUT_ENV = "jdbc_connection_pool_idle_timeout_ms";
+    //How long, in milliseconds, a connection may be used in total before it is closed.
+    public static final String POOL_MAX_LIFETIME_ENV = "jdbc_connection_pool_max_lifetime_ms";
+
+    private static final int DEFAULT_MAX_IDLE = 4;
+    private static final long DEFAULT_IDLE_TIMEOUT_MS = 5 * 60 * 1000L;
+    private static final long DEFAULT_MAX_LIFETIME_MS = 30 * 60 * 1000L;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+    //SQLState class used by drivers for connection exceptions.
+    private static final String CONNECTION_EXCEPTION_SQL_STATE = "08";
+    //Objects created through a leased connection which are wrapped so that their connection exceptions are noticed.
+    private static final Set<Class<?>> WRAPPED_TYPES = new HashSet<>(Arrays.asList(Statement.class, PreparedStatement.class,
+            CallableStatement.class, ResultSet.class, DatabaseMetaData.class));
+
+    private static final ConcurrentMap<PoolKey, ConnectionPool> POOLS = new ConcurrentHashMap<>();
+
+    private final JdbcConnectionFactory delegate;
+    private final String jdbcConnectionString;
+    private final int maxIdleConnections;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+
+    /**
+     * @param delegate Factory used to create new connections.
+     * @param jdbcConnectionString Connection string the delegate connects to, used to key the pool.
+     * @param maxIdleConnections The maximum number of idle connections to keep.
+     * @param idleTimeoutMillis How long a connection may stay idle before it is closed.
+     * @param maxLifetimeMillis How long a connection may be kept open in total before it is closed.
+     */
+    public PooledJdbcConnectionFactory(final JdbcConnectionFactory delegate, final String jdbcConnectionString,
+            final int maxIdleConnections, final long idleTimeoutMillis, final long maxLifetimeMillis)
+    {
+        this.delegate = Validate.notNull(delegate, "delegate must not be null");
+        this.jdbcConnectionString = Validate.notBlank(jdbcConnectionString, "jdbcConnectionString must not be blank");
+        Validate.isTrue(maxIdleConnections >= 0, "maxIdleConnections must be >= 0");
+        this.maxIdleConnections = maxIdleConnections;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+    }
+
+    /**
+     * Wraps the given factory in a PooledJdbcConnectionFactory configured from the environment, unless pooling was
+     * disabled. Only driver backed factories are pooled, other factories (e.g. test doubles) are returned as is.
+     *
+     * @param jdbcConnectionFactory The factory to pool connections for.
+     * @param databaseConnectionConfig The configuration of the database the factory connects to.
+     * @return The factory handlers should use to get connections.
+     */
+    public static JdbcConnectionFactory pooled(final JdbcConnectionFactory jdbcConnectionFactory, final DatabaseConnectionConfig databaseConnectionConfig)
+    {
+        if (!(jdbcConnectionFactory instanceof GenericJdbcConnectionFactory)
+                || "false".equalsIgnoreCase(System.getenv(POOL_ENABLED_ENV))) {
+            return jdbcConnectionFactory;
+        }
+
+        return new PooledJdbcConnectionFactory(jdbcConnectionFactory,
+                databaseConnectionConfig.getJdbcConnectionString(),
+                getIntEnv(POOL_MAX_IDLE_ENV, DEFAULT_MAX_IDLE),
+                getLongEnv(POOL_IDLE_TIMEOUT_ENV, DEFAULT_IDLE_TIMEOUT_MS),
+                getLongEnv(POOL_MAX_LIFETIME_ENV, DEFAULT_MAX_LIFETIME_MS));
+    }
+
+    @Override
+    public Connection getConnection(final JdbcCredentialProvider jdbcCredentialProvider)
+            throws Exception
+    {
+        PoolKey key = new PoolKey(jdbcConnectionString, jdbcCredentialProvider != null ? jdbcCredentialProvider.getCredential() : null);
+        evictRotatedCredentials(key);
+        ConnectionPool pool = POOLS.computeIfAbsent(key, (PoolKey next) -> new ConnectionPool());
+
+        PooledConnection pooledConnection;
+        while ((pooledConnection = pool.poll()) != null) {
+            long now = System.currentTimeMillis();
+            if (now - pooledConnection.lastReturned > idleTimeoutMillis || now - pooledConnection.created > maxLifetimeMillis) {
+                pool.evicted.incrementAndGet();
+                closeQuietly(pooledConnection.connection);
+            }
+            else if (!isValid(pooledConnection.connection)) {
+                pool.validationFailures.incrementAndGet();
+                closeQuietly(pooledConnection.connection);
+            }
+            else {
+                pool.reused.incrementAndGet();
+                return pooledConnection.lease(pool);
+            }
+        }
+
+        Connection connection = delegate.getConnection(jdbcCredentialProvider);
+        pool.created.incrementAndGet();
+        LOGGER.debug("getConnection: Created new connection, {}", pool.toStatistics());
+        return new PooledConnection(connection, System.currentTimeMillis()).lease(pool);
+    }
+
+    /**
+     * @return Statistics summed across the pools of this factory's connection string.
+     */
+    public PoolStatistics getStatistics()
+    {
+        PoolStatistics statistics = new PoolStatistics(0, 0, 0, 0, 0);
+        for (Map.Entry<PoolKey, ConnectionPool> next : POOLS.entrySet()) {
+            if (next.getKey().jdbcConnectionString.equals(jdbcConnectionString)) {
+                statistics = statistics.add(next.getValue().toStatistics());
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Closes every idle connection of every pool, connections which are currently in use are closed when returned.
+     */
+    @VisibleForTesting
+    static void closeAll()
+    {
+        for (PoolKey next : POOLS.keySet()) {
+            ConnectionPool pool = POOLS.remove(next);
+            if (pool != null) {
+                pool.close();
+            }
+        }
+    }
+
+    /**
+     * A connection string only ever maps to one secret, so seeing it with a new credential means the secret was
+     * rotated and connections made with the old credential should not be reused.
+     */
+    private void evictRotatedCredentials(PoolKey key)
+    {
+        for (PoolKey next : POOLS.keySet()) {
+            if (next.jdbcConnectionString.equals(key.jdbcConnectionString) && !next.equals(key)) {
+                ConnectionPool pool = POOLS.remove(next);
+                if (pool != null) {
+                    LOGGER.info("evictRotatedCredentials: Credential changed, closing pooled connections for {}", jdbcConnectionString);
+                    pool.close();
+                }
+            }
+        }
+    }
+
+    private static boolean isValid(Connection connection)
+    {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        }
+        catch (SQLException | RuntimeException ex) {
+            LOGGER.warn("isValid: Failed to validate pooled connection.", ex);
+            return false;
+        }
+    }
+
+    private static void closeQuietly(Connection connection)
+    {
+        try {
+            connection.close();
+        }
+        catch (SQLException | RuntimeException ex) {
+            LOGGER.warn("closeQuietly: Failed to close pooled connection.", ex);
+        }
+    }
+
+    private static int getIntEnv(String name, int defaultValue)
+    {
+        String value = System.getenv(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    private static long getLongEnv(String name, long defaultValue)
+    {
+        String value = System.getenv(name);
+        return value != null ? Long.parseLong(value) : defaultValue;
+    }
+
+    /**
+     * Point in time counters of a connection pool.
+     */
+    public static class PoolStatistics
+    {
+        private final long created;
+        private final long reused;
+        private final long validationFailures;
+        private final long evicted;
+        private final int idle;
+
+        public PoolStatistics(long created, long reused, long validationFailures, long evicted, int idle)
+        {
+            this.created = created;
+            this.reused = reused;
+            this.validationFailures = validationFailures;
+            this.evicted = evicted;
+            this.idle = idle;
+        }
+
+        /**
+         * @return The number of connections created by the underlying factory.
+         */
+        public long getCreated()
+        {
+            return created;
+        }
+
+        /**
+         * @return The number of times an idle connection was handed out again.
+         */
+        public long getReused()
+        {
+            return reused;
+        }
+
+        /**
+         * @return The number of idle connections which failed validation and were closed.
+         */
+        public long getValidationFailures()
+        {
+            return validationFailures;
+        }
+
+        /**
+         * @return The number of connections closed because they were expired, broken or did not fit in the pool.
+         */
+        public long getEvicted()
+        {
+            return evicted;
+        }
+
+        /**
+         * @return The number of connections currently idle in the pool.
+         */
+        public int getIdle()
+        {
+            return idle;
+        }
+
+        private PoolStatistics add(PoolStatistics other)
+        {
+            return new PoolStatistics(created + other.created,
+                    reused + other.reused,
+                    validationFailures + other.validationFailures,
+                    evicted + other.evicted,
+                    idle + other.idle);
+        }
+
+        @Override
+        public String toString()
+        {
+            return toStringHelper(this)
+                    .add("created", created)
+                    .add("reused", reused)
+                    .add("validationFailures", validationFailures)
+                    .add("evicted", evicted)
+                    .add("idle", idle)
+                    .toString();
+        }
+    }
+
+    private static class PoolKey
+    {
+        private final String jdbcConnectionString;
+        private final JdbcCredential credential;
+
+        private PoolKey(String jdbcConnectionString, JdbcCredential credential)
+        {
+            this.jdbcConnectionString = jdbcConnectionString;
+            this.credential = credential;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            PoolKey that = (PoolKey) o;
+            return Objects.equals(jdbcConnectionString, that.jdbcConnectionString) &&
+                    Objects.equals(credential, that.credential);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(jdbcConnectionString, credential);
+        }
+    }
+
+    private class ConnectionPool
+    {
+        private final Deque<PooledConnection> idle = new ArrayDeque<>();
+        private final AtomicLong created = new AtomicLong();
+        private final AtomicLong reused = new AtomicLong();
+        private final AtomicLong validationFailures = new AtomicLong();
+        private final AtomicLong evicted = new AtomicLong();
+        private boolean closed = false;
+
+        /**
+         * @return The most recently returned idle connection, or null if there is none.
+         */
+        private synchronized PooledConnection poll()
+        {
+            return idle.pollFirst();
+        }
+
+        /**
+         * Returns a connection to the pool, closing it instead if the pool is full or closed.
+         */
+        private void offer(PooledConnection pooledConnection)
+        {
+            synchronized (this) {
+                if (!closed && idle.size() < maxIdleConnections) {
+                    idle.addFirst(pooledConnection);
+                    return;
+                }
+            }
+            evicted.incrementAndGet();
+            closeQuietly(pooledConnection.connection);
+        }
+
+        private void close()
+        {
+            Deque<PooledConnection> toClose;
+            synchronized (this) {
+                closed = true;
+                toClose = new ArrayDeque<>(idle);
+                idle.clear();
+            }
+            for (PooledConnection next : toClose) {
+                evicted.incrementAndGet();
+                closeQuietly(next.connection);
+            }
+        }
+
+        private synchronized PoolStatistics toStatistics()
+        {
+            return new PoolStatistics(created.get(), reused.get(), validationFailures.get(), evicted.get(), idle.size());
+        }
+    }
+
+    /**
+     * A physical connection along with the bookkeeping the pool needs to expire it.
+     */
+    private class PooledConnection
+    {
+        private final Connection connection;
+        private final long created;
+        private long lastReturned;
+
+        private PooledConnection(Connection connection, long created)
+        {
+            this.connection = connection;
+            this.created = created;
+            this.lastReturned = created;
+        }
+
+        /**
+         * @return A proxy of the connection which returns it to the given pool when closed.
+         */
+        private Connection lease(ConnectionPool pool)
+        {
+            LeaseHandler leaseHandler = new LeaseHandler(this, pool);
+            Connection proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class},
+                    leaseHandler);
+            leaseHandler.proxy = proxy;
+            return proxy;
+        }
+    }
+
+    /**
+     * Forwards calls to the leased connection until it is closed, at which point the connection is reset and returned
+     * to its pool. Connections which raised a connection exception while leased, either directly or through one of the
+     * Statements, ResultSets or DatabaseMetaData created from them, are closed instead.
+     */
+    private class LeaseHandler
+            implements InvocationHandler
+    {
+        private final PooledConnection pooledConnection;
+        private final ConnectionPool pool;
+        //The leased connection handed out to the caller, returned in place of the physical connection.
+        private Connection proxy;
+        private boolean closed = false;
+        private volatile boolean broken = false;
+
+        private LeaseHandler(PooledConnection pooledConnection, ConnectionPool pool)
+        {
+            this.pooledConnection = pooledConnection;
+            this.pool = pool;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable
+        {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooledConnection.connection + "]";
+                case "isClosed":
+                    return closed || pooledConnection.connection.isClosed();
+                case "close":
+                    release();
+                    return null;
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("Connection is closed.");
+            }
+
+            return forward(pooledConnection.connection, method, args);
+        }
+
+        /**
+         * Invokes the method on the target, noting any connection exception it raises and wrapping any object it
+         * returns that could raise one later.
+         */
+        private Object forward(Object target, Method method, Object[] args)
+                throws Throwable
+        {
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            }
+            catch (InvocationTargetException ex) {
+                Throwable cause = ex.getCause();
+                broken |= isConnectionException(cause);
+                throw cause;
+            }
+
+            Class<?> type = method.getReturnType();
+            if (result == null || !WRAPPED_TYPES.contains(type)) {
+                return result;
+            }
+            return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, new ChildHandler(result));
+        }
+
+        private boolean isConnectionException(Throwable ex)
+        {
+            if (ex instanceof SQLNonTransientConnectionException || ex instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (ex instanceof SQLException) {
+                String sqlState = ((SQLException) ex).getSQLState();
+                return sqlState != null && sqlState.startsWith(CONNECTION_EXCEPTION_SQL_STATE);
+            }
+            return false;
+        }
+
+        /**
+         * Forwards calls to an object created from the leased connection, so that its connection exceptions mark the
+         * lease as broken. Its connection is reported as the leased connection, not the physical one.
+         */
+        private class ChildHandler
+                implements InvocationHandler
+        {
+            private final Object target;
+
+            private ChildHandler(Object target)
+            {
+                this.target = target;
+            }
+
+            @Override
+            public Object invoke(Object childProxy, Method method, Object[] args)
+                    throws Throwable
+            {
+                switch (method.getName()) {
+                    case "equals":
+                        return childProxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(childProxy);
+                    case "toString":
+                        return target.toString();
+                    case "getConnection":
+                        return proxy;
+                    default:
+                        return forward(target, method, args);
+                }
+            }
+        }
+
+        private synchronized void release()
+        {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            Connection connection = pooledConnection.connection;
+            if (broken || System.currentTimeMillis() - pooledConnection.created > maxLifetimeMillis) {
+                pool.evicted.incrementAndGet();
+                closeQuietly(connection);
+                return;
+            }
+
+            try {
+                // Discard anything left uncommitted (e.g. a read which stopped early) and restore the JDBC defaults
+                // so the next borrower sees a fresh connection.
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+                connection.clearWarnings();
+            }
+            catch (SQLException | RuntimeException ex) {
+                LOGGER.warn("release: Failed to reset pooled connection, closing it.", ex);
+                pool.evicted.incrementAndGet();
+                closeQuietly(connection);
+                return;
+            }
+
+            pooledConnection.lastReturned = System.currentTimeMillis();
+            pool.offer(pooledConnection);
+        }
+    }
+}
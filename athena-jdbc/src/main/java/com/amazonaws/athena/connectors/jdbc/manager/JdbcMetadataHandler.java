@@ -39,9 +39,11 @@ import com.amazonaws.athena.connector.lambda.metadata.ListTablesResponse;
 import com.amazonaws.athena.connectors.jdbc.connection.DatabaseConnectionConfig;
 import com.amazonaws.athena.connectors.jdbc.connection.JdbcConnectionFactory;
 import com.amazonaws.athena.connectors.jdbc.connection.JdbcCredentialProvider;
+import com.amazonaws.athena.connectors.jdbc.connection.PooledJdbcConnectionFactory;
 import com.amazonaws.athena.connectors.jdbc.connection.RdsSecretsCredentialProvider;
 import com.amazonaws.athena.connectors.jdbc.splits.Splitter;
 import com.amazonaws.athena.connectors.jdbc.splits.SplitterFactory;
+import com.amazonaws.athena.connectors.jdbc.splits.StatisticsSplitPlanner;
 import com.amazonaws.services.athena.AmazonAthena;
 import com.amazonaws.services.secretsmanager.AWSSecretsManager;
 import com.google.common.annotations.VisibleForTesting;
@@ -93,7 +95,7 @@ public abstract class JdbcMetadataHandler
     protected JdbcMetadataHandler(final DatabaseConnectionConfig databaseConnectionConfig, final JdbcConnectionFactory jdbcConnectionFactory)
     {
         super(databaseConnectionConfig.getEngine());
-        this.jdbcConnectionFactory = Validate.notNull(jdbcConnectionFactory, "jdbcConnectionFactory must not be null");
+        this.jdbcConnectionFactory = PooledJdbcConnectionFactory.pooled(Validate.notNull(jdbcConnectionFactory, "jdbcConnectionFactory must not be null"), databaseConnectionConfig);
 
         this.databaseConnectionConfig = Validate.notNull(databaseConnectionConfig, "databaseConnectionConfig must not be null");
     }
@@ -103,7 +105,7 @@ public abstract class JdbcMetadataHandler
             final AmazonAthena athena, final JdbcConnectionFactory jdbcConnectionFactory)
     {
         super(null, secretsManager, athena, databaseConnectionConfig.getEngine(), null, null);
-        this.jdbcConnectionFactory = Validate.notNull(jdbcConnectionFactory, "jdbcConnectionFactory must not be null");
+        this.jdbcConnectionFactory = PooledJdbcConnectionFactory.pooled(Validate.notNull(jdbcConnectionFactory, "jdbcConnectionFactory must not be null"), databaseConnectionConfig);
         this.databaseConnectionConfig = Validate.notNull(databaseConnectionConfig, "databaseConnectionConfig must not be null");
     }
 
@@ -123,6 +125,17 @@ public abstract class JdbcMetadataHandler
         return null;
     }
 
+    /**
+     * JdbcSplitQueryBuilder translates pushed down aggregations into GROUP BY queries. Aggregations which group by, or
+     * take the MIN/MAX of, columns the database may compare differently from Athena (e.g. strings) fail rather than
+     * return wrong results, see JdbcSplitQueryBuilder.supportsGroupByPushdown(Field).
+     */
+    @Override
+    protected boolean supportsAggregatePushdown()
+    {
+        return true;
+    }
+
     @Override
     public ListSchemasResponse doListSchemaNames(final BlockAllocator blockAllocator, final ListSchemasRequest listSchemasRequest)
             throws Exception
@@ -288,6 +301,14 @@ public abstract class JdbcMetadataHandler
     @Override
     public abstract GetSplitsResponse doGetSplits(BlockAllocator blockAllocator, GetSplitsRequest getSplitsRequest);
 
+    /**
+     * Generates where clauses which split the table on its first primary key column. Splits come from
+     * {@link #getStatisticsSplitClauses} when the database has statistics for the column, otherwise the range between
+     * the column's minimum and maximum is cut into equal width integer ranges.
+     *
+     * @param tableName the table to split.
+     * @return where clauses selecting each split, empty if the table should be read as a single split.
+     */
     protected List<String> getSplitClauses(final TableName tableName)
     {
         List<String> splitClauses = new ArrayList<>();
@@ -298,6 +319,12 @@ public abstract class JdbcMetadataHandler
                 primaryKeyColumns.add(resultSet.getString("COLUMN_NAME"));
             }
             if (!primaryKeyColumns.isEmpty()) {
+                Optional<List<String>> statisticsSplitClauses = getStatisticsSplitClauses(jdbcConnection, tableName, primaryKeyColumns.get(0));
+                if (statisticsSplitClauses.isPresent()) {
+                    LOGGER.info("Generated {} splits from statistics for {}", statisticsSplitClauses.get().size(), tableName);
+                    return statisticsSplitClauses.get();
+                }
+
                 try (Statement statement = jdbcConnection.createStatement();
                         ResultSet minMaxResultSet = statement.executeQuery(String.format(SQL_SPLITS_STRING, primaryKeyColumns.get(0), primaryKeyColumns.get(0),
                                 tableName.getSchemaName(), tableName.getTableName()))) {
@@ -322,6 +349,22 @@ public abstract class JdbcMetadataHandler
         return splitClauses;
     }
 
+    /**
+     * Plans equal row count splits from the database's statistics for the split column, see
+     * {@link StatisticsSplitPlanner}. Databases which keep usable statistics override this, by default no statistics
+     * are used.
+     *
+     * @param jdbcConnection the connection to read statistics with.
+     * @param tableName the table to split.
+     * @param columnName the column to split on.
+     * @return where clauses selecting each split (empty if the table is too small to split), or empty if there are no
+     * usable statistics for the column and the default splitting should be used.
+     */
+    protected Optional<List<String>> getStatisticsSplitClauses(final Connection jdbcConnection, final TableName tableName, final String columnName)
+    {
+        return Optional.empty();
+    }
+
     /**
      * Converts an ARRAY column's TYPE_NAME (provided by the jdbc metadata) to an ArrowType.
      * @param typeName The column's TYPE_NAME (e.g. _int4, _text, _float8, etc...)
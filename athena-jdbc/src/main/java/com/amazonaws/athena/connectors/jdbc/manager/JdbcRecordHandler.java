@@ -52,6 +52,7 @@ import com.amazonaws.athena.connector.lambda.records.ReadRecordsRequest;
 import com.amazonaws.athena.connectors.jdbc.connection.DatabaseConnectionConfig;
 import com.amazonaws.athena.connectors.jdbc.connection.JdbcConnectionFactory;
 import com.amazonaws.athena.connectors.jdbc.connection.JdbcCredentialProvider;
+import com.amazonaws.athena.connectors.jdbc.connection.PooledJdbcConnectionFactory;
 import com.amazonaws.athena.connectors.jdbc.connection.RdsSecretsCredentialProvider;
 import com.amazonaws.services.athena.AmazonAthena;
 import com.amazonaws.services.s3.AmazonS3;
@@ -86,6 +87,8 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Abstracts JDBC record handler and provides common reusable split records handling.
@@ -94,6 +97,15 @@ public abstract class JdbcRecordHandler
         extends RecordHandler
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(JdbcRecordHandler.class);
+    //Env variable to override the number of bytes of rows the driver may buffer per fetch.
+    public static final String FETCH_MEMORY_BUDGET_BYTES = "jdbc_fetch_memory_budget_bytes";
+    private static final long DEFAULT_FETCH_MEMORY_BUDGET_BYTES = 16 * 1024 * 1024;
+    static final int MIN_FETCH_SIZE = 100;
+    static final int MAX_FETCH_SIZE = 10_000;
+    //Assumed size of strings, binary and complex values since their width is not known up front.
+    private static final int VARIABLE_WIDTH_VALUE_BYTES = 256;
+    //Drivers hold each fetched value as a Java object or in a row buffer with its own bookkeeping.
+    private static final int VALUE_OVERHEAD_BYTES = 16;
     private final JdbcConnectionFactory jdbcConnectionFactory;
     private final DatabaseConnectionConfig databaseConnectionConfig;
 
@@ -111,7 +123,7 @@ public abstract class JdbcRecordHandler
             final JdbcConnectionFactory jdbcConnectionFactory)
     {
         super(amazonS3, secretsManager, athena, databaseConnectionConfig.getEngine());
-        this.jdbcConnectionFactory = Validate.notNull(jdbcConnectionFactory, "jdbcConnectionFactory must not be null");
+        this.jdbcConnectionFactory = PooledJdbcConnectionFactory.pooled(Validate.notNull(jdbcConnectionFactory, "jdbcConnectionFactory must not be null"), databaseConnectionConfig);
         this.databaseConnectionConfig = Validate.notNull(databaseConnectionConfig, "databaseConnectionConfig must not be null");
     }
 
@@ -140,7 +152,7 @@ public abstract class JdbcRecordHandler
             connection.setAutoCommit(false); // For consistency. This is needed to be false to enable streaming for some database types.
             try (PreparedStatement preparedStatement = buildSplitSql(connection, readRecordsRequest.getCatalogName(), readRecordsRequest.getTableName(),
                     readRecordsRequest.getSchema(), readRecordsRequest.getConstraints(), readRecordsRequest.getSplit());
-                    ResultSet resultSet = preparedStatement.executeQuery()) {
+                    ResultSet resultSet = executeSplitQuery(preparedStatement, readRecordsRequest.getSchema())) {
                 Map<String, String> partitionValues = readRecordsRequest.getSplit().getProperties();
 
                 GeneratedRowWriter.RowWriterBuilder rowWriterBuilder = GeneratedRowWriter.newBuilder(readRecordsRequest.getConstraints());
@@ -154,21 +166,131 @@ public abstract class JdbcRecordHandler
                 }
 
                 GeneratedRowWriter rowWriter = rowWriterBuilder.build();
-                int rowsReturnedFromDatabase = 0;
-                while (resultSet.next()) {
+                AtomicLong rowsReturnedFromDatabase = new AtomicLong(0);
+                AtomicBoolean hasMoreRows = new AtomicBoolean(true);
+                // Stop early once the BlockSpiller has all the rows a pushed down LIMIT needs.
+                while (hasMoreRows.get() && !blockSpiller.isLimitReached()) {
                     if (!queryStatusChecker.isQueryRunning()) {
                         return;
                     }
-                    blockSpiller.writeRows((Block block, int rowNum) -> rowWriter.writeRow(block, rowNum, resultSet) ? 1 : 0);
-                    rowsReturnedFromDatabase++;
+                    // Write rows in batches so the BlockSpiller only has to check the Block size once per batch.
+                    blockSpiller.writeBatch((Block block, int rowNum, int maxRows) -> {
+                        int rows = 0;
+                        int filtered = 0;
+                        while (rows < maxRows && resultSet.next()) {
+                            rowsReturnedFromDatabase.incrementAndGet();
+                            if (rowWriter.writeRow(block, rowNum + rows, resultSet)) {
+                                rows++;
+                            }
+                            else {
+                                filtered++;
+                            }
+                        }
+                        blockSpiller.recordFilteredRows(filtered);
+                        hasMoreRows.set(rows == maxRows);
+                        return rows;
+                    });
                 }
-                LOGGER.info("{} rows returned by database.", rowsReturnedFromDatabase);
+                logRowsReturned(rowsReturnedFromDatabase.get(), preparedStatement.getFetchSize());
 
                 connection.commit();
             }
         }
     }
 
+    /**
+     * Configures how the driver fetches the rows of the split query and executes it.
+     *
+     * @param preparedStatement the split query, see {@link #buildSplitSql}.
+     * @param schema the schema of the rows being read.
+     * @return the rows of the split.
+     * @throws SQLException JDBC database exception.
+     */
+    protected ResultSet executeSplitQuery(PreparedStatement preparedStatement, Schema schema)
+            throws SQLException
+    {
+        configureFetch(preparedStatement, schema);
+        return preparedStatement.executeQuery();
+    }
+
+    /**
+     * Sets the cursor behaviour of the split query. By default the driver is asked to fetch {@link #getFetchSize(Schema)}
+     * rows per round trip, which keeps drivers that would otherwise buffer the whole result (e.g. PostgreSQL with auto
+     * commit off) or fetch tiny batches (e.g. Oracle's 10 row prefetch) within a bounded memory budget. Dialects whose
+     * driver needs a different setting to stream results override this.
+     *
+     * @param preparedStatement the split query.
+     * @param schema the schema of the rows being read.
+     * @throws SQLException JDBC database exception.
+     */
+    protected void configureFetch(PreparedStatement preparedStatement, Schema schema)
+            throws SQLException
+    {
+        preparedStatement.setFetchSize(getFetchSize(schema));
+    }
+
+    /**
+     * Sizes fetches so that one fetch of rows of the given schema fits in the fetch memory budget, which can be
+     * overridden with the jdbc_fetch_memory_budget_bytes environment variable.
+     *
+     * @param schema the schema of the rows being read.
+     * @return the number of rows to fetch per round trip.
+     */
+    protected int getFetchSize(Schema schema)
+    {
+        long memoryBudget = DEFAULT_FETCH_MEMORY_BUDGET_BYTES;
+        if (System.getenv(FETCH_MEMORY_BUDGET_BYTES) != null) {
+            memoryBudget = Long.parseLong(System.getenv(FETCH_MEMORY_BUDGET_BYTES));
+        }
+
+        long rowBytes = 1;
+        for (Field next : schema.getFields()) {
+            rowBytes += estimateValueBytes(next) + VALUE_OVERHEAD_BYTES;
+        }
+        return (int) Math.max(MIN_FETCH_SIZE, Math.min(MAX_FETCH_SIZE, memoryBudget / rowBytes));
+    }
+
+    /**
+     * Reports the rows read from the database along with the number of fetch round trips that took.
+     *
+     * @param rows the number of rows read.
+     * @param fetchSize the fetch size the split query was run with, non-positive values mean the driver streamed or
+     * used its default.
+     */
+    protected void logRowsReturned(long rows, int fetchSize)
+    {
+        if (fetchSize > 0) {
+            LOGGER.info("{} rows returned by database in {} fetch round trips of up to {} rows.", rows,
+                    Math.max(1, (rows + fetchSize - 1) / fetchSize), fetchSize);
+        }
+        else {
+            LOGGER.info("{} rows returned by database.", rows);
+        }
+    }
+
+    private static int estimateValueBytes(Field field)
+    {
+        switch (Types.getMinorTypeForArrowType(field.getType())) {
+            case BIT:
+            case TINYINT:
+                return 1;
+            case SMALLINT:
+                return 2;
+            case INT:
+            case FLOAT4:
+            case DATEDAY:
+                return 4;
+            case BIGINT:
+            case FLOAT8:
+            case DATEMILLI:
+                return 8;
+            case DECIMAL:
+                return 16;
+            default:
+                return VARIABLE_WIDTH_VALUE_BYTES;
+        }
+    }
+
     /**
      * Create a field extractor for complex List type.
      * @param field Field's metadata information.
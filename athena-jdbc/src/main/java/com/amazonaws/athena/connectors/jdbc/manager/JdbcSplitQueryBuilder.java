@@ -20,7 +20,10 @@
 package com.amazonaws.athena.connectors.jdbc.manager;
 
 import com.amazonaws.athena.connector.lambda.domain.Split;
+import com.amazonaws.athena.connector.lambda.domain.predicate.AggregateFunction;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Aggregation;
 import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
+import com.amazonaws.athena.connector.lambda.domain.predicate.OrderByField;
 import com.amazonaws.athena.connector.lambda.domain.predicate.Range;
 import com.amazonaws.athena.connector.lambda.domain.predicate.SortedRangeSet;
 import com.amazonaws.athena.connector.lambda.domain.predicate.ValueSet;
@@ -31,6 +34,7 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.apache.arrow.vector.types.Types;
 import org.apache.arrow.vector.types.pojo.ArrowType;
 import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
 import org.apache.arrow.vector.types.pojo.Schema;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
@@ -97,7 +101,8 @@ public abstract class JdbcSplitQueryBuilder
     {
         StringBuilder sql = new StringBuilder();
 
-        String columnNames = tableSchema.getFields().stream()
+        String columnNames = constraints.hasAggregation() ? toAggregateColumns(constraints.getAggregation(), split, tableSchema) :
+                tableSchema.getFields().stream()
                 .map(Field::getName)
                 .filter(c -> !split.getProperties().containsKey(c))
                 .map(this::quote)
@@ -112,13 +117,16 @@ public abstract class JdbcSplitQueryBuilder
 
         List<TypeAndValue> accumulator = new ArrayList<>();
 
-        List<String> clauses = toConjuncts(tableSchema.getFields(), constraints, accumulator, split.getProperties());
+        List<String> clauses = toConjuncts(getConstrainedFields(tableSchema, constraints), constraints, accumulator, split.getProperties());
         clauses.addAll(getPartitionWhereClauses(split));
         if (!clauses.isEmpty()) {
             sql.append(" WHERE ")
                     .append(Joiner.on(" AND ").join(clauses));
         }
-        sql.append(appendLimitOffset(split)); // limits and offset support
+        if (constraints.hasAggregation()) {
+            sql.append(toGroupByClause(constraints.getAggregation(), split));
+        }
+        sql.append(appendLimitOffset(split, constraints, tableSchema)); // limits and offset support
         LOGGER.debug("Generated SQL : {}", sql.toString());
         PreparedStatement statement = jdbcConnection.prepareStatement(sql.toString());
 
@@ -177,6 +185,73 @@ public abstract class JdbcSplitQueryBuilder
 
     protected abstract String getFromClauseWithSplit(final String catalog, final String schema, final String table, final Split split);
 
+    /**
+     * Builds the select list of an aggregation: the grouping columns followed by each aggregate, aliased to its output
+     * column. Grouping columns which are split properties (e.g. partition names) are not columns of the table, their
+     * values are filled in from the split.
+     *
+     * @param aggregation the aggregation to push down.
+     * @param split table split.
+     * @param tableSchema the output columns of the aggregation.
+     * @return the select list.
+     */
+    protected String toAggregateColumns(Aggregation aggregation, Split split, Schema tableSchema)
+    {
+        List<String> columns = new ArrayList<>();
+        for (String groupingColumn : aggregation.getGroupingColumns()) {
+            if (!split.getProperties().containsKey(groupingColumn)) {
+                Field field = findField(tableSchema, groupingColumn);
+                if (field == null || !supportsGroupByPushdown(field)) {
+                    throw new UnsupportedOperationException("Can't group by column " + groupingColumn);
+                }
+                columns.add(quote(groupingColumn));
+            }
+        }
+        for (AggregateFunction aggregate : aggregation.getAggregates()) {
+            String column = aggregate.getColumnName();
+            if (column != null && split.getProperties().containsKey(column)) {
+                throw new UnsupportedOperationException("Can't aggregate split property " + column);
+            }
+            if (aggregate.getFunction() == AggregateFunction.Function.MIN || aggregate.getFunction() == AggregateFunction.Function.MAX) {
+                // MIN and MAX order the column's values, their output column has the type of the column
+                Field field = findField(tableSchema, aggregate.getOutputColumnName());
+                if (field == null || !supportsOrderByPushdown(field)) {
+                    throw new UnsupportedOperationException("Can't compute " + aggregate.getFunction() + " of column " + column);
+                }
+            }
+            columns.add(aggregate.getFunction().name() + "(" + (column == null ? "*" : quote(column)) + ") AS " +
+                    quote(aggregate.getOutputColumnName()));
+        }
+        return Joiner.on(", ").join(columns);
+    }
+
+    private String toGroupByClause(Aggregation aggregation, Split split)
+    {
+        String groupBy = aggregation.getGroupingColumns().stream()
+                .filter(c -> !split.getProperties().containsKey(c))
+                .map(this::quote)
+                .collect(Collectors.joining(", "));
+        return groupBy.isEmpty() ? emptyString : " GROUP BY " + groupBy;
+    }
+
+    /**
+     * The schema of an aggregation holds its output columns, so the columns which are only filtered on are added using
+     * the type of their ValueSet.
+     */
+    private static List<Field> getConstrainedFields(Schema tableSchema, Constraints constraints)
+    {
+        if (!constraints.hasAggregation() || constraints.getSummary() == null) {
+            return tableSchema.getFields();
+        }
+        List<Field> fields = new ArrayList<>(tableSchema.getFields());
+        for (Map.Entry<String, ValueSet> entry : constraints.getSummary().entrySet()) {
+            if (findField(tableSchema, entry.getKey()) == null) {
+                fields.add(new Field(entry.getKey(), FieldType.nullable(entry.getValue().getType()), null));
+            }
+        }
+        return fields;
+    }
+
     protected abstract List<String> getPartitionWhereClauses(final Split split);
 
     private List<String> toConjuncts(List<Field> columns, Constraints constraints, List<TypeAndValue> accumulator, Map<String, String> partitionSplit)
@@ -184,6 +259,10 @@ public abstract class JdbcSplitQueryBuilder
         List<String> conjuncts = new ArrayList<>();
         for (Field column : columns) {
             if (partitionSplit.containsKey(column.getName())) {
+                if (constraints.hasAggregation() && !isSplitIncluded(column.getName(), constraints, partitionSplit)) {
+                    // Athena can't filter aggregated rows on the partition, so a split it filters out reads no rows.
+                    conjuncts.add("1 = 0");
+                }
                 continue; // Ignore constraints on partition name as RDBMS does not contain these as columns. Presto will filter these values.
             }
             ArrowType type = column.getType();
@@ -197,6 +276,18 @@ public abstract class JdbcSplitQueryBuilder
         return conjuncts;
     }
 
+    private static boolean isSplitIncluded(String splitProperty, Constraints constraints, Map<String, String> partitionSplit)
+    {
+        ValueSet valueSet = constraints.getSummary() == null ? null : constraints.getSummary().get(splitProperty);
+        if (valueSet == null) {
+            return true;
+        }
+        if (!(valueSet.getType() instanceof ArrowType.Utf8)) {
+            throw new UnsupportedOperationException("Can't aggregate with a constraint on split property " + splitProperty);
+        }
+        return valueSet.containsValue(partitionSplit.get(splitProperty));
+    }
+
     private String toPredicate(String columnName, ValueSet valueSet, ArrowType type, List<TypeAndValue> accumulator)
     {
         List<String> disjuncts = new ArrayList<>();
@@ -321,4 +412,122 @@ public abstract class JdbcSplitQueryBuilder
     {
         return emptyString;
     }
+
+    /**
+     * Pushes the LIMIT, and for a TopN the ORDER BY, from the constraints down to the database when the dialect and
+     * the ordered columns allow it. Nothing is pushed down when the split is itself a page of the table (see
+     * appendLimitOffset(Split)), or when the ORDER BY of a TopN can't be pushed since the LIMIT alone would return
+     * the wrong rows. Athena still applies both to the rows we return.
+     *
+     * @param split table split.
+     * @param constraints constraints passed by Athena to push down.
+     * @param tableSchema table schema (column and type information).
+     * @return the ORDER BY and LIMIT clauses to append to the split's query, if any.
+     */
+    protected String appendLimitOffset(Split split, Constraints constraints, Schema tableSchema)
+    {
+        String splitLimitOffset = appendLimitOffset(split);
+        if (constraints.hasAggregation()) {
+            // a page of the table can't be aggregated, and a limit applies to the aggregates of all splits
+            if (!splitLimitOffset.isEmpty()) {
+                throw new UnsupportedOperationException("Aggregations can't be pushed down to paginated splits.");
+            }
+            return splitLimitOffset;
+        }
+        if (!splitLimitOffset.isEmpty() || !constraints.hasLimit()) {
+            return splitLimitOffset;
+        }
+
+        StringBuilder orderBy = new StringBuilder();
+        for (OrderByField orderByField : constraints.getOrderByClause()) {
+            Field field = findField(tableSchema, orderByField.getColumnName());
+            if (field == null || split.getProperties().containsKey(field.getName()) || !supportsOrderByPushdown(field)) {
+                LOGGER.debug("Not pushing down limit, can't order by column {}", orderByField.getColumnName());
+                return splitLimitOffset;
+            }
+            orderBy.append(orderBy.length() == 0 ? " ORDER BY " : ", ")
+                    .append(toOrderByTerm(orderByField));
+        }
+
+        String limit = toLimitClause(constraints.getLimit(), orderBy.length() > 0);
+        if (limit == null) {
+            return splitLimitOffset;
+        }
+        return orderBy + limit;
+    }
+
+    /**
+     * @param field the column to order by.
+     * @return true if the database orders values of the column exactly as Athena does. By default string columns are
+     * excluded since the database's collation may differ from Athena's, as are complex types.
+     */
+    protected boolean supportsOrderByPushdown(Field field)
+    {
+        switch (Types.getMinorTypeForArrowType(field.getType())) {
+            case BIGINT:
+            case INT:
+            case SMALLINT:
+            case TINYINT:
+            case FLOAT8:
+            case FLOAT4:
+            case DECIMAL:
+            case DATEDAY:
+            case DATEMILLI:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @param field the column to group by.
+     * @return true if the database considers two values of the column equal exactly when Athena does. By default this
+     * matches supportsOrderByPushdown(Field), string columns are excluded since collations such as the case-insensitive
+     * defaults of MySQL and SQL Server would merge groups which Athena keeps apart.
+     */
+    protected boolean supportsGroupByPushdown(Field field)
+    {
+        return supportsOrderByPushdown(field);
+    }
+
+    /**
+     * @return true if the database supports the NULLS FIRST and NULLS LAST ordering clauses, otherwise the placement
+     * of nulls is ordered using an explicit CASE expression.
+     */
+    protected boolean supportsNullsOrdering()
+    {
+        return true;
+    }
+
+    /**
+     * @param limit the max number of rows to return.
+     * @param ordered true if the query has an ORDER BY clause.
+     * @return the LIMIT clause for this database, or null if the database has no suffix form of LIMIT.
+     */
+    protected String toLimitClause(long limit, boolean ordered)
+    {
+        return " LIMIT " + limit;
+    }
+
+    private String toOrderByTerm(OrderByField orderByField)
+    {
+        String column = quote(orderByField.getColumnName());
+        OrderByField.Direction direction = orderByField.getDirection();
+        String order = direction.isAscending() ? " ASC" : " DESC";
+        if (supportsNullsOrdering()) {
+            return column + order + (direction.isNullsFirst() ? " NULLS FIRST" : " NULLS LAST");
+        }
+        return "CASE WHEN " + column + " IS NULL THEN 0 ELSE 1 END" + (direction.isNullsFirst() ? " ASC" : " DESC") +
+                ", " + column + order;
+    }
+
+    private static Field findField(Schema tableSchema, String columnName)
+    {
+        for (Field field : tableSchema.getFields()) {
+            if (field.getName().equals(columnName)) {
+                return field;
+            }
+        }
+        return null;
+    }
 }
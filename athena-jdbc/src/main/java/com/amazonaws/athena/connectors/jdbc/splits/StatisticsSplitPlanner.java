@@ -0,0 +1,125 @@
+/*-
+ * #%L
+ * athena-jdbc
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.amazonaws.athena.connectors.jdbc.splits;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Plans splits with roughly the same number of rows each from database statistics, instead of cutting the range of
+ * the split column into equal width pieces like {@link IntegerSplitter}.
+ *
+ * The number of splits is sized from the estimated number of rows in the table. Split boundaries come from ordered,
+ * equal frequency quantiles of the split column (e.g. histogram bounds) so skewed or sparse keys still produce evenly
+ * sized splits, and since the boundaries are only compared against the column any ordered type (numbers, dates,
+ * timestamps, strings) can be split.
+ *
+ * Splits are half open ranges between consecutive cut points, the first split also covers NULLs and the last split is
+ * unbounded. Together they always cover every row, stale statistics only make the splits less even.
+ */
+public class StatisticsSplitPlanner
+{
+    public static final long DEFAULT_ROWS_PER_SPLIT = 500_000;
+    public static final int DEFAULT_MAX_SPLITS = 100;
+
+    private final long rowsPerSplit;
+    private final int maxSplits;
+
+    public StatisticsSplitPlanner()
+    {
+        this(DEFAULT_ROWS_PER_SPLIT, DEFAULT_MAX_SPLITS);
+    }
+
+    /**
+     * @param rowsPerSplit the number of rows each split should read.
+     * @param maxSplits the maximum number of splits to plan for a table.
+     */
+    public StatisticsSplitPlanner(final long rowsPerSplit, final int maxSplits)
+    {
+        Validate.isTrue(rowsPerSplit > 0, "rowsPerSplit must be > 0");
+        Validate.isTrue(maxSplits > 0, "maxSplits must be > 0");
+        this.rowsPerSplit = rowsPerSplit;
+        this.maxSplits = maxSplits;
+    }
+
+    /**
+     * @param estimatedRows estimated number of rows in the table, non-positive if unknown.
+     * @return the number of splits to read the table with.
+     */
+    public int getNumSplits(final long estimatedRows)
+    {
+        if (estimatedRows <= 0) {
+            return 1;
+        }
+        return (int) Math.min(maxSplits, (estimatedRows + rowsPerSplit - 1) / rowsPerSplit);
+    }
+
+    /**
+     * Picks the cut points for the given number of splits out of equal frequency quantiles of the split column.
+     *
+     * @param quantiles ascending quantiles of the split column, starting with the minimum and ending with the maximum.
+     * @param numSplits the number of splits wanted.
+     * @return the ascending cut points between splits, at most numSplits - 1 of them.
+     */
+    public <T> List<T> selectCutPoints(final List<T> quantiles, final int numSplits)
+    {
+        int buckets = quantiles.size() - 1;
+        int splits = Math.min(numSplits, buckets);
+        if (splits <= 1) {
+            return Collections.emptyList();
+        }
+
+        List<T> cutPoints = new ArrayList<>(splits - 1);
+        int previous = 0;
+        for (int i = 1; i < splits; i++) {
+            int next = (int) Math.round((double) i * buckets / splits);
+            if (next > previous && next < buckets && !quantiles.get(next).equals(quantiles.get(previous))) {
+                cutPoints.add(quantiles.get(next));
+                previous = next;
+            }
+        }
+        return cutPoints;
+    }
+
+    /**
+     * Builds a where clause for each split between the given cut points.
+     *
+     * @param columnName the split column, quoted as needed by the database.
+     * @param cutPoints ascending cut points, already rendered as SQL literals.
+     * @return one where clause per split, or an empty list if there are no cut points.
+     */
+    public static List<String> toSplitClauses(final String columnName, final List<String> cutPoints)
+    {
+        if (cutPoints.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<String> splitClauses = new ArrayList<>(cutPoints.size() + 1);
+        splitClauses.add(String.format("(%s < %s OR %s IS NULL)", columnName, cutPoints.get(0), columnName));
+        for (int i = 1; i < cutPoints.size(); i++) {
+            splitClauses.add(String.format("(%s >= %s AND %s < %s)", columnName, cutPoints.get(i - 1), columnName, cutPoints.get(i)));
+        }
+        splitClauses.add(String.format("(%s >= %s)", columnName, cutPoints.get(cutPoints.size() - 1)));
+        return splitClauses;
+    }
+}
@@ -0,0 +1,201 @@
+/*-
+ * #%L
+ * athena-jdbc
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.amazonaws.athena.connectors.jdbc.connection;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class PooledJdbcConnectionFactoryTest
+{
+    private static final String CONNECTION_STRING = "postgres://jdbc:postgresql://hostname/test?${testSecret}";
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+
+    private JdbcConnectionFactory delegate;
+    private PooledJdbcConnectionFactory factory;
+    private JdbcCredentialProvider credentialProvider;
+
+    @Before
+    public void setup()
+            throws Exception
+    {
+        this.delegate = Mockito.mock(JdbcConnectionFactory.class);
+        Mockito.when(delegate.getConnection(Mockito.any(JdbcCredentialProvider.class)))
+                .thenAnswer(invocation -> newConnection());
+        this.factory = new PooledJdbcConnectionFactory(delegate, CONNECTION_STRING, 2, HOUR_MS, HOUR_MS);
+        this.credentialProvider = new StaticJdbcCredentialProvider(new JdbcCredential("testUser", "testPassword"));
+    }
+
+    @After
+    public void after()
+    {
+        PooledJdbcConnectionFactory.closeAll();
+    }
+
+    @Test
+    public void reusesReturnedConnection()
+            throws Exception
+    {
+        Connection first = factory.getConnection(credentialProvider);
+        first.setAutoCommit(false);
+        first.close();
+        Assert.assertTrue(first.isClosed());
+
+        Connection second = factory.getConnection(credentialProvider);
+        second.createStatement();
+
+        Mockito.verify(delegate, Mockito.times(1)).getConnection(credentialProvider);
+        Assert.assertEquals(1, factory.getStatistics().getCreated());
+        Assert.assertEquals(1, factory.getStatistics().getReused());
+    }
+
+    @Test(expected = SQLException.class)
+    public void closedLeaseCannotBeUsed()
+            throws Exception
+    {
+        Connection connection = factory.getConnection(credentialProvider);
+        connection.close();
+        connection.createStatement();
+    }
+
+    @Test
+    public void replacesInvalidConnection()
+            throws Exception
+    {
+        Connection first = factory.getConnection(credentialProvider);
+        Connection physical = first.unwrap(Connection.class);
+        first.close();
+        Mockito.when(physical.isValid(Mockito.anyInt())).thenReturn(false);
+
+        factory.getConnection(credentialProvider);
+
+        Mockito.verify(physical).close();
+        Mockito.verify(delegate, Mockito.times(2)).getConnection(credentialProvider);
+        Assert.assertEquals(1, factory.getStatistics().getValidationFailures());
+    }
+
+    @Test
+    public void boundsIdleConnections()
+            throws Exception
+    {
+        Connection first = factory.getConnection(credentialProvider);
+        Connection second = factory.getConnection(credentialProvider);
+        Connection third = factory.getConnection(credentialProvider);
+        Connection physical = third.unwrap(Connection.class);
+        first.close();
+        second.close();
+        third.close();
+
+        Mockito.verify(physical).close();
+        Assert.assertEquals(2, factory.getStatistics().getIdle());
+        Assert.assertEquals(1, factory.getStatistics().getEvicted());
+    }
+
+    @Test
+    public void discardsBrokenConnection()
+            throws Exception
+    {
+        Connection connection = factory.getConnection(credentialProvider);
+        Connection physical = connection.unwrap(Connection.class);
+        Mockito.when(physical.createStatement()).thenThrow(new SQLException("connection reset", "08006"));
+        try {
+            connection.createStatement();
+            Assert.fail("Expected SQLException");
+        }
+        catch (SQLException ex) {
+            Assert.assertEquals("08006", ex.getSQLState());
+        }
+        connection.close();
+
+        Mockito.verify(physical).close();
+        Assert.assertEquals(0, factory.getStatistics().getIdle());
+    }
+
+    @Test
+    public void discardsConnectionBrokenByStatement()
+            throws Exception
+    {
+        Connection connection = factory.getConnection(credentialProvider);
+        Connection physical = connection.unwrap(Connection.class);
+        PreparedStatement statement = Mockito.mock(PreparedStatement.class);
+        ResultSet resultSet = Mockito.mock(ResultSet.class);
+        Mockito.when(physical.prepareStatement(Mockito.anyString())).thenReturn(statement);
+        Mockito.when(statement.executeQuery()).thenReturn(resultSet);
+        Mockito.when(resultSet.next()).thenThrow(new SQLException("connection reset", "08006"));
+
+        // the connection exception is raised by the ResultSet rather than the connection itself
+        PreparedStatement leasedStatement = connection.prepareStatement("SELECT 1");
+        Assert.assertSame(connection, leasedStatement.getConnection());
+        ResultSet leasedResultSet = leasedStatement.executeQuery();
+        try {
+            leasedResultSet.next();
+            Assert.fail("Expected SQLException");
+        }
+        catch (SQLException ex) {
+            Assert.assertEquals("08006", ex.getSQLState());
+        }
+        connection.close();
+
+        Mockito.verify(physical).close();
+        Assert.assertEquals(0, factory.getStatistics().getIdle());
+    }
+
+    @Test
+    public void evictsConnectionsOfRotatedCredential()
+            throws Exception
+    {
+        Connection connection = factory.getConnection(credentialProvider);
+        Connection physical = connection.unwrap(Connection.class);
+        connection.close();
+
+        JdbcCredentialProvider rotated = new StaticJdbcCredentialProvider(new JdbcCredential("testUser", "newPassword"));
+        factory.getConnection(rotated);
+
+        Mockito.verify(physical).close();
+        Mockito.verify(delegate).getConnection(rotated);
+        Assert.assertEquals(0, factory.getStatistics().getReused());
+    }
+
+    @Test
+    public void onlyPoolsDriverConnectionFactories()
+    {
+        DatabaseConnectionConfig config = new DatabaseConnectionConfig("testCatalog", "postgres", CONNECTION_STRING, "testSecret");
+        Assert.assertSame(delegate, PooledJdbcConnectionFactory.pooled(delegate, config));
+
+        GenericJdbcConnectionFactory generic = new GenericJdbcConnectionFactory(config, null, new DatabaseConnectionInfo("org.postgresql.Driver", 5432));
+        Assert.assertTrue(PooledJdbcConnectionFactory.pooled(generic, config) instanceof PooledJdbcConnectionFactory);
+    }
+
+    private static Connection newConnection()
+            throws SQLException
+    {
+        Connection connection = Mockito.mock(Connection.class);
+        Mockito.when(connection.isValid(Mockito.anyInt())).thenReturn(true);
+        Mockito.when(connection.unwrap(Connection.class)).thenReturn(connection);
+        return connection;
+    }
+}
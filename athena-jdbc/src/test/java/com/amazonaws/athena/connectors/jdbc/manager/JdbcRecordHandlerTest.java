@@ -26,6 +26,7 @@ import com.amazonaws.athena.connector.lambda.data.BlockSpiller;
 import com.amazonaws.athena.connector.lambda.data.FieldBuilder;
 import com.amazonaws.athena.connector.lambda.data.S3BlockSpiller;
 import com.amazonaws.athena.connector.lambda.data.SchemaBuilder;
+import com.amazonaws.athena.connector.lambda.data.SpillCompression;
 import com.amazonaws.athena.connector.lambda.data.SpillConfig;
 import com.amazonaws.athena.connector.lambda.data.writers.extractors.*;
 import com.amazonaws.athena.connector.lambda.domain.Split;
@@ -137,6 +138,8 @@ public class JdbcRecordHandlerTest
 
         SpillConfig spillConfig = Mockito.mock(SpillConfig.class);
         Mockito.when(spillConfig.getSpillLocation()).thenReturn(s3SpillLocation);
+        Mockito.when(spillConfig.getSpillPartSizeBytes()).thenReturn(1024 * 1024);
+        Mockito.when(spillConfig.getCompression()).thenReturn(SpillCompression.NONE);
         BlockSpiller s3Spiller = new S3BlockSpiller(this.amazonS3, spillConfig, allocator, fieldSchema, constraintEvaluator);
         ReadRecordsRequest readRecordsRequest = new ReadRecordsRequest(this.federatedIdentity, "testCatalog", "testQueryId", inputTableName, fieldSchema, splitBuilder.build(), constraints, 1024, 1024);
 
@@ -151,6 +154,28 @@ public class JdbcRecordHandlerTest
         });
 
         this.jdbcRecordHandler.readWithConstraint(s3Spiller, readRecordsRequest, queryStatusChecker);
+        Mockito.verify(this.preparedStatement).setFetchSize(JdbcRecordHandler.MAX_FETCH_SIZE);
+    }
+
+    @Test
+    public void getFetchSize()
+    {
+        SchemaBuilder narrowSchema = SchemaBuilder.newBuilder();
+        narrowSchema.addField(FieldBuilder.newBuilder("testCol1", org.apache.arrow.vector.types.Types.MinorType.BIGINT.getType()).build());
+        Assert.assertEquals(JdbcRecordHandler.MAX_FETCH_SIZE, this.jdbcRecordHandler.getFetchSize(narrowSchema.build()));
+
+        SchemaBuilder wideSchema = SchemaBuilder.newBuilder();
+        for (int i = 0; i < 200; i++) {
+            wideSchema.addField(FieldBuilder.newBuilder("testCol" + i, org.apache.arrow.vector.types.Types.MinorType.VARCHAR.getType()).build());
+        }
+        int fetchSize = this.jdbcRecordHandler.getFetchSize(wideSchema.build());
+        Assert.assertTrue(fetchSize > JdbcRecordHandler.MIN_FETCH_SIZE && fetchSize < JdbcRecordHandler.MAX_FETCH_SIZE);
+
+        SchemaBuilder hugeSchema = SchemaBuilder.newBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            hugeSchema.addField(FieldBuilder.newBuilder("testCol" + i, org.apache.arrow.vector.types.Types.MinorType.VARBINARY.getType()).build());
+        }
+        Assert.assertEquals(JdbcRecordHandler.MIN_FETCH_SIZE, this.jdbcRecordHandler.getFetchSize(hugeSchema.build()));
     }
     @Test
     public void makeExtractor()
@@ -0,0 +1,68 @@
+/*-
+ * #%L
+ * athena-jdbc
+ * %%
+ * Copyright (C) 2019 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.amazonaws.athena.connectors.jdbc.splits;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class StatisticsSplitPlannerTest
+{
+    private final StatisticsSplitPlanner planner = new StatisticsSplitPlanner(1000, 10);
+
+    @Test
+    public void getNumSplits()
+    {
+        Assert.assertEquals(1, planner.getNumSplits(-1));
+        Assert.assertEquals(1, planner.getNumSplits(0));
+        Assert.assertEquals(1, planner.getNumSplits(1000));
+        Assert.assertEquals(2, planner.getNumSplits(1001));
+        Assert.assertEquals(10, planner.getNumSplits(1_000_000));
+    }
+
+    @Test
+    public void selectCutPoints()
+    {
+        List<Integer> quantiles = Arrays.asList(0, 10, 20, 30, 40, 50, 60, 70, 80);
+        Assert.assertEquals(Arrays.asList(20, 40, 60), planner.selectCutPoints(quantiles, 4));
+        Assert.assertEquals(Arrays.asList(10, 20, 30, 40, 50, 60, 70), planner.selectCutPoints(quantiles, 20));
+        Assert.assertEquals(Collections.emptyList(), planner.selectCutPoints(quantiles, 1));
+        Assert.assertEquals(Collections.emptyList(), planner.selectCutPoints(Collections.singletonList(0), 4));
+    }
+
+    @Test
+    public void selectCutPointsSkipsRepeatedQuantiles()
+    {
+        // A heavy hitter spanning several buckets only produces a single cut point.
+        List<Integer> quantiles = Arrays.asList(0, 5, 5, 5, 5, 5, 5, 9, 10);
+        Assert.assertEquals(Collections.singletonList(5), planner.selectCutPoints(quantiles, 4));
+    }
+
+    @Test
+    public void toSplitClauses()
+    {
+        Assert.assertEquals(Arrays.asList("(id < 10 OR id IS NULL)", "(id >= 10 AND id < 20)", "(id >= 20)"),
+                StatisticsSplitPlanner.toSplitClauses("id", Arrays.asList("10", "20")));
+        Assert.assertEquals(Collections.emptyList(), StatisticsSplitPlanner.toSplitClauses("id", Collections.emptyList()));
+    }
+}
@@ -25,6 +25,7 @@ import com.amazonaws.athena.connector.lambda.data.BlockAllocator;
 import com.amazonaws.athena.connector.lambda.data.BlockWriter;
 import com.amazonaws.athena.connector.lambda.data.SchemaBuilder;
 import com.amazonaws.athena.connector.lambda.domain.Split;
+import com.amazonaws.athena.connector.lambda.domain.TableName;
 import com.amazonaws.athena.connector.lambda.domain.spill.SpillLocation;
 import com.amazonaws.athena.connector.lambda.metadata.GetSplitsRequest;
 import com.amazonaws.athena.connector.lambda.metadata.GetSplitsResponse;
@@ -36,6 +37,7 @@ import com.amazonaws.athena.connectors.jdbc.connection.JdbcConnectionFactory;
 import com.amazonaws.athena.connectors.jdbc.manager.JDBCUtil;
 import com.amazonaws.athena.connectors.jdbc.manager.JdbcMetadataHandler;
 import com.amazonaws.athena.connectors.jdbc.manager.PreparedStatementBuilder;
+import com.amazonaws.athena.connectors.jdbc.splits.StatisticsSplitPlanner;
 import com.amazonaws.services.athena.AmazonAthena;
 import com.amazonaws.services.secretsmanager.AWSSecretsManager;
 import com.google.common.annotations.VisibleForTesting;
@@ -49,11 +51,17 @@ import org.slf4j.LoggerFactory;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.amazonaws.athena.connectors.mysql.MySqlConstants.MYSQL_DEFAULT_PORT;
 import static com.amazonaws.athena.connectors.mysql.MySqlConstants.MYSQL_DRIVER_CLASS;
@@ -72,8 +80,17 @@ public class MySqlMetadataHandler
     static final String BLOCK_PARTITION_COLUMN_NAME = "partition_name";
     static final String ALL_PARTITIONS = "*";
     static final String PARTITION_COLUMN_NAME = "partition_name";
+    static final String BLOCK_SPLIT_CLAUSE_NAME = "split_clause";
+    static final String GET_ROW_ESTIMATE_QUERY = "SELECT TABLE_ROWS FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ?";
+    static final String GET_RANGE_QUERY = "SELECT MIN(%1$s), MAX(%1$s) FROM %2$s";
+    static final String EXPLAIN_ROWS_BELOW_QUERY = "EXPLAIN SELECT 1 FROM %s WHERE %s < ?";
+    //Bounds the number of EXPLAINs, each of which dives into the index, issued to plan the splits of a table.
+    static final int MAX_EXPLAIN_PROBES = 256;
     private static final Logger LOGGER = LoggerFactory.getLogger(MySqlMetadataHandler.class);
     private static final int MAX_SPLITS_PER_REQUEST = 1000_000;
+    private static final String QUOTE_CHARACTER = "`";
+
+    private final StatisticsSplitPlanner statisticsSplitPlanner = new StatisticsSplitPlanner();
 
     /**
      * Instantiates handler to be used by Lambda function directly.
@@ -162,7 +179,23 @@ public class MySqlMetadataHandler
         Set<Split> splits = new HashSet<>();
         Block partitions = getSplitsRequest.getPartitions();
 
-        // TODO consider splitting further depending on #rows or data size. Could use Hash key for splitting if no partitions.
+        if (partitionContd == 0 && partitions.getRowCount() == 1) {
+            FieldReader locationReader = partitions.getFieldReader(BLOCK_PARTITION_COLUMN_NAME);
+            locationReader.setPosition(0);
+            if (ALL_PARTITIONS.equals(String.valueOf(locationReader.readText()))) {
+                // Unpartitioned tables are split on ranges of their primary key instead.
+                for (String splitClause : getSplitClauses(getSplitsRequest.getTableName())) {
+                    Split.Builder splitBuilder = Split.newBuilder(makeSpillLocation(getSplitsRequest), makeEncryptionKey())
+                            .add(BLOCK_PARTITION_COLUMN_NAME, ALL_PARTITIONS)
+                            .add(BLOCK_SPLIT_CLAUSE_NAME, splitClause);
+                    splits.add(splitBuilder.build());
+                }
+                if (!splits.isEmpty()) {
+                    return new GetSplitsResponse(getSplitsRequest.getCatalogName(), splits, null);
+                }
+            }
+        }
+
         for (int curPartition = partitionContd; curPartition < partitions.getRowCount(); curPartition++) {
             FieldReader locationReader = partitions.getFieldReader(BLOCK_PARTITION_COLUMN_NAME);
             locationReader.setPosition(curPartition);
@@ -185,6 +218,120 @@ public class MySqlMetadataHandler
         return new GetSplitsResponse(getSplitsRequest.getCatalogName(), splits, null);
     }
 
+    /**
+     * Plans splits for integer primary keys from InnoDB's row estimate and index dives. MySQL can't build histograms on
+     * single column unique indexes, so each cut point is found by bisecting the key range with EXPLAIN, whose row
+     * estimate for a range on an index comes from diving into the index rather than from sampled statistics. At most
+     * MAX_EXPLAIN_PROBES EXPLAINs are issued, shared evenly between the cut points, so a cut point whose share runs out
+     * is the middle of the range it was narrowed to.
+     *
+     * Unpartitioned tables have always been read as a single split, so that remains the fallback when the key isn't an
+     * integer or the estimates can't be read.
+     */
+    @Override
+    protected Optional<List<String>> getStatisticsSplitClauses(final Connection jdbcConnection, final TableName tableName, final String columnName)
+    {
+        try {
+            long estimatedRows = getEstimatedRows(jdbcConnection, tableName);
+            int numSplits = statisticsSplitPlanner.getNumSplits(estimatedRows);
+            if (numSplits <= 1) {
+                return Optional.of(Collections.emptyList());
+            }
+
+            String table = quote(tableName.getSchemaName()) + "." + quote(tableName.getTableName());
+            String column = quote(columnName);
+            long low;
+            long high;
+            try (Statement statement = jdbcConnection.createStatement();
+                    ResultSet resultSet = statement.executeQuery(String.format(GET_RANGE_QUERY, column, table))) {
+                if (!resultSet.next() || !isIntegerType(resultSet.getMetaData().getColumnType(1)) || resultSet.getObject(1) == null) {
+                    return Optional.of(Collections.emptyList());
+                }
+                low = resultSet.getLong(1);
+                high = resultSet.getLong(2);
+            }
+
+            long tolerance = Math.max(1, estimatedRows / numSplits / 20);
+            List<String> cutPoints = new ArrayList<>();
+            int remainingProbes = MAX_EXPLAIN_PROBES;
+            try (PreparedStatement explain = jdbcConnection.prepareStatement(String.format(EXPLAIN_ROWS_BELOW_QUERY, table, column))) {
+                for (int i = 1; i < numSplits; i++) {
+                    int maxProbes = Math.max(1, remainingProbes / (numSplits - i));
+                    AtomicInteger probes = new AtomicInteger();
+                    long cutPoint = findCutPoint(explain, low, high, estimatedRows * i / numSplits, tolerance, maxProbes, probes);
+                    remainingProbes = Math.max(0, remainingProbes - probes.get());
+                    if (cutPoint > low) {
+                        cutPoints.add(String.valueOf(cutPoint));
+                        low = cutPoint;
+                    }
+                }
+            }
+            LOGGER.info("Planned {} splits for {} with an estimated {} rows", cutPoints.size() + 1, tableName, estimatedRows);
+            return Optional.of(StatisticsSplitPlanner.toSplitClauses(column, cutPoints));
+        }
+        catch (SQLException sqlException) {
+            LOGGER.warn("Unable to estimate splits for {}, reading it as a single split", tableName, sqlException);
+            return Optional.of(Collections.emptyList());
+        }
+    }
+
+    private long getEstimatedRows(final Connection jdbcConnection, final TableName tableName)
+            throws SQLException
+    {
+        try (PreparedStatement preparedStatement = new PreparedStatementBuilder().withConnection(jdbcConnection).withQuery(GET_ROW_ESTIMATE_QUERY)
+                .withParameters(Arrays.asList(tableName.getSchemaName(), tableName.getTableName())).build();
+                ResultSet resultSet = preparedStatement.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(1) : -1;
+        }
+    }
+
+    /**
+     * Bisects [low, high] for a value with about targetRows rows below it, giving up with the middle of the remaining
+     * range after maxProbes EXPLAINs.
+     */
+    private long findCutPoint(final PreparedStatement explain, long low, long high, final long targetRows, final long tolerance,
+            final int maxProbes, final AtomicInteger probes)
+            throws SQLException
+    {
+        while (low < high) {
+            long mid = low + ((high - low) >>> 1);
+            if (probes.get() >= maxProbes) {
+                return mid;
+            }
+            probes.incrementAndGet();
+            long rows = getRowsBelow(explain, mid);
+            if (Math.abs(rows - targetRows) <= tolerance) {
+                return mid;
+            }
+            if (rows < targetRows) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long getRowsBelow(final PreparedStatement explain, final long value)
+            throws SQLException
+    {
+        explain.setLong(1, value);
+        try (ResultSet resultSet = explain.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong("rows") : 0;
+        }
+    }
+
+    private static boolean isIntegerType(final int sqlType)
+    {
+        return sqlType == java.sql.Types.TINYINT || sqlType == java.sql.Types.SMALLINT || sqlType == java.sql.Types.INTEGER || sqlType == java.sql.Types.BIGINT;
+    }
+
+    private static String quote(final String identifier)
+    {
+        return QUOTE_CHARACTER + identifier.replace(QUOTE_CHARACTER, QUOTE_CHARACTER + QUOTE_CHARACTER) + QUOTE_CHARACTER;
+    }
+
     private int decodeContinuationToken(GetSplitsRequest request)
     {
         if (request.hasContinuationToken()) {
@@ -64,6 +64,19 @@ public class MySqlQueryStringBuilder
     @Override
     protected List<String> getPartitionWhereClauses(final Split split)
     {
+        String splitClause = split.getProperty(MySqlMetadataHandler.BLOCK_SPLIT_CLAUSE_NAME);
+        if (splitClause != null) {
+            return Collections.singletonList(splitClause);
+        }
         return Collections.emptyList();
     }
+
+    /**
+     * MySql has no NULLS FIRST or NULLS LAST, nulls sort before all other values in ascending order.
+     */
+    @Override
+    protected boolean supportsNullsOrdering()
+    {
+        return false;
+    }
 }
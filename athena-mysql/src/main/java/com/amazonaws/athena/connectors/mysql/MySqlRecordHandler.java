@@ -59,7 +59,11 @@ public class MySqlRecordHandler
 
     private static final String MYSQL_QUOTE_CHARACTER = "`";
 
+    private static final String USE_CURSOR_FETCH = "useCursorFetch=true";
+
     private final JdbcSplitQueryBuilder jdbcSplitQueryBuilder;
+    //True if the connection string asks the driver to page results through a server side cursor.
+    private final boolean useCursorFetch;
 
     /**
      * Instantiates handler to be used by Lambda function directly.
@@ -88,17 +92,30 @@ public class MySqlRecordHandler
     {
         super(amazonS3, secretsManager, athena, databaseConnectionConfig, jdbcConnectionFactory);
         this.jdbcSplitQueryBuilder = Validate.notNull(jdbcSplitQueryBuilder, "query builder must not be null");
+        this.useCursorFetch = databaseConnectionConfig.getJdbcConnectionString().contains(USE_CURSOR_FETCH);
     }
 
     @Override
     public PreparedStatement buildSplitSql(Connection jdbcConnection, String catalogName, TableName tableName, Schema schema, Constraints constraints, Split split)
             throws SQLException
     {
-        PreparedStatement preparedStatement = jdbcSplitQueryBuilder.buildSql(jdbcConnection, null, tableName.getSchemaName(), tableName.getTableName(), schema, constraints, split);
-
-        // Disable fetching all rows.
-        preparedStatement.setFetchSize(Integer.MIN_VALUE);
+        return jdbcSplitQueryBuilder.buildSql(jdbcConnection, null, tableName.getSchemaName(), tableName.getTableName(), schema, constraints, split);
+    }
 
-        return preparedStatement;
+    /**
+     * Connector/J buffers the whole result set unless told otherwise. With useCursorFetch=true the driver pages through
+     * a server side cursor using the regular fetch size, otherwise a fetch size of Integer.MIN_VALUE makes it stream
+     * rows one at a time.
+     */
+    @Override
+    protected void configureFetch(PreparedStatement preparedStatement, Schema schema)
+            throws SQLException
+    {
+        if (useCursorFetch) {
+            super.configureFetch(preparedStatement, schema);
+        }
+        else {
+            preparedStatement.setFetchSize(Integer.MIN_VALUE);
+        }
     }
 }
@@ -51,6 +51,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -58,8 +59,10 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import static com.amazonaws.athena.connectors.mysql.MySqlConstants.MYSQL_NAME;
@@ -273,4 +276,112 @@ public class MySqlMetadataHandlerTest
         Set<Map<String, String>> actualSplits = getSplitsResponse.getSplits().stream().map(Split::getProperties).collect(Collectors.toSet());
         Assert.assertEquals(expectedSplits, actualSplits);
     }
+
+    @Test
+    public void getStatisticsSplitClauses()
+            throws Exception
+    {
+        TableName tableName = new TableName("testSchema", "testTable");
+        PreparedStatement rowEstimateStatement = Mockito.mock(PreparedStatement.class);
+        Mockito.when(this.connection.prepareStatement(MySqlMetadataHandler.GET_ROW_ESTIMATE_QUERY)).thenReturn(rowEstimateStatement);
+        ResultSet rowEstimate = Mockito.mock(ResultSet.class);
+        Mockito.when(rowEstimate.next()).thenReturn(true);
+        Mockito.when(rowEstimate.getLong(1)).thenReturn(1_500_000L);
+        Mockito.when(rowEstimateStatement.executeQuery()).thenReturn(rowEstimate);
+
+        Statement rangeStatement = Mockito.mock(Statement.class);
+        Mockito.when(this.connection.createStatement()).thenReturn(rangeStatement);
+        ResultSet range = Mockito.mock(ResultSet.class, Mockito.RETURNS_DEEP_STUBS);
+        Mockito.when(range.next()).thenReturn(true);
+        Mockito.when(range.getMetaData().getColumnType(1)).thenReturn(Types.BIGINT);
+        Mockito.when(range.getObject(1)).thenReturn(0L);
+        Mockito.when(range.getLong(1)).thenReturn(0L);
+        Mockito.when(range.getLong(2)).thenReturn(3_000_000L);
+        Mockito.when(rangeStatement.executeQuery(String.format(MySqlMetadataHandler.GET_RANGE_QUERY, "`id`", "`testSchema`.`testTable`"))).thenReturn(range);
+
+        // Every other key exists, so half of the keys below a value are rows.
+        AtomicLong explainedValue = new AtomicLong();
+        PreparedStatement explainStatement = Mockito.mock(PreparedStatement.class);
+        Mockito.when(this.connection.prepareStatement(String.format(MySqlMetadataHandler.EXPLAIN_ROWS_BELOW_QUERY, "`testSchema`.`testTable`", "`id`")))
+                .thenReturn(explainStatement);
+        Mockito.doAnswer(invocation -> {
+            explainedValue.set((Long) invocation.getArguments()[1]);
+            return null;
+        }).when(explainStatement).setLong(Mockito.eq(1), Mockito.anyLong());
+        Mockito.when(explainStatement.executeQuery()).thenAnswer(invocation -> {
+            ResultSet explain = Mockito.mock(ResultSet.class);
+            Mockito.when(explain.next()).thenReturn(true);
+            Mockito.when(explain.getLong("rows")).thenReturn(explainedValue.get() / 2);
+            return explain;
+        });
+
+        Optional<List<String>> splitClauses = this.mySqlMetadataHandler.getStatisticsSplitClauses(this.connection, tableName, "id");
+
+        Assert.assertTrue(splitClauses.isPresent());
+        Assert.assertEquals(3, splitClauses.get().size());
+        long firstCut = Long.parseLong(splitClauses.get().get(0).replaceAll("\\(`id` < (\\d+) OR `id` IS NULL\\)", "$1"));
+        Assert.assertEquals(1_000_000, firstCut, 50_000);
+    }
+
+    @Test
+    public void getStatisticsSplitClausesBoundsExplains()
+            throws Exception
+    {
+        TableName tableName = new TableName("testSchema", "testTable");
+        PreparedStatement rowEstimateStatement = Mockito.mock(PreparedStatement.class);
+        Mockito.when(this.connection.prepareStatement(MySqlMetadataHandler.GET_ROW_ESTIMATE_QUERY)).thenReturn(rowEstimateStatement);
+        ResultSet rowEstimate = Mockito.mock(ResultSet.class);
+        Mockito.when(rowEstimate.next()).thenReturn(true);
+        Mockito.when(rowEstimate.getLong(1)).thenReturn(1_000_000_000L);
+        Mockito.when(rowEstimateStatement.executeQuery()).thenReturn(rowEstimate);
+
+        Statement rangeStatement = Mockito.mock(Statement.class);
+        Mockito.when(this.connection.createStatement()).thenReturn(rangeStatement);
+        ResultSet range = Mockito.mock(ResultSet.class, Mockito.RETURNS_DEEP_STUBS);
+        Mockito.when(range.next()).thenReturn(true);
+        Mockito.when(range.getMetaData().getColumnType(1)).thenReturn(Types.BIGINT);
+        Mockito.when(range.getObject(1)).thenReturn(0L);
+        Mockito.when(range.getLong(1)).thenReturn(0L);
+        Mockito.when(range.getLong(2)).thenReturn(Long.MAX_VALUE);
+        Mockito.when(rangeStatement.executeQuery(String.format(MySqlMetadataHandler.GET_RANGE_QUERY, "`id`", "`testSchema`.`testTable`"))).thenReturn(range);
+
+        // All the rows are in the first few keys of a huge range, so bisection would take ~60 EXPLAINs per cut point.
+        AtomicLong explainedValue = new AtomicLong();
+        AtomicInteger explains = new AtomicInteger();
+        PreparedStatement explainStatement = Mockito.mock(PreparedStatement.class);
+        Mockito.when(this.connection.prepareStatement(String.format(MySqlMetadataHandler.EXPLAIN_ROWS_BELOW_QUERY, "`testSchema`.`testTable`", "`id`")))
+                .thenReturn(explainStatement);
+        Mockito.doAnswer(invocation -> {
+            explainedValue.set((Long) invocation.getArguments()[1]);
+            return null;
+        }).when(explainStatement).setLong(Mockito.eq(1), Mockito.anyLong());
+        Mockito.when(explainStatement.executeQuery()).thenAnswer(invocation -> {
+            explains.incrementAndGet();
+            ResultSet explain = Mockito.mock(ResultSet.class);
+            Mockito.when(explain.next()).thenReturn(true);
+            Mockito.when(explain.getLong("rows")).thenReturn(Math.min(explainedValue.get(), 1_000_000_000L));
+            return explain;
+        });
+
+        Optional<List<String>> splitClauses = this.mySqlMetadataHandler.getStatisticsSplitClauses(this.connection, tableName, "id");
+
+        Assert.assertTrue(splitClauses.isPresent());
+        Assert.assertFalse(splitClauses.get().isEmpty());
+        Assert.assertTrue(explains.get() <= MySqlMetadataHandler.MAX_EXPLAIN_PROBES);
+    }
+
+    @Test
+    public void getStatisticsSplitClausesForSmallTable()
+            throws Exception
+    {
+        PreparedStatement rowEstimateStatement = Mockito.mock(PreparedStatement.class);
+        Mockito.when(this.connection.prepareStatement(MySqlMetadataHandler.GET_ROW_ESTIMATE_QUERY)).thenReturn(rowEstimateStatement);
+        ResultSet rowEstimate = Mockito.mock(ResultSet.class);
+        Mockito.when(rowEstimate.next()).thenReturn(true);
+        Mockito.when(rowEstimate.getLong(1)).thenReturn(1000L);
+        Mockito.when(rowEstimateStatement.executeQuery()).thenReturn(rowEstimate);
+
+        Assert.assertEquals(Optional.of(Collections.emptyList()),
+                this.mySqlMetadataHandler.getStatisticsSplitClauses(this.connection, new TableName("testSchema", "testTable"), "id"));
+    }
 }
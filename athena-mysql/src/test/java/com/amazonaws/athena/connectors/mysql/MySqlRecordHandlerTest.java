@@ -25,6 +25,7 @@ import com.amazonaws.athena.connector.lambda.domain.Split;
 import com.amazonaws.athena.connector.lambda.domain.TableName;
 import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
 import com.amazonaws.athena.connector.lambda.domain.predicate.Marker;
+import com.amazonaws.athena.connector.lambda.domain.predicate.OrderByField;
 import com.amazonaws.athena.connector.lambda.domain.predicate.Range;
 import com.amazonaws.athena.connector.lambda.domain.predicate.SortedRangeSet;
 import com.amazonaws.athena.connector.lambda.domain.predicate.ValueSet;
@@ -149,6 +150,38 @@ public class MySqlRecordHandlerTest
         Mockito.verify(preparedStatement, Mockito.times(1)).setBoolean(11, true);
     }
 
+    @Test
+    public void buildSplitSqlTopN()
+            throws SQLException
+    {
+        TableName tableName = new TableName("testSchema", "testTable");
+
+        SchemaBuilder schemaBuilder = SchemaBuilder.newBuilder();
+        schemaBuilder.addField(FieldBuilder.newBuilder("testCol1", Types.MinorType.INT.getType()).build());
+        schemaBuilder.addField(FieldBuilder.newBuilder("testCol2", Types.MinorType.FLOAT8.getType()).build());
+        schemaBuilder.addField(FieldBuilder.newBuilder("partition_name", Types.MinorType.VARCHAR.getType()).build());
+        Schema schema = schemaBuilder.build();
+
+        Split split = Mockito.mock(Split.class);
+        Mockito.when(split.getProperties()).thenReturn(Collections.singletonMap("partition_name", "p0"));
+        Mockito.when(split.getProperty(Mockito.eq("partition_name"))).thenReturn("p0");
+
+        Constraints constraints = new Constraints(Collections.emptyMap(),
+                ImmutableList.of(new OrderByField("testCol1", OrderByField.Direction.ASC_NULLS_LAST),
+                        new OrderByField("testCol2", OrderByField.Direction.DESC_NULLS_FIRST)),
+                10);
+
+        String expectedSql = "SELECT `testCol1`, `testCol2` FROM `testSchema`.`testTable` PARTITION(p0)  ORDER BY " +
+                "CASE WHEN `testCol1` IS NULL THEN 0 ELSE 1 END DESC, `testCol1` ASC, " +
+                "CASE WHEN `testCol2` IS NULL THEN 0 ELSE 1 END ASC, `testCol2` DESC LIMIT 10";
+        PreparedStatement expectedPreparedStatement = Mockito.mock(PreparedStatement.class);
+        Mockito.when(this.connection.prepareStatement(Mockito.eq(expectedSql))).thenReturn(expectedPreparedStatement);
+
+        PreparedStatement preparedStatement = this.mySqlRecordHandler.buildSplitSql(this.connection, "testCatalogName", tableName, schema, constraints, split);
+
+        Assert.assertEquals(expectedPreparedStatement, preparedStatement);
+    }
+
     private ValueSet getSingleValueSet(Object value) {
         Range range = Mockito.mock(Range.class, Mockito.RETURNS_DEEP_STUBS);
         Mockito.when(range.isSingleValue()).thenReturn(true);
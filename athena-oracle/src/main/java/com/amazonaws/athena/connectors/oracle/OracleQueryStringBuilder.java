@@ -69,4 +69,13 @@ public class OracleQueryStringBuilder
     {
         return Collections.emptyList();
     }
+
+    /**
+     * Uses the row limiting clause introduced in Oracle 12c.
+     */
+    @Override
+    protected String toLimitClause(long limit, boolean ordered)
+    {
+        return " FETCH FIRST " + limit + " ROWS ONLY";
+    }
 }
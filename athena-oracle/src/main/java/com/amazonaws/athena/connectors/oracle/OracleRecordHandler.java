@@ -55,7 +55,6 @@ public class OracleRecordHandler
         extends JdbcRecordHandler
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(OracleRecordHandler.class);
-    private static final int FETCH_SIZE = 1000;
     private static final String ORACLE_QUOTE_CHARACTER = "\"";
 
     private final JdbcSplitQueryBuilder jdbcSplitQueryBuilder;
@@ -93,11 +92,6 @@ public class OracleRecordHandler
     public PreparedStatement buildSplitSql(Connection jdbcConnection, String catalogName, TableName tableName, Schema schema, Constraints constraints, Split split)
             throws SQLException
     {
-        PreparedStatement preparedStatement = jdbcSplitQueryBuilder.buildSql(jdbcConnection, null, tableName.getSchemaName(), tableName.getTableName(), schema, constraints, split);
-
-        // Disable fetching all rows.
-        preparedStatement.setFetchSize(FETCH_SIZE);
-
-        return preparedStatement;
+        return jdbcSplitQueryBuilder.buildSql(jdbcConnection, null, tableName.getSchemaName(), tableName.getTableName(), schema, constraints, split);
     }
 }
@@ -25,6 +25,7 @@ import com.amazonaws.athena.connector.lambda.data.BlockAllocator;
 import com.amazonaws.athena.connector.lambda.data.BlockWriter;
 import com.amazonaws.athena.connector.lambda.data.SchemaBuilder;
 import com.amazonaws.athena.connector.lambda.domain.Split;
+import com.amazonaws.athena.connector.lambda.domain.TableName;
 import com.amazonaws.athena.connector.lambda.domain.spill.SpillLocation;
 import com.amazonaws.athena.connector.lambda.metadata.GetSplitsRequest;
 import com.amazonaws.athena.connector.lambda.metadata.GetSplitsResponse;
@@ -36,6 +37,7 @@ import com.amazonaws.athena.connectors.jdbc.connection.JdbcConnectionFactory;
 import com.amazonaws.athena.connectors.jdbc.manager.JDBCUtil;
 import com.amazonaws.athena.connectors.jdbc.manager.JdbcMetadataHandler;
 import com.amazonaws.athena.connectors.jdbc.manager.PreparedStatementBuilder;
+import com.amazonaws.athena.connectors.jdbc.splits.StatisticsSplitPlanner;
 import com.amazonaws.services.athena.AmazonAthena;
 import com.amazonaws.services.secretsmanager.AWSSecretsManager;
 import com.google.common.annotations.VisibleForTesting;
@@ -50,11 +52,16 @@ import org.slf4j.LoggerFactory;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static com.amazonaws.athena.connectors.postgresql.PostGreSqlConstants.POSTGRESQL_DEFAULT_PORT;
 import static com.amazonaws.athena.connectors.postgresql.PostGreSqlConstants.POSTGRESQL_DRIVER_CLASS;
@@ -73,6 +80,12 @@ public class PostGreSqlMetadataHandler
             "ON pg_inherits.inhparent = parent.oid JOIN pg_class child ON pg_inherits.inhrelid = child.oid JOIN pg_namespace nmsp_parent " +
             "ON nmsp_parent.oid = parent.relnamespace JOIN pg_namespace nmsp_child ON nmsp_child.oid = child.relnamespace where nmsp_parent.nspname = ? " +
             "AND parent.relname = ?";
+    // reltuples is the planner's row estimate, maintained by VACUUM / ANALYZE (negative or 0 if never analyzed).
+    static final String GET_ROW_ESTIMATE_QUERY = "SELECT c.reltuples FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace " +
+            "WHERE n.nspname = ? AND c.relname = ?";
+    // histogram_bounds is anyarray, casting through text lets us read the equal frequency bounds of any column type.
+    static final String GET_HISTOGRAM_BOUNDS_QUERY = "SELECT b.bound FROM pg_stats s, unnest(s.histogram_bounds::text::text[]) WITH ORDINALITY AS b(bound, ord) " +
+            "WHERE s.schemaname = ? AND s.tablename = ? AND s.attname = ? ORDER BY b.ord";
     public static final String BLOCK_PARTITION_COLUMN_NAME = "partition_name";
     public static final String BLOCK_PARTITION_SCHEMA_COLUMN_NAME = "partition_schema_name";
     public static final String ALL_PARTITIONS = "*";
@@ -81,6 +94,8 @@ public class PostGreSqlMetadataHandler
     private static final String PARTITION_NAME = "child";
     private static final int MAX_SPLITS_PER_REQUEST = 1000_000;
 
+    private final StatisticsSplitPlanner statisticsSplitPlanner = new StatisticsSplitPlanner();
+
     /**
      * Instantiates handler to be used by Lambda function directly.
      *
@@ -219,6 +234,65 @@ public class PostGreSqlMetadataHandler
         return new GetSplitsResponse(getSplitsRequest.getCatalogName(), splits, null);
     }
 
+    /**
+     * Plans splits from the row estimate in pg_class and the histogram ANALYZE keeps for the split column in pg_stats.
+     * Histogram bounds divide the column's non-null, non most-common values into equal frequency buckets so the splits
+     * stay evenly sized for skewed keys, and work for any ordered column type.
+     */
+    @Override
+    protected Optional<List<String>> getStatisticsSplitClauses(final Connection jdbcConnection, final TableName tableName, final String columnName)
+    {
+        try {
+            long estimatedRows = getEstimatedRows(jdbcConnection, tableName);
+            if (estimatedRows <= 0) {
+                // Never analyzed, we don't know how big the table is.
+                return Optional.empty();
+            }
+            int numSplits = statisticsSplitPlanner.getNumSplits(estimatedRows);
+            if (numSplits <= 1) {
+                return Optional.of(Collections.emptyList());
+            }
+
+            List<String> histogramBounds = getHistogramBounds(jdbcConnection, tableName, columnName);
+            if (histogramBounds.size() < 2) {
+                return Optional.empty();
+            }
+            List<String> cutPoints = statisticsSplitPlanner.selectCutPoints(histogramBounds, numSplits).stream()
+                    .map(bound -> "'" + bound.replace("'", "''") + "'")
+                    .collect(Collectors.toList());
+            LOGGER.info("Planned {} splits for {} with an estimated {} rows", cutPoints.size() + 1, tableName, estimatedRows);
+            return Optional.of(StatisticsSplitPlanner.toSplitClauses("\"" + columnName.replace("\"", "\"\"") + "\"", cutPoints));
+        }
+        catch (SQLException sqlException) {
+            LOGGER.warn("Unable to read statistics for {}, falling back to range splits", tableName, sqlException);
+            return Optional.empty();
+        }
+    }
+
+    private long getEstimatedRows(final Connection jdbcConnection, final TableName tableName)
+            throws SQLException
+    {
+        try (PreparedStatement preparedStatement = new PreparedStatementBuilder().withConnection(jdbcConnection).withQuery(GET_ROW_ESTIMATE_QUERY)
+                .withParameters(Arrays.asList(tableName.getSchemaName(), tableName.getTableName())).build();
+                ResultSet resultSet = preparedStatement.executeQuery()) {
+            return resultSet.next() ? (long) resultSet.getDouble(1) : -1;
+        }
+    }
+
+    private List<String> getHistogramBounds(final Connection jdbcConnection, final TableName tableName, final String columnName)
+            throws SQLException
+    {
+        List<String> histogramBounds = new ArrayList<>();
+        try (PreparedStatement preparedStatement = new PreparedStatementBuilder().withConnection(jdbcConnection).withQuery(GET_HISTOGRAM_BOUNDS_QUERY)
+                .withParameters(Arrays.asList(tableName.getSchemaName(), tableName.getTableName(), columnName)).build();
+                ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                histogramBounds.add(resultSet.getString("bound"));
+            }
+        }
+        return histogramBounds;
+    }
+
     private int decodeContinuationToken(GetSplitsRequest request)
     {
         if (request.hasContinuationToken()) {
@@ -55,8 +55,6 @@ public class PostGreSqlRecordHandler
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(PostGreSqlRecordHandler.class);
 
-    private static final int FETCH_SIZE = 1000;
-
     private final JdbcSplitQueryBuilder jdbcSplitQueryBuilder;
 
     /**
@@ -87,11 +85,6 @@ public class PostGreSqlRecordHandler
     public PreparedStatement buildSplitSql(Connection jdbcConnection, String catalogName, TableName tableName, Schema schema, Constraints constraints, Split split)
             throws SQLException
     {
-        PreparedStatement preparedStatement = jdbcSplitQueryBuilder.buildSql(jdbcConnection, null, tableName.getSchemaName(), tableName.getTableName(), schema, constraints, split);
-
-        // Disable fetching all rows.
-        preparedStatement.setFetchSize(FETCH_SIZE);
-
-        return preparedStatement;
+        return jdbcSplitQueryBuilder.buildSql(jdbcConnection, null, tableName.getSchemaName(), tableName.getTableName(), schema, constraints, split);
     }
 }
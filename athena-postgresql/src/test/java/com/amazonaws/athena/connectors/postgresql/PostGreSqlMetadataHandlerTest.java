@@ -66,6 +66,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
@@ -283,6 +284,45 @@ public class PostGreSqlMetadataHandlerTest
         Assert.assertEquals(expectedSplits, actualSplits);
     }
 
+    @Test
+    public void getStatisticsSplitClauses()
+            throws Exception
+    {
+        TableName tableName = new TableName("testSchema", "testTable");
+        mockRowEstimate(1_500_000);
+
+        PreparedStatement histogramStatement = Mockito.mock(PreparedStatement.class);
+        Mockito.when(this.connection.prepareStatement(PostGreSqlMetadataHandler.GET_HISTOGRAM_BOUNDS_QUERY)).thenReturn(histogramStatement);
+        Object[][] values = {{"a"}, {"b"}, {"c'd"}, {"e"}, {"f"}, {"g"}, {"h"}};
+        ResultSet histogramBounds = mockResultSet(new String[] {"bound"}, new int[] {Types.VARCHAR}, values, new AtomicInteger(-1));
+        Mockito.when(histogramStatement.executeQuery()).thenReturn(histogramBounds);
+
+        Optional<List<String>> splitClauses = this.postGreSqlMetadataHandler.getStatisticsSplitClauses(this.connection, tableName, "id");
+
+        Assert.assertEquals(Optional.of(Arrays.asList("(\"id\" < 'c''d' OR \"id\" IS NULL)", "(\"id\" >= 'c''d' AND \"id\" < 'f')", "(\"id\" >= 'f')")),
+                splitClauses);
+    }
+
+    @Test
+    public void getStatisticsSplitClausesWithoutStatistics()
+            throws Exception
+    {
+        mockRowEstimate(0);
+
+        Assert.assertEquals(Optional.empty(), this.postGreSqlMetadataHandler.getStatisticsSplitClauses(this.connection, new TableName("testSchema", "testTable"), "id"));
+    }
+
+    private void mockRowEstimate(double reltuples)
+            throws SQLException
+    {
+        PreparedStatement rowEstimateStatement = Mockito.mock(PreparedStatement.class);
+        Mockito.when(this.connection.prepareStatement(PostGreSqlMetadataHandler.GET_ROW_ESTIMATE_QUERY)).thenReturn(rowEstimateStatement);
+        ResultSet rowEstimate = Mockito.mock(ResultSet.class);
+        Mockito.when(rowEstimate.next()).thenReturn(true);
+        Mockito.when(rowEstimate.getDouble(1)).thenReturn(reltuples);
+        Mockito.when(rowEstimateStatement.executeQuery()).thenReturn(rowEstimate);
+    }
+
     @Test
     public void doGetTableWithArrayColumns()
             throws Exception
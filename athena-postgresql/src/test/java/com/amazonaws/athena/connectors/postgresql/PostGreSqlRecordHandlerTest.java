@@ -19,12 +19,16 @@
  */
 package com.amazonaws.athena.connectors.postgresql;
 
+import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
 import com.amazonaws.athena.connector.lambda.data.FieldBuilder;
 import com.amazonaws.athena.connector.lambda.data.SchemaBuilder;
 import com.amazonaws.athena.connector.lambda.domain.Split;
 import com.amazonaws.athena.connector.lambda.domain.TableName;
+import com.amazonaws.athena.connector.lambda.domain.predicate.AggregateFunction;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Aggregation;
 import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
 import com.amazonaws.athena.connector.lambda.domain.predicate.Marker;
+import com.amazonaws.athena.connector.lambda.domain.predicate.OrderByField;
 import com.amazonaws.athena.connector.lambda.domain.predicate.Range;
 import com.amazonaws.athena.connector.lambda.domain.predicate.SortedRangeSet;
 import com.amazonaws.athena.connector.lambda.domain.predicate.ValueSet;
@@ -168,6 +172,167 @@ public class PostGreSqlRecordHandlerTest extends TestBase
         logger.info("buildSplitSqlTest - exit");
     }
 
+    @Test
+    public void buildSplitSqlTopNTest()
+            throws SQLException
+    {
+        logger.info("buildSplitSqlTopNTest - enter");
+
+        TableName tableName = new TableName("testSchema", "testTable");
+
+        SchemaBuilder schemaBuilder = SchemaBuilder.newBuilder();
+        schemaBuilder.addField(FieldBuilder.newBuilder("testCol1", Types.MinorType.INT.getType()).build());
+        schemaBuilder.addField(FieldBuilder.newBuilder("testCol2", Types.MinorType.VARCHAR.getType()).build());
+        schemaBuilder.addField(FieldBuilder.newBuilder("testCol3", Types.MinorType.BIGINT.getType()).build());
+        schemaBuilder.addField(FieldBuilder.newBuilder("partition_schema_name", Types.MinorType.VARCHAR.getType()).build());
+        schemaBuilder.addField(FieldBuilder.newBuilder("partition_name", Types.MinorType.VARCHAR.getType()).build());
+        Schema schema = schemaBuilder.build();
+
+        Split split = Mockito.mock(Split.class);
+        Mockito.when(split.getProperties()).thenReturn(ImmutableMap.of("partition_schema_name", "s0", "partition_name", "p0"));
+        Mockito.when(split.getProperty(Mockito.eq(com.amazonaws.athena.connectors.postgresql.PostGreSqlMetadataHandler.BLOCK_PARTITION_SCHEMA_COLUMN_NAME))).thenReturn("s0");
+        Mockito.when(split.getProperty(Mockito.eq(com.amazonaws.athena.connectors.postgresql.PostGreSqlMetadataHandler.BLOCK_PARTITION_COLUMN_NAME))).thenReturn("p0");
+
+        Constraints constraints = new Constraints(Collections.emptyMap(),
+                ImmutableList.of(new OrderByField("testCol3", OrderByField.Direction.DESC_NULLS_LAST),
+                        new OrderByField("testCol1", OrderByField.Direction.ASC_NULLS_FIRST)),
+                5);
+        String expectedSql = "SELECT \"testCol1\", \"testCol2\", \"testCol3\" FROM \"s0\".\"p0\"  ORDER BY \"testCol3\" DESC NULLS LAST, \"testCol1\" ASC NULLS FIRST LIMIT 5";
+        PreparedStatement expectedPreparedStatement = Mockito.mock(PreparedStatement.class);
+        Mockito.when(this.connection.prepareStatement(Mockito.eq(expectedSql))).thenReturn(expectedPreparedStatement);
+        PreparedStatement preparedStatement = this.postGreSqlRecordHandler.buildSplitSql(this.connection, "testCatalogName", tableName, schema, constraints, split);
+        Assert.assertEquals(expectedPreparedStatement, preparedStatement);
+
+        // The collation of a string column may differ from Athena's, so neither the ORDER BY nor the LIMIT is pushed down.
+        constraints = new Constraints(Collections.emptyMap(),
+                ImmutableList.of(new OrderByField("testCol2", OrderByField.Direction.ASC_NULLS_LAST)),
+                5);
+        expectedSql = "SELECT \"testCol1\", \"testCol2\", \"testCol3\" FROM \"s0\".\"p0\" ";
+        expectedPreparedStatement = Mockito.mock(PreparedStatement.class);
+        Mockito.when(this.connection.prepareStatement(Mockito.eq(expectedSql))).thenReturn(expectedPreparedStatement);
+        preparedStatement = this.postGreSqlRecordHandler.buildSplitSql(this.connection, "testCatalogName", tableName, schema, constraints, split);
+        Assert.assertEquals(expectedPreparedStatement, preparedStatement);
+
+        logger.info("buildSplitSqlTopNTest - exit");
+    }
+
+    @Test
+    public void buildSplitSqlAggregationTest()
+            throws SQLException
+    {
+        logger.info("buildSplitSqlAggregationTest - enter");
+
+        TableName tableName = new TableName("testSchema", "testTable");
+
+        // The schema of an aggregation holds the grouping columns and the aggregates' output columns.
+        SchemaBuilder schemaBuilder = SchemaBuilder.newBuilder();
+        schemaBuilder.addField(FieldBuilder.newBuilder("testCol1", Types.MinorType.INT.getType()).build());
+        schemaBuilder.addField(FieldBuilder.newBuilder("row_count", Types.MinorType.BIGINT.getType()).build());
+        schemaBuilder.addField(FieldBuilder.newBuilder("sum_col3", Types.MinorType.BIGINT.getType()).build());
+        schemaBuilder.addField(FieldBuilder.newBuilder("partition_schema_name", Types.MinorType.VARCHAR.getType()).build());
+        schemaBuilder.addField(FieldBuilder.newBuilder("partition_name", Types.MinorType.VARCHAR.getType()).build());
+        Schema schema = schemaBuilder.build();
+
+        Split split = Mockito.mock(Split.class);
+        Mockito.when(split.getProperties()).thenReturn(ImmutableMap.of("partition_schema_name", "s0", "partition_name", "p0"));
+        Mockito.when(split.getProperty(Mockito.eq(com.amazonaws.athena.connectors.postgresql.PostGreSqlMetadataHandler.BLOCK_PARTITION_SCHEMA_COLUMN_NAME))).thenReturn("s0");
+        Mockito.when(split.getProperty(Mockito.eq(com.amazonaws.athena.connectors.postgresql.PostGreSqlMetadataHandler.BLOCK_PARTITION_COLUMN_NAME))).thenReturn("p0");
+
+        // testCol2 is only filtered on, so it is not part of the schema.
+        ValueSet valueSet = getRangeSet(Marker.Bound.EXACTLY, "1", Marker.Bound.BELOW, "10");
+        Mockito.when(valueSet.getType()).thenReturn(Types.MinorType.VARCHAR.getType());
+        Aggregation aggregation = new Aggregation(ImmutableList.of("testCol1", "partition_name"),
+                ImmutableList.of(new AggregateFunction(AggregateFunction.Function.COUNT, null, "row_count"),
+                        new AggregateFunction(AggregateFunction.Function.SUM, "testCol3", "sum_col3")));
+        Constraints constraints = new Constraints(ImmutableMap.of("testCol2", valueSet), ImmutableList.of(), 10, aggregation);
+
+        String expectedSql = "SELECT \"testCol1\", COUNT(*) AS \"row_count\", SUM(\"testCol3\") AS \"sum_col3\" FROM \"s0\".\"p0\"  WHERE ((\"testCol2\" >= ? AND \"testCol2\" < ?)) GROUP BY \"testCol1\"";
+        PreparedStatement expectedPreparedStatement = Mockito.mock(PreparedStatement.class);
+        Mockito.when(this.connection.prepareStatement(Mockito.eq(expectedSql))).thenReturn(expectedPreparedStatement);
+
+        PreparedStatement preparedStatement = this.postGreSqlRecordHandler.buildSplitSql(this.connection, "testCatalogName", tableName, schema, constraints, split);
+
+        Assert.assertEquals(expectedPreparedStatement, preparedStatement);
+        Mockito.verify(preparedStatement, Mockito.times(1)).setString(1, "1");
+        Mockito.verify(preparedStatement, Mockito.times(1)).setString(2, "10");
+
+        logger.info("buildSplitSqlAggregationTest - exit");
+    }
+
+    @Test
+    public void buildSplitSqlAggregationStringColumnTest()
+            throws SQLException
+    {
+        logger.info("buildSplitSqlAggregationStringColumnTest - enter");
+
+        TableName tableName = new TableName("testSchema", "testTable");
+        SchemaBuilder schemaBuilder = SchemaBuilder.newBuilder();
+        schemaBuilder.addField(FieldBuilder.newBuilder("testCol1", Types.MinorType.VARCHAR.getType()).build());
+        schemaBuilder.addField(FieldBuilder.newBuilder("max_col2", Types.MinorType.VARCHAR.getType()).build());
+        schemaBuilder.addField(FieldBuilder.newBuilder("max_col3", Types.MinorType.INT.getType()).build());
+        Schema schema = schemaBuilder.build();
+
+        Split split = Mockito.mock(Split.class);
+        Mockito.when(split.getProperties()).thenReturn(ImmutableMap.of("partition_schema_name", "s0", "partition_name", "p0"));
+        Mockito.when(split.getProperty(Mockito.eq(com.amazonaws.athena.connectors.postgresql.PostGreSqlMetadataHandler.BLOCK_PARTITION_SCHEMA_COLUMN_NAME))).thenReturn("s0");
+        Mockito.when(split.getProperty(Mockito.eq(com.amazonaws.athena.connectors.postgresql.PostGreSqlMetadataHandler.BLOCK_PARTITION_COLUMN_NAME))).thenReturn("p0");
+
+        // The database's collation may compare strings differently from Athena, so grouping by or taking the MIN/MAX
+        // of a string column can't be pushed down.
+        Aggregation groupByString = new Aggregation(ImmutableList.of("testCol1"),
+                ImmutableList.of(new AggregateFunction(AggregateFunction.Function.MAX, "testCol3", "max_col3")));
+        Aggregation maxOfString = new Aggregation(ImmutableList.of(),
+                ImmutableList.of(new AggregateFunction(AggregateFunction.Function.MAX, "testCol2", "max_col2")));
+        for (Aggregation aggregation : ImmutableList.of(groupByString, maxOfString)) {
+            Constraints constraints = new Constraints(Collections.emptyMap(), ImmutableList.of(), Constraints.DEFAULT_NO_LIMIT, aggregation);
+            try {
+                this.postGreSqlRecordHandler.buildSplitSql(this.connection, "testCatalogName", tableName, schema, constraints, split);
+                Assert.fail("Expected " + aggregation + " to be rejected.");
+            }
+            catch (UnsupportedOperationException ex) {
+                // expected
+            }
+        }
+
+        logger.info("buildSplitSqlAggregationStringColumnTest - exit");
+    }
+
+    @Test
+    public void buildSplitSqlAggregationPartitionConstraintTest()
+            throws SQLException
+    {
+        logger.info("buildSplitSqlAggregationPartitionConstraintTest - enter");
+
+        TableName tableName = new TableName("testSchema", "testTable");
+        Schema schema = SchemaBuilder.newBuilder().addField(FieldBuilder.newBuilder("row_count", Types.MinorType.BIGINT.getType()).build()).build();
+
+        Split split = Mockito.mock(Split.class);
+        Mockito.when(split.getProperties()).thenReturn(ImmutableMap.of("partition_schema_name", "s0", "partition_name", "p0"));
+        Mockito.when(split.getProperty(Mockito.eq(com.amazonaws.athena.connectors.postgresql.PostGreSqlMetadataHandler.BLOCK_PARTITION_SCHEMA_COLUMN_NAME))).thenReturn("s0");
+        Mockito.when(split.getProperty(Mockito.eq(com.amazonaws.athena.connectors.postgresql.PostGreSqlMetadataHandler.BLOCK_PARTITION_COLUMN_NAME))).thenReturn("p0");
+
+        Aggregation aggregation = new Aggregation(ImmutableList.of(),
+                ImmutableList.of(new AggregateFunction(AggregateFunction.Function.COUNT, null, "row_count")));
+        try (BlockAllocatorImpl allocator = new BlockAllocatorImpl()) {
+            // Athena can't filter the aggregated rows on the partition, so a split the query excludes must read no rows.
+            Constraints excluded = new Constraints(ImmutableMap.of("partition_name",
+                    SortedRangeSet.of(Range.equal(allocator, Types.MinorType.VARCHAR.getType(), "p1"))), ImmutableList.of(), Constraints.DEFAULT_NO_LIMIT, aggregation);
+            String excludedSql = "SELECT COUNT(*) AS \"row_count\" FROM \"s0\".\"p0\"  WHERE 1 = 0";
+            PreparedStatement excludedStatement = Mockito.mock(PreparedStatement.class);
+            Mockito.when(this.connection.prepareStatement(Mockito.eq(excludedSql))).thenReturn(excludedStatement);
+            Assert.assertEquals(excludedStatement, this.postGreSqlRecordHandler.buildSplitSql(this.connection, "testCatalogName", tableName, schema, excluded, split));
+
+            Constraints included = new Constraints(ImmutableMap.of("partition_name",
+                    SortedRangeSet.of(Range.equal(allocator, Types.MinorType.VARCHAR.getType(), "p0"))), ImmutableList.of(), Constraints.DEFAULT_NO_LIMIT, aggregation);
+            String includedSql = "SELECT COUNT(*) AS \"row_count\" FROM \"s0\".\"p0\" ";
+            PreparedStatement includedStatement = Mockito.mock(PreparedStatement.class);
+            Mockito.when(this.connection.prepareStatement(Mockito.eq(includedSql))).thenReturn(includedStatement);
+            Assert.assertEquals(includedStatement, this.postGreSqlRecordHandler.buildSplitSql(this.connection, "testCatalogName", tableName, schema, included, split));
+        }
+
+        logger.info("buildSplitSqlAggregationPartitionConstraintTest - exit");
+    }
+
     @Test
     public void buildSplitSqlForDateTest()
             throws SQLException
@@ -24,6 +24,28 @@ public class RedshiftConstants
     public static final String REDSHIFT_NAME = "redshift";
     public static final String REDSHIFT_DRIVER_CLASS = "com.amazon.redshift.jdbc.Driver";
     public static final int REDSHIFT_DEFAULT_PORT = 5439;
+    /**
+     * IAM role Redshift assumes to UNLOAD large scans to the spill bucket, bulk reads are disabled when not set.
+     */
+    public static final String UNLOAD_IAM_ROLE = "unload_iam_role";
+    /**
+     * KMS key unloaded files are encrypted with, the spill bucket's default encryption is used when not set.
+     */
+    public static final String UNLOAD_KMS_KEY_ID = "unload_kms_key_id";
+    /**
+     * Minimum estimated number of rows in a table before it is read with UNLOAD instead of through the leader node.
+     */
+    public static final String UNLOAD_MIN_ROWS = "unload_min_rows";
+    public static final long DEFAULT_UNLOAD_MIN_ROWS = 5_000_000;
+    /**
+     * Max size of each unloaded file, each file is read by one split so this bounds the work of a split.
+     */
+    public static final int UNLOAD_MAX_FILE_SIZE_MB = 128;
+    /**
+     * Split properties locating the Parquet file a bulk read split reads.
+     */
+    public static final String UNLOAD_BUCKET_PROPERTY = "unload_bucket";
+    public static final String UNLOAD_KEY_PROPERTY = "unload_key";
 
     private RedshiftConstants() {}
 }
@@ -19,19 +19,58 @@
  */
 package com.amazonaws.athena.connectors.redshift;
 
+import com.amazonaws.athena.connector.lambda.data.Block;
+import com.amazonaws.athena.connector.lambda.data.BlockAllocator;
+import com.amazonaws.athena.connector.lambda.data.SupportedTypes;
+import com.amazonaws.athena.connector.lambda.domain.Split;
+import com.amazonaws.athena.connector.lambda.domain.TableName;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
+import com.amazonaws.athena.connector.lambda.domain.spill.S3SpillLocation;
+import com.amazonaws.athena.connector.lambda.metadata.GetSplitsRequest;
+import com.amazonaws.athena.connector.lambda.metadata.GetSplitsResponse;
 import com.amazonaws.athena.connectors.jdbc.connection.DatabaseConnectionConfig;
 import com.amazonaws.athena.connectors.jdbc.connection.DatabaseConnectionInfo;
 import com.amazonaws.athena.connectors.jdbc.connection.GenericJdbcConnectionFactory;
 import com.amazonaws.athena.connectors.jdbc.connection.JdbcConnectionFactory;
 import com.amazonaws.athena.connectors.jdbc.manager.JDBCUtil;
+import com.amazonaws.athena.connectors.jdbc.manager.JdbcArrowTypeConverter;
+import com.amazonaws.athena.connectors.jdbc.manager.PreparedStatementBuilder;
 import com.amazonaws.athena.connectors.postgresql.PostGreSqlMetadataHandler;
 import com.amazonaws.services.athena.AmazonAthena;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.amazonaws.services.secretsmanager.AWSSecretsManager;
+import com.google.common.base.Strings;
 import org.apache.arrow.util.VisibleForTesting;
+import org.apache.arrow.vector.complex.reader.FieldReader;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.amazonaws.athena.connectors.redshift.RedshiftConstants.DEFAULT_UNLOAD_MIN_ROWS;
 import static com.amazonaws.athena.connectors.redshift.RedshiftConstants.REDSHIFT_DEFAULT_PORT;
 import static com.amazonaws.athena.connectors.redshift.RedshiftConstants.REDSHIFT_DRIVER_CLASS;
 import static com.amazonaws.athena.connectors.redshift.RedshiftConstants.REDSHIFT_NAME;
+import static com.amazonaws.athena.connectors.redshift.RedshiftConstants.UNLOAD_BUCKET_PROPERTY;
+import static com.amazonaws.athena.connectors.redshift.RedshiftConstants.UNLOAD_IAM_ROLE;
+import static com.amazonaws.athena.connectors.redshift.RedshiftConstants.UNLOAD_KEY_PROPERTY;
+import static com.amazonaws.athena.connectors.redshift.RedshiftConstants.UNLOAD_KMS_KEY_ID;
+import static com.amazonaws.athena.connectors.redshift.RedshiftConstants.UNLOAD_MIN_ROWS;
 
 /**
  * Handles metadata for PostGreSql. User must have access to `schemata`, `tables`, `columns`, `partitions` tables in
@@ -40,6 +79,15 @@ import static com.amazonaws.athena.connectors.redshift.RedshiftConstants.REDSHIF
 public class RedshiftMetadataHandler
         extends PostGreSqlMetadataHandler
 {
+    static final String GET_TABLE_ROWS_QUERY = "SELECT tbl_rows FROM svv_table_info WHERE \"schema\" = ? AND \"table\" = ?";
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedshiftMetadataHandler.class);
+
+    private final RedshiftUnloadQueryBuilder unloadQueryBuilder = new RedshiftUnloadQueryBuilder();
+    private final AmazonS3 amazonS3;
+    private final String unloadIamRole;
+    private final String unloadKmsKeyId;
+    private final long unloadMinRows;
+
     /**
      * Instantiates handler to be used by Lambda function directly.
      *
@@ -53,11 +101,172 @@ public class RedshiftMetadataHandler
     public RedshiftMetadataHandler(final DatabaseConnectionConfig databaseConnectionConfig)
     {
         super(databaseConnectionConfig, new GenericJdbcConnectionFactory(databaseConnectionConfig, JDBC_PROPERTIES, new DatabaseConnectionInfo(REDSHIFT_DRIVER_CLASS, REDSHIFT_DEFAULT_PORT)));
+        this.unloadIamRole = Strings.emptyToNull(System.getenv(UNLOAD_IAM_ROLE));
+        this.unloadKmsKeyId = Strings.emptyToNull(System.getenv(UNLOAD_KMS_KEY_ID));
+        this.unloadMinRows = Strings.isNullOrEmpty(System.getenv(UNLOAD_MIN_ROWS)) ? DEFAULT_UNLOAD_MIN_ROWS : Long.parseLong(System.getenv(UNLOAD_MIN_ROWS));
+        this.amazonS3 = unloadIamRole == null ? null : AmazonS3ClientBuilder.defaultClient();
     }
 
     @VisibleForTesting
     RedshiftMetadataHandler(DatabaseConnectionConfig databaseConnectionConfig, AWSSecretsManager secretsManager, AmazonAthena athena, JdbcConnectionFactory jdbcConnectionFactory)
+    {
+        this(databaseConnectionConfig, secretsManager, athena, jdbcConnectionFactory, null, null, null, DEFAULT_UNLOAD_MIN_ROWS);
+    }
+
+    @VisibleForTesting
+    RedshiftMetadataHandler(DatabaseConnectionConfig databaseConnectionConfig, AWSSecretsManager secretsManager, AmazonAthena athena, JdbcConnectionFactory jdbcConnectionFactory,
+            AmazonS3 amazonS3, String unloadIamRole, String unloadKmsKeyId, long unloadMinRows)
     {
         super(databaseConnectionConfig, secretsManager, athena, jdbcConnectionFactory);
+        this.amazonS3 = amazonS3;
+        this.unloadIamRole = unloadIamRole;
+        this.unloadKmsKeyId = unloadKmsKeyId;
+        this.unloadMinRows = unloadMinRows;
+    }
+
+    /**
+     * Large scans of unpartitioned tables are UNLOADed in parallel by the compute nodes to Parquet files in the spill
+     * bucket, and each file becomes a split read by {@link RedshiftRecordHandler}, instead of every row being returned
+     * through the leader node. Everything else, including tables with columns of types that can't be read from the
+     * unloaded files, is read over JDBC. Unloaded files are encrypted by S3 rather than with the spill encryption keys.
+     */
+    @Override
+    public GetSplitsResponse doGetSplits(BlockAllocator blockAllocator, GetSplitsRequest getSplitsRequest)
+    {
+        if (unloadIamRole == null || getSplitsRequest.hasContinuationToken() || !isAllPartitions(getSplitsRequest.getPartitions())
+                || !isBulkScan(getSplitsRequest.getConstraints())) {
+            return super.doGetSplits(blockAllocator, getSplitsRequest);
+        }
+
+        TableName tableName = getSplitsRequest.getTableName();
+        String selectSql;
+        try {
+            selectSql = unloadQueryBuilder.buildSelect(tableName, getSplitsRequest.getConstraints(), getSplitsRequest.getPartitionCols());
+        }
+        catch (UnsupportedOperationException ex) {
+            LOGGER.info("{}: Not unloading {}: {}", getSplitsRequest.getQueryId(), tableName, ex.getMessage());
+            return super.doGetSplits(blockAllocator, getSplitsRequest);
+        }
+
+        S3SpillLocation unloadLocation = (S3SpillLocation) makeSpillLocation(getSplitsRequest);
+        String unloadPrefix = unloadLocation.getKey() + "/";
+        try (Connection connection = getJdbcConnectionFactory().getConnection(getCredentialProvider())) {
+            long estimatedRows = getEstimatedRows(connection, tableName);
+            if (estimatedRows < unloadMinRows) {
+                return super.doGetSplits(blockAllocator, getSplitsRequest);
+            }
+            Optional<String> unsupportedColumn = getUnloadUnsupportedColumn(connection, tableName);
+            if (unsupportedColumn.isPresent()) {
+                LOGGER.info("{}: Not unloading {}: can't read column {} from unloaded files", getSplitsRequest.getQueryId(), tableName,
+                        unsupportedColumn.get());
+                return super.doGetSplits(blockAllocator, getSplitsRequest);
+            }
+            LOGGER.info("{}: Unloading {} with an estimated {} rows to s3://{}/{}", getSplitsRequest.getQueryId(), tableName, estimatedRows,
+                    unloadLocation.getBucket(), unloadPrefix);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(unloadQueryBuilder.buildUnload(selectSql, unloadLocation.getBucket(), unloadPrefix, unloadIamRole, unloadKmsKeyId));
+            }
+        }
+        catch (SQLException sqlException) {
+            throw new RuntimeException(sqlException.getErrorCode() + ": " + sqlException.getMessage(), sqlException);
+        }
+        catch (Exception ex) {
+            throw new RuntimeException("Failed to unload " + tableName + ": " + ex.getMessage(), ex);
+        }
+
+        Set<Split> splits = new HashSet<>();
+        ListObjectsV2Request listRequest = new ListObjectsV2Request().withBucketName(unloadLocation.getBucket()).withPrefix(unloadPrefix);
+        ListObjectsV2Result listResult;
+        do {
+            listResult = amazonS3.listObjectsV2(listRequest);
+            for (S3ObjectSummary objectSummary : listResult.getObjectSummaries()) {
+                if (objectSummary.getSize() > 0) {
+                    splits.add(makeUnloadSplit(getSplitsRequest, objectSummary.getBucketName(), objectSummary.getKey()));
+                }
+            }
+            listRequest.setContinuationToken(listResult.getNextContinuationToken());
+        }
+        while (listResult.isTruncated());
+
+        if (splits.isEmpty()) {
+            // Nothing was unloaded, return a single split which reads no files.
+            splits.add(makeUnloadSplit(getSplitsRequest, unloadLocation.getBucket(), ""));
+        }
+        LOGGER.info("{}: Unloaded {} files", getSplitsRequest.getQueryId(), splits.size());
+        return new GetSplitsResponse(getSplitsRequest.getCatalogName(), splits, null);
+    }
+
+    /**
+     * Redshift doesn't keep the pg_stats histograms (or support the WITH ORDINALITY query) PostgreSQL splits are
+     * planned from, so the default splitting is used.
+     */
+    @Override
+    protected Optional<List<String>> getStatisticsSplitClauses(final Connection jdbcConnection, final TableName tableName, final String columnName)
+    {
+        return Optional.empty();
+    }
+
+    /**
+     * @return the first column of the table, with its type, whose values {@link RedshiftRecordHandler} can't read from
+     * unloaded files, if any.
+     */
+    protected Optional<String> getUnloadUnsupportedColumn(final Connection jdbcConnection, final TableName tableName)
+            throws SQLException
+    {
+        DatabaseMetaData metadata = jdbcConnection.getMetaData();
+        String escape = metadata.getSearchStringEscape();
+        try (ResultSet resultSet = metadata.getColumns(jdbcConnection.getCatalog(), escapeNamePattern(tableName.getSchemaName(), escape),
+                escapeNamePattern(tableName.getTableName(), escape), null)) {
+            while (resultSet.next()) {
+                ArrowType columnType = JdbcArrowTypeConverter.toArrowType(resultSet.getInt("DATA_TYPE"), resultSet.getInt("COLUMN_SIZE"),
+                        resultSet.getInt("DECIMAL_DIGITS"));
+                // Columns of types the connector doesn't support are read as VARCHAR, see doGetTable.
+                if (columnType != null && SupportedTypes.isSupported(columnType) && !RedshiftRecordHandler.isUnloadSupported(columnType)) {
+                    return Optional.of(resultSet.getString("COLUMN_NAME") + " of type " + columnType);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private Split makeUnloadSplit(GetSplitsRequest getSplitsRequest, String bucket, String key)
+    {
+        return Split.newBuilder(makeSpillLocation(getSplitsRequest), makeEncryptionKey())
+                .add(BLOCK_PARTITION_SCHEMA_COLUMN_NAME, ALL_PARTITIONS)
+                .add(BLOCK_PARTITION_COLUMN_NAME, ALL_PARTITIONS)
+                .add(UNLOAD_BUCKET_PROPERTY, bucket)
+                .add(UNLOAD_KEY_PROPERTY, key)
+                .build();
+    }
+
+    private static boolean isAllPartitions(Block partitions)
+    {
+        if (partitions.getRowCount() != 1) {
+            return false;
+        }
+        FieldReader partitionsSchemaFieldReader = partitions.getFieldReader(BLOCK_PARTITION_SCHEMA_COLUMN_NAME);
+        partitionsSchemaFieldReader.setPosition(0);
+        FieldReader partitionsFieldReader = partitions.getFieldReader(BLOCK_PARTITION_COLUMN_NAME);
+        partitionsFieldReader.setPosition(0);
+        return ALL_PARTITIONS.equals(String.valueOf(partitionsSchemaFieldReader.readText()))
+                && ALL_PARTITIONS.equals(String.valueOf(partitionsFieldReader.readText()));
+    }
+
+    /**
+     * Limited and aggregated queries return few rows, so aren't worth unloading.
+     */
+    private static boolean isBulkScan(Constraints constraints)
+    {
+        return !constraints.hasLimit() && !constraints.hasAggregation();
+    }
+
+    private long getEstimatedRows(Connection connection, TableName tableName)
+            throws SQLException
+    {
+        try (PreparedStatement preparedStatement = new PreparedStatementBuilder().withConnection(connection).withQuery(GET_TABLE_ROWS_QUERY)
+                .withParameters(Arrays.asList(tableName.getSchemaName(), tableName.getTableName())).build();
+                ResultSet resultSet = preparedStatement.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        }
     }
 }
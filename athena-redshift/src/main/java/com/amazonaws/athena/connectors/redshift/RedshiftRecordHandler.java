@@ -19,6 +19,12 @@
  */
 package com.amazonaws.athena.connectors.redshift;
 
+import com.amazonaws.athena.connector.lambda.QueryStatusChecker;
+import com.amazonaws.athena.connector.lambda.data.Block;
+import com.amazonaws.athena.connector.lambda.data.BlockSpiller;
+import com.amazonaws.athena.connector.lambda.data.BlockUtils;
+import com.amazonaws.athena.connector.lambda.domain.Split;
+import com.amazonaws.athena.connector.lambda.records.ReadRecordsRequest;
 import com.amazonaws.athena.connectors.jdbc.connection.DatabaseConnectionConfig;
 import com.amazonaws.athena.connectors.jdbc.connection.DatabaseConnectionInfo;
 import com.amazonaws.athena.connectors.jdbc.connection.GenericJdbcConnectionFactory;
@@ -33,21 +39,64 @@ import com.amazonaws.services.athena.AmazonAthena;
 import com.amazonaws.services.athena.AmazonAthenaClientBuilder;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.CompressionType;
+import com.amazonaws.services.s3.model.ExpressionType;
+import com.amazonaws.services.s3.model.InputSerialization;
+import com.amazonaws.services.s3.model.JSONOutput;
+import com.amazonaws.services.s3.model.OutputSerialization;
+import com.amazonaws.services.s3.model.ParquetInput;
+import com.amazonaws.services.s3.model.SelectObjectContentRequest;
+import com.amazonaws.services.s3.model.SelectObjectContentResult;
 import com.amazonaws.services.secretsmanager.AWSSecretsManager;
 import com.amazonaws.services.secretsmanager.AWSSecretsManagerClientBuilder;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import org.apache.arrow.util.VisibleForTesting;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.types.Types;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
 import static com.amazonaws.athena.connectors.postgresql.PostGreSqlConstants.POSTGRES_QUOTE_CHARACTER;
 import static com.amazonaws.athena.connectors.redshift.RedshiftConstants.REDSHIFT_DEFAULT_PORT;
 import static com.amazonaws.athena.connectors.redshift.RedshiftConstants.REDSHIFT_DRIVER_CLASS;
 import static com.amazonaws.athena.connectors.redshift.RedshiftConstants.REDSHIFT_NAME;
+import static com.amazonaws.athena.connectors.redshift.RedshiftConstants.UNLOAD_BUCKET_PROPERTY;
+import static com.amazonaws.athena.connectors.redshift.RedshiftConstants.UNLOAD_KEY_PROPERTY;
 
 public class RedshiftRecordHandler
         extends PostGreSqlRecordHandler
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(RedshiftRecordHandler.class);
+    private static final ObjectReader ROW_READER = new ObjectMapper()
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+            .readerFor(Map.class);
+    // Types toArrowValue can convert values serialized by S3 Select to.
+    private static final Set<Types.MinorType> UNLOAD_TYPES = EnumSet.of(Types.MinorType.BIT, Types.MinorType.TINYINT,
+            Types.MinorType.SMALLINT, Types.MinorType.INT, Types.MinorType.BIGINT, Types.MinorType.FLOAT4, Types.MinorType.FLOAT8,
+            Types.MinorType.DECIMAL, Types.MinorType.DATEDAY, Types.MinorType.DATEMILLI, Types.MinorType.VARCHAR);
+
+    private final AmazonS3 amazonS3;
 
     /**
      * Instantiates handler to be used by Lambda function directly.
@@ -61,7 +110,7 @@ public class RedshiftRecordHandler
 
     public RedshiftRecordHandler(final DatabaseConnectionConfig databaseConnectionConfig)
     {
-        super(databaseConnectionConfig, AmazonS3ClientBuilder.defaultClient(), AWSSecretsManagerClientBuilder.defaultClient(), AmazonAthenaClientBuilder.defaultClient(),
+        this(databaseConnectionConfig, AmazonS3ClientBuilder.defaultClient(), AWSSecretsManagerClientBuilder.defaultClient(), AmazonAthenaClientBuilder.defaultClient(),
                 new GenericJdbcConnectionFactory(databaseConnectionConfig, PostGreSqlMetadataHandler.JDBC_PROPERTIES, new DatabaseConnectionInfo(REDSHIFT_DRIVER_CLASS, REDSHIFT_DEFAULT_PORT)), new PostGreSqlQueryStringBuilder(POSTGRES_QUOTE_CHARACTER));
     }
 
@@ -69,5 +118,160 @@ public class RedshiftRecordHandler
     RedshiftRecordHandler(DatabaseConnectionConfig databaseConnectionConfig, AmazonS3 amazonS3, AWSSecretsManager secretsManager, AmazonAthena athena, JdbcConnectionFactory jdbcConnectionFactory, JdbcSplitQueryBuilder jdbcSplitQueryBuilder)
     {
         super(databaseConnectionConfig, amazonS3, secretsManager, athena, jdbcConnectionFactory, jdbcSplitQueryBuilder);
+        this.amazonS3 = amazonS3;
+    }
+
+    /**
+     * Splits planned from an UNLOAD (see {@link RedshiftMetadataHandler#doGetSplits}) read their Parquet file from S3,
+     * everything else is read over JDBC.
+     */
+    @Override
+    public void readWithConstraint(BlockSpiller blockSpiller, ReadRecordsRequest readRecordsRequest, QueryStatusChecker queryStatusChecker)
+            throws Exception
+    {
+        Split split = readRecordsRequest.getSplit();
+        String unloadKey = split.getProperty(UNLOAD_KEY_PROPERTY);
+        if (unloadKey == null) {
+            super.readWithConstraint(blockSpiller, readRecordsRequest, queryStatusChecker);
+            return;
+        }
+        if (unloadKey.isEmpty()) {
+            // the UNLOAD returned no rows
+            return;
+        }
+
+        String unloadBucket = split.getProperty(UNLOAD_BUCKET_PROPERTY);
+        List<Field> columns = readRecordsRequest.getSchema().getFields().stream()
+                .filter(field -> !split.getProperties().containsKey(field.getName()))
+                .collect(Collectors.toList());
+        LOGGER.info("{}: Reading s3://{}/{}", readRecordsRequest.getQueryId(), unloadBucket, unloadKey);
+
+        List<Field> fields = readRecordsRequest.getSchema().getFields();
+        // Partition columns have the same value in every row of the split.
+        String[] partitionValues = fields.stream().map(field -> split.getProperty(field.getName())).toArray(String[]::new);
+
+        // S3 Select only serializes Parquet to JSON or CSV, the rows are filtered by the UNLOAD so only need projecting
+        AtomicLong rows = new AtomicLong(0);
+        AtomicBoolean hasMoreRows = new AtomicBoolean(true);
+        try (SelectObjectContentResult result = amazonS3.selectObjectContent(buildSelectRequest(unloadBucket, unloadKey, columns));
+                InputStream records = result.getPayload().getRecordsInputStream();
+                MappingIterator<Map<String, Object>> iterator = ROW_READER.readValues(records)) {
+            while (hasMoreRows.get() && queryStatusChecker.isQueryRunning()) {
+                // Write rows in batches so the BlockSpiller only has to check the Block size once per batch.
+                blockSpiller.writeBatch((Block block, int rowNum, int maxRows) -> {
+                    FieldVector[] vectors = new FieldVector[fields.size()];
+                    for (int i = 0; i < vectors.length; i++) {
+                        vectors[i] = block.getFieldVector(fields.get(i).getName());
+                    }
+                    int batchRows = 0;
+                    while (batchRows < maxRows && iterator.hasNext()) {
+                        Map<String, Object> row = iterator.next();
+                        for (int i = 0; i < vectors.length; i++) {
+                            Object value = partitionValues[i] != null ? partitionValues[i] : toArrowValue(fields.get(i), row.get(fields.get(i).getName()));
+                            BlockUtils.setValue(vectors[i], rowNum + batchRows, value);
+                        }
+                        batchRows++;
+                    }
+                    rows.addAndGet(batchRows);
+                    hasMoreRows.set(batchRows == maxRows);
+                    return batchRows;
+                });
+            }
+        }
+        LOGGER.info("{}: Read {} rows from s3://{}/{}", readRecordsRequest.getQueryId(), rows.get(), unloadBucket, unloadKey);
+    }
+
+    @VisibleForTesting
+    static SelectObjectContentRequest buildSelectRequest(String bucket, String key, List<Field> columns)
+    {
+        List<String> projection = new ArrayList<>();
+        for (Field column : columns) {
+            projection.add("s.\"" + column.getName().replace("\"", "\"\"") + "\"");
+        }
+        SelectObjectContentRequest request = new SelectObjectContentRequest();
+        request.setBucketName(bucket);
+        request.setKey(key);
+        // with no columns projected (e.g. count(*)) we only need the number of rows
+        request.setExpression("SELECT " + (projection.isEmpty() ? "1" : String.join(", ", projection)) + " FROM S3Object s");
+        request.setExpressionType(ExpressionType.SQL);
+
+        InputSerialization inputSerialization = new InputSerialization();
+        inputSerialization.setParquet(new ParquetInput());
+        inputSerialization.setCompressionType(CompressionType.NONE);
+        request.setInputSerialization(inputSerialization);
+
+        OutputSerialization outputSerialization = new OutputSerialization();
+        outputSerialization.setJson(new JSONOutput());
+        request.setOutputSerialization(outputSerialization);
+        return request;
+    }
+
+    /**
+     * @return whether values of the type can be read from unloaded files, see {@link #toArrowValue(Field, Object)}.
+     */
+    static boolean isUnloadSupported(ArrowType type)
+    {
+        return UNLOAD_TYPES.contains(Types.getMinorTypeForArrowType(type));
+    }
+
+    /**
+     * Converts a value S3 Select serialized to JSON to the Java type used for the field's Arrow type.
+     */
+    @VisibleForTesting
+    static Object toArrowValue(Field field, Object value)
+    {
+        if (value == null) {
+            return null;
+        }
+        Types.MinorType minorType = Types.getMinorTypeForArrowType(field.getType());
+        switch (minorType) {
+            case BIT:
+                return value instanceof Boolean ? value : Boolean.parseBoolean(value.toString());
+            case TINYINT:
+                return toNumber(value).byteValue();
+            case SMALLINT:
+                return toNumber(value).shortValue();
+            case INT:
+                return toNumber(value).intValue();
+            case BIGINT:
+                return toNumber(value).longValue();
+            case FLOAT4:
+                return toNumber(value).floatValue();
+            case FLOAT8:
+                return toNumber(value).doubleValue();
+            case DECIMAL:
+                return value instanceof BigDecimal ? value : new BigDecimal(value.toString());
+            case DATEDAY:
+                if (value instanceof Number) {
+                    return ((Number) value).intValue();
+                }
+                return (int) LocalDate.parse(value.toString().substring(0, 10)).toEpochDay();
+            case DATEMILLI:
+                if (value instanceof Number) {
+                    return ((Number) value).longValue();
+                }
+                return toLocalDateTime(value.toString());
+            case VARCHAR:
+                return value.toString();
+            default:
+                throw new UnsupportedOperationException("Can't read unloaded column " + field.getName() + " of type " + minorType);
+        }
+    }
+
+    private static Number toNumber(Object value)
+    {
+        return value instanceof Number ? (Number) value : new BigDecimal(value.toString());
+    }
+
+    private static LocalDateTime toLocalDateTime(String value)
+    {
+        String timestamp = value.replace(' ', 'T');
+        try {
+            return LocalDateTime.parse(timestamp);
+        }
+        catch (DateTimeParseException ex) {
+            // timestamps with a zone, e.g. 2020-01-01T00:00:00.000Z
+            return OffsetDateTime.parse(timestamp).withOffsetSameInstant(ZoneOffset.UTC).toLocalDateTime();
+        }
     }
 }
@@ -0,0 +1,182 @@
+/*-
+ * #%L
+ * athena-redshift
+ * %%
+ * Copyright (C) 2019 - 2022 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.amazonaws.athena.connectors.redshift;
+
+import com.amazonaws.athena.connector.lambda.domain.TableName;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Marker;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Range;
+import com.amazonaws.athena.connector.lambda.domain.predicate.SortedRangeSet;
+import com.amazonaws.athena.connector.lambda.domain.predicate.ValueSet;
+import com.google.common.base.Joiner;
+import org.apache.arrow.vector.types.Types;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static com.amazonaws.athena.connectors.redshift.RedshiftConstants.UNLOAD_MAX_FILE_SIZE_MB;
+
+/**
+ * Builds the UNLOAD statements used to bulk read large Redshift tables. The query being unloaded is itself a string
+ * literal of the UNLOAD statement, so unlike {@link com.amazonaws.athena.connectors.jdbc.manager.JdbcSplitQueryBuilder}
+ * pushed down predicates are rendered as literals rather than bound as parameters.
+ */
+public class RedshiftUnloadQueryBuilder
+{
+    private static final String QUOTE_CHARACTER = "\"";
+
+    /**
+     * @param tableName table to unload.
+     * @param constraints constraints to push down into the unloaded query.
+     * @param partitionColumns partition columns, which aren't columns of the table.
+     * @return the query selecting the rows to unload.
+     * @throws UnsupportedOperationException if a constraint can't be rendered as literals.
+     */
+    public String buildSelect(TableName tableName, Constraints constraints, Collection<String> partitionColumns)
+    {
+        StringBuilder sql = new StringBuilder("SELECT * FROM ")
+                .append(quote(tableName.getSchemaName())).append('.').append(quote(tableName.getTableName()));
+
+        List<String> conjuncts = new ArrayList<>();
+        if (constraints.getSummary() != null) {
+            for (Map.Entry<String, ValueSet> entry : constraints.getSummary().entrySet()) {
+                if (!partitionColumns.contains(entry.getKey())) {
+                    conjuncts.add(toPredicate(entry.getKey(), entry.getValue()));
+                }
+            }
+        }
+        if (!conjuncts.isEmpty()) {
+            sql.append(" WHERE ").append(Joiner.on(" AND ").join(conjuncts));
+        }
+        return sql.toString();
+    }
+
+    /**
+     * @param selectSql query selecting the rows to unload.
+     * @param bucket bucket to unload to.
+     * @param keyPrefix prefix of the keys of the unloaded files.
+     * @param iamRole IAM role Redshift assumes to write to the bucket.
+     * @param kmsKeyId KMS key the files are encrypted with, or null to use the bucket's default encryption.
+     * @return UNLOAD statement writing the rows as server side encrypted Parquet files of at most
+     * {@link RedshiftConstants#UNLOAD_MAX_FILE_SIZE_MB}, one or more per slice.
+     */
+    public String buildUnload(String selectSql, String bucket, String keyPrefix, String iamRole, String kmsKeyId)
+    {
+        String encryption = kmsKeyId == null ? "ENCRYPTED AUTO" : "KMS_KEY_ID " + toStringLiteral(kmsKeyId) + " ENCRYPTED";
+        return String.format("UNLOAD (%s) TO %s IAM_ROLE %s %s FORMAT AS PARQUET MAXFILESIZE %d MB", toStringLiteral(selectSql),
+                toStringLiteral("s3://" + bucket + "/" + keyPrefix), toStringLiteral(iamRole), encryption, UNLOAD_MAX_FILE_SIZE_MB);
+    }
+
+    private String toPredicate(String columnName, ValueSet valueSet)
+    {
+        if (!(valueSet instanceof SortedRangeSet)) {
+            throw new UnsupportedOperationException("Can't unload with constraint " + valueSet.getClass().getSimpleName() + " on " + columnName);
+        }
+
+        String column = quote(columnName);
+        if (valueSet.isNone() && valueSet.isNullAllowed()) {
+            return String.format("(%s IS NULL)", column);
+        }
+
+        List<String> disjuncts = new ArrayList<>();
+        if (valueSet.isNullAllowed()) {
+            disjuncts.add(String.format("(%s IS NULL)", column));
+        }
+
+        Range rangeSpan = ((SortedRangeSet) valueSet).getSpan();
+        if (!valueSet.isNullAllowed() && rangeSpan.getLow().isLowerUnbounded() && rangeSpan.getHigh().isUpperUnbounded()) {
+            return String.format("(%s IS NOT NULL)", column);
+        }
+
+        ArrowType type = valueSet.getType();
+        List<String> singleValues = new ArrayList<>();
+        for (Range range : valueSet.getRanges().getOrderedRanges()) {
+            if (range.isSingleValue()) {
+                singleValues.add(toLiteral(range.getLow().getValue(), type));
+                continue;
+            }
+            List<String> rangeConjuncts = new ArrayList<>();
+            if (!range.getLow().isLowerUnbounded()) {
+                String operator = range.getLow().getBound() == Marker.Bound.ABOVE ? ">" : ">=";
+                rangeConjuncts.add(column + " " + operator + " " + toLiteral(range.getLow().getValue(), type));
+            }
+            if (!range.getHigh().isUpperUnbounded()) {
+                String operator = range.getHigh().getBound() == Marker.Bound.BELOW ? "<" : "<=";
+                rangeConjuncts.add(column + " " + operator + " " + toLiteral(range.getHigh().getValue(), type));
+            }
+            disjuncts.add("(" + Joiner.on(" AND ").join(rangeConjuncts) + ")");
+        }
+
+        if (singleValues.size() == 1) {
+            disjuncts.add(column + " = " + singleValues.get(0));
+        }
+        else if (singleValues.size() > 1) {
+            disjuncts.add(column + " IN (" + Joiner.on(",").join(singleValues) + ")");
+        }
+        return "(" + Joiner.on(" OR ").join(disjuncts) + ")";
+    }
+
+    private static String toLiteral(Object value, ArrowType type)
+    {
+        Types.MinorType minorType = Types.getMinorTypeForArrowType(type);
+        switch (minorType) {
+            case BIGINT:
+            case INT:
+            case SMALLINT:
+            case TINYINT:
+                return String.valueOf(((Number) value).longValue());
+            case FLOAT8:
+            case FLOAT4:
+                double doubleValue = ((Number) value).doubleValue();
+                if (Double.isNaN(doubleValue) || Double.isInfinite(doubleValue)) {
+                    throw new UnsupportedOperationException("Can't unload with constraint on " + value);
+                }
+                return BigDecimal.valueOf(doubleValue).toPlainString();
+            case DECIMAL:
+                return ((BigDecimal) value).toPlainString();
+            case BIT:
+                return (boolean) value ? "TRUE" : "FALSE";
+            case DATEDAY:
+                return toStringLiteral(LocalDate.ofEpochDay(((Number) value).longValue()).toString()) + "::date";
+            case DATEMILLI:
+                return toStringLiteral(((LocalDateTime) value).toString().replace('T', ' ')) + "::timestamp";
+            case VARCHAR:
+                return toStringLiteral(String.valueOf(value));
+            default:
+                throw new UnsupportedOperationException(String.format("Can't unload with constraint on type: %s, %s", type, minorType));
+        }
+    }
+
+    private static String toStringLiteral(String value)
+    {
+        return "'" + value.replace("\\", "\\\\").replace("'", "''") + "'";
+    }
+
+    private static String quote(String identifier)
+    {
+        return QUOTE_CHARACTER + identifier.replace(QUOTE_CHARACTER, QUOTE_CHARACTER + QUOTE_CHARACTER) + QUOTE_CHARACTER;
+    }
+}
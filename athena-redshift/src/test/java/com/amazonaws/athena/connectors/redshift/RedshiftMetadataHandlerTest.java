@@ -27,6 +27,8 @@ import com.amazonaws.athena.connector.lambda.data.SchemaBuilder;
 import com.amazonaws.athena.connector.lambda.domain.Split;
 import com.amazonaws.athena.connector.lambda.domain.TableName;
 import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Range;
+import com.amazonaws.athena.connector.lambda.domain.predicate.SortedRangeSet;
 import com.amazonaws.athena.connector.lambda.metadata.GetSplitsRequest;
 import com.amazonaws.athena.connector.lambda.metadata.GetSplitsResponse;
 import com.amazonaws.athena.connector.lambda.metadata.GetTableLayoutRequest;
@@ -40,6 +42,10 @@ import com.amazonaws.athena.connectors.jdbc.connection.JdbcConnectionFactory;
 import com.amazonaws.athena.connectors.jdbc.connection.JdbcCredentialProvider;
 import com.amazonaws.athena.connectors.postgresql.PostGreSqlMetadataHandler;
 import com.amazonaws.services.athena.AmazonAthena;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.amazonaws.services.secretsmanager.AWSSecretsManager;
 import com.amazonaws.services.secretsmanager.model.GetSecretValueRequest;
 import com.amazonaws.services.secretsmanager.model.GetSecretValueResult;
@@ -52,6 +58,7 @@ import org.apache.arrow.vector.types.pojo.Schema;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,6 +67,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -67,6 +75,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
@@ -284,6 +293,163 @@ public class RedshiftMetadataHandlerTest
         Assert.assertEquals(expectedSplits, actualSplits);
     }
 
+    @Test
+    public void doGetSplitsUnload()
+            throws Exception
+    {
+        AmazonS3 amazonS3 = Mockito.mock(AmazonS3.class);
+        RedshiftMetadataHandler unloadMetadataHandler = new RedshiftMetadataHandler(databaseConnectionConfig, this.secretsManager, this.athena,
+                this.jdbcConnectionFactory, amazonS3, "arn:aws:iam::123456789012:role/unload", null, 1000);
+
+        BlockAllocator blockAllocator = new BlockAllocatorImpl();
+        TableName tableName = new TableName("testSchema", "testTable");
+        Constraints constraints = new Constraints(ImmutableMap.of("id", SortedRangeSet.copyOf(org.apache.arrow.vector.types.Types.MinorType.INT.getType(),
+                Collections.singletonList(Range.greaterThan(blockAllocator, org.apache.arrow.vector.types.Types.MinorType.INT.getType(), 5)), false)));
+        Schema partitionSchema = unloadMetadataHandler.getPartitionSchema("testCatalogName");
+        Set<String> partitionCols = partitionSchema.getFields().stream().map(Field::getName).collect(Collectors.toSet());
+        GetTableLayoutRequest getTableLayoutRequest = new GetTableLayoutRequest(this.federatedIdentity, "testQueryId", "testCatalogName", tableName, constraints, partitionSchema, partitionCols);
+
+        PreparedStatement partitionsStatement = Mockito.mock(PreparedStatement.class);
+        Mockito.when(this.connection.prepareStatement(PostGreSqlMetadataHandler.GET_PARTITIONS_QUERY)).thenReturn(partitionsStatement);
+        ResultSet partitionsResultSet = mockResultSet(new String[] {"child_schema", "child"}, new int[] {Types.VARCHAR, Types.VARCHAR}, new Object[][] {{}}, new AtomicInteger(-1));
+        Mockito.when(partitionsStatement.executeQuery()).thenReturn(partitionsResultSet);
+        Mockito.when(this.connection.getMetaData().getSearchStringEscape()).thenReturn(null);
+
+        PreparedStatement rowsStatement = Mockito.mock(PreparedStatement.class);
+        Mockito.when(this.connection.prepareStatement(RedshiftMetadataHandler.GET_TABLE_ROWS_QUERY)).thenReturn(rowsStatement);
+        ResultSet rowsResultSet = Mockito.mock(ResultSet.class);
+        Mockito.when(rowsResultSet.next()).thenReturn(true);
+        Mockito.when(rowsResultSet.getLong(1)).thenReturn(1_000_000L);
+        Mockito.when(rowsStatement.executeQuery()).thenReturn(rowsResultSet);
+        mockColumns(tableName, new Object[][] {{Types.INTEGER, "id", 0, 0, "int4"}, {Types.VARCHAR, "name", 0, 0, "varchar"}});
+
+        Statement unloadStatement = Mockito.mock(Statement.class);
+        Mockito.when(this.connection.createStatement()).thenReturn(unloadStatement);
+
+        ListObjectsV2Result listResult = new ListObjectsV2Result();
+        listResult.getObjectSummaries().add(newObjectSummary("unload/0000_part_00.parquet", 100));
+        listResult.getObjectSummaries().add(newObjectSummary("unload/0001_part_00.parquet", 200));
+        listResult.getObjectSummaries().add(newObjectSummary("unload/0002_part_00.parquet", 0));
+        Mockito.when(amazonS3.listObjectsV2(Mockito.any(ListObjectsV2Request.class))).thenReturn(listResult);
+
+        GetTableLayoutResponse getTableLayoutResponse = unloadMetadataHandler.doGetTableLayout(blockAllocator, getTableLayoutRequest);
+        GetSplitsRequest getSplitsRequest = new GetSplitsRequest(this.federatedIdentity, "testQueryId", "testCatalogName", tableName, getTableLayoutResponse.getPartitions(), new ArrayList<>(partitionCols), constraints, null);
+        GetSplitsResponse getSplitsResponse = unloadMetadataHandler.doGetSplits(new BlockAllocatorImpl(), getSplitsRequest);
+
+        ArgumentCaptor<String> unloadCaptor = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(unloadStatement).execute(unloadCaptor.capture());
+        Assert.assertTrue(unloadCaptor.getValue(), unloadCaptor.getValue().startsWith(
+                "UNLOAD ('SELECT * FROM \"testSchema\".\"testTable\" WHERE ((\"id\" > 5))') TO 's3://"));
+        Assert.assertTrue(unloadCaptor.getValue(), unloadCaptor.getValue().endsWith(
+                "' IAM_ROLE 'arn:aws:iam::123456789012:role/unload' ENCRYPTED AUTO FORMAT AS PARQUET MAXFILESIZE 128 MB"));
+
+        Set<String> actualKeys = getSplitsResponse.getSplits().stream().map(split -> split.getProperty(RedshiftConstants.UNLOAD_KEY_PROPERTY)).collect(Collectors.toSet());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("unload/0000_part_00.parquet", "unload/0001_part_00.parquet")), actualKeys);
+        Assert.assertNull(getSplitsResponse.getContinuationToken());
+    }
+
+    @Test
+    public void doGetSplitsUnloadSmallTable()
+            throws Exception
+    {
+        AmazonS3 amazonS3 = Mockito.mock(AmazonS3.class);
+        RedshiftMetadataHandler unloadMetadataHandler = new RedshiftMetadataHandler(databaseConnectionConfig, this.secretsManager, this.athena,
+                this.jdbcConnectionFactory, amazonS3, "arn:aws:iam::123456789012:role/unload", null, 1000);
+
+        BlockAllocator blockAllocator = new BlockAllocatorImpl();
+        TableName tableName = new TableName("testSchema", "testTable");
+        Constraints constraints = new Constraints(Collections.emptyMap());
+        Schema partitionSchema = unloadMetadataHandler.getPartitionSchema("testCatalogName");
+        Set<String> partitionCols = partitionSchema.getFields().stream().map(Field::getName).collect(Collectors.toSet());
+        GetTableLayoutRequest getTableLayoutRequest = new GetTableLayoutRequest(this.federatedIdentity, "testQueryId", "testCatalogName", tableName, constraints, partitionSchema, partitionCols);
+
+        PreparedStatement partitionsStatement = Mockito.mock(PreparedStatement.class);
+        Mockito.when(this.connection.prepareStatement(PostGreSqlMetadataHandler.GET_PARTITIONS_QUERY)).thenReturn(partitionsStatement);
+        ResultSet partitionsResultSet = mockResultSet(new String[] {"child_schema", "child"}, new int[] {Types.VARCHAR, Types.VARCHAR}, new Object[][] {{}}, new AtomicInteger(-1));
+        Mockito.when(partitionsStatement.executeQuery()).thenReturn(partitionsResultSet);
+        Mockito.when(this.connection.getMetaData().getSearchStringEscape()).thenReturn(null);
+
+        PreparedStatement rowsStatement = Mockito.mock(PreparedStatement.class);
+        Mockito.when(this.connection.prepareStatement(RedshiftMetadataHandler.GET_TABLE_ROWS_QUERY)).thenReturn(rowsStatement);
+        ResultSet rowsResultSet = Mockito.mock(ResultSet.class);
+        Mockito.when(rowsResultSet.next()).thenReturn(true);
+        Mockito.when(rowsResultSet.getLong(1)).thenReturn(10L);
+        Mockito.when(rowsStatement.executeQuery()).thenReturn(rowsResultSet);
+
+        GetTableLayoutResponse getTableLayoutResponse = unloadMetadataHandler.doGetTableLayout(blockAllocator, getTableLayoutRequest);
+        GetSplitsRequest getSplitsRequest = new GetSplitsRequest(this.federatedIdentity, "testQueryId", "testCatalogName", tableName, getTableLayoutResponse.getPartitions(), new ArrayList<>(partitionCols), constraints, null);
+        GetSplitsResponse getSplitsResponse = unloadMetadataHandler.doGetSplits(new BlockAllocatorImpl(), getSplitsRequest);
+
+        Assert.assertEquals(Collections.singleton(ImmutableMap.of("partition_schema_name", "*", "partition_name", "*")),
+                getSplitsResponse.getSplits().stream().map(Split::getProperties).collect(Collectors.toSet()));
+        Mockito.verifyZeroInteractions(amazonS3);
+    }
+
+    @Test
+    public void doGetSplitsUnloadUnsupportedType()
+            throws Exception
+    {
+        AmazonS3 amazonS3 = Mockito.mock(AmazonS3.class);
+        RedshiftMetadataHandler unloadMetadataHandler = new RedshiftMetadataHandler(databaseConnectionConfig, this.secretsManager, this.athena,
+                this.jdbcConnectionFactory, amazonS3, "arn:aws:iam::123456789012:role/unload", null, 1000);
+
+        BlockAllocator blockAllocator = new BlockAllocatorImpl();
+        TableName tableName = new TableName("testSchema", "testTable");
+        Constraints constraints = new Constraints(Collections.emptyMap());
+        Schema partitionSchema = unloadMetadataHandler.getPartitionSchema("testCatalogName");
+        Set<String> partitionCols = partitionSchema.getFields().stream().map(Field::getName).collect(Collectors.toSet());
+        GetTableLayoutRequest getTableLayoutRequest = new GetTableLayoutRequest(this.federatedIdentity, "testQueryId", "testCatalogName", tableName, constraints, partitionSchema, partitionCols);
+
+        PreparedStatement partitionsStatement = Mockito.mock(PreparedStatement.class);
+        Mockito.when(this.connection.prepareStatement(PostGreSqlMetadataHandler.GET_PARTITIONS_QUERY)).thenReturn(partitionsStatement);
+        ResultSet partitionsResultSet = mockResultSet(new String[] {"child_schema", "child"}, new int[] {Types.VARCHAR, Types.VARCHAR}, new Object[][] {{}}, new AtomicInteger(-1));
+        Mockito.when(partitionsStatement.executeQuery()).thenReturn(partitionsResultSet);
+        Mockito.when(this.connection.getMetaData().getSearchStringEscape()).thenReturn(null);
+
+        PreparedStatement rowsStatement = Mockito.mock(PreparedStatement.class);
+        Mockito.when(this.connection.prepareStatement(RedshiftMetadataHandler.GET_TABLE_ROWS_QUERY)).thenReturn(rowsStatement);
+        ResultSet rowsResultSet = Mockito.mock(ResultSet.class);
+        Mockito.when(rowsResultSet.next()).thenReturn(true);
+        Mockito.when(rowsResultSet.getLong(1)).thenReturn(1_000_000L);
+        Mockito.when(rowsStatement.executeQuery()).thenReturn(rowsResultSet);
+        mockColumns(tableName, new Object[][] {{Types.INTEGER, "id", 0, 0, "int4"}, {Types.VARBINARY, "data", 0, 0, "varbyte"}});
+
+        GetTableLayoutResponse getTableLayoutResponse = unloadMetadataHandler.doGetTableLayout(blockAllocator, getTableLayoutRequest);
+        GetSplitsRequest getSplitsRequest = new GetSplitsRequest(this.federatedIdentity, "testQueryId", "testCatalogName", tableName, getTableLayoutResponse.getPartitions(), new ArrayList<>(partitionCols), constraints, null);
+        GetSplitsResponse getSplitsResponse = unloadMetadataHandler.doGetSplits(new BlockAllocatorImpl(), getSplitsRequest);
+
+        Assert.assertEquals(Collections.singleton(ImmutableMap.of("partition_schema_name", "*", "partition_name", "*")),
+                getSplitsResponse.getSplits().stream().map(Split::getProperties).collect(Collectors.toSet()));
+        Mockito.verify(this.connection, Mockito.never()).createStatement();
+        Mockito.verifyZeroInteractions(amazonS3);
+    }
+
+    private void mockColumns(TableName tableName, Object[][] columns)
+            throws SQLException
+    {
+        ResultSet columnsResultSet = mockResultSet(new String[] {"DATA_TYPE", "COLUMN_NAME", "COLUMN_SIZE", "DECIMAL_DIGITS", "TYPE_NAME"}, columns, new AtomicInteger(-1));
+        Mockito.when(this.connection.getCatalog()).thenReturn("testCatalog");
+        Mockito.when(this.connection.getMetaData().getColumns("testCatalog", tableName.getSchemaName(), tableName.getTableName(), null)).thenReturn(columnsResultSet);
+    }
+
+    private static S3ObjectSummary newObjectSummary(String key, long size)
+    {
+        S3ObjectSummary objectSummary = new S3ObjectSummary();
+        objectSummary.setBucketName("testBucket");
+        objectSummary.setKey(key);
+        objectSummary.setSize(size);
+        return objectSummary;
+    }
+
+    @Test
+    public void getStatisticsSplitClauses()
+    {
+        // The PostgreSQL pg_stats query isn't supported by Redshift, so it must not be run.
+        Assert.assertEquals(Optional.empty(),
+                this.redshiftMetadataHandler.getStatisticsSplitClauses(this.connection, new TableName("testSchema", "testTable"), "id"));
+        Mockito.verifyZeroInteractions(this.connection);
+    }
+
     @Test
     public void doGetTableWithArrayColumns()
             throws Exception
@@ -19,6 +19,13 @@
  */
 package com.amazonaws.athena.connectors.redshift;
 
+import com.amazonaws.athena.connector.lambda.QueryStatusChecker;
+import com.amazonaws.athena.connector.lambda.data.Block;
+import com.amazonaws.athena.connector.lambda.data.BlockAllocator;
+import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
+import com.amazonaws.athena.connector.lambda.data.BlockSpiller;
+import com.amazonaws.athena.connector.lambda.data.BlockUtils;
+import com.amazonaws.athena.connector.lambda.data.BlockWriter;
 import com.amazonaws.athena.connector.lambda.data.FieldBuilder;
 import com.amazonaws.athena.connector.lambda.data.SchemaBuilder;
 import com.amazonaws.athena.connector.lambda.domain.Split;
@@ -28,6 +35,9 @@ import com.amazonaws.athena.connector.lambda.domain.predicate.Marker;
 import com.amazonaws.athena.connector.lambda.domain.predicate.Range;
 import com.amazonaws.athena.connector.lambda.domain.predicate.SortedRangeSet;
 import com.amazonaws.athena.connector.lambda.domain.predicate.ValueSet;
+import com.amazonaws.athena.connector.lambda.domain.spill.SpillLocation;
+import com.amazonaws.athena.connector.lambda.records.ReadRecordsRequest;
+import com.amazonaws.athena.connector.lambda.security.FederatedIdentity;
 import com.amazonaws.athena.connectors.jdbc.TestBase;
 import com.amazonaws.athena.connectors.jdbc.connection.DatabaseConnectionConfig;
 import com.amazonaws.athena.connectors.jdbc.connection.JdbcConnectionFactory;
@@ -37,6 +47,9 @@ import com.amazonaws.athena.connectors.postgresql.PostGreSqlMetadataHandler;
 import com.amazonaws.athena.connectors.postgresql.PostGreSqlQueryStringBuilder;
 import com.amazonaws.services.athena.AmazonAthena;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.SelectObjectContentRequest;
+import com.amazonaws.services.s3.model.SelectObjectContentResult;
+import com.amazonaws.services.s3.model.SelectRecordsInputStream;
 import com.amazonaws.services.secretsmanager.AWSSecretsManager;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -46,15 +59,20 @@ import org.apache.arrow.vector.types.pojo.Schema;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.AdditionalAnswers;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.concurrent.TimeUnit;
 
@@ -229,4 +247,78 @@ public class RedshiftRecordHandlerTest
         Mockito.when(valueSet.getRanges().getOrderedRanges()).thenReturn(Collections.singletonList(range));
         return valueSet;
     }
+
+    @Test
+    public void readWithConstraintFromUnload()
+            throws Exception
+    {
+        Schema schema = SchemaBuilder.newBuilder()
+                .addField(FieldBuilder.newBuilder("id", Types.MinorType.INT.getType()).build())
+                .addField(FieldBuilder.newBuilder("name", Types.MinorType.VARCHAR.getType()).build())
+                .addField(FieldBuilder.newBuilder("price", new ArrowType.Decimal(8, 2)).build())
+                .addField(FieldBuilder.newBuilder("day", Types.MinorType.DATEDAY.getType()).build())
+                .addField(FieldBuilder.newBuilder("partition_name", Types.MinorType.VARCHAR.getType()).build())
+                .build();
+        Split split = Split.newBuilder(Mockito.mock(SpillLocation.class), null)
+                .add("partition_schema_name", "*")
+                .add("partition_name", "*")
+                .add(RedshiftConstants.UNLOAD_BUCKET_PROPERTY, "testBucket")
+                .add(RedshiftConstants.UNLOAD_KEY_PROPERTY, "unload/0000_part_00.parquet")
+                .build();
+
+        String records = "{\"id\":1,\"name\":\"a\",\"price\":1.50,\"day\":\"2020-01-02\"}\n"
+                + "{\"id\":2,\"name\":null,\"price\":2.25,\"day\":\"2020-01-03\"}\n";
+        SelectObjectContentResult selectResult = Mockito.mock(SelectObjectContentResult.class, Mockito.RETURNS_DEEP_STUBS);
+        Mockito.when(selectResult.getPayload().getRecordsInputStream())
+                .thenReturn(Mockito.mock(SelectRecordsInputStream.class, AdditionalAnswers.delegatesTo(new ByteArrayInputStream(records.getBytes(StandardCharsets.UTF_8)))));
+        ArgumentCaptor<SelectObjectContentRequest> selectCaptor = ArgumentCaptor.forClass(SelectObjectContentRequest.class);
+        Mockito.when(amazonS3.selectObjectContent(selectCaptor.capture())).thenReturn(selectResult);
+
+        try (BlockAllocator allocator = new BlockAllocatorImpl()) {
+            Block block = allocator.createBlock(schema);
+            BlockSpiller blockSpiller = Mockito.mock(BlockSpiller.class);
+            // Single row batches exercise reading the file across several batches.
+            Mockito.doAnswer(invocation -> {
+                int rows = ((BlockWriter.BatchRowWriter) invocation.getArguments()[0]).writeRows(block, block.getRowCount(), 1);
+                block.setRowCount(block.getRowCount() + rows);
+                return null;
+            }).when(blockSpiller).writeBatch(Mockito.any(BlockWriter.BatchRowWriter.class));
+            QueryStatusChecker queryStatusChecker = Mockito.mock(QueryStatusChecker.class);
+            Mockito.when(queryStatusChecker.isQueryRunning()).thenReturn(true);
+            ReadRecordsRequest readRecordsRequest = new ReadRecordsRequest(Mockito.mock(FederatedIdentity.class), "testCatalog", "testQueryId",
+                    new TableName("testSchema", "testTable"), schema, split, new Constraints(Collections.emptyMap()), 1024, 1024);
+
+            this.redshiftRecordHandler.readWithConstraint(blockSpiller, readRecordsRequest, queryStatusChecker);
+
+            Assert.assertEquals("SELECT s.\"id\", s.\"name\", s.\"price\", s.\"day\" FROM S3Object s", selectCaptor.getValue().getExpression());
+            Assert.assertEquals("unload/0000_part_00.parquet", selectCaptor.getValue().getKey());
+            Assert.assertEquals(2, block.getRowCount());
+            Mockito.verify(blockSpiller, Mockito.times(3)).writeBatch(Mockito.any(BlockWriter.BatchRowWriter.class));
+            Assert.assertEquals("[id : 1], [name : a], [price : 1.50], [day : 18263], [partition_name : *]", BlockUtils.rowToString(block, 0));
+            Assert.assertEquals("[id : 2], [name : null], [price : 2.25], [day : 18264], [partition_name : *]", BlockUtils.rowToString(block, 1));
+        }
+        Mockito.verifyZeroInteractions(this.jdbcConnectionFactory);
+    }
+
+    @Test
+    public void toArrowValue()
+    {
+        Assert.assertEquals(7L, RedshiftRecordHandler.toArrowValue(FieldBuilder.newBuilder("c", Types.MinorType.BIGINT.getType()).build(), 7));
+        Assert.assertEquals(1.5d, RedshiftRecordHandler.toArrowValue(FieldBuilder.newBuilder("c", Types.MinorType.FLOAT8.getType()).build(), new BigDecimal("1.5")));
+        Assert.assertEquals(true, RedshiftRecordHandler.toArrowValue(FieldBuilder.newBuilder("c", Types.MinorType.BIT.getType()).build(), "true"));
+        Assert.assertEquals(LocalDateTime.of(2020, 1, 2, 3, 4, 5),
+                RedshiftRecordHandler.toArrowValue(FieldBuilder.newBuilder("c", Types.MinorType.DATEMILLI.getType()).build(), "2020-01-02 03:04:05"));
+        Assert.assertEquals(LocalDateTime.of(2020, 1, 2, 3, 4, 5),
+                RedshiftRecordHandler.toArrowValue(FieldBuilder.newBuilder("c", Types.MinorType.DATEMILLI.getType()).build(), "2020-01-02T04:04:05+01:00"));
+        Assert.assertNull(RedshiftRecordHandler.toArrowValue(FieldBuilder.newBuilder("c", Types.MinorType.INT.getType()).build(), null));
+    }
+
+    @Test
+    public void buildSelectRequestWithNoColumns()
+    {
+        SelectObjectContentRequest request = RedshiftRecordHandler.buildSelectRequest("testBucket", "testKey", Collections.emptyList());
+        Assert.assertEquals("SELECT 1 FROM S3Object s", request.getExpression());
+        Assert.assertNotNull(request.getInputSerialization().getParquet());
+        Assert.assertNotNull(request.getOutputSerialization().getJson());
+    }
 }
@@ -0,0 +1,108 @@
+/*-
+ * #%L
+ * athena-redshift
+ * %%
+ * Copyright (C) 2019 - 2022 Amazon Web Services
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.amazonaws.athena.connectors.redshift;
+
+import com.amazonaws.athena.connector.lambda.data.BlockAllocator;
+import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
+import com.amazonaws.athena.connector.lambda.domain.TableName;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
+import com.amazonaws.athena.connector.lambda.domain.predicate.EquatableValueSet;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Range;
+import com.amazonaws.athena.connector.lambda.domain.predicate.SortedRangeSet;
+import com.amazonaws.athena.connector.lambda.domain.predicate.ValueSet;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.arrow.vector.types.Types;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class RedshiftUnloadQueryBuilderTest
+{
+    private static final TableName TABLE_NAME = new TableName("testSchema", "testTable");
+
+    private final RedshiftUnloadQueryBuilder builder = new RedshiftUnloadQueryBuilder();
+    private BlockAllocator allocator;
+
+    @Before
+    public void setup()
+    {
+        allocator = new BlockAllocatorImpl();
+    }
+
+    @After
+    public void after()
+    {
+        allocator.close();
+    }
+
+    @Test
+    public void buildSelect()
+    {
+        Map<String, ValueSet> summary = new LinkedHashMap<>();
+        summary.put("id", SortedRangeSet.copyOf(Types.MinorType.BIGINT.getType(),
+                ImmutableList.of(Range.range(allocator, Types.MinorType.BIGINT.getType(), 10L, false, 20L, true)), false));
+        summary.put("name", SortedRangeSet.copyOf(Types.MinorType.VARCHAR.getType(),
+                ImmutableList.of(Range.equal(allocator, Types.MinorType.VARCHAR.getType(), "o'brien"),
+                        Range.equal(allocator, Types.MinorType.VARCHAR.getType(), "smith")), true));
+        summary.put("day", SortedRangeSet.copyOf(Types.MinorType.DATEDAY.getType(),
+                ImmutableList.of(Range.greaterThanOrEqual(allocator, Types.MinorType.DATEDAY.getType(), 1)), false));
+        summary.put("partition_name", SortedRangeSet.copyOf(Types.MinorType.VARCHAR.getType(),
+                ImmutableList.of(Range.equal(allocator, Types.MinorType.VARCHAR.getType(), "*")), false));
+        Constraints constraints = new Constraints(summary);
+
+        String select = builder.buildSelect(TABLE_NAME, constraints, Collections.singletonList("partition_name"));
+
+        Assert.assertEquals("SELECT * FROM \"testSchema\".\"testTable\" WHERE ((\"id\" > 10 AND \"id\" <= 20))"
+                + " AND ((\"name\" IS NULL) OR \"name\" IN ('o''brien','smith'))"
+                + " AND ((\"day\" >= '1970-01-02'::date))", select);
+    }
+
+    @Test
+    public void buildUnload()
+    {
+        String unload = builder.buildUnload("SELECT * FROM \"s\".\"t\" WHERE \"c\" = 'a''b'", "bucket", "prefix/query/", "arn:aws:iam::123456789012:role/unload", null);
+
+        Assert.assertEquals("UNLOAD ('SELECT * FROM \"s\".\"t\" WHERE \"c\" = ''a''''b''') TO 's3://bucket/prefix/query/'"
+                + " IAM_ROLE 'arn:aws:iam::123456789012:role/unload' ENCRYPTED AUTO FORMAT AS PARQUET MAXFILESIZE 128 MB", unload);
+    }
+
+    @Test
+    public void buildUnloadWithKmsKey()
+    {
+        String unload = builder.buildUnload("SELECT * FROM \"s\".\"t\"", "bucket", "prefix/query/", "arn:aws:iam::123456789012:role/unload",
+                "arn:aws:kms:us-east-1:123456789012:key/1234abcd-12ab-34cd-56ef-1234567890ab");
+
+        Assert.assertEquals("UNLOAD ('SELECT * FROM \"s\".\"t\"') TO 's3://bucket/prefix/query/' IAM_ROLE 'arn:aws:iam::123456789012:role/unload'"
+                + " KMS_KEY_ID 'arn:aws:kms:us-east-1:123456789012:key/1234abcd-12ab-34cd-56ef-1234567890ab' ENCRYPTED FORMAT AS PARQUET MAXFILESIZE 128 MB", unload);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void buildSelectWithUnsupportedConstraint()
+    {
+        ValueSet valueSet = EquatableValueSet.newBuilder(allocator, Types.MinorType.VARCHAR.getType(), true, false).add("a").build();
+        builder.buildSelect(TABLE_NAME, new Constraints(ImmutableMap.of("name", valueSet)), Collections.emptyList());
+    }
+}
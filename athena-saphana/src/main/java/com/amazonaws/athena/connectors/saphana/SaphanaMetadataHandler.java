@@ -100,6 +100,15 @@ public class SaphanaMetadataHandler extends JdbcMetadataHandler
             super(databaseConnectionConfig, jdbcConnectionFactory);
     }
 
+    /**
+     * SaphanaQueryStringBuilder builds its own split queries, which don't translate aggregations.
+     */
+    @Override
+    protected boolean supportsAggregatePushdown()
+    {
+        return false;
+    }
+
     @Override
     public Schema getPartitionSchema(final String catalogName)
     {
@@ -61,4 +61,13 @@ public class SaphanaMuxMetadataHandler
     {
         super(secretsManager, athena, jdbcConnectionFactory, metadataHandlerMap, databaseConnectionConfig);
     }
+
+    /**
+     * SaphanaQueryStringBuilder builds its own split queries, which don't translate aggregations.
+     */
+    @Override
+    protected boolean supportsAggregatePushdown()
+    {
+        return false;
+    }
 }
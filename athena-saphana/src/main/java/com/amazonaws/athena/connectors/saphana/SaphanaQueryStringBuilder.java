@@ -130,6 +130,9 @@ public class SaphanaQueryStringBuilder extends JdbcSplitQueryBuilder
             final Split split)
             throws SQLException
     {
+        if (constraints.hasAggregation()) {
+            throw new UnsupportedOperationException("Aggregations are not pushed down to SAP HANA.");
+        }
         StringBuilder sql = new StringBuilder();
         String columnNames = tableSchema.getFields().stream()
                 .map(this::quoteField)
@@ -152,7 +155,7 @@ public class SaphanaQueryStringBuilder extends JdbcSplitQueryBuilder
             sql.append(" WHERE ")
                     .append(Joiner.on(" AND ").join(clauses));
         }
-        sql.append(appendLimitOffset(split));
+        sql.append(appendLimitOffset(split, constraints, tableSchema));
         LOGGER.debug("Generated SQL : {}", sql);
         PreparedStatement statement = jdbcConnection.prepareStatement(sql.toString());
 
@@ -46,6 +46,7 @@ import com.amazonaws.athena.connectors.jdbc.manager.JDBCUtil;
 import com.amazonaws.athena.connectors.jdbc.manager.JdbcArrowTypeConverter;
 import com.amazonaws.athena.connectors.jdbc.manager.JdbcMetadataHandler;
 import com.amazonaws.athena.connectors.jdbc.manager.PreparedStatementBuilder;
+import com.amazonaws.athena.connectors.jdbc.splits.StatisticsSplitPlanner;
 import com.amazonaws.services.athena.AmazonAthena;
 import com.amazonaws.services.secretsmanager.AWSSecretsManager;
 import com.google.common.annotations.VisibleForTesting;
@@ -59,17 +60,23 @@ import org.apache.arrow.vector.types.pojo.Schema;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static com.amazonaws.athena.connectors.snowflake.SnowflakeConstants.MAX_PARTITION_COUNT;
@@ -102,6 +109,22 @@ public class SnowflakeMetadataHandler extends JdbcMetadataHandler
      */
     static final String VIEW_CHECK_QUERY = "SELECT * FROM information_schema.views WHERE table_schema = ? AND table_name = ?";
     static final String ALL_PARTITIONS = "*";
+    /**
+     * Prefix of partition values which page through the table with LIMIT/OFFSET, e.g. partition-limit-500000-offset-0.
+     */
+    static final String PAGINATION_PARTITION_PREFIX = BLOCK_PARTITION_COLUMN_NAME + "-limit-";
+    static final String CLUSTERING_KEY_QUERY = "SELECT clustering_key FROM information_schema.tables WHERE table_schema = ? AND table_name = ?";
+    static final String COLUMN_TYPE_QUERY = "SELECT data_type FROM information_schema.columns WHERE table_schema = ? AND table_name = ? AND column_name = ?";
+    static final String APPROX_PERCENTILE_QUERY = "SELECT %s FROM %s";
+    /**
+     * Matches the leading column of a clustering key such as LINEAR(ID, TO_DATE(TS)), expressions aren't usable.
+     */
+    private static final Pattern CLUSTERING_KEY_COLUMN = Pattern.compile("^LINEAR\\(\\s*(\"(?:[^\"]|\"\")+\"|[A-Za-z_][A-Za-z0-9_$]*)\\s*[,)]");
+    private static final Set<String> NUMERIC_DATA_TYPES = ImmutableSet.of("NUMBER", "DECIMAL", "NUMERIC", "INT", "INTEGER", "BIGINT", "SMALLINT",
+            "TINYINT", "BYTEINT", "FLOAT", "DOUBLE", "REAL");
+    private static final String SNOWFLAKE_QUOTE_CHARACTER = "\"";
+
+    private final StatisticsSplitPlanner keyRangePlanner = new StatisticsSplitPlanner(PARTITION_RECORD_COUNT, MAX_PARTITION_COUNT);
     /**
      * Instantiates handler to be used by Lambda function directly.
      *
@@ -134,6 +157,16 @@ public class SnowflakeMetadataHandler extends JdbcMetadataHandler
         super(databaseConnectionConfig, jdbcConnectionFactory);
     }
 
+    /**
+     * Snowflake splits of tables without a usable key are pages of the table (LIMIT/OFFSET), which can't be aggregated
+     * independently.
+     */
+    @Override
+    protected boolean supportsAggregatePushdown()
+    {
+        return false;
+    }
+
     @Override
     public Schema getPartitionSchema(final String catalogName)
     {
@@ -183,7 +216,20 @@ public class SnowflakeMetadataHandler extends JdbcMetadataHandler
                 while (rs.next()) {
                     totalRecordCount = rs.getInt(1);
                 }
-                if (totalRecordCount > 0) {
+                List<String> keyRanges = totalRecordCount > PARTITION_RECORD_COUNT
+                        ? getKeyRangePartitions(connection, getTableLayoutRequest.getTableName(), (long) totalRecordCount)
+                        : Collections.emptyList();
+                if (!keyRanges.isEmpty()) {
+                    for (String keyRange : keyRanges) {
+                        LOGGER.info("partitionVal {} ", keyRange);
+                        blockWriter.writeRows((Block block, int rowNum) ->
+                        {
+                            block.setValue(BLOCK_PARTITION_COLUMN_NAME, rowNum, keyRange);
+                            return 1;
+                        });
+                    }
+                }
+                else if (totalRecordCount > 0) {
                     // if number of partitions are more than defined limit "MAX_PARTITION_COUNT"
                     // it will do maximum 50 partitions,49 partitions will have 500000 records each and last partition will have the remaining number of records.
                     double limitValue = totalRecordCount / PARTITION_RECORD_COUNT;
@@ -231,6 +277,100 @@ public class SnowflakeMetadataHandler extends JdbcMetadataHandler
         }
     }
 
+    /**
+     * Partitions the table into ranges of its clustering key, or of its primary key if it isn't clustered, with about
+     * PARTITION_RECORD_COUNT rows each. Unlike LIMIT/OFFSET pages, each range only reads its own rows (and Snowflake
+     * prunes the micro-partitions outside a range of the clustering key), and the ranges are disjoint. Range bounds
+     * come from approximate percentiles of the key so skewed keys still give evenly sized partitions.
+     *
+     * @return where clauses selecting each partition, or an empty list if the table has no numeric key to range over.
+     */
+    private List<String> getKeyRangePartitions(Connection connection, TableName tableName, long totalRecordCount)
+            throws SQLException
+    {
+        String keyColumn = getKeyColumn(connection, tableName);
+        if (keyColumn == null) {
+            LOGGER.info("No numeric clustering or primary key for {}, partitioning with LIMIT/OFFSET", tableName);
+            return Collections.emptyList();
+        }
+
+        int numPartitions = keyRangePlanner.getNumSplits(totalRecordCount);
+        String quotedKeyColumn = quote(keyColumn);
+        List<String> percentiles = new ArrayList<>();
+        for (int i = 0; i <= numPartitions; i++) {
+            percentiles.add(String.format("APPROX_PERCENTILE(%s, %s)", quotedKeyColumn, (double) i / numPartitions));
+        }
+        String percentileQuery = String.format(APPROX_PERCENTILE_QUERY, String.join(", ", percentiles),
+                quote(tableName.getSchemaName()) + "." + quote(tableName.getTableName()));
+
+        List<String> quantiles = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(percentileQuery)) {
+            if (!resultSet.next()) {
+                return Collections.emptyList();
+            }
+            for (int i = 1; i <= numPartitions + 1; i++) {
+                BigDecimal quantile = resultSet.getBigDecimal(i);
+                if (quantile == null) {
+                    return Collections.emptyList();
+                }
+                quantiles.add(quantile.toPlainString());
+            }
+        }
+        return StatisticsSplitPlanner.toSplitClauses(quotedKeyColumn, keyRangePlanner.selectCutPoints(quantiles, numPartitions));
+    }
+
+    /**
+     * @return the leading column of the table's clustering key, or else of its primary key, if it is numeric.
+     */
+    private String getKeyColumn(Connection connection, TableName tableName)
+            throws SQLException
+    {
+        List<String> parameters = Arrays.asList(tableName.getSchemaName(), tableName.getTableName());
+        String keyColumn = null;
+        try (PreparedStatement preparedStatement = new PreparedStatementBuilder().withConnection(connection)
+                .withQuery(CLUSTERING_KEY_QUERY).withParameters(parameters).build();
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            if (resultSet.next() && resultSet.getString(1) != null) {
+                Matcher matcher = CLUSTERING_KEY_COLUMN.matcher(resultSet.getString(1).trim());
+                if (matcher.find()) {
+                    String column = matcher.group(1);
+                    // unquoted identifiers are stored upper case
+                    keyColumn = column.startsWith(SNOWFLAKE_QUOTE_CHARACTER)
+                            ? column.substring(1, column.length() - 1).replace("\"\"", "\"")
+                            : column.toUpperCase();
+                }
+            }
+        }
+        if (keyColumn == null) {
+            try (ResultSet resultSet = connection.getMetaData().getPrimaryKeys(null, tableName.getSchemaName(), tableName.getTableName())) {
+                while (resultSet.next()) {
+                    if (resultSet.getInt("KEY_SEQ") == 1) {
+                        keyColumn = resultSet.getString(COLUMN_NAME);
+                    }
+                }
+            }
+        }
+        if (keyColumn == null) {
+            return null;
+        }
+
+        try (PreparedStatement preparedStatement = new PreparedStatementBuilder().withConnection(connection)
+                .withQuery(COLUMN_TYPE_QUERY).withParameters(Arrays.asList(tableName.getSchemaName(), tableName.getTableName(), keyColumn)).build();
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            if (resultSet.next() && resultSet.getString(1) != null && NUMERIC_DATA_TYPES.contains(resultSet.getString(1).toUpperCase())) {
+                return keyColumn;
+            }
+        }
+        return null;
+    }
+
+    private static String quote(String identifier)
+    {
+        return SNOWFLAKE_QUOTE_CHARACTER + identifier.replace(SNOWFLAKE_QUOTE_CHARACTER, SNOWFLAKE_QUOTE_CHARACTER + SNOWFLAKE_QUOTE_CHARACTER)
+                + SNOWFLAKE_QUOTE_CHARACTER;
+    }
+
     /**
      * Check if the input table is a view and returns viewflag accordingly
      * @param getTableLayoutRequest
@@ -61,4 +61,13 @@ public class SnowflakeMuxMetadataHandler
     {
         super(secretsManager, athena, jdbcConnectionFactory, metadataHandlerMap, databaseConnectionConfig);
     }
+
+    /**
+     * Snowflake splits are pages of the table (LIMIT/OFFSET), which can't be aggregated independently.
+     */
+    @Override
+    protected boolean supportsAggregatePushdown()
+    {
+        return false;
+    }
 }
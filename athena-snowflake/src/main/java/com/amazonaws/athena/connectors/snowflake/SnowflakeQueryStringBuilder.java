@@ -28,9 +28,9 @@ import java.util.Collections;
 import java.util.List;
 
 /**
- * Extends {@link JdbcSplitQueryBuilder} and implements MySql specific SQL clauses for split.
+ * Extends {@link JdbcSplitQueryBuilder} and implements Snowflake specific SQL clauses for split.
  *
- * MySql provides named partitions which can be used in a FROM clause.
+ * Splits are either ranges of a key of the table or, for tables without a usable key, LIMIT/OFFSET pages.
  */
 public class SnowflakeQueryStringBuilder
         extends JdbcSplitQueryBuilder
@@ -56,32 +56,39 @@ public class SnowflakeQueryStringBuilder
         return String.format(" FROM %s ", tableName);
     }
 
+    /**
+     * Partitions of tables with a numeric key are ranges of the key, and their partition value is the where clause
+     * selecting the range.
+     */
     @Override
     protected List<String> getPartitionWhereClauses(Split split)
     {
-        return Collections.emptyList();
+        String partitionVal = split.getProperty(SnowflakeMetadataHandler.BLOCK_PARTITION_COLUMN_NAME);
+        if (partitionVal == null || SnowflakeMetadataHandler.ALL_PARTITIONS.equals(partitionVal) || isPagination(partitionVal)) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(partitionVal);
     }
 
     /**
-     * logic to apply limits in query, if partition value does not contain "-", no limit and offset condition
-     * to be applied, else apply limits and offset as per "p-limit-3000-offset-0" pattern.
+     * logic to apply limits in query, if partition value is not a page of the table ("p-limit-3000-offset-0" pattern),
+     * no limit and offset condition to be applied, else apply limits and offset as per the pattern.
      * @param split
      * @return
      */
     @Override
     protected String appendLimitOffset(Split split)
     {
-        String xLimit = "";
-        String xOffset = "";
-        String partitionVal = split.getProperty(split.getProperties().keySet().iterator().next()); //p-limit-3000-offset-0
-        if (!partitionVal.contains("-")) {
+        String partitionVal = split.getProperty(SnowflakeMetadataHandler.BLOCK_PARTITION_COLUMN_NAME); //p-limit-3000-offset-0
+        if (partitionVal == null || !isPagination(partitionVal)) {
             return EMPTY_STRING;
         }
-        else {
-            String[] arr = partitionVal.split("-");
-            xLimit = arr[2];
-            xOffset = arr[4];
-        }
-        return " limit " + xLimit + " offset " + xOffset;
+        String[] arr = partitionVal.split("-");
+        return " limit " + arr[2] + " offset " + arr[4];
+    }
+
+    private static boolean isPagination(String partitionVal)
+    {
+        return partitionVal.startsWith(SnowflakeMetadataHandler.PAGINATION_PARTITION_PREFIX);
     }
 }
@@ -47,7 +47,6 @@ import java.sql.SQLException;
 public class SnowflakeRecordHandler extends JdbcRecordHandler
 {
     private static final String SNOWFLAKE_QUOTE_CHARACTER = "\"";
-    private static final int FETCH_SIZE = 1000;
     private final JdbcSplitQueryBuilder jdbcSplitQueryBuilder;
     /**
      * Instantiates handler to be used by Lambda function directly.
@@ -81,9 +80,6 @@ public class SnowflakeRecordHandler extends JdbcRecordHandler
     @Override
     public PreparedStatement buildSplitSql(Connection jdbcConnection, String catalogName, TableName tableName, Schema schema, Constraints constraints, Split split) throws SQLException
     {
-        PreparedStatement preparedStatement = jdbcSplitQueryBuilder.buildSql(jdbcConnection, null, tableName.getSchemaName(), tableName.getTableName(), schema, constraints, split);
-        // Disable fetching all rows.
-        preparedStatement.setFetchSize(FETCH_SIZE);
-        return preparedStatement;
+        return jdbcSplitQueryBuilder.buildSql(jdbcConnection, null, tableName.getSchemaName(), tableName.getTableName(), schema, constraints, split);
     }
 }
@@ -233,6 +233,49 @@ public class SnowflakeMetadataHandlerTest
         Mockito.verify(resultSet, Mockito.times(1)).getInt(1);
     }
 
+    @Test
+    public void doGetTableLayoutKeyRanges()
+            throws Exception {
+        BlockAllocator blockAllocator = new BlockAllocatorImpl();
+        Constraints constraints = Mockito.mock(Constraints.class);
+        TableName tableName = new TableName("testSchema", "testTable");
+        Schema partitionSchema = this.snowflakeMetadataHandler.getPartitionSchema("testCatalogName");
+        Set<String> partitionCols = new HashSet<>(Arrays.asList("partition"));
+        GetTableLayoutRequest getTableLayoutRequest = new GetTableLayoutRequest(this.federatedIdentity, "testQueryId", "testCatalogName", tableName, constraints, partitionSchema, partitionCols);
+        Mockito.when(mockQuery(SnowflakeMetadataHandler.COUNT_RECORDS_QUERY).getInt(1)).thenReturn(1_500_000);
+        Mockito.when(mockQuery(SnowflakeMetadataHandler.CLUSTERING_KEY_QUERY).getString(1)).thenReturn("LINEAR(id, TO_DATE(ts))");
+        Mockito.when(mockQuery(SnowflakeMetadataHandler.COLUMN_TYPE_QUERY).getString(1)).thenReturn("NUMBER");
+
+        Statement statement = Mockito.mock(Statement.class);
+        Mockito.when(this.connection.createStatement()).thenReturn(statement);
+        ResultSet percentiles = Mockito.mock(ResultSet.class);
+        Mockito.when(percentiles.next()).thenReturn(true);
+        Mockito.when(percentiles.getBigDecimal(1)).thenReturn(new java.math.BigDecimal(0));
+        Mockito.when(percentiles.getBigDecimal(2)).thenReturn(new java.math.BigDecimal(100));
+        Mockito.when(percentiles.getBigDecimal(3)).thenReturn(new java.math.BigDecimal(200));
+        Mockito.when(percentiles.getBigDecimal(4)).thenReturn(new java.math.BigDecimal(900));
+        Mockito.when(statement.executeQuery("SELECT APPROX_PERCENTILE(\"ID\", 0.0), APPROX_PERCENTILE(\"ID\", 0.3333333333333333), " +
+                "APPROX_PERCENTILE(\"ID\", 0.6666666666666666), APPROX_PERCENTILE(\"ID\", 1.0) FROM \"testSchema\".\"testTable\"")).thenReturn(percentiles);
+
+        GetTableLayoutResponse getTableLayoutResponse = this.snowflakeMetadataHandler.doGetTableLayout(blockAllocator, getTableLayoutRequest);
+
+        List<String> actualValues = new ArrayList<>();
+        for (int i = 0; i < getTableLayoutResponse.getPartitions().getRowCount(); i++) {
+            actualValues.add(BlockUtils.rowToString(getTableLayoutResponse.getPartitions(), i));
+        }
+        Assert.assertEquals(Arrays.asList("[partition : (\"ID\" < 100 OR \"ID\" IS NULL)]", "[partition : (\"ID\" >= 100 AND \"ID\" < 200)]",
+                "[partition : (\"ID\" >= 200)]"), actualValues);
+    }
+
+    private ResultSet mockQuery(String query)
+            throws SQLException
+    {
+        PreparedStatement preparedStatement = this.connection.prepareStatement(query);
+        ResultSet resultSet = preparedStatement.executeQuery();
+        Mockito.when(resultSet.next()).thenReturn(true, false);
+        return resultSet;
+    }
+
     @Test(expected = RuntimeException.class)
     public void doGetTableLayoutWithSQLException()
             throws Exception {
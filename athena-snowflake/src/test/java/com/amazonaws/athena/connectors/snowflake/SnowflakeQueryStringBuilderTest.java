@@ -48,9 +48,22 @@ public class SnowflakeQueryStringBuilderTest
     public void testGetPartitionWhereClauses()
     {
         SnowflakeQueryStringBuilder builder = new SnowflakeQueryStringBuilder("'");
+        Split split = Mockito.mock(Split.class);
+        Mockito.when(split.getProperty(Mockito.eq("partition"))).thenReturn("partition-limit-500000-offset-0");
         List<String> fromClauseWithSplit = builder.getPartitionWhereClauses(split);
         List<String> expected = new ArrayList<>();
         Assert.assertEquals(expected, fromClauseWithSplit);
+        Assert.assertEquals(" limit 500000 offset 0", builder.appendLimitOffset(split));
+    }
+
+    @Test
+    public void testKeyRangePartition()
+    {
+        SnowflakeQueryStringBuilder builder = new SnowflakeQueryStringBuilder("'");
+        Split split = Mockito.mock(Split.class);
+        Mockito.when(split.getProperty(Mockito.eq("partition"))).thenReturn("(\"ID\" >= -10 AND \"ID\" < 20)");
+        Assert.assertEquals(Collections.singletonList("(\"ID\" >= -10 AND \"ID\" < 20)"), builder.getPartitionWhereClauses(split));
+        Assert.assertEquals("", builder.appendLimitOffset(split));
     }
 }
 
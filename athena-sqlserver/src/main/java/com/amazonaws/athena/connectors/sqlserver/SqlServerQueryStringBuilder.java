@@ -73,4 +73,19 @@ public class SqlServerQueryStringBuilder extends JdbcSplitQueryBuilder
         }
         return Collections.emptyList();
     }
+
+    @Override
+    protected boolean supportsNullsOrdering()
+    {
+        return false;
+    }
+
+    /**
+     * SQL Server limits rows using OFFSET/FETCH, which is only allowed after an ORDER BY.
+     */
+    @Override
+    protected String toLimitClause(long limit, boolean ordered)
+    {
+        return (ordered ? "" : " ORDER BY (SELECT NULL)") + " OFFSET 0 ROWS FETCH NEXT " + limit + " ROWS ONLY";
+    }
 }
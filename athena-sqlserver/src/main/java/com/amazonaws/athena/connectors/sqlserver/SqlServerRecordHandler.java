@@ -46,7 +46,6 @@ import java.sql.SQLException;
 public class SqlServerRecordHandler extends JdbcRecordHandler
 {
     private static final String SQLSERVER_QUOTE_CHARACTER = "\"";
-    private static final int FETCH_SIZE = 1000;
     private final JdbcSplitQueryBuilder jdbcSplitQueryBuilder;
 
     public SqlServerRecordHandler()
@@ -78,10 +77,7 @@ public class SqlServerRecordHandler extends JdbcRecordHandler
     public PreparedStatement buildSplitSql(Connection jdbcConnection, String catalogName, TableName tableName, Schema schema, Constraints constraints,
                                            Split split) throws SQLException
     {
-        PreparedStatement preparedStatement = jdbcSplitQueryBuilder.buildSql(jdbcConnection, null, tableName.getSchemaName(), tableName.getTableName(),
+        return jdbcSplitQueryBuilder.buildSql(jdbcConnection, null, tableName.getSchemaName(), tableName.getTableName(),
                 schema, constraints, split);
-        // Disable fetching all rows.
-        preparedStatement.setFetchSize(FETCH_SIZE);
-        return preparedStatement;
     }
 }
@@ -93,4 +93,13 @@ public class SynapseQueryStringBuilder extends JdbcSplitQueryBuilder
         }
         return Collections.emptyList();
     }
+
+    /**
+     * Synapse only limits rows using TOP, which can't be appended to the query, so limits are not pushed down.
+     */
+    @Override
+    protected String toLimitClause(long limit, boolean ordered)
+    {
+        return null;
+    }
 }
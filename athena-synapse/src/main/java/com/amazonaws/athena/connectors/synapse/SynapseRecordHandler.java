@@ -57,7 +57,6 @@ public class SynapseRecordHandler extends JdbcRecordHandler
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(SynapseRecordHandler.class);
     private static final String QUOTE_CHARACTER = "\"";
-    private static final int FETCH_SIZE = 1000;
     private final JdbcSplitQueryBuilder jdbcSplitQueryBuilder;
     public SynapseRecordHandler()
     {
@@ -82,10 +81,7 @@ public class SynapseRecordHandler extends JdbcRecordHandler
     @Override
     public PreparedStatement buildSplitSql(Connection jdbcConnection, String catalogName, TableName tableName, Schema schema, Constraints constraints, Split split) throws SQLException
     {
-        PreparedStatement preparedStatement = jdbcSplitQueryBuilder.buildSql(jdbcConnection, null, tableName.getSchemaName(), tableName.getTableName(), schema, constraints, split);
-        // Disable fetching all rows.
-        preparedStatement.setFetchSize(FETCH_SIZE);
-        return preparedStatement;
+        return jdbcSplitQueryBuilder.buildSql(jdbcConnection, null, tableName.getSchemaName(), tableName.getTableName(), schema, constraints, split);
     }
 
     @Override
@@ -99,7 +95,7 @@ public class SynapseRecordHandler extends JdbcRecordHandler
             connection.setAutoCommit(false); // For consistency. This is needed to be false to enable streaming for some database types.
             try (PreparedStatement preparedStatement = buildSplitSql(connection, readRecordsRequest.getCatalogName(), readRecordsRequest.getTableName(),
                     readRecordsRequest.getSchema(), readRecordsRequest.getConstraints(), readRecordsRequest.getSplit());
-                 ResultSet resultSet = preparedStatement.executeQuery()) {
+                 ResultSet resultSet = executeSplitQuery(preparedStatement, readRecordsRequest.getSchema())) {
                 Map<String, String> partitionValues = readRecordsRequest.getSplit().getProperties();
 
                 GeneratedRowWriter.RowWriterBuilder rowWriterBuilder = GeneratedRowWriter.newBuilder(readRecordsRequest.getConstraints());
@@ -121,7 +117,7 @@ public class SynapseRecordHandler extends JdbcRecordHandler
                     blockSpiller.writeRows((Block block, int rowNum) -> rowWriter.writeRow(block, rowNum, resultSet) ? 1 : 0);
                     rowsReturnedFromDatabase++;
                 }
-                LOGGER.info("{} rows returned by database.", rowsReturnedFromDatabase);
+                logRowsReturned(rowsReturnedFromDatabase, preparedStatement.getFetchSize());
 
                 /*
                 SqlServer jdbc driver is using @@TRANCOUNT while performing commit(), it results below RuntimeException.
@@ -58,4 +58,13 @@ public class TeradataQueryStringBuilder extends JdbcSplitQueryBuilder
 
         return Collections.emptyList();
     }
+
+    /**
+     * Teradata only limits rows using TOP, which can't be appended to the query, so limits are not pushed down.
+     */
+    @Override
+    protected String toLimitClause(long limit, boolean ordered)
+    {
+        return null;
+    }
 }
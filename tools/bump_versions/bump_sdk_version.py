@@ -15,6 +15,7 @@ SDK_DIRS = {
     "athena-federation-sdk",
     "athena-federation-integ-test",
     "athena-federation-sdk-tools",
+    "athena-federation-sdk-benchmarks",
     "."
 }
 